@@ -0,0 +1,131 @@
+package server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import server.commands.CatanCommand;
+import server.commands.CommandSerializer;
+import server.commands.ICatanCommand;
+import shared.definitions.ResourceType;
+import shared.locations.EdgeDirection;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexDirection;
+import shared.locations.VertexLocation;
+import shared.model.PlayerReference;
+import shared.model.ResourceTradeList;
+import shared.model.TradeOffer;
+
+/**
+ * Compares CommandCodec against the old Java serialization + GZIP format
+ * over a mix of one command of each kind the server stores. Each call
+ * encodes or decodes the whole mix.
+ * @author Jordan
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandSerializerJmhBenchmark {
+
+	private List<ICatanCommand> commands;
+	private List<byte[]> encoded;
+	private List<byte[]> legacy;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		commands = sampleCommands();
+		encoded = new ArrayList<>();
+		legacy = new ArrayList<>();
+		for (ICatanCommand command : commands) {
+			encoded.add(CommandSerializer.serializeBytes(command));
+			legacy.add(CommandSerializer.serializeLegacyBytes(command));
+		}
+	}
+
+	@Benchmark
+	public void encode(Blackhole hole) throws Exception {
+		for (ICatanCommand command : commands) {
+			hole.consume(CommandSerializer.serializeBytes(command));
+		}
+	}
+
+	@Benchmark
+	public void decode(Blackhole hole) throws Exception {
+		for (byte[] data : encoded) {
+			hole.consume(CommandSerializer.deserializeBytes(data));
+		}
+	}
+
+	@Benchmark
+	public void encodeLegacy(Blackhole hole) throws Exception {
+		for (ICatanCommand command : commands) {
+			hole.consume(CommandSerializer.serializeLegacyBytes(command));
+		}
+	}
+
+	@Benchmark
+	public void decodeLegacy(Blackhole hole) throws Exception {
+		for (byte[] data : legacy) {
+			hole.consume(CommandSerializer.deserializeBytes(data));
+		}
+	}
+
+	/**
+	 * @return one command of each kind the server stores
+	 */
+	public static List<ICatanCommand> sampleCommands() throws Exception {
+		PlayerReference sam = new PlayerReference(UUID.randomUUID());
+		PlayerReference pete = new PlayerReference(UUID.randomUUID());
+		HexLocation hex = new HexLocation(1, -2);
+		EdgeLocation edge = new EdgeLocation(hex, EdgeDirection.NorthWest);
+		VertexLocation vertex = new VertexLocation(hex, VertexDirection.East);
+		HashMap<ResourceType, Integer> cards = new HashMap<>();
+		cards.put(ResourceType.WOOD, 2);
+		cards.put(ResourceType.ORE, 1);
+		HashMap<ResourceType, Integer> wanted = new HashMap<>();
+		wanted.put(ResourceType.SHEEP, 1);
+
+		List<ICatanCommand> commands = new ArrayList<>();
+		commands.add(new CatanCommand("sendChat", sam, "Anyone have wheat?"));
+		commands.add(new CatanCommand("rollDice", sam, 8));
+		commands.add(new CatanCommand("rob", sam, hex, pete));
+		commands.add(new CatanCommand("buyDevelopmentCard", sam));
+		commands.add(new CatanCommand("yearOfPlenty", sam, ResourceType.BRICK, ResourceType.WHEAT));
+		commands.add(new CatanCommand("roadBuildingCard", sam, edge, edge.flip()));
+		commands.add(new CatanCommand("soldier", sam, hex, pete));
+		commands.add(new CatanCommand("monopoly", sam, ResourceType.ORE));
+		commands.add(new CatanCommand("monument", sam));
+		commands.add(new CatanCommand("buildRoad", sam, edge));
+		commands.add(new CatanCommand("buildSettlement", sam, vertex));
+		commands.add(new CatanCommand("buildStartingPieces", sam, vertex, edge));
+		commands.add(new CatanCommand("buildCity", sam, vertex));
+		commands.add(new CatanCommand("offerTrade",
+				new TradeOffer(sam, pete, new ResourceTradeList(cards, wanted))));
+		commands.add(new CatanCommand("acceptTrade"));
+		commands.add(new CatanCommand("maritimeTrade", sam, ResourceType.WOOD, ResourceType.ORE));
+		commands.add(new CatanCommand("discard", sam, cards));
+		commands.add(new CatanCommand("finishTurn", sam));
+		return commands;
+	}
+
+}
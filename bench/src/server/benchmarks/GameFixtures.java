@@ -0,0 +1,70 @@
+package server.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import server.simulation.BuilderPolicy;
+import server.simulation.GameSimulator;
+import shared.model.ModelFacade;
+
+/**
+ * The games the benchmarks run against. Each stage is the same seeded game
+ * played to a set number of turns, so every run measures the same boards:
+ * <ul>
+ * <li>early: the starting pieces and one round of turns</li>
+ * <li>mid: 40 turns in, with the first cities and longer roads</li>
+ * <li>late: 100 turns in, with one player a point from winning</li>
+ * </ul>
+ * @author Jordan
+ *
+ */
+public class GameFixtures {
+
+	public static final String EARLY = "early";
+	public static final String MID = "mid";
+	public static final String LATE = "late";
+
+	/** Plays to at least 100 turns before anyone wins */
+	private static final long SEED = 42;
+
+	private GameFixtures() {}
+
+	/**
+	 * @param stage early, mid or late
+	 * @return a new copy of the game at that stage, waiting for a roll
+	 */
+	public static ModelFacade game(String stage) throws Exception {
+		GameSimulator simulator = new GameSimulator(new BuilderPolicy());
+		switch (stage) {
+		case EARLY:
+			return simulator.playTo(SEED, 4);
+		case MID:
+			return simulator.playTo(SEED, 40);
+		case LATE:
+			return simulator.playTo(SEED, 100);
+		default:
+			throw new IllegalArgumentException("Unknown stage " + stage);
+		}
+	}
+
+	/**
+	 * @return the game the way the server stores it
+	 */
+	public static byte[] serialize(ModelFacade game) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(game);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static ModelFacade deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (ModelFacade) in.readObject();
+		}
+	}
+
+}
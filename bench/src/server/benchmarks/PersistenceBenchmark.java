@@ -0,0 +1,156 @@
+package server.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import server.Factories.FileDAOFactory;
+import server.Factories.IDAOFactory;
+import server.Factories.SQLDAOFactory;
+import server.commands.CatanCommand;
+import server.commands.ICatanCommand;
+import shared.model.ModelFacade;
+import shared.model.PlayerReference;
+
+/**
+ * What the file and SQL plugins cost for the calls the server makes: saving
+ * and loading a game, appending moves, and reading them back when a game is
+ * loaded. Run from the bench target, which gives each run an empty working
+ * directory with the database schema in db/.
+ * @author Jordan
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+	/** How many moves the replay benchmark reads back */
+	private static final int STORED_MOVES = 500;
+	/** How many moves the batch benchmark appends at once */
+	private static final int BATCH = 10;
+
+	@State(Scope.Thread)
+	public static class Store {
+
+		@Param({"file", "sql"})
+		public String plugin;
+
+		IDAOFactory factory;
+		UUID stored;
+		ICatanCommand move;
+		List<ICatanCommand> batch;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			if (plugin.equals("sql")) {
+				createDatabase();
+				factory = new SQLDAOFactory();
+			}
+			else {
+				factory = new FileDAOFactory();
+			}
+			move = new CatanCommand("rollDice", new PlayerReference(UUID.randomUUID()), 8);
+			batch = new ArrayList<>();
+			for (int i = 0; i < BATCH; ++i) {
+				batch.add(move);
+			}
+
+			stored = UUID.randomUUID();
+			List<ICatanCommand> moves = new ArrayList<>();
+			for (int i = 0; i < STORED_MOVES; ++i) {
+				moves.add(move);
+			}
+			factory.getCommandDAO().addCommands(stored, moves);
+		}
+
+		private static void createDatabase() throws Exception {
+			String schema = new String(Files.readAllBytes(Paths.get("db", "catan-schema.sql")),
+					StandardCharsets.UTF_8);
+			Class.forName("org.sqlite.JDBC");
+			try (Connection connection = DriverManager.getConnection("jdbc:sqlite:db/Catan.sqlite");
+					Statement statement = connection.createStatement()) {
+				for (String sql : schema.split(";")) {
+					if (!sql.trim().isEmpty()) {
+						statement.executeUpdate(sql);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A store with one game in it. It extends Store, rather than taking one
+	 * in its setup, so there is only one store and it is ready first.
+	 */
+	@State(Scope.Thread)
+	public static class Game extends Store {
+
+		@Param({GameFixtures.EARLY, GameFixtures.MID, GameFixtures.LATE})
+		public String stage;
+
+		ModelFacade facade;
+		UUID uuid;
+
+		@Override
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			super.setUp();
+			facade = GameFixtures.game(stage);
+			uuid = UUID.randomUUID();
+			factory.getGameDAO().addGame(uuid, facade);
+		}
+	}
+
+	@Benchmark
+	public void saveGame(Game game) throws Exception {
+		game.factory.getGameDAO().updateGamebyUUID(game.uuid, game.facade);
+	}
+
+	@Benchmark
+	public ModelFacade loadGame(Game game) throws Exception {
+		return game.factory.getGameDAO().getGame(game.uuid);
+	}
+
+	@Benchmark
+	public void appendMove(Store store) throws Exception {
+		store.factory.getCommandDAO().addCommand(store.stored, store.move);
+	}
+
+	@Benchmark
+	public void appendBatch(Store store) throws Exception {
+		store.factory.getCommandDAO().addCommands(store.stored, store.batch);
+	}
+
+	/**
+	 * Reads back the moves of a game, the way the server does when it loads
+	 * games at startup
+	 */
+	@Benchmark
+	public List<ICatanCommand> readMoves(Store store) throws Exception {
+		return store.factory.getCommandDAO().getAll(store.stored);
+	}
+
+}
@@ -0,0 +1,130 @@
+package server.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+import server.communication.ModelSnapshot;
+import shared.communication.GameHeader;
+import shared.model.CatanModel;
+import shared.model.ModelCodec;
+import shared.model.ModelFacade;
+
+/**
+ * Turning a game into the JSON the clients poll for and back, and into the
+ * bytes the DAOs store and back.
+ * @author Jordan
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+	@State(Scope.Thread)
+	public static class Game {
+
+		@Param({GameFixtures.EARLY, GameFixtures.MID, GameFixtures.LATE})
+		public String stage;
+
+		final Gson gson = new Gson();
+		ModelFacade facade;
+		ModelSnapshot snapshot;
+		String json;
+		byte[] stored;
+		byte[] encoded;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			facade = GameFixtures.game(stage);
+			snapshot = ModelSnapshot.of(facade);
+			json = snapshot.getJSON();
+			stored = GameFixtures.serialize(facade);
+			encoded = ModelCodec.encode(facade);
+		}
+	}
+
+	/**
+	 * A client that has not seen the game yet. updateFromJSON ignores a
+	 * version it already has, so each call gets a new one.
+	 */
+	@State(Scope.Thread)
+	public static class Client {
+
+		ModelFacade facade;
+
+		@Setup(Level.Invocation)
+		public void setUp() throws Exception {
+			facade = new ModelFacade();
+		}
+	}
+
+	@Benchmark
+	public String gsonToJson(Game game) {
+		return game.gson.toJson(game.facade.getCatanModel());
+	}
+
+	@Benchmark
+	public ModelSnapshot snapshot(Game game) {
+		return ModelSnapshot.of(game.facade);
+	}
+
+	/**
+	 * A snapshot of an unchanged game that shares the tree of the last one,
+	 * which is what pollers cost between moves
+	 */
+	@Benchmark
+	public ModelSnapshot snapshotSharingPrevious(Game game) {
+		return ModelSnapshot.of(game.facade, game.snapshot);
+	}
+
+	@Benchmark
+	public CatanModel updateFromJSON(Game game, Client client) {
+		return client.facade.updateFromJSON(game.json);
+	}
+
+	@Benchmark
+	public byte[] javaSerialize(Game game) throws Exception {
+		return GameFixtures.serialize(game.facade);
+	}
+
+	@Benchmark
+	public ModelFacade javaDeserialize(Game game) throws Exception {
+		return GameFixtures.deserialize(game.stored);
+	}
+
+	@Benchmark
+	public byte[] codecEncode(Game game) {
+		return ModelCodec.encode(game.facade);
+	}
+
+	@Benchmark
+	public ModelFacade codecDecode(Game game) throws Exception {
+		return ModelCodec.decode(game.encoded);
+	}
+
+	/**
+	 * What listing a stored game costs
+	 */
+	@Benchmark
+	public GameHeader codecDecodeHeader(Game game) throws Exception {
+		return ModelCodec.decodeHeader(ByteBuffer.wrap(game.encoded));
+	}
+
+}
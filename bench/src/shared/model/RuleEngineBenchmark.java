@@ -0,0 +1,185 @@
+package shared.model;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import server.benchmarks.GameFixtures;
+import shared.definitions.ResourceType;
+import shared.definitions.TurnStatus;
+
+/**
+ * The rules the server runs on every move: paying out a roll, measuring
+ * roads and finding a player's legal moves. It is in shared.model so it can
+ * call CatanModel.roll and RoadNetwork without going through the checks in
+ * ModelFacade.
+ * @author Jordan
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleEngineBenchmark {
+
+	@State(Scope.Thread)
+	public static class Game {
+
+		@Param({GameFixtures.EARLY, GameFixtures.MID, GameFixtures.LATE})
+		public String stage;
+
+		ModelFacade facade;
+		CatanModel model;
+		Board map;
+		List<Player> players;
+		LegalMoveGenerator moves;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			facade = GameFixtures.game(stage);
+			model = facade.getCatanModel();
+			map = model.getMap();
+			players = model.getPlayers();
+			moves = new LegalMoveGenerator(facade);
+		}
+	}
+
+	/**
+	 * Copies of the game, each rolled once per call and then put back the
+	 * way it was: the cards the roll paid out go back in the bank and the
+	 * turn goes back before the roll. One roll is far too short to set up
+	 * around on its own, so a call rolls every copy and they are all put
+	 * back between calls.
+	 */
+	@State(Scope.Thread)
+	public static class Rolls {
+
+		/** Every roll but 7, which pays nothing and starts the robber instead */
+		private static final int[] ROLLS = {2, 3, 4, 5, 6, 8, 9, 10, 11, 12};
+		static final int GAMES = 200;
+
+		@Param({GameFixtures.EARLY, GameFixtures.MID, GameFixtures.LATE})
+		public String stage;
+
+		CatanModel[] models;
+		private int[][][] hands;
+		private int next = 0;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			models = new CatanModel[GAMES];
+			hands = new int[GAMES][][];
+			for (int game = 0; game < GAMES; ++game) {
+				models[game] = GameFixtures.game(stage).getCatanModel();
+				List<Player> players = models[game].getPlayers();
+				hands[game] = new int[players.size()][];
+				for (int seat = 0; seat < players.size(); ++seat) {
+					hands[game][seat] = counts(players.get(seat).getResources());
+				}
+			}
+		}
+
+		int next() {
+			int roll = ROLLS[next];
+			next = (next + 1) % ROLLS.length;
+			return roll;
+		}
+
+		@TearDown(Level.Invocation)
+		public void undoRolls() {
+			for (int game = 0; game < GAMES; ++game) {
+				undoRoll(models[game], hands[game]);
+			}
+		}
+
+		private static void undoRoll(CatanModel model, int[][] hands) {
+			ResourceList bank = model.getBank().getResources();
+			List<Player> players = model.getPlayers();
+			for (int seat = 0; seat < hands.length; ++seat) {
+				ResourceList hand = players.get(seat).getResources();
+				for (ResourceType type : ResourceType.values()) {
+					int paid = hand.count(type) - hands[seat][type.ordinal()];
+					if (paid > 0) {
+						hand.transferAtMost(bank, type, paid);
+					}
+				}
+			}
+
+			model.getTurnTracker().setStatus(TurnStatus.Rolling);
+			model.getTurnTracker().getCurrentPlayer().getPlayer().setHasRolled(false);
+			MessageList log = model.getLog();
+			int last = log.getMessage().size() - 1;
+			log.getMessage().remove(last);
+			log.getSource().remove(last);
+		}
+
+		private static int[] counts(ResourceList list) {
+			int[] counts = new int[ResourceType.values().length];
+			for (ResourceType type : ResourceType.values()) {
+				counts[type.ordinal()] = list.count(type);
+			}
+			return counts;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Rolls.GAMES)
+	public int roll(Rolls rolls) {
+		int total = 0;
+		for (CatanModel model : rolls.models) {
+			model.roll(rolls.next());
+			total += model.getVersion();
+		}
+		return total;
+	}
+
+	/**
+	 * Measures every player's longest road on a network built from the
+	 * board, the way the board does after it is loaded
+	 */
+	@Benchmark
+	public int longestRouteFromScratch(Game game) {
+		Board map = game.map;
+		RoadNetwork network = new RoadNetwork(map.getTopology(), map.getRoadMap(),
+				map.getMunicipalityMap());
+		int total = 0;
+		for (Player player : game.players) {
+			total += network.lengthOfLongestRoute(player.getReference());
+		}
+		return total;
+	}
+
+	/**
+	 * Asks the board for every player's longest road, which it keeps
+	 * between moves
+	 */
+	@Benchmark
+	public int longestRoute(Game game) {
+		int total = 0;
+		for (Player player : game.players) {
+			total += game.map.lengthOfLongestRoute(player.getReference());
+		}
+		return total;
+	}
+
+	@Benchmark
+	public LegalMoves legalMoves(Game game) {
+		return game.moves.getLegalMoves(game.facade.getCurrentPlayer());
+	}
+
+}
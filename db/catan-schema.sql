@@ -1,6 +1,7 @@
 DROP TABLE IF EXISTS games;
 DROP TABLE IF EXISTS user;
 DROP TABLE IF EXISTS commands;
+DROP TABLE IF EXISTS command_sequences;
 
 CREATE TABLE games (
 uuid CHAR PRIMARY KEY  NOT NULL UNIQUE,
@@ -14,7 +15,15 @@ username CHAR NOT NULL  UNIQUE , password CHAR
 );
 
 CREATE TABLE commands (
-id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,
-gameid CHAR(36) NOT NULL,
-command BLOB NOT NULL
-);
+gameid BLOB NOT NULL,
+seq INTEGER NOT NULL,
+command BLOB NOT NULL,
+PRIMARY KEY (gameid, seq)
+) WITHOUT ROWID;
+
+CREATE TABLE command_sequences (
+gameid BLOB PRIMARY KEY NOT NULL,
+next INTEGER NOT NULL
+) WITHOUT ROWID;
+
+PRAGMA user_version = 1;
@@ -7,6 +7,7 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -212,6 +213,7 @@ public class ClientCommunicator {
 			URL url = new URL((String) o.get("url"));
 			HttpURLConnection con = (HttpURLConnection) url.openConnection();
 			con.setRequestProperty("Cookie", cookies);
+			con.setRequestProperty("Accept-Encoding", "gzip");
 			con.setRequestMethod((String) o.get("requestType"));
 			if((o.get("requestType")).equals("POST")){// || (o.get("url")).equals("http://localhost:8081/game/model")){
 				con.setDoOutput(true);
@@ -224,6 +226,9 @@ public class ClientCommunicator {
 			if (con.getResponseCode() == HttpURLConnection.HTTP_OK){
 				
 				InputStream input = con.getInputStream();
+				if ("gzip".equals(con.getContentEncoding())) {
+					input = new GZIPInputStream(input);
+				}
 				int len = 0;
 				
 				byte[] buffer = new byte[1024];
@@ -15,6 +15,7 @@ import shared.communication.IServer;
 import shared.communication.PlayerHeader;
 import shared.communication.Session;
 import shared.definitions.CatanColor;
+import shared.definitions.GameStatus;
 import shared.definitions.ResourceType;
 import shared.exceptions.GameInitializationException;
 import shared.exceptions.GamePersistenceException;
@@ -69,6 +70,20 @@ public class MockServer implements IServer {
 		return returnList;
 	}
 
+	@Override
+	public List<GameHeader> getGameList(int offset, int limit, GameStatus status)
+			throws ServerException, UserException {
+		List<GameHeader> returnList = new ArrayList<GameHeader>();
+		for (GameHeader game : getGameList()) {
+			if (status == null || game.getStatus() == status) {
+				returnList.add(game);
+			}
+		}
+		int from = Math.min(offset, returnList.size());
+		int to = from + Math.min(limit, returnList.size() - from);
+		return returnList.subList(from, to);
+	}
+
 	@Override
 	public GameHeader createGame(String name, boolean randomTiles,
 			boolean randomNumbers, boolean randomPorts)
@@ -111,6 +126,20 @@ public class MockServer implements IServer {
 		return null;
 	}
 
+	@Override
+	public String getModelDelta(UUID gameID, int version) throws ServerException,
+			UserException {
+		
+		return getModel(gameID, version);
+	}
+
+	@Override
+	public String waitForModel(UUID gameID, int version) throws ServerException,
+			UserException {
+		
+		return getModel(gameID, version);
+	}
+
 	@Override
 	public String resetGame(UUID gameID) throws ServerException,
 			UserException {
@@ -128,6 +157,12 @@ public class MockServer implements IServer {
 		return null;
 	}
 
+	@Override
+	public List<Command> getCommands(UUID gameID, int version) throws ServerException,
+			UserException {
+		return null;
+	}
+
 	@Override
 	public String executeCommands(UUID gameID, List<Command> commands)
 			throws ServerException, UserException {
@@ -7,8 +7,12 @@ import java.util.TimerTask;
 
 import javax.swing.SwingUtilities;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
 import client.misc.ClientManager;
 import shared.communication.IServer;
+import shared.communication.JsonDelta;
 import shared.communication.Session;
 import shared.exceptions.*;
 import shared.model.ModelFacade;
@@ -35,6 +39,9 @@ public class ServerPoller {
 	ClientCommunicator comm;
 	Session user;
 	ModelFacade modelHandler = ClientManager.getModel();
+	private JsonObject lastModel = null;
+	private UUID lastGame = null;
+	private volatile Thread longPoller = null;
 	
 	public static void main() {
 		ServerPoller poller = new ServerPoller(new MockServer(), new Session("SAM","sam",UUID.randomUUID()));
@@ -58,7 +65,7 @@ public class ServerPoller {
 	 * @post None
 	 */
 	public boolean isRunning() {
-		return poller != null;
+		return poller != null || longPoller != null;
 	}
 
 	/**
@@ -75,22 +82,12 @@ public class ServerPoller {
 			@Override
 			public void run() {
 				try {
-					//JSONObject modelRequest = new JSONObject();
-					int version = modelHandler.getVersion();
 					//int game = modelHandler.getGameHeader().getId();
 					UUID gameUUID = modelHandler.getGameHeader().getUUID();
 					
-					final String modelStr = server.getModel(gameUUID, version);
+					String modelStr = fetchModel(gameUUID, false);
 					if (modelStr != null) {
-						SwingUtilities.invokeLater(new Runnable() {
-							@Override
-							public void run() {
-								log.fine("Sending new information to modelHander");
-								modelHandler = ClientManager.getModel();
-								modelHandler.updateFromJSON(modelStr);
-							}
-							
-						});
+						deliver(modelStr);
 					}
 					
 				} catch (ServerException | UserException e) {
@@ -102,6 +99,98 @@ public class ServerPoller {
 		}, 0, interval);
 	}
 	
+	/**
+	 * Polls the server by holding a request open until the game changes,
+	 * instead of asking on a timer. Moves show up as soon as they are made,
+	 * and an idle game costs one request per server timeout.
+	 * @pre The poller is not running
+	 * @post The poller will be running
+	 */
+	public void startLongPolling() {
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (longPoller == Thread.currentThread()) {
+					try {
+						UUID gameUUID = modelHandler.getGameHeader().getUUID();
+						String modelStr = fetchModel(gameUUID, true);
+						if (modelStr != null) {
+							deliver(modelStr);
+						}
+						// Before the first move the server cannot tell whether
+						// we are current, so it answers right away
+						if (lastModel == null || lastModel.get("version").getAsInt() <= 0) {
+							Thread.sleep(DEFAULT_POLL_INTERVAL);
+						}
+					} catch (ServerException | UserException e) {
+						log.severe("Server error, could not connect");
+						try {
+							Thread.sleep(DEFAULT_POLL_INTERVAL);
+						} catch (InterruptedException e1) {
+							return;
+						}
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}, "ServerPoller");
+		thread.setDaemon(true);
+		longPoller = thread;
+		thread.start();
+	}
+	
+	private void deliver(final String modelStr) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				log.fine("Sending new information to modelHander");
+				modelHandler = ClientManager.getModel();
+				modelHandler.updateFromJSON(modelStr);
+			}
+			
+		});
+	}
+	
+	/**
+	 * Asks the server for changes since the last model this poller saw, and
+	 * applies them to its copy of the model.
+	 * @param gameUUID the game being polled
+	 * @param wait whether the server should hold the request until something changes
+	 * @return the full, updated model JSON, or null if nothing changed
+	 */
+	private String fetchModel(UUID gameUUID, boolean wait) throws ServerException, UserException {
+		if (lastModel != null && !gameUUID.equals(lastGame)) {
+			lastModel = null;
+		}
+		int version = lastModel == null ? -1 : lastModel.get("version").getAsInt();
+		
+		String response;
+		if (wait) {
+			response = server.waitForModel(gameUUID, version);
+		}
+		else {
+			response = server.getModelDelta(gameUUID, version);
+		}
+		if (response == null) {
+			return null;
+		}
+		JsonObject json = new JsonParser().parse(response).getAsJsonObject();
+		if (json.has("patch")) {
+			if (lastModel == null || json.get("baseVersion").getAsInt() != version) {
+				// Our copy no longer matches what the server diffed against
+				lastModel = null;
+				return fetchModel(gameUUID, false);
+			}
+			JsonDelta.patch(lastModel, json.getAsJsonObject("patch"));
+		}
+		else {
+			lastModel = json;
+		}
+		lastGame = gameUUID;
+		return lastModel.toString();
+	}
+	
 	/**
 	 * Creates a thread for polling using the default poll interval
 	 * @pre The poller is not running
@@ -120,8 +209,15 @@ public class ServerPoller {
 	 * @post the poller will not be running
 	 */
 	public void stop() {
-		poller.cancel();
-		poller = null;
+		if (poller != null) {
+			poller.cancel();
+			poller = null;
+		}
+		if (longPoller != null) {
+			Thread thread = longPoller;
+			longPoller = null;
+			thread.interrupt();
+		}
 	}
 
 	/**
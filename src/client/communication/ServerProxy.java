@@ -17,6 +17,7 @@ import shared.communication.GameHeader;
 import shared.communication.IServer;
 import shared.communication.Session;
 import shared.definitions.CatanColor;
+import shared.definitions.GameStatus;
 import shared.definitions.ResourceType;
 import shared.exceptions.GameInitializationException;
 import shared.exceptions.GamePersistenceException;
@@ -96,12 +97,26 @@ public class ServerProxy implements IServer {
 		return new Session(returnedName, returnedPassword, playerUUID);
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public List<GameHeader> getGameList() throws ServerException, UserException {
+		return listGames("/games/list");
+	}
+
+	@Override
+	public List<GameHeader> getGameList(int offset, int limit, GameStatus status)
+			throws ServerException, UserException {
+		String query = "/games/list?offset=" + offset + "&limit=" + limit;
+		if(status != null){
+			query += "&status=" + status;
+		}
+		return listGames(query);
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<GameHeader> listGames(String path) throws ServerException, UserException {
 		try{
 			JSONObject o = new JSONObject();
-			o.put("url","http://" + host + ":" + Integer.toString(port) + "/games/list");
+			o.put("url","http://" + host + ":" + Integer.toString(port) + path);
 			o.put("requestType", "GET");
 			JSONObject returned = communicator.preJoin(o);
 				
@@ -222,6 +237,30 @@ public class ServerProxy implements IServer {
 		return communicator.send(o);
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public String getModelDelta(UUID gameID, int version)
+			throws ServerException, UserException {
+		JSONObject o = new JSONObject();
+		o.put("url","http://" + host + ":" + Integer.toString(port) + "/game/model?version=" + version + "&delta=true");
+		o.put("requestType", "GET");
+		o.put("version", version);
+
+		return communicator.send(o);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public String waitForModel(UUID gameID, int version)
+			throws ServerException, UserException {
+		JSONObject o = new JSONObject();
+		o.put("url","http://" + host + ":" + Integer.toString(port) + "/game/model?version=" + version + "&delta=true&wait=true");
+		o.put("requestType", "GET");
+		o.put("version", version);
+
+		return communicator.send(o);
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public String resetGame(UUID gameID)
@@ -249,6 +288,22 @@ public class ServerProxy implements IServer {
 		return (List<Command>) returned.get("commands");
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<Command> getCommands(UUID gameID, int version)
+			throws ServerException, UserException {
+		JSONObject o = new JSONObject();
+		o.put("url","http://" + host + ":" + Integer.toString(port) + "/game/commands?version=" + version);
+		o.put("requestType", "GET");
+		JSONObject returned;
+		try {
+			returned = (JSONObject) new JSONParser().parse(communicator.send(o));
+		} catch (ParseException e) {
+			return new ArrayList<>();
+		}
+		return (List<Command>) returned.get("commands");
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public String executeCommands(UUID gameID, List<Command> commands)
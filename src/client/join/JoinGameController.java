@@ -266,7 +266,7 @@ public class JoinGameController extends Controller implements IJoinGameControlle
 			if (ClientManager.getSession() != null) {
 				ServerPoller poller = new ServerPoller(serverProxy,ClientManager.getSession());
 				modelFacade.setPoller(poller);
-				poller.start();
+				poller.startLongPolling();
 			}
 			// If join succeeded
 			joinAction.execute();
@@ -17,7 +17,7 @@ public class BuildCityState extends MapControllerState {
 
 	@Override
 	public boolean canPlaceCity(VertexLocation loc) {
-		return ClientManager.getModel().canBuildCity(loc);
+		return getLegalMoves().canBuildCity(loc);
 	}
 
 	@Override
@@ -47,7 +47,7 @@ public class BuildRoadState extends MapControllerState {
 
 	@Override
 	public boolean canPlaceRoad(EdgeLocation loc) {
-		return getController().getModel().canBuildRoad(loc);
+		return getLegalMoves().canBuildRoad(loc);
 	}	
 
 }
\ No newline at end of file
@@ -17,7 +17,7 @@ public class BuildSettlementState extends MapControllerState {
 
 	@Override
 	public boolean canPlaceSettlement(VertexLocation loc) {
-		return getModel().canBuildSettlement(loc);
+		return getLegalMoves().canBuildSettlement(loc);
 	}
 
 	@Override
@@ -12,11 +12,7 @@ public class BuildStartingSettlementState extends MapControllerState {
 
 	@Override
 	public boolean canPlaceSettlement(VertexLocation loc) {
-		try {
-			return getModel().canBuildStartingSettlement(loc);
-		} catch (Exception e) {
-			return false;
-		}
+		return getLegalMoves().canPlaceStartingSettlement(loc);
 	}
 
 	@Override
@@ -6,6 +6,8 @@ import shared.definitions.CatanColor;
 import shared.definitions.PieceType;
 import shared.exceptions.InvalidActionException;
 import shared.locations.*;
+import shared.model.LegalMoveGenerator;
+import shared.model.LegalMoves;
 import shared.model.ModelFacade;
 import shared.model.PlayerReference;
 
@@ -13,6 +15,9 @@ public abstract class MapControllerState {
 	
 	private MapController controller;
 	
+	private LegalMoves legalMoves;
+	private int legalMovesVersion;
+	
 	public MapControllerState(MapController controller) {
 		this.controller = controller;
 		System.out.println("New State: " + this.getClass().getSimpleName());
@@ -33,6 +38,18 @@ public abstract class MapControllerState {
 	protected PlayerReference getYourself() {
 		return controller.getYourself();
 	}
+	
+	/**
+	 * @return everything you can do right now. Only found again when the model changes.
+	 */
+	protected LegalMoves getLegalMoves() {
+		int version = getModel().getVersion();
+		if (legalMoves == null || legalMovesVersion != version) {
+			legalMoves = new LegalMoveGenerator(getModel()).getLegalMoves(getYourself());
+			legalMovesVersion = version;
+		}
+		return legalMoves;
+	}
 
 	protected CatanColor getYourColor() {
 		return controller.getYourColor();
@@ -0,0 +1,133 @@
+package server.DAOs;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import shared.communication.GameHeader;
+import shared.exceptions.SchemaMismatchException;
+import shared.model.ModelCodec;
+import shared.model.ModelFacade;
+
+/**
+ * A saved copy of a game, and the number of the first of its commands that
+ * came after the copy was taken. A game is loaded by reading its checkpoint
+ * and replaying its commands from that number on.
+ * <br/>
+ * The stored bytes are the game encoded by ModelCodec followed by the number
+ * as 8 bytes. Checkpoints stored before that hold the Java-serialized game
+ * followed by the number, and games saved before checkpoints existed hold
+ * only the game, so they read as checkpoints at command 0. Either is
+ * written in the new format the next time the game is checkpointed.
+ * @author Jordan
+ *
+ */
+public class Checkpoint {
+
+	private static final int SEQ_BYTES = 8;
+
+	private final byte[] bytes;
+	private final long seq;
+	private final GameHeader header;
+	private ModelFacade game;
+
+	private Checkpoint(byte[] bytes, long seq, GameHeader header, ModelFacade game) {
+		this.bytes = bytes;
+		this.seq = seq;
+		this.header = header;
+		this.game = game;
+	}
+
+	/**
+	 * Serializes the game as it is now
+	 * @param game the game
+	 * @param seq the number of the game's next command
+	 * @return the checkpoint
+	 * @pre nothing changes the game while it is serialized
+	 */
+	public static Checkpoint of(ModelFacade game, long seq) {
+		byte[] encoded = ModelCodec.encode(game);
+		byte[] bytes = Arrays.copyOf(encoded, encoded.length + SEQ_BYTES);
+		ByteBuffer.wrap(bytes, encoded.length, SEQ_BYTES).putLong(seq);
+		return new Checkpoint(bytes, seq, game.getGameHeader(), null);
+	}
+
+	/**
+	 * Reads the number and the game's header. The rest of the game is only
+	 * read by getGame.
+	 * @param bytes a stored checkpoint, or a game stored on its own
+	 * @return the checkpoint
+	 * @throws DatabaseException if the bytes are not a checkpoint
+	 */
+	public static Checkpoint read(byte[] bytes) throws DatabaseException {
+		if (!ModelCodec.isEncoded(bytes)) {
+			return readSerialized(bytes);
+		}
+		if (bytes.length < SEQ_BYTES) {
+			throw new DatabaseException("The checkpoint is damaged");
+		}
+		try {
+			long seq = ByteBuffer.wrap(bytes, bytes.length - SEQ_BYTES, SEQ_BYTES).getLong();
+			return new Checkpoint(bytes, seq, ModelCodec.decodeHeader(ByteBuffer.wrap(bytes)), null);
+		}
+		catch (SchemaMismatchException e) {
+			throw new DatabaseException("Could not read the checkpoint", e);
+		}
+	}
+
+	private static Checkpoint readSerialized(byte[] bytes) throws DatabaseException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			ModelFacade game = (ModelFacade) in.readObject();
+			long seq;
+			try {
+				seq = in.readLong();
+			}
+			catch (EOFException e) {
+				seq = 0;
+			}
+			return new Checkpoint(bytes, seq, game.getGameHeader(), game);
+		}
+		catch (IOException | ClassNotFoundException | ClassCastException e) {
+			throw new DatabaseException("Could not read the checkpoint", e);
+		}
+	}
+
+	/**
+	 * @return the bytes to store
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of the first command not in the checkpoint
+	 */
+	public long getSeq() {
+		return seq;
+	}
+
+	public GameHeader getHeader() {
+		return header;
+	}
+
+	/**
+	 * @return the game. The game is read the first time this is called, so
+	 * each checkpoint made with {@link #of} reads back a new copy.
+	 * @throws DatabaseException if the game could not be read
+	 */
+	public ModelFacade getGame() throws DatabaseException {
+		if (game == null) {
+			try {
+				game = ModelCodec.decode(bytes);
+			}
+			catch (SchemaMismatchException e) {
+				throw new DatabaseException("Could not read the checkpoint", e);
+			}
+		}
+		return game;
+	}
+
+}
@@ -0,0 +1,280 @@
+package server.DAOs;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import server.commands.CatanCommand;
+import server.commands.CatanCommandInfo;
+import server.commands.CommandSerializer;
+import server.commands.ICatanCommand;
+import shared.model.PlayerReference;
+
+/**
+ * Runs the same checks against the file journal and the SQL plugin. The SQL
+ * ones are skipped if the SQLite driver is not on the classpath.
+ */
+public class CommandDAOTest {
+
+	private Path directory;
+	private List<SQLDatabase> databases = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("commands");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (SQLDatabase database : databases) {
+			database.close();
+		}
+		delete(directory.toFile());
+	}
+
+	@Test
+	public void testFileRanges() throws Exception {
+		checkRanges(openFile());
+	}
+
+	@Test
+	public void testSQLRanges() throws Exception {
+		checkRanges(openSQL());
+	}
+
+	@Test
+	public void testFileNumbering() throws Exception {
+		checkNumbering(openFile(), new Reopener() {
+			@Override
+			public ICommandDAO reopen() {
+				return openFile();
+			}
+		});
+	}
+
+	@Test
+	public void testSQLNumbering() throws Exception {
+		checkNumbering(openSQL(), new Reopener() {
+			@Override
+			public ICommandDAO reopen() throws Exception {
+				return openSQL();
+			}
+		});
+	}
+
+	// A journal that was one serialized list of command strings
+	@Test
+	public void testFileLegacyJournal() throws Exception {
+		UUID game = UUID.randomUUID();
+		List<String> stored = new ArrayList<>();
+		for (int i = 0; i < 5; ++i) {
+			stored.add(CommandSerializer.serialize(command(i)));
+		}
+		try (ObjectOutputStream out = new ObjectOutputStream(
+				new FileOutputStream(new File(directory.toFile(), game.toString())))) {
+			out.writeObject(stored);
+		}
+
+		ICommandDAO dao = openFile();
+		assertMessages(dao.getSince(game, 2), 2, 5);
+		dao.addCommand(game, command(5));
+		assertMessages(dao.getAll(game), 0, 6);
+	}
+
+	// Segments that were numbered 0, 1, 2... instead of by their first command
+	@Test
+	public void testFileNumberedSegments() throws Exception {
+		UUID first = UUID.randomUUID(), second = UUID.randomUUID();
+		ICommandDAO writer = openFile();
+		writer.addCommands(first, commands(0, 3));
+		writer.addCommands(second, commands(3, 5));
+
+		UUID game = UUID.randomUUID();
+		File journal = new File(directory.toFile(), game.toString());
+		assertTrue(journal.mkdir());
+		Files.move(onlySegment(first), new File(journal, "0.log").toPath());
+		Files.move(onlySegment(second), new File(journal, "1.log").toPath());
+
+		ICommandDAO dao = openFile();
+		assertEquals(5, dao.count(game));
+		assertMessages(dao.getSince(game, 3), 3, 5);
+		dao.addCommand(game, command(5));
+		assertMessages(dao.getSince(game, 0), 0, 6);
+	}
+
+	// A commands table keyed by a table-wide id, with the game id as text
+	@Test
+	public void testSQLLegacyTable() throws Exception {
+		assumeDriver();
+		String url = "jdbc:sqlite:" + directory.resolve("legacy.sqlite");
+		UUID game = UUID.randomUUID(), other = UUID.randomUUID();
+		try (Connection connection = DriverManager.getConnection(url)) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("CREATE TABLE commands (" +
+						"id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, " +
+						"gameid CHAR(36) NOT NULL, command BLOB NOT NULL)");
+			}
+			try (PreparedStatement insert = connection.prepareStatement(
+					"INSERT INTO commands (gameid, command) VALUES (?, ?)")) {
+				// Interleaved, so each game is numbered apart from the other
+				for (int i = 0; i < 4; ++i) {
+					insert.setString(1, game.toString());
+					insert.setBytes(2, CommandSerializer.serializeLegacyBytes(command(i)));
+					insert.executeUpdate();
+					insert.setString(1, other.toString());
+					insert.setBytes(2, CommandSerializer.serializeLegacyBytes(command(10 + i)));
+					insert.executeUpdate();
+				}
+			}
+		}
+
+		// Read before anything is written, so the reader sees the new table
+		SQLDatabase database = new SQLDatabase(url, 2);
+		databases.add(database);
+		ICommandDAO dao = new SQLCommandDAO(database);
+		assertMessages(dao.getSince(game, 1), 1, 4);
+		assertEquals(4, dao.count(other));
+		dao.addCommand(game, command(4));
+		assertMessages(dao.getAll(game), 0, 5);
+		assertMessages(dao.getSince(other, 2), 12, 14);
+	}
+
+	private void checkRanges(ICommandDAO dao) throws Exception {
+		UUID game = UUID.randomUUID(), other = UUID.randomUUID();
+		dao.addCommands(game, commands(0, 3));
+		dao.addCommand(other, command(100));
+		dao.addCommands(game, commands(3, 10));
+
+		assertEquals(10, dao.count(game));
+		assertEquals(1, dao.count(other));
+		assertEquals(0, dao.count(UUID.randomUUID()));
+		assertMessages(dao.getAll(game), 0, 10);
+		assertMessages(dao.getSince(game, 4), 4, 10);
+		assertMessages(dao.getSince(game, 10), 10, 10);
+		assertMessages(dao.getSince(game, 50), 10, 10);
+
+		final List<ICatanCommand> replayed = new ArrayList<>();
+		dao.replay(game, new ICommandReplayer() {
+			@Override
+			public void replay(ICatanCommand command) {
+				replayed.add(command);
+			}
+		});
+		assertMessages(replayed, 0, 10);
+
+		dao.truncateBefore(game, 6);
+		assertEquals(4, dao.count(game));
+		assertMessages(dao.getSince(game, 0), 6, 10);
+		assertMessages(dao.getSince(game, 8), 8, 10);
+		// Numbers carry on from the ones left
+		dao.addCommand(game, command(10));
+		assertMessages(dao.getSince(game, 10), 10, 11);
+		assertEquals(1, dao.count(other));
+	}
+
+	private interface Reopener {
+		ICommandDAO reopen() throws Exception;
+	}
+
+	private void checkNumbering(ICommandDAO dao, Reopener reopener) throws Exception {
+		UUID game = UUID.randomUUID();
+		dao.addCommands(game, commands(0, 5));
+		dao.truncateBefore(game, 5);
+		assertEquals(0, dao.count(game));
+
+		// The numbering survives a truncation that empties the game
+		dao = reopener.reopen();
+		dao.addCommand(game, command(5));
+		assertMessages(dao.getSince(game, 5), 5, 6);
+		assertEquals(1, dao.count(game));
+
+		// and starts over once the game is cleared
+		dao.clearCommands(game);
+		assertEquals(0, dao.count(game));
+		dao.addCommands(game, commands(0, 2));
+		dao = reopener.reopen();
+		assertMessages(dao.getSince(game, 0), 0, 2);
+		dao.addCommand(game, command(2));
+		assertMessages(dao.getSince(game, 1), 1, 3);
+	}
+
+	private ICommandDAO openFile() {
+		return new FileCommandDAO(directory.toString() + File.separator, false);
+	}
+
+	private ICommandDAO openSQL() throws Exception {
+		assumeDriver();
+		SQLDatabase database = new SQLDatabase("jdbc:sqlite:" + directory.resolve("commands.sqlite"), 2);
+		databases.add(database);
+		return new SQLCommandDAO(database);
+	}
+
+	private static void assumeDriver() {
+		try {
+			Class.forName("org.sqlite.JDBC");
+		} catch (ClassNotFoundException e) {
+			assumeNoException(e);
+		}
+	}
+
+	private Path onlySegment(UUID game) {
+		File[] segments = new File(directory.toFile(), game.toString()).listFiles();
+		assertEquals(1, segments.length);
+		return segments[0].toPath();
+	}
+
+	private static ICatanCommand command(int number) throws Exception {
+		return new CatanCommand("sendChat", new PlayerReference(UUID.randomUUID()), "m" + number);
+	}
+
+	private static List<ICatanCommand> commands(int from, int to) throws Exception {
+		List<ICatanCommand> commands = new ArrayList<>();
+		for (int i = from; i < to; ++i) {
+			commands.add(command(i));
+		}
+		return commands;
+	}
+
+	/**
+	 * Checks the commands are the ones made by command(from) up to command(to)
+	 */
+	private static void assertMessages(List<ICatanCommand> commands, int from, int to) {
+		List<Object> expected = new ArrayList<>();
+		for (int i = from; i < to; ++i) {
+			expected.add("m" + i);
+		}
+		List<Object> actual = new ArrayList<>();
+		for (ICatanCommand command : commands) {
+			actual.add(((CatanCommandInfo) command.getSerializable()).getArgs()[1]);
+		}
+		assertEquals(expected, actual);
+	}
+
+	private static void delete(File file) throws IOException {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(file.toPath());
+	}
+
+}
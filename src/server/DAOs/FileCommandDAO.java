@@ -1,26 +1,83 @@
 package server.DAOs;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 import server.commands.CommandSerializationException;
 import server.commands.CommandSerializer;
 import server.commands.ICatanCommand;
+import shared.exceptions.InvalidActionException;
 
+/**
+ * Stores each game's commands in an append-only journal. A game's journal
+ * is a directory of segment files, each named for the number of its first
+ * command. Every record in a segment is the length of the command, a CRC32
+ * of it, and the serialized command. Adding commands only appends to the
+ * newest segment, and reading them back streams through the segments one
+ * record at a time, starting from the segment that holds the first one
+ * asked for.
+ * <br/>
+ * If the server died while writing, the last record of the newest segment
+ * may be cut off. That tail is cut away the first time the game's journal
+ * is touched after startup.
+ * @author jchip
+ *
+ */
 public class FileCommandDAO implements ICommandDAO {
 
+	private static Logger logger = Logger.getLogger("Server");
+
+	/**
+	 * A new segment is started once the newest one is at least this big
+	 */
+	public static final long SEGMENT_SIZE = 1 << 20;
+
+	private static final int HEADER_SIZE = 8;
+	private static final String SEGMENT_SUFFIX = ".seg";
+	// Segments numbered 0, 1, 2... rather than by their first command
+	private static final String NUMBERED_SUFFIX = ".log";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
 	private String filePath;
-	
+	private boolean fsync;
+
+	// For each game whose journal has been checked: the first command of
+	// its newest segment, and the number the next command gets
+	private Map<UUID, Long> newestSegment = new HashMap<>();
+	private Map<UUID, Long> nextCommand = new HashMap<>();
+	private Set<UUID> recovered = new HashSet<>();
+
 	public FileCommandDAO(){
-		filePath = "fileStorage/commands/";
+		this("fileStorage/commands/", true);
+	}
+
+	/**
+	 * @param filePath the directory the journals are kept in, ending in a slash
+	 * @param fsync whether each addCommands call waits for the disk
+	 */
+	public FileCommandDAO(String filePath, boolean fsync){
+		this.filePath = filePath;
+		this.fsync = fsync;
 		try{
 			File f = new File(filePath.substring(0,filePath.length() - 1));
 			if(!f.exists()){
@@ -31,69 +88,471 @@ public class FileCommandDAO implements ICommandDAO {
 			e.printStackTrace();
 		}
 	}
-	
+
 	@Override
 	public void addCommand(UUID gameid, ICatanCommand command)
 			throws DatabaseException {
+		addCommands(gameid, Collections.singletonList(command));
+	}
+
+	/**
+	 * Appends the commands to the game's journal with a single write, and
+	 * a single fsync if enabled
+	 */
+	@Override
+	public synchronized void addCommands(UUID gameid, List<ICatanCommand> commands)
+			throws DatabaseException {
 		try{
-			List<ICatanCommand> commands = getAll(gameid);
-			List<String> newCommands = new ArrayList<String>();
-			commands.add(command);
-			for(ICatanCommand com : commands){
-				newCommands.add(CommandSerializer.serialize(com));
-			}
-			
-			FileOutputStream fileOut = new FileOutputStream(filePath + gameid.toString());
-			ObjectOutputStream out = new ObjectOutputStream(fileOut);
-			out.writeObject(newCommands);
-			out.close();
-			fileOut.close();
-		}
-		catch(IOException | DatabaseException | CommandSerializationException e){
-			e.printStackTrace();
+			List<byte[]> records = new ArrayList<>(commands.size());
+			int size = 0;
+			for(ICatanCommand command : commands){
+				byte[] record = CommandSerializer.serializeBytes(command);
+				records.add(record);
+				size += HEADER_SIZE + record.length;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(size);
+			CRC32 crc = new CRC32();
+			for(byte[] record : records){
+				crc.reset();
+				crc.update(record);
+				buffer.putInt(record.length);
+				buffer.putInt((int) crc.getValue());
+				buffer.put(record);
+			}
+			buffer.flip();
+
+			Path segment = segmentForAppend(gameid);
+			try(FileChannel channel = FileChannel.open(segment,
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND)){
+				while(buffer.hasRemaining()){
+					channel.write(buffer);
+				}
+				if(fsync){
+					channel.force(false);
+				}
+			}
+			catch(IOException e){
+				// Part of the batch may have been written; look again next time
+				recovered.remove(gameid);
+				throw e;
+			}
+			nextCommand.put(gameid, nextCommand.get(gameid) + commands.size());
+		}
+		catch(IOException | CommandSerializationException e){
+			throw new DatabaseException("Failed to store the commands.", e);
 		}
 	}
 
 	@Override
-	public void clearCommands(UUID gameid) throws DatabaseException {
+	public synchronized void clearCommands(UUID gameid) throws DatabaseException {
 		try{
-			List<ICatanCommand> commands = new ArrayList<ICatanCommand>();;
-			FileOutputStream fileOut = new FileOutputStream(filePath + gameid.toString());
-			ObjectOutputStream out = new ObjectOutputStream(fileOut);
-			out.writeObject(commands);
-			out.close();
-			fileOut.close();
+			File[] files = journal(gameid).listFiles();
+			if(files != null){
+				for(File file : files){
+					Files.delete(file.toPath());
+				}
+			}
+			Files.deleteIfExists(journal(gameid).toPath());
+			recovered.add(gameid);
+			newestSegment.remove(gameid);
+			nextCommand.put(gameid, 0L);
 		}
 		catch(IOException e){
-			e.printStackTrace();
+			throw new DatabaseException("Failed to delete commands from the game.", e);
 		}
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Deletes the segments that only hold commands before seq, and copies
+	 * the rest of the one seq is in to a segment that starts at seq
+	 */
 	@Override
-	public List<ICatanCommand> getAll(UUID gameid) throws DatabaseException {
-		List<ICatanCommand> commands = new ArrayList<ICatanCommand>();
-		List<String> commandsString = new ArrayList<String>();
+	public synchronized void truncateBefore(UUID gameid, long seq) throws DatabaseException {
 		try{
-			FileInputStream fileIn = new FileInputStream(filePath + gameid.toString());
-			ObjectInputStream in = new ObjectInputStream(fileIn);
+			recover(gameid);
+			long next = nextCommand.get(gameid);
+			List<Path> segments = segments(gameid, SEGMENT_SUFFIX);
+			for(int i = 0; i < segments.size(); ++i){
+				Path segment = segments.get(i);
+				long first = segmentNumber(segment);
+				boolean newest = i == segments.size() - 1;
+				long end = newest ? next : segmentNumber(segments.get(i + 1));
+				if(end <= seq && !newest){
+					Files.delete(segment);
+				}
+				else if(first < seq && first < end){
+					// The newest segment is kept, if empty, to hold the numbering
+					long from = Math.min(seq, end);
+					startAt(segment, first, segment(gameid, from));
+					if(newest){
+						newestSegment.put(gameid, from);
+					}
+					break;
+				}
+				else{
+					break;
+				}
+			}
+		}
+		catch(IOException e){
+			throw new DatabaseException("Failed to delete commands from the game.", e);
+		}
+	}
 
-			commandsString = (List<String>) in.readObject();
-			
-			for(String str : commandsString){
-				commands.add(CommandSerializer.deserialize(str));
+	@Override
+	public synchronized int count(UUID gameid) throws DatabaseException {
+		try{
+			recover(gameid);
+			List<Path> segments = segments(gameid, SEGMENT_SUFFIX);
+			if(segments.isEmpty()){
+				return 0;
 			}
-			
-			in.close();
-			fileIn.close();
+			return (int) (nextCommand.get(gameid) - segmentNumber(segments.get(0)));
 		}
 		catch(IOException e){
-			System.out.println("File was empty");
+			throw new DatabaseException("Failed to count the commands of the game.", e);
 		}
-		catch (ClassNotFoundException | CommandSerializationException e){
-			throw new DatabaseException();
+	}
+
+	@Override
+	public List<ICatanCommand> getAll(UUID gameid) throws DatabaseException {
+		return getSince(gameid, 0);
+	}
+
+	@Override
+	public List<ICatanCommand> getSince(UUID gameid, long seq) throws DatabaseException {
+		final List<ICatanCommand> commands = new ArrayList<ICatanCommand>();
+		try{
+			replay(gameid, seq, new ICommandReplayer() {
+				@Override
+				public void replay(ICatanCommand command) {
+					commands.add(command);
+				}
+			});
+		}
+		catch(InvalidActionException e){
+			// Only thrown by the replayer, and this one never throws
+			throw new DatabaseException(e);
 		}
 		return commands;
 	}
 
+	@Override
+	public void replay(UUID gameid, ICommandReplayer replayer)
+			throws DatabaseException, InvalidActionException {
+		replay(gameid, 0, replayer);
+	}
+
+	private synchronized void replay(UUID gameid, long seq, ICommandReplayer replayer)
+			throws DatabaseException, InvalidActionException {
+		try{
+			recover(gameid);
+			List<Path> segments = segments(gameid, SEGMENT_SUFFIX);
+			for(int i = 0; i < segments.size(); ++i){
+				if(i + 1 < segments.size() && segmentNumber(segments.get(i + 1)) <= seq){
+					continue;
+				}
+				boolean newest = i + 1 == segments.size();
+				try(FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)){
+					Reader reader = new Reader(channel);
+					for(long skip = seq - segmentNumber(segments.get(i)); skip > 0; --skip){
+						if(!reader.skip()){
+							if(!newest){
+								throw damaged(segments.get(i), reader);
+							}
+							break;
+						}
+					}
+					byte[] record;
+					while((record = reader.next()) != null){
+						replayer.replay(CommandSerializer.deserializeBytes(record));
+					}
+					// Only the newest segment can end in a write cut short by a
+					// crash, and recover() has already trimmed it. Anywhere else
+					// the commands after the damage would replay without the
+					// ones that are missing.
+					if(!newest && reader.getPosition() < channel.size()){
+						throw damaged(segments.get(i), reader);
+					}
+				}
+			}
+		}
+		catch(IOException | CommandSerializationException e){
+			throw new DatabaseException("Failed to get commands for the game.", e);
+		}
+	}
+
+	private static DatabaseException damaged(Path segment, Reader reader) {
+		return new DatabaseException("The command segment " + segment.getFileName() +
+				" is damaged at byte " + reader.getPosition());
+	}
+
+	/**
+	 * Reads the records of a segment one at a time
+	 */
+	private static class Reader {
+		private final FileChannel channel;
+		private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		private final CRC32 crc = new CRC32();
+		private long position = 0;
+
+		Reader(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * @return the next record, or null at the end of the segment or at
+		 * the first record that is cut off or damaged
+		 */
+		byte[] next() throws IOException {
+			int length = readHeader();
+			if(length < 0){
+				return null;
+			}
+			int expected = header.getInt();
+			ByteBuffer body = ByteBuffer.allocate(length);
+			if(!readFully(body)){
+				return null;
+			}
+			crc.reset();
+			crc.update(body.array());
+			if((int) crc.getValue() != expected){
+				return null;
+			}
+			position += HEADER_SIZE + length;
+			return body.array();
+		}
+
+		/**
+		 * Moves past the next record without reading or checking it
+		 * @return false at the end of the segment
+		 */
+		boolean skip() throws IOException {
+			int length = readHeader();
+			if(length < 0){
+				return false;
+			}
+			position += HEADER_SIZE + length;
+			channel.position(position);
+			return true;
+		}
+
+		/**
+		 * @return where the last good record ends
+		 */
+		long getPosition() {
+			return position;
+		}
+
+		/**
+		 * @return the length of the next record, or -1 if there is no whole
+		 * record left
+		 */
+		private int readHeader() throws IOException {
+			header.clear();
+			if(!readFully(header)){
+				return -1;
+			}
+			header.flip();
+			int length = header.getInt();
+			if(length < 0 || position + HEADER_SIZE + length > channel.size()){
+				return -1;
+			}
+			return length;
+		}
+
+		private boolean readFully(ByteBuffer buffer) throws IOException {
+			while(buffer.hasRemaining()){
+				if(channel.read(buffer) < 0){
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Cuts off a damaged tail left by a crash, moves commands stored in the
+	 * old formats into the journal, and finds the number of the next
+	 * command. Only done the first time a game is touched.
+	 */
+	private void recover(UUID gameid) throws IOException, DatabaseException {
+		if(!recovered.add(gameid)){
+			return;
+		}
+		newestSegment.remove(gameid);
+		nextCommand.put(gameid, 0L);
+		File journal = journal(gameid);
+		if(journal.isFile()){
+			migrate(gameid, journal);
+			return;
+		}
+		renumber(gameid);
+		List<Path> segments = segments(gameid, SEGMENT_SUFFIX);
+		if(segments.isEmpty()){
+			return;
+		}
+		if(segments.size() > 1 && superseded(segments.get(0), segments.get(1))){
+			logger.warning("Deleting a truncated segment of game " + gameid + " left by a crash");
+			Files.delete(segments.remove(0));
+		}
+		Path newest = segments.get(segments.size() - 1);
+		long count = 0;
+		try(FileChannel channel = FileChannel.open(newest,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)){
+			Reader reader = new Reader(channel);
+			while(reader.next() != null){
+				++count;
+			}
+			if(reader.getPosition() < channel.size()){
+				logger.warning("Cutting " + (channel.size() - reader.getPosition()) +
+						" damaged bytes off the command journal of game " + gameid);
+				channel.truncate(reader.getPosition());
+				channel.force(true);
+			}
+		}
+		newestSegment.put(gameid, segmentNumber(newest));
+		nextCommand.put(gameid, segmentNumber(newest) + count);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void migrate(UUID gameid, File journal) throws IOException, DatabaseException {
+		List<ICatanCommand> commands = new ArrayList<ICatanCommand>();
+		try(ObjectInputStream in = new ObjectInputStream(new FileInputStream(journal))){
+			Object stored = in.readObject();
+			for(Object command : (List<Object>) stored){
+				commands.add(CommandSerializer.deserialize((String) command));
+			}
+		}
+		catch(EOFException e){
+			// An empty file holds no commands
+		}
+		catch(ClassNotFoundException | ClassCastException | CommandSerializationException e){
+			throw new DatabaseException("Failed to read the old commands of the game.", e);
+		}
+		Files.delete(journal.toPath());
+		if(!commands.isEmpty()){
+			logger.info("Moving " + commands.size() + " commands of game " + gameid + " into a journal");
+			addCommands(gameid, commands);
+		}
+	}
+
+	/**
+	 * Renames segments that were numbered 0, 1, 2... for the first command
+	 * in them, oldest first
+	 */
+	private void renumber(UUID gameid) throws IOException {
+		List<Path> numbered = segments(gameid, NUMBERED_SUFFIX);
+		if(numbered.isEmpty()){
+			return;
+		}
+		// If a crash stopped this part way, carry on after the ones done
+		long first = 0;
+		List<Path> done = segments(gameid, SEGMENT_SUFFIX);
+		if(!done.isEmpty()){
+			Path last = done.get(done.size() - 1);
+			first = segmentNumber(last) + countRecords(last);
+		}
+		for(Path segment : numbered){
+			long count = countRecords(segment);
+			Files.move(segment, segment(gameid, first));
+			first += count;
+		}
+		logger.info("Renamed the " + numbered.size() + " journal segments of game " + gameid);
+	}
+
+	/**
+	 * Truncating copies the rest of a segment to a new one before deleting
+	 * it. If the server died in between, both are there.
+	 * @return whether the older segment runs into the newer one
+	 */
+	private static boolean superseded(Path older, Path newer) throws IOException {
+		return segmentNumber(older) + countRecords(older) > segmentNumber(newer);
+	}
+
+	/**
+	 * Writes the segment's records from number from on to a segment of
+	 * their own, and deletes the segment
+	 * @param segment the segment, holding commands first up to at least from
+	 * @param to the segment to write, named for from
+	 */
+	private void startAt(Path segment, long first, Path to) throws IOException {
+		long from = segmentNumber(to);
+		Path temporary = to.resolveSibling(to.getFileName() + TEMPORARY_SUFFIX);
+		try(FileChannel in = FileChannel.open(segment, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+			Reader reader = new Reader(in);
+			for(long skip = from - first; skip > 0; --skip){
+				reader.skip();
+			}
+			long position = reader.getPosition();
+			while(position < in.size()){
+				position += in.transferTo(position, in.size() - position, out);
+			}
+			out.force(true);
+		}
+		Files.move(temporary, to, StandardCopyOption.ATOMIC_MOVE);
+		Files.delete(segment);
+	}
+
+	private Path segmentForAppend(UUID gameid) throws IOException, DatabaseException {
+		recover(gameid);
+		long next = nextCommand.get(gameid);
+		Long newest = newestSegment.get(gameid);
+		File directory = journal(gameid);
+		if(!directory.exists()){
+			Files.createDirectories(directory.toPath());
+		}
+		Path segment = segment(gameid, newest == null ? next : newest);
+		if(Files.exists(segment) && Files.size(segment) >= SEGMENT_SIZE){
+			segment = segment(gameid, next);
+		}
+		newestSegment.put(gameid, segmentNumber(segment));
+		return segment;
+	}
+
+	private File journal(UUID gameid){
+		return new File(filePath + gameid.toString());
+	}
+
+	private Path segment(UUID gameid, long first){
+		return new File(journal(gameid), String.format("%016d", first) + SEGMENT_SUFFIX).toPath();
+	}
+
+	private static long segmentNumber(Path segment){
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(0, name.lastIndexOf('.')));
+	}
+
+	private static long countRecords(Path segment) throws IOException {
+		long count = 0;
+		try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)){
+			Reader reader = new Reader(channel);
+			while(reader.next() != null){
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the game's segments with the suffix, oldest first
+	 */
+	private List<Path> segments(UUID gameid, String suffix){
+		File[] files = journal(gameid).listFiles();
+		if(files == null){
+			return new ArrayList<>();
+		}
+		Arrays.sort(files);
+		List<Path> segments = new ArrayList<>();
+		for(File file : files){
+			if(file.getName().endsWith(suffix)){
+				segments.add(file.toPath());
+			}
+		}
+		return segments;
+	}
+
 }
@@ -1,21 +1,26 @@
 package server.DAOs;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.logging.Logger;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonParseException;
 
 import shared.communication.GameHeader;
 import shared.model.ModelFacade;
@@ -23,16 +28,38 @@ import shared.model.ModelFacade;
 /**
  * This class contains implementation for storing, deleting, and updating
  * games in a file-based database system.
+ * <br/>
+ * The game headers are kept apart from the games, in a log with one JSON
+ * header per line. Every time a game is added or checkpointed its header is
+ * appended, and the last line for a game wins, so the game list is read
+ * without touching any game. The log is rewritten with one line per game
+ * once it has grown well past that.
  * @author jchip
  *
  */
 public class FileGameDAO implements IGameDAO {
 
+	private static Logger logger = Logger.getLogger("Server");
+
 	private String filePath;
 	private String gameHeaderExtension;
 
+	// How many lines the header log holds, or -1 before it is first read,
+	// the games it has headers for, and whether its last line was cut short
+	// by a crash. Guarded by this.
+	private int headerLines = -1;
+	private Set<UUID> headerGames = new HashSet<UUID>();
+	private boolean headerCut = false;
+
 	public FileGameDAO(){
-		filePath = "fileStorage/games/";
+		this("fileStorage/games/");
+	}
+
+	/**
+	 * @param filePath the directory the games are kept in, ending in a slash
+	 */
+	public FileGameDAO(String filePath){
+		this.filePath = filePath;
 		gameHeaderExtension = "gameHeaders";
 		try{
 			File f = new File(filePath.substring(0,filePath.length() - 1));
@@ -51,23 +78,10 @@ public class FileGameDAO implements IGameDAO {
 	
 	@Override
 	public void addGame(UUID uuid, ModelFacade model){
-		Gson gson = new Gson();
 		try{
-			FileOutputStream fileOut = new FileOutputStream(filePath + uuid.toString());
-			ObjectOutputStream out = new ObjectOutputStream(fileOut);
-			out.writeObject(model);
-			out.close();
-			fileOut.close();
-					
-			List<GameHeader> games = getGameList();
-			
-			games.add(model.getGameHeader());
-			
-			fileOut = new FileOutputStream(filePath + gameHeaderExtension);
-			out = new ObjectOutputStream(fileOut);
-			out.writeObject(gson.toJson(games));
-			out.close();
-			fileOut.close();
+			Checkpoint checkpoint = Checkpoint.of(model, 0);
+			Files.write(Paths.get(filePath + uuid.toString()), checkpoint.getBytes());
+			appendHeader(checkpoint.getHeader());
 		}
 		catch(IOException | DatabaseException e){
 			e.printStackTrace();
@@ -82,13 +96,9 @@ public class FileGameDAO implements IGameDAO {
 	@Override
 	public void updateGamebyUUID(UUID gameUUID, ModelFacade model) {
 		try{
-			FileOutputStream fileOut = new FileOutputStream(filePath + gameUUID.toString());
-			ObjectOutputStream out = new ObjectOutputStream(fileOut);
-			out.writeObject(model);
-			out.close();
-			fileOut.close();
+			saveCheckpoint(gameUUID, Checkpoint.of(model, 0));
 		}
-		catch(IOException e){
+		catch(DatabaseException e){
 			e.printStackTrace();
 		}
 	}
@@ -97,46 +107,174 @@ public class FileGameDAO implements IGameDAO {
 	public ModelFacade getGame(UUID gameUUID) {
 		ModelFacade model = null;
 		try{
-			FileInputStream fileIn = new FileInputStream(filePath + gameUUID.toString());
-			ObjectInputStream in = new ObjectInputStream(fileIn);
-
-			model = (ModelFacade) in.readObject();
-			
-			in.close();
-			fileIn.close();
+			Checkpoint checkpoint = getCheckpoint(gameUUID);
+			if(checkpoint != null){
+				model = checkpoint.getGame();
+			}
 		}
-		catch(IOException | ClassNotFoundException e){
+		catch(DatabaseException e){
 			e.printStackTrace();
 		}
 		return model;
 	}
 
-	@SuppressWarnings("unchecked")
-	public List<GameHeader> getGameList() throws DatabaseException {
-		Gson gson = new Gson();
-		List<GameHeader> games = new ArrayList<GameHeader>();
+	/**
+	 * Writes the checkpoint next to the game and then moves it over the
+	 * game, so a crash leaves either the old game or the new one
+	 */
+	@Override
+	public void saveCheckpoint(UUID gameUUID, Checkpoint checkpoint) throws DatabaseException {
+		Path game = Paths.get(filePath + gameUUID.toString());
+		Path temporary = Paths.get(filePath + gameUUID.toString() + ".tmp");
 		try{
-			FileInputStream fileIn = new FileInputStream(filePath + gameHeaderExtension);
-			ObjectInputStream in = new ObjectInputStream(fileIn);
+			Files.write(temporary, checkpoint.getBytes());
+			Files.move(temporary, game, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException e){
+			throw new DatabaseException("Could not save the checkpoint", e);
+		}
+		appendHeader(checkpoint.getHeader());
+	}
 
-			String gamesString = (String) in.readObject();
-			
-			List<Object> gameList = gson.fromJson(gamesString, List.class);
-			
+	@Override
+	public Checkpoint getCheckpoint(UUID gameUUID) throws DatabaseException {
+		Path game = Paths.get(filePath + gameUUID.toString());
+		if(!Files.exists(game)){
+			return null;
+		}
+		try{
+			return Checkpoint.read(Files.readAllBytes(game));
+		}
+		catch(IOException e){
+			throw new DatabaseException("Could not get the checkpoint", e);
+		}
+	}
+
+	@Override
+	public synchronized List<GameHeader> getGameList() throws DatabaseException {
+		return new ArrayList<GameHeader>(readHeaders().values());
+	}
+
+	/**
+	 * Reads the header log, keeping the last line for each game. A line cut
+	 * short by a crash is skipped.
+	 * @return each game's header, in the order the games were added
+	 */
+	private Map<UUID, GameHeader> readHeaders() throws DatabaseException {
+		Map<UUID, GameHeader> games = new LinkedHashMap<UUID, GameHeader>();
+		byte[] stored;
+		try{
+			stored = Files.readAllBytes(Paths.get(filePath + gameHeaderExtension));
+		}
+		catch(IOException e){
+			throw new DatabaseException("Could not read the game headers", e);
+		}
+		if(stored.length > 1 && stored[0] == (byte) 0xAC && stored[1] == (byte) 0xED){
+			return migrateHeaders(stored);
+		}
+		Gson gson = new Gson();
+		int lines = 0;
+		for(String line : new String(stored, StandardCharsets.UTF_8).split("\n")){
+			if(line.isEmpty()){
+				continue;
+			}
+			++lines;
+			try{
+				GameHeader header = gson.fromJson(line, GameHeader.class);
+				if(header != null && header.getUUID() != null){
+					games.put(header.getUUID(), header);
+				}
+			}
+			catch(JsonParseException e){
+				logger.warning("Skipping a damaged game header");
+			}
+		}
+		headerLines = lines;
+		headerCut = stored.length > 0 && stored[stored.length - 1] != '\n';
+		headerGames = new HashSet<UUID>(games.keySet());
+		return games;
+	}
+
+	/**
+	 * Reads the headers the way older versions stored them, a serialized
+	 * JSON list without statuses, takes each game's current header from its
+	 * checkpoint, and rewrites them as a log
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<UUID, GameHeader> migrateHeaders(byte[] stored) throws DatabaseException {
+		Gson gson = new Gson();
+		Map<UUID, GameHeader> games = new LinkedHashMap<UUID, GameHeader>();
+		try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(stored))){
+			List<Object> gameList = gson.fromJson((String) in.readObject(), List.class);
 			for(Object o : gameList){
-				games.add(gson.fromJson(o.toString(), GameHeader.class));
+				GameHeader header = gson.fromJson(gson.toJson(o), GameHeader.class);
+				Checkpoint checkpoint = getCheckpoint(header.getUUID());
+				if(checkpoint != null){
+					header = checkpoint.getHeader();
+				}
+				games.put(header.getUUID(), header);
 			}
+		}
+		catch(IOException | ClassNotFoundException | ClassCastException | JsonParseException e){
+			throw new DatabaseException("Could not read the game headers", e);
+		}
+		writeHeaders(games);
+		return games;
+	}
 
-			in.close();
-			fileIn.close();
+	/**
+	 * Adds the header to the end of the log, and rewrites the log if most of
+	 * its lines are out of date. A line cut short by a crash is ended first,
+	 * so the header isn't joined onto it.
+	 */
+	private synchronized void appendHeader(GameHeader header) throws DatabaseException {
+		if(headerLines < 0){
+			readHeaders();
+		}
+		String line = new Gson().toJson(header) + "\n";
+		if(headerCut){
+			line = "\n" + line;
+		}
+		try{
+			Files.write(Paths.get(filePath + gameHeaderExtension),
+					line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND);
 		}
 		catch(IOException e){
-			System.out.println("File was empty");
+			throw new DatabaseException("Could not save the game header", e);
 		}
-		catch (ClassNotFoundException e){
-			throw new DatabaseException();
+		headerCut = false;
+		++headerLines;
+		headerGames.add(header.getUUID());
+		if(headerLines > 2 * headerGames.size() + 64){
+			writeHeaders(readHeaders());
 		}
-		return games;
+	}
+
+	/**
+	 * Replaces the log with one line per game, written next to it and moved
+	 * over it
+	 */
+	private void writeHeaders(Map<UUID, GameHeader> games) throws DatabaseException {
+		Gson gson = new Gson();
+		StringBuilder lines = new StringBuilder();
+		for(GameHeader header : games.values()){
+			lines.append(gson.toJson(header)).append('\n');
+		}
+		Path log = Paths.get(filePath + gameHeaderExtension);
+		Path temporary = Paths.get(filePath + gameHeaderExtension + ".tmp");
+		try{
+			Files.write(temporary, lines.toString().getBytes(StandardCharsets.UTF_8));
+			Files.move(temporary, log, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException e){
+			throw new DatabaseException("Could not save the game headers", e);
+		}
+		headerLines = games.size();
+		headerGames = new HashSet<UUID>(games.keySet());
+		headerCut = false;
 	}
 
 	 //Not Needed
@@ -0,0 +1,91 @@
+package server.DAOs;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import shared.communication.GameHeader;
+import shared.model.ModelFacade;
+
+public class FileGameDAOTest {
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("games");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		delete(directory.toFile());
+	}
+
+	@Test
+	public void testLastHeaderWins() throws Exception {
+		IGameDAO dao = open();
+		ModelFacade first = new ModelFacade(), second = new ModelFacade();
+		dao.addGame(first.getUUID(), first);
+		dao.addGame(second.getUUID(), second);
+		dao.saveCheckpoint(first.getUUID(), Checkpoint.of(first, 3));
+
+		assertEquals(uuids(first, second), uuids(open().getGameList()));
+	}
+
+	// A crash while a header was appended leaves the log without its last newline
+	@Test
+	public void testHeaderAfterCutLine() throws Exception {
+		ModelFacade first = new ModelFacade(), second = new ModelFacade();
+		open().addGame(first.getUUID(), first);
+		Files.write(directory.resolve("gameHeaders"), "{\"title\":\"cut".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+
+		IGameDAO dao = open();
+		dao.addGame(second.getUUID(), second);
+		assertEquals(uuids(first, second), uuids(dao.getGameList()));
+		assertEquals(uuids(first, second), uuids(open().getGameList()));
+	}
+
+	private IGameDAO open() {
+		return new FileGameDAO(directory.toString() + File.separator);
+	}
+
+	private static List<UUID> uuids(ModelFacade... games) {
+		List<UUID> uuids = new ArrayList<>();
+		for (ModelFacade game : games) {
+			uuids.add(game.getUUID());
+		}
+		return uuids;
+	}
+
+	private static List<UUID> uuids(List<GameHeader> headers) {
+		List<UUID> uuids = new ArrayList<>();
+		for (GameHeader header : headers) {
+			uuids.add(header.getUUID());
+		}
+		return uuids;
+	}
+
+	private static void delete(File file) throws IOException {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(file.toPath());
+	}
+
+}
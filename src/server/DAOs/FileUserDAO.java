@@ -73,10 +73,13 @@ public class FileUserDAO implements IUserDAO {
 		
 	}
 
-	//Not Needed
 	@Override
-	public User getUser(User user) {
-		// TODO Auto-generated method stub
+	public User getUser(User user) throws DatabaseException {
+		for (User stored : getAllUsers()) {
+			if (stored.getUsername().equals(user.getUsername())) {
+				return stored;
+			}
+		}
 		return null;
 	}
 
@@ -4,11 +4,42 @@ import java.util.List;
 import java.util.UUID;
 
 import server.commands.ICatanCommand;
+import shared.exceptions.InvalidActionException;
 
+/**
+ * Stores the commands run on each game since it was last saved. A game's
+ * commands are numbered in the order they are added, from 0. The numbers
+ * carry on across truncateBefore, and start over once the game's commands
+ * are cleared.
+ */
 public interface ICommandDAO {
 
 	public void addCommand(UUID gameid, ICatanCommand command) throws DatabaseException;
+	/**
+	 * Stores several commands for a game at once, in order. Either all of
+	 * them are stored or none are.
+	 */
+	public void addCommands(UUID gameid, List<ICatanCommand> commands) throws DatabaseException;
 	public void clearCommands(UUID gameid) throws DatabaseException;
 	public List<ICatanCommand> getAll(UUID gameid) throws DatabaseException;
+	/**
+	 * @return the game's stored commands numbered seq and up, in order
+	 */
+	public List<ICatanCommand> getSince(UUID gameid, long seq) throws DatabaseException;
+	/**
+	 * @return how many commands are stored for the game
+	 */
+	public int count(UUID gameid) throws DatabaseException;
+	/**
+	 * Drops the game's commands numbered below seq. The ones left keep
+	 * their numbers, and the next one added follows on from them.
+	 */
+	public void truncateBefore(UUID gameid, long seq) throws DatabaseException;
+	/**
+	 * Reads a game's commands back in order, handing each one over as soon
+	 * as it is read instead of building the whole list first
+	 */
+	public void replay(UUID gameid, ICommandReplayer replayer)
+			throws DatabaseException, InvalidActionException;
 	
 }
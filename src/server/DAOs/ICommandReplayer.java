@@ -0,0 +1,16 @@
+package server.DAOs;
+
+import server.commands.ICatanCommand;
+import shared.exceptions.InvalidActionException;
+
+/**
+ * Receives a game's stored commands one at a time, in the order they were
+ * added, as they are read back.
+ * @author Jordan
+ *
+ */
+public interface ICommandReplayer {
+
+	public void replay(ICatanCommand command) throws InvalidActionException;
+
+}
@@ -19,6 +19,14 @@ public interface IGameDAO {
 	public void removeGame(UUID gameUUID) throws DatabaseException; // Not Needed
 	public void updateGamebyUUID(UUID gameUUID, ModelFacade model) throws DatabaseException;
 	public ModelFacade getGame(UUID gameUUID) throws DatabaseException;
+	/**
+	 * Stores the checkpoint in place of the game
+	 */
+	public void saveCheckpoint(UUID gameUUID, Checkpoint checkpoint) throws DatabaseException;
+	/**
+	 * @return the game's checkpoint, or null if the game is not stored
+	 */
+	public Checkpoint getCheckpoint(UUID gameUUID) throws DatabaseException;
 	public List<GameHeader> getGameList() throws DatabaseException;
 	Map<UUID, ModelFacade> getAllGames() throws DatabaseException; // Not needed
 }
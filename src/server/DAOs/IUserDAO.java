@@ -16,6 +16,6 @@ public interface IUserDAO {
 	public void addUser(User user) throws DatabaseException;
 	public void deleteUser(User user) throws DatabaseException; // Not needed
 	public void updateUserPassword(User user) throws DatabaseException; // Not needed
-	public User getUser(User user) throws DatabaseException; // Not needed
+	public User getUser(User user) throws DatabaseException;
 	public List<User> getAllUsers() throws DatabaseException;
 }
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.UUID;
 
 import server.commands.ICatanCommand;
+import shared.exceptions.InvalidActionException;
 
 public class MockCommandDAO implements ICommandDAO {
 
@@ -15,6 +16,13 @@ public class MockCommandDAO implements ICommandDAO {
 
 	}
 
+	@Override
+	public void addCommands(UUID gameid, List<ICatanCommand> commands)
+			throws DatabaseException {
+		// TODO Auto-generated method stub
+
+	}
+
 	@Override
 	public void clearCommands(UUID gameid) throws DatabaseException {
 		// TODO Auto-generated method stub
@@ -27,4 +35,26 @@ public class MockCommandDAO implements ICommandDAO {
 		return new ArrayList<>();
 	}
 
+	@Override
+	public List<ICatanCommand> getSince(UUID gameid, long seq)
+			throws DatabaseException {
+		return new ArrayList<>();
+	}
+
+	@Override
+	public int count(UUID gameid) throws DatabaseException {
+		return 0;
+	}
+
+	@Override
+	public void truncateBefore(UUID gameid, long seq) throws DatabaseException {
+	}
+
+	@Override
+	public void replay(UUID gameid, ICommandReplayer replayer)
+			throws DatabaseException, InvalidActionException {
+		// TODO Auto-generated method stub
+
+	}
+
 }
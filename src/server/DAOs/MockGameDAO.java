@@ -21,6 +21,16 @@ public class MockGameDAO implements IGameDAO {
 		return null;
 	}
 
+	@Override
+	public void saveCheckpoint(UUID gameUUID, Checkpoint checkpoint)
+			throws DatabaseException {
+	}
+
+	@Override
+	public Checkpoint getCheckpoint(UUID gameUUID) throws DatabaseException {
+		return null;
+	}
+
 	@Override
 	public List<GameHeader> getGameList() {
 		return new ArrayList<>();
@@ -1,10 +1,11 @@
 package server.DAOs;
 
-import java.sql.Connection;
+import java.nio.ByteBuffer;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.logging.Logger;
@@ -15,6 +16,7 @@ import server.commands.CatanCommand;
 import server.commands.CommandSerializationException;
 import server.commands.CommandSerializer;
 import server.commands.ICatanCommand;
+import shared.exceptions.InvalidActionException;
 import shared.locations.EdgeDirection;
 import shared.locations.EdgeLocation;
 import shared.locations.VertexDirection;
@@ -24,6 +26,25 @@ import shared.model.PlayerReference;
 public class SQLCommandDAO implements ICommandDAO {
 
 	private static Logger logger = Logger.getLogger("Catan-SQL");
+
+	// Prepared once per connection and kept. Every one of them finds a
+	// game's commands through the (gameid, seq) key.
+	private static final String NEXT =
+			"SELECT next FROM command_sequences WHERE gameid = ?";
+	private static final String ADVANCE =
+			"INSERT OR REPLACE INTO command_sequences (gameid, next) VALUES (?, ?)";
+	private static final String INSERT =
+			"INSERT INTO commands (gameid, seq, command) VALUES (?, ?, ?)";
+	private static final String SELECT =
+			"SELECT command FROM commands WHERE gameid = ? AND seq >= ? ORDER BY seq";
+	private static final String COUNT =
+			"SELECT COUNT(*) FROM commands WHERE gameid = ?";
+	private static final String TRUNCATE =
+			"DELETE FROM commands WHERE gameid = ? AND seq < ?";
+	private static final String CLEAR =
+			"DELETE FROM commands WHERE gameid = ?";
+	private static final String CLEAR_SEQUENCE =
+			"DELETE FROM command_sequences WHERE gameid = ?";
 	
 	public static void main(String[] args) throws Exception {		
 		IDAOFactory factory = new SQLDAOFactory();
@@ -80,68 +101,168 @@ public class SQLCommandDAO implements ICommandDAO {
 
 	@Override
 	public void addCommand(UUID gameid, ICatanCommand command) throws DatabaseException {
+		addCommands(gameid, Collections.singletonList(command));
+	}
+
+	@Override
+	public void addCommands(UUID gameid, List<ICatanCommand> commands) throws DatabaseException {
+		byte[] id = toBytes(gameid);
+		db.startTransaction();
+		boolean commit = false;
+		ResultSet results = null;
 		try {
-			Connection conn = db.getConnection();
-			PreparedStatement stmt = conn.prepareStatement(
-					"INSERT INTO commands (gameid, command) " +
-					"VALUES (?, ?)");
-
-			stmt.setString(1, gameid.toString());
-			stmt.setBytes(2, CommandSerializer.serializeBytes(command));
-			if (stmt.executeUpdate() != 1) {
-				throw new DatabaseException("Failed to store the command.");
+			SQLConnection connection = db.getConnection();
+			PreparedStatement stmt = connection.prepare(NEXT);
+			stmt.setBytes(1, id);
+			results = stmt.executeQuery();
+			long seq = results.next() ? results.getLong(1) : 0;
+			SQLDatabase.safeClose(results);
+			
+			stmt = connection.prepare(INSERT);
+			for (ICatanCommand command : commands) {
+				stmt.setBytes(1, id);
+				stmt.setLong(2, seq++);
+				stmt.setBytes(3, CommandSerializer.serializeBytes(command));
+				stmt.addBatch();
 			}
+			stmt.executeBatch();
 			
-			stmt.close();
+			stmt = connection.prepare(ADVANCE);
+			stmt.setBytes(1, id);
+			stmt.setLong(2, seq);
+			stmt.executeUpdate();
+			commit = true;
 			
-			logger.fine("Saved command to game " + gameid.toString());
+			logger.fine("Saved " + commands.size() + " commands to game " + gameid.toString());
 		} catch (SQLException | CommandSerializationException e) {
-			throw new DatabaseException("Failed to store the command.", e);
+			throw new DatabaseException("Failed to store the commands.", e);
+		} finally {
+			SQLDatabase.safeClose(results);
+			db.endTransaction(commit);
 		}
 	}
 
 	@Override
 	public void clearCommands(UUID gameid) throws DatabaseException {
+		byte[] id = toBytes(gameid);
+		db.startTransaction();
+		boolean commit = false;
 		try {
-			PreparedStatement stmt = db.getConnection().prepareStatement(
-					"DELETE FROM commands WHERE gameid = ?");
-			
-			stmt.setString(1, gameid.toString());
-
+			PreparedStatement stmt = db.getConnection().prepare(CLEAR);
+			stmt.setBytes(1, id);
 			stmt.executeUpdate();
 			
-			stmt.close();
+			stmt = db.getConnection().prepare(CLEAR_SEQUENCE);
+			stmt.setBytes(1, id);
+			stmt.executeUpdate();
+			commit = true;
 
 			logger.fine("Cleared commands from game " + gameid.toString());
 		} catch (SQLException e) {
 			throw new DatabaseException("Failed to delete commands from the game.", e);
+		} finally {
+			db.endTransaction(commit);
+		}
+	}
+
+	@Override
+	public void truncateBefore(UUID gameid, long seq) throws DatabaseException {
+		db.startTransaction();
+		boolean commit = false;
+		try {
+			PreparedStatement stmt = db.getConnection().prepare(TRUNCATE);
+			stmt.setBytes(1, toBytes(gameid));
+			stmt.setLong(2, seq);
+			int dropped = stmt.executeUpdate();
+			commit = true;
+
+			logger.fine("Dropped " + dropped + " commands before " + seq + " from game " + gameid.toString());
+		} catch (SQLException e) {
+			throw new DatabaseException("Failed to delete commands from the game.", e);
+		} finally {
+			db.endTransaction(commit);
+		}
+	}
+
+	@Override
+	public int count(UUID gameid) throws DatabaseException {
+		SQLConnection connection = db.acquireReader();
+		ResultSet results = null;
+		try {
+			PreparedStatement stmt = connection.prepare(COUNT);
+			stmt.setBytes(1, toBytes(gameid));
+			results = stmt.executeQuery();
+			return results.next() ? results.getInt(1) : 0;
+		} catch (SQLException e) {
+			throw new DatabaseException("Failed to count the commands of the game.", e);
+		} finally {
+			SQLDatabase.safeClose(results);
+			db.release(connection);
+		}
+	}
+
+	@Override
+	public void replay(UUID gameid, ICommandReplayer replayer)
+			throws DatabaseException, InvalidActionException {
+		SQLConnection connection = db.acquireReader();
+		ResultSet results = null;
+		try {
+			PreparedStatement stmt = connection.prepare(SELECT);
+			stmt.setBytes(1, toBytes(gameid));
+			stmt.setLong(2, 0);
+			results = stmt.executeQuery();
+			while(results.next()) {
+				replayer.replay(CommandSerializer.deserializeBytes(results.getBytes(1)));
+			}
+		} catch (SQLException | CommandSerializationException e) {
+			throw new DatabaseException("Failed to get commands for the game.", e);
+		} finally {
+			SQLDatabase.safeClose(results);
+			db.release(connection);
 		}
 	}
 
 	@Override
 	public List<ICatanCommand> getAll(UUID gameid) throws DatabaseException {
+		return getSince(gameid, 0);
+	}
+
+	@Override
+	public List<ICatanCommand> getSince(UUID gameid, long seq) throws DatabaseException {
+		SQLConnection connection = db.acquireReader();
+		ResultSet results = null;
 		try {
 			List<ICatanCommand> commands = new ArrayList<>();
-			PreparedStatement stmt = db.getConnection().prepareStatement(
-					"SELECT command FROM commands WHERE gameid = ? ORDER BY id");
+			PreparedStatement stmt = connection.prepare(SELECT);
 			
-			stmt.setString(1, gameid.toString());
+			stmt.setBytes(1, toBytes(gameid));
+			stmt.setLong(2, seq);
 			
-			ResultSet results = stmt.executeQuery();
+			results = stmt.executeQuery();
 			
 			while(results.next()) {
 				commands.add(CommandSerializer.deserializeBytes(results.getBytes(1)));
 			}
 			
-			results.close();
-			stmt.close();
-			
 			logger.fine("Obtained " + commands.size() + " commands for game " + gameid.toString());
 			
 			return commands;
 		} catch (SQLException | CommandSerializationException e) {
 			throw new DatabaseException("Failed to get commands for the game.", e);
+		} finally {
+			SQLDatabase.safeClose(results);
+			db.release(connection);
 		}
 	}
 
+	/**
+	 * @return the 16 bytes the game's commands are stored under
+	 */
+	static byte[] toBytes(UUID gameid) {
+		ByteBuffer bytes = ByteBuffer.allocate(16);
+		bytes.putLong(gameid.getMostSignificantBits());
+		bytes.putLong(gameid.getLeastSignificantBits());
+		return bytes.array();
+	}
+
 }
@@ -0,0 +1,70 @@
+package server.DAOs;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One connection to the database, with the statements prepared on it kept
+ * for reuse. Only one thread uses a connection at a time: SQLDatabase hands
+ * it out and takes it back.
+ * @author Jordan
+ *
+ */
+public class SQLConnection {
+
+	private final Connection connection;
+	private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+	SQLConnection(Connection connection) {
+		this.connection = connection;
+	}
+
+	public Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * @param sql
+	 * @return the statement prepared for the sql on this connection the
+	 * first time it was asked for. Don't close it; close its result sets.
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if (statement == null) {
+			statement = connection.prepareStatement(sql);
+			statements.put(sql, statement);
+		}
+		else {
+			statement.clearParameters();
+		}
+		return statement;
+	}
+
+	/**
+	 * Runs a statement that needs no parameters, like a pragma
+	 * @throws SQLException
+	 */
+	void execute(String sql) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute(sql);
+		}
+		finally {
+			SQLDatabase.safeClose(statement);
+		}
+	}
+
+	void close() {
+		for (PreparedStatement statement : statements.values()) {
+			SQLDatabase.safeClose(statement);
+		}
+		statements.clear();
+		SQLDatabase.safeClose(connection);
+	}
+
+}
@@ -2,8 +2,18 @@ package server.DAOs;
 
 import java.io.File;
 import java.sql.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.*;
 
+/**
+ * The connections to the SQLite database. All writes go through one writer
+ * connection, inside a transaction that belongs to the thread that started
+ * it; reads borrow one of a few reader connections, which WAL journaling
+ * lets run alongside the writer. A thread that is in a transaction reads on
+ * its transaction's connection, so it sees its own writes.
+ */
 public class SQLDatabase {
 	
 	private static final String DATABASE_DIRECTORY = "db";
@@ -11,6 +21,20 @@ public class SQLDatabase {
 	private static final String DATABASE_URL = "jdbc:sqlite:" + DATABASE_DIRECTORY +
 												File.separator + DATABASE_FILE;
 
+	public static final int DEFAULT_READERS = 4;
+	
+	/**
+	 * Set on every connection. With WAL, synchronous=NORMAL only syncs at
+	 * checkpoints: a power cut can lose the last few commits, but the
+	 * database is never corrupted and a crash of the server loses nothing.
+	 */
+	private static final String[] PRAGMAS = {
+		"PRAGMA busy_timeout = 5000",
+		"PRAGMA synchronous = NORMAL",
+		"PRAGMA temp_store = MEMORY",
+		"PRAGMA cache_size = -8192"
+	};
+
 	private static Logger logger = Logger.getLogger("Catan-SQL");
 	private static boolean initialized = false;
 
@@ -19,6 +43,7 @@ public class SQLDatabase {
 			try {
 				final String driver = "org.sqlite.JDBC";
 				Class.forName(driver);
+				initialized = true;
 			}
 			catch(ClassNotFoundException e) {
 				
@@ -31,12 +56,35 @@ public class SQLDatabase {
 		}
 	}
 	
-	Connection connection;
+	/**
+	 * A thread's open transaction
+	 */
+	private static class Transaction {
+		int depth = 1;
+		boolean rollbackOnly = false;
+	}
+	
+	private final String url;
+	private final int maxReaders;
 	
-	// simulate nested transactions so that parts can be kept independent.
-	int transactionDepth;
+	private final ReentrantLock writerLock = new ReentrantLock();
+	private SQLConnection writer = null;
+	// Whether the writer has turned on WAL and upgraded the schema
+	private volatile boolean prepared = false;
+	private final ThreadLocal<Transaction> transactions = new ThreadLocal<>();
+	
+	private final BlockingQueue<SQLConnection> idleReaders = new LinkedBlockingQueue<>();
+	private int openReaders = 0;
 	
 	public SQLDatabase() {
+		this(DATABASE_URL, DEFAULT_READERS);
+	}
+	
+	/**
+	 * @param url the JDBC url of the database
+	 * @param maxReaders how many reads may run at once
+	 */
+	public SQLDatabase(String url, int maxReaders) {
 		if (!initialized) {
 			try {
 				initialize();
@@ -45,70 +93,206 @@ public class SQLDatabase {
 				System.exit(1);
 			}
 		}
-		connection = getConnection();
+		this.url = url;
+		this.maxReaders = maxReaders;
+	}
+	
+	private SQLConnection open(boolean reader) throws DatabaseException {
+		try {
+			SQLConnection connection = new SQLConnection(DriverManager.getConnection(url));
+			for (String pragma : PRAGMAS) {
+				connection.execute(pragma);
+			}
+			if (reader) {
+				connection.execute("PRAGMA query_only = ON");
+			}
+			else {
+				// Stored in the database file, so the readers get it too
+				connection.execute("PRAGMA journal_mode = WAL");
+				SQLSchema.upgrade(connection);
+				prepared = true;
+			}
+			return connection;
+		}
+		catch (SQLException e) {
+			throw new DatabaseException("Could not connect to database. Make sure " + 
+					DATABASE_FILE + " is available in ./" + DATABASE_DIRECTORY, e);
+		}
 	}
 	
 	/**
-	 * @return the connection
+	 * Opens the writer, so the schema is upgraded before a reader looks at
+	 * the tables
 	 */
-	public Connection getConnection() {
+	private void openWriter() throws DatabaseException {
+		writerLock.lock();
 		try {
-			if (connection == null) {
-				connection = DriverManager.getConnection(DATABASE_URL);
+			if (writer == null) {
+				writer = open(false);
 			}
-			return connection;
-		} catch (SQLException e) {
-			logger.info(e.getMessage());
-			return null;
+		}
+		finally {
+			writerLock.unlock();
 		}
 	}
 	
 	/**
-	 * @return the connection
+	 * @return the connection of the calling thread's transaction
+	 * @pre the thread has started a transaction
 	 */
-	public void closeConnection() {
-		safeClose(connection);
-		connection = null;
+	public SQLConnection getConnection() {
+		if (transactions.get() == null) {
+			throw new IllegalStateException("Writes need a transaction; reads use acquireReader");
+		}
+		return writer;
 	}
 	
 	/**
-	 * Begins a transaction on the database.  A transaction allows to commit multiple
-	 * statements without committing them to the database.  Once all the statements
-	 * needed have been queued, use endTransaction(true) to commit them to the database.
+	 * Borrows a connection to read with, waiting if they are all in use.
+	 * Give it back with release.
+	 * @return a reader, or the connection of the thread's transaction if it
+	 * is in one
 	 * @throws DatabaseException
 	 */
-	public void startTransaction() throws DatabaseException {
-		if (transactionDepth == 0) {
-			++transactionDepth;
+	public SQLConnection acquireReader() throws DatabaseException {
+		if (transactions.get() != null) {
+			return writer;
+		}
+		if (!prepared) {
+			openWriter();
+		}
+		SQLConnection reader = idleReaders.poll();
+		if (reader != null) {
+			return reader;
+		}
+		boolean mayOpen;
+		synchronized (idleReaders) {
+			mayOpen = openReaders < maxReaders;
+			if (mayOpen) {
+				++openReaders;
+			}
+		}
+		if (mayOpen) {
 			try {
-				connection = DriverManager.getConnection(DATABASE_URL);
-				connection.setAutoCommit(false);
+				return open(true);
 			}
-			catch (SQLException e) {
-				throw new DatabaseException("Could not connect to database. Make sure " + 
-						DATABASE_FILE + " is available in ./" + DATABASE_DIRECTORY, e);
+			catch (DatabaseException e) {
+				synchronized (idleReaders) {
+					--openReaders;
+				}
+				throw e;
 			}
 		}
+		try {
+			return idleReaders.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DatabaseException("Interrupted while waiting for a connection", e);
+		}
+	}
+	
+	/**
+	 * Gives back a connection from acquireReader
+	 */
+	public void release(SQLConnection reader) {
+		if (reader != null && reader != writer) {
+			idleReaders.offer(reader);
+		}
+	}
+	
+	/**
+	 * Begins a transaction on the database for the calling thread, waiting
+	 * for any other thread's transaction to end first. A transaction allows
+	 * to commit multiple statements without committing them to the database.
+	 * Once all the statements needed have been queued, use endTransaction(true)
+	 * to commit them to the database. Transactions nest: only the outermost
+	 * endTransaction commits, and nothing is committed if any of them was
+	 * ended with false.
+	 * @throws DatabaseException
+	 */
+	public void startTransaction() throws DatabaseException {
+		Transaction transaction = transactions.get();
+		if (transaction != null) {
+			++transaction.depth;
+			return;
+		}
+		writerLock.lock();
+		try {
+			if (writer == null) {
+				writer = open(false);
+			}
+			writer.getConnection().setAutoCommit(false);
+		}
+		catch (SQLException | DatabaseException e) {
+			writerLock.unlock();
+			if (e instanceof DatabaseException) {
+				throw (DatabaseException) e;
+			}
+			throw new DatabaseException("Could not start a transaction", e);
+		}
+		transactions.set(new Transaction());
 	}
 	
 	public void endTransaction(boolean commit) {
-		--transactionDepth;
-		if (transactionDepth == 0) {
+		Transaction transaction = transactions.get();
+		if (transaction == null) {
+			throw new IllegalStateException("There is no transaction to end");
+		}
+		if (!commit) {
+			transaction.rollbackOnly = true;
+		}
+		if (--transaction.depth > 0) {
+			return;
+		}
+		transactions.remove();
+		Connection connection = writer.getConnection();
+		try {
+			if (transaction.rollbackOnly) {
+				connection.rollback();
+			}
+			else {
+				connection.commit();
+			}
+		}
+		catch(SQLException e) {
+			System.out.println("Could not end transaction.");
+			e.printStackTrace();
 			try {
-				if (commit) {
-					connection.commit();
-				}
-				else {
-					connection.rollback();
-				}
+				connection.rollback();
 			}
-			catch(SQLException e) {
-				System.out.println("Could not end transaction.");
+			catch (SQLException ignored) {}
+		}
+		finally {
+			try {
+				connection.setAutoCommit(true);
+			}
+			catch (SQLException e) {
 				e.printStackTrace();
 			}
-			finally {
-				safeClose(connection);
-				connection = null;
+			writerLock.unlock();
+		}
+	}
+	
+	/**
+	 * Closes every connection. Only call it once nothing is using them.
+	 */
+	public void close() {
+		writerLock.lock();
+		try {
+			if (writer != null) {
+				writer.close();
+				writer = null;
+			}
+		}
+		finally {
+			writerLock.unlock();
+		}
+		SQLConnection reader;
+		while ((reader = idleReaders.poll()) != null) {
+			reader.close();
+			synchronized (idleReaders) {
+				--openReaders;
 			}
 		}
 	}
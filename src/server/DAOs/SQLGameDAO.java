@@ -6,12 +6,10 @@ import java.util.logging.Logger;
 
 import shared.communication.GameHeader;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.sql.Blob;
+import java.nio.charset.StandardCharsets;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -22,12 +20,20 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Logger;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
 import server.model.User;
 import shared.model.ModelFacade;
 
 /**
  * This class contains implementation for storing, deleting, and updating
  * games in a SQL-based relational database system. 
+ * <br/>
+ * Each game's header is stored as JSON next to the game, so the game list
+ * is read without touching any game. Rows keep the order the games were
+ * created in. Headers stored Java-serialized by older versions are still
+ * read, and are replaced the next time the game is checkpointed.
  * @author jchip
  *
  */
@@ -50,158 +56,202 @@ public class SQLGameDAO implements IGameDAO {
 
 	@Override
 	public void addGame(UUID uuid, ModelFacade model) throws DatabaseException {
-		PreparedStatement stmt = null;
-		ResultSet keyRS = null;
+		db.startTransaction();
+		boolean commit = false;
 		try {
 			String query = "insert into games (uuid, game, header) values (?, ?, ?)";
-			stmt = db.getConnection().prepareStatement(query);
+			PreparedStatement stmt = db.getConnection().prepare(query);
 			stmt.setString(1, uuid.toString());
 			
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			ObjectOutputStream oos = new ObjectOutputStream(baos);
-			oos.writeObject(model);
-			byte[] bytes = baos.toByteArray();
-			ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-			
-			stmt.setBinaryStream(2, bais, bytes.length);
-			
-			ByteArrayOutputStream baos2 = new ByteArrayOutputStream();
-			ObjectOutputStream oos2 = new ObjectOutputStream(baos2);
-			oos2.writeObject(model.getGameHeader());
-			byte[] bytes2 = baos2.toByteArray();
-			ByteArrayInputStream bais2 = new ByteArrayInputStream(bytes2);
+			Checkpoint checkpoint = Checkpoint.of(model, 0);
+			stmt.setBytes(2, checkpoint.getBytes());
+			stmt.setBytes(3, writeHeader(checkpoint.getHeader()));
 			
-			stmt.setBinaryStream(3, bais2, bytes2.length);
 			if (stmt.executeUpdate() != 1) {
 				throw new DatabaseException("Could not add game.");
 			}
+			commit = true;
 		}
 		catch (SQLException e) {
 			throw new DatabaseException("Could not add game", e);
 		}
-		catch (NullPointerException e) {
-			throw new NullPointerException("Connection object is null (Did you forget start/end transaction?)");
-		} catch (IOException e) {
-			e.printStackTrace();
-			throw new DatabaseException("IOException");
-		}
-		finally{
-			SQLDatabase.safeClose(keyRS);
-			SQLDatabase.safeClose(stmt);
+		finally {
+			db.endTransaction(commit);
 		}
 	}
 
 	@Override
 	public void removeGame(UUID gameUUID) throws DatabaseException {
-		PreparedStatement stmt = null;
-		ResultSet keyRS = null;
+		db.startTransaction();
+		boolean commit = false;
 		try {
 			String query = "delete from games where uuid=?";
-			stmt = db.getConnection().prepareStatement(query);
+			PreparedStatement stmt = db.getConnection().prepare(query);
 			stmt.setString(1, gameUUID.toString());
 			
 			if (stmt.executeUpdate() != 1) {
-				throw new DatabaseException("Could not add game.");
+				throw new DatabaseException("Could not remove game.");
 			}
+			commit = true;
 		}
 		catch (SQLException e) {
-			throw new DatabaseException("Could not add game", e);
-		}
-		catch (NullPointerException e) {
-			throw new NullPointerException("Connection object is null (Did you forget start/end transaction?)");
+			throw new DatabaseException("Could not remove game", e);
 		}
-		finally{
-			SQLDatabase.safeClose(keyRS);
-			SQLDatabase.safeClose(stmt);
+		finally {
+			db.endTransaction(commit);
 		}
 	}
 
 	@Override
 	public void updateGamebyUUID(UUID gameUUID, ModelFacade model) {
 		try {
-			db.startTransaction();
-			removeGame(gameUUID);
-			addGame(gameUUID, model);
-			db.endTransaction(true);
+			saveCheckpoint(gameUUID, Checkpoint.of(model, 0));
 		} catch (DatabaseException e) {
 			e.printStackTrace();
 		}
-		
 	}
 
 	@Override
 	public ModelFacade getGame(UUID gameUUID) throws DatabaseException {
-		ModelFacade returnModelFacade = null;
-		
-		PreparedStatement stmt = null;
-		ResultSet rs = null;		
+		Checkpoint checkpoint = getCheckpoint(gameUUID);
+		return checkpoint == null ? null : checkpoint.getGame();
+	}
+
+	/**
+	 * Updates the game's row in place, so it keeps its place in the game
+	 * list, or adds the row if the game isn't stored yet
+	 */
+	@Override
+	public void saveCheckpoint(UUID gameUUID, Checkpoint checkpoint) throws DatabaseException {
+		db.startTransaction();
+		boolean commit = false;
+		try {
+			byte[] header = writeHeader(checkpoint.getHeader());
+			String query = "update games set game = ?, header = ? where uuid = ?";
+			PreparedStatement stmt = db.getConnection().prepare(query);
+			stmt.setBytes(1, checkpoint.getBytes());
+			stmt.setBytes(2, header);
+			stmt.setString(3, gameUUID.toString());
+			
+			if (stmt.executeUpdate() == 0) {
+				query = "insert into games (uuid, game, header) values (?, ?, ?)";
+				stmt = db.getConnection().prepare(query);
+				stmt.setString(1, gameUUID.toString());
+				stmt.setBytes(2, checkpoint.getBytes());
+				stmt.setBytes(3, header);
+				stmt.executeUpdate();
+			}
+			commit = true;
+		}
+		catch (SQLException e) {
+			throw new DatabaseException("Could not save the checkpoint", e);
+		}
+		finally {
+			db.endTransaction(commit);
+		}
+	}
+
+	@Override
+	public Checkpoint getCheckpoint(UUID gameUUID) throws DatabaseException {
+		SQLConnection connection = db.acquireReader();
+		ResultSet rs = null;
+		byte[] stored = null;
 		
 		try {
 			String query = "select game from games where uuid = ?";
-			stmt = db.getConnection().prepareStatement(query);
+			PreparedStatement stmt = connection.prepare(query);
 			stmt.setString(1, gameUUID.toString());
 			rs = stmt.executeQuery();
 			
 			if (rs.next()) {
-				InputStream blobStream = new ByteArrayInputStream(rs.getBytes(1));
-				ObjectInputStream objStream = new ObjectInputStream(blobStream);
-				returnModelFacade = (ModelFacade) objStream.readObject();
+				stored = rs.getBytes(1);
 			}
 		}
-		catch (SQLException | ClassNotFoundException | IOException e) {
-			throw new DatabaseException("Could not get game", e);
+		catch (SQLException e) {
+			throw new DatabaseException("Could not get the checkpoint", e);
 		}
 		finally {
 			SQLDatabase.safeClose(rs);
-			SQLDatabase.safeClose(stmt);
+			db.release(connection);
 		}
-		return returnModelFacade;
+		return stored == null ? null : Checkpoint.read(stored);
 	}
 
+	/**
+	 * Reads only the stored headers, in the order the games were created.
+	 * A header stored without a status by an older version is read from the
+	 * game's checkpoint instead, which for a checkpoint in the current format
+	 * reads only its header.
+	 */
 	@Override
 	public List<GameHeader> getGameList() throws DatabaseException {
 		List<GameHeader> headers = new ArrayList<>();
-		PreparedStatement stmt = null;
+		List<Integer> unknown = new ArrayList<>();
+		SQLConnection connection = db.acquireReader();
 		ResultSet rs = null;		
 		
 		try {
-			String query = "select header from games";
-			stmt = db.getConnection().prepareStatement(query);
+			String query = "select header from games order by rowid";
+			PreparedStatement stmt = connection.prepare(query);
 			rs = stmt.executeQuery();
 			
 			while (rs.next()) {
-				InputStream blobStream = new ByteArrayInputStream(rs.getBytes(1));
-				ObjectInputStream objStream = new ObjectInputStream(blobStream);
-				headers.add((GameHeader) objStream.readObject());
+				GameHeader header = readHeader(rs.getBytes(1));
+				if (header.getStatus() == null) {
+					unknown.add(headers.size());
+				}
+				headers.add(header);
 			}
 		}
-		catch (SQLException | ClassNotFoundException | IOException e) {
+		catch (SQLException e) {
 			throw new DatabaseException("Could not get games", e);
 		}
 		finally {
 			SQLDatabase.safeClose(rs);
-			SQLDatabase.safeClose(stmt);
+			db.release(connection);
+		}
+		for (int i : unknown) {
+			Checkpoint checkpoint = getCheckpoint(headers.get(i).getUUID());
+			if (checkpoint != null) {
+				headers.set(i, checkpoint.getHeader());
+			}
 		}
 		return headers;
 	}
 
+	private static byte[] writeHeader(GameHeader header) {
+		return new Gson().toJson(header).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static GameHeader readHeader(byte[] stored) throws DatabaseException {
+		try {
+			if (stored.length > 1 && stored[0] == (byte) 0xAC && stored[1] == (byte) 0xED) {
+				InputStream blobStream = new ByteArrayInputStream(stored);
+				ObjectInputStream objStream = new ObjectInputStream(blobStream);
+				return (GameHeader) objStream.readObject();
+			}
+			return new Gson().fromJson(new String(stored, StandardCharsets.UTF_8), GameHeader.class);
+		}
+		catch (ClassNotFoundException | IOException | JsonParseException e) {
+			throw new DatabaseException("Could not read a game header", e);
+		}
+	}
+
 	@Override
 	public Map<UUID, ModelFacade> getAllGames() throws DatabaseException {
 		Map<UUID, ModelFacade> games = new HashMap<UUID, ModelFacade>();
 		
-		PreparedStatement stmt = null;
+		SQLConnection connection = db.acquireReader();
 		ResultSet rs = null;		
 		
 		try {
-			String query = "select game from games";
-			stmt = db.getConnection().prepareStatement(query);
+			String query = "select uuid, game from games";
+			PreparedStatement stmt = connection.prepare(query);
 			rs = stmt.executeQuery();
 			
 			while (rs.next()) {
-				UUID uuid = UUID.fromString(rs.getString(2));
-				ModelFacade game = (ModelFacade) rs.getBlob(3);
-				
-				games.put(uuid, game);
+				UUID uuid = UUID.fromString(rs.getString(1));
+				games.put(uuid, Checkpoint.read(rs.getBytes(2)).getGame());
 			}
 		}
 		catch (SQLException e) {
@@ -209,7 +259,7 @@ public class SQLGameDAO implements IGameDAO {
 		}
 		finally {
 			SQLDatabase.safeClose(rs);
-			SQLDatabase.safeClose(stmt);
+			db.release(connection);
 		}
 		return games;
 	}
@@ -0,0 +1,154 @@
+package server.DAOs;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Brings a database made from an older db/catan-schema.sql up to date. The
+ * version of the schema a database has is kept in its user_version pragma.
+ * @author Jordan
+ *
+ */
+class SQLSchema {
+
+	private static Logger logger = Logger.getLogger("Catan-SQL");
+
+	/**
+	 * The version db/catan-schema.sql makes
+	 */
+	static final int VERSION = 1;
+
+	private static final String COMMANDS_TABLE = "%s (gameid BLOB NOT NULL, " +
+			"seq INTEGER NOT NULL, command BLOB NOT NULL, " +
+			"PRIMARY KEY (gameid, seq)) WITHOUT ROWID";
+
+	private SQLSchema() {}
+
+	/**
+	 * Makes any changes the database is missing, in one transaction
+	 * @param connection the writer, in autocommit mode
+	 * @throws SQLException
+	 */
+	static void upgrade(SQLConnection connection) throws SQLException {
+		int version = userVersion(connection);
+		if (version >= VERSION) {
+			return;
+		}
+		connection.getConnection().setAutoCommit(false);
+		try {
+			if (version < 1) {
+				sequenceCommands(connection);
+			}
+			connection.execute("PRAGMA user_version = " + VERSION);
+			connection.getConnection().commit();
+		}
+		catch (SQLException e) {
+			connection.getConnection().rollback();
+			throw e;
+		}
+		finally {
+			connection.getConnection().setAutoCommit(true);
+		}
+	}
+
+	private static int userVersion(SQLConnection connection) throws SQLException {
+		Statement statement = connection.getConnection().createStatement();
+		ResultSet results = null;
+		try {
+			results = statement.executeQuery("PRAGMA user_version");
+			return results.next() ? results.getInt(1) : 0;
+		}
+		finally {
+			SQLDatabase.safeClose(results);
+			SQLDatabase.safeClose(statement);
+		}
+	}
+
+	/**
+	 * Version 1: commands are keyed by the game's id as 16 bytes and their
+	 * number within the game, instead of a table-wide id, so a game's
+	 * commands are read and dropped through the key.
+	 */
+	private static void sequenceCommands(SQLConnection connection) throws SQLException {
+		connection.execute("CREATE TABLE IF NOT EXISTS command_sequences (" +
+				"gameid BLOB PRIMARY KEY NOT NULL, next INTEGER NOT NULL) WITHOUT ROWID");
+		if (!hasColumn(connection, "commands", "id")) {
+			// Made by the current schema, or there are no commands yet
+			connection.execute("CREATE TABLE IF NOT EXISTS " + String.format(COMMANDS_TABLE, "commands"));
+			return;
+		}
+		connection.execute("CREATE TABLE " + String.format(COMMANDS_TABLE, "sequenced_commands"));
+
+		Map<UUID, Long> next = new HashMap<>();
+		Connection db = connection.getConnection();
+		PreparedStatement select = null;
+		PreparedStatement insert = null;
+		PreparedStatement sequence = null;
+		ResultSet results = null;
+		try {
+			insert = db.prepareStatement(
+					"INSERT INTO sequenced_commands (gameid, seq, command) VALUES (?, ?, ?)");
+			select = db.prepareStatement("SELECT gameid, command FROM commands ORDER BY id");
+			results = select.executeQuery();
+			while (results.next()) {
+				UUID gameid = UUID.fromString(results.getString(1));
+				Long seq = next.get(gameid);
+				if (seq == null) {
+					seq = 0L;
+				}
+				insert.setBytes(1, SQLCommandDAO.toBytes(gameid));
+				insert.setLong(2, seq);
+				insert.setBytes(3, results.getBytes(2));
+				insert.addBatch();
+				next.put(gameid, seq + 1);
+			}
+			insert.executeBatch();
+
+			sequence = db.prepareStatement(
+					"INSERT INTO command_sequences (gameid, next) VALUES (?, ?)");
+			for (Map.Entry<UUID, Long> game : next.entrySet()) {
+				sequence.setBytes(1, SQLCommandDAO.toBytes(game.getKey()));
+				sequence.setLong(2, game.getValue());
+				sequence.addBatch();
+			}
+			sequence.executeBatch();
+		}
+		finally {
+			SQLDatabase.safeClose(results);
+			SQLDatabase.safeClose(select);
+			SQLDatabase.safeClose(insert);
+			SQLDatabase.safeClose(sequence);
+		}
+
+		connection.execute("DROP TABLE commands");
+		connection.execute("ALTER TABLE sequenced_commands RENAME TO commands");
+		logger.info("Numbered the stored commands of " + next.size() + " games");
+	}
+
+	private static boolean hasColumn(SQLConnection connection, String table, String column)
+			throws SQLException {
+		Statement statement = connection.getConnection().createStatement();
+		ResultSet results = null;
+		try {
+			results = statement.executeQuery("PRAGMA table_info(" + table + ")");
+			while (results.next()) {
+				if (column.equalsIgnoreCase(results.getString("name"))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		finally {
+			SQLDatabase.safeClose(results);
+			SQLDatabase.safeClose(statement);
+		}
+	}
+
+}
@@ -35,68 +35,67 @@ public class SQLUserDAO implements IUserDAO {
 	@Override
 	public void addUser(User user) throws DatabaseException {
 		logger.fine("Adding user: " + user.toString() + "\n" + "to database");
-		PreparedStatement stmt = null;
-		ResultSet keyRS = null;
+		db.startTransaction();
+		boolean commit = false;
 		try {
 			String query = "insert into user (username, password) values (?, ?)";
-			stmt = db.getConnection().prepareStatement(query);
+			PreparedStatement stmt = db.getConnection().prepare(query);
 			stmt.setString(1, user.getUsername());
 			stmt.setString(2, user.getPassword());
 			if (stmt.executeUpdate() != 1) {
-				throw new DatabaseException("Could not add cell.");
+				throw new DatabaseException("Could not add user.");
 			}
+			commit = true;
 		}
 		catch (SQLException e) {
-			throw new DatabaseException("Could not add cell", e);
-		}
-		catch (NullPointerException e) {
-			throw new NullPointerException("Connection object is null (Did you forget start/end transaction?)");
+			throw new DatabaseException("Could not add user", e);
 		}
 		finally{
-			SQLDatabase.safeClose(keyRS);
-			SQLDatabase.safeClose(stmt);
+			db.endTransaction(commit);
 		}
 	}
 
 	@Override
 	public void deleteUser(User user) throws DatabaseException {
-		PreparedStatement stmt = null;	
+		db.startTransaction();
+		boolean commit = false;
 		try {
 			String query = "delete from user where username = ?";
-			stmt = db.getConnection().prepareStatement(query);
+			PreparedStatement stmt = db.getConnection().prepare(query);
 			stmt.setString(1, user.getUsername());
 			
 			if (stmt.executeUpdate() != 1) {
 				throw new DatabaseException("Could not delete user");
 			}
+			commit = true;
 		}
 		catch (SQLException e) {
 			throw new DatabaseException("Could not delete user", e);
 		}
 		finally {
-			SQLDatabase.safeClose(stmt);
+			db.endTransaction(commit);
 		}
 	}
 
 	@Override
 	public void updateUserPassword(User user) throws DatabaseException {
-		PreparedStatement stmt = null;
-		ResultSet rs = null;		
+		db.startTransaction();
+		boolean commit = false;
 		try {
 			String query = "update user set password = ? where username = ?";
-			stmt = db.getConnection().prepareStatement(query);
-			stmt.setString(1, user.getUsername());
-			stmt.setString(2, user.getPassword());
+			PreparedStatement stmt = db.getConnection().prepare(query);
+			stmt.setString(1, user.getPassword());
+			stmt.setString(2, user.getUsername());
 			if (stmt.executeUpdate() != 1) {
 				throw new DatabaseException("Could not update user");
 			}
+			commit = true;
 		}
 		catch (SQLException e) {
-			throw new DatabaseException("Could not update cell", e);
+			throw new DatabaseException("Could not update user", e);
 		}
 		finally {
-			SQLDatabase.safeClose(rs);
-			SQLDatabase.safeClose(stmt);
+			db.endTransaction(commit);
 		}
 	}
 
@@ -105,12 +104,12 @@ public class SQLUserDAO implements IUserDAO {
 		
 		User returnUser = null;
 		
-		PreparedStatement stmt = null;
+		SQLConnection connection = db.acquireReader();
 		ResultSet rs = null;		
 		
 		try {
-			String query = "select * from user where username = ?";
-			stmt = db.getConnection().prepareStatement(query);
+			String query = "select username, password from user where username = ?";
+			PreparedStatement stmt = connection.prepare(query);
 			stmt.setString(1, user.getUsername());
 			rs = stmt.executeQuery();
 			
@@ -122,11 +121,11 @@ public class SQLUserDAO implements IUserDAO {
 			}
 		}
 		catch (SQLException e) {
-			throw new DatabaseException("Could not get cells", e);
+			throw new DatabaseException("Could not get user", e);
 		}
 		finally {
 			SQLDatabase.safeClose(rs);
-			SQLDatabase.safeClose(stmt);
+			db.release(connection);
 		}
 		return returnUser;
 	}
@@ -135,12 +134,12 @@ public class SQLUserDAO implements IUserDAO {
 	public List<User> getAllUsers() throws DatabaseException {
 		List<User> returnUsers = new ArrayList<User>();
 		
-		PreparedStatement stmt = null;
+		SQLConnection connection = db.acquireReader();
 		ResultSet rs = null;		
 		
 		try {
-			String query = "select * from user";
-			stmt = db.getConnection().prepareStatement(query);
+			String query = "select username, password from user";
+			PreparedStatement stmt = connection.prepare(query);
 			rs = stmt.executeQuery();
 			
 			while (rs.next()) {
@@ -151,11 +150,11 @@ public class SQLUserDAO implements IUserDAO {
 			}
 		}
 		catch (SQLException e) {
-			throw new DatabaseException("Could not get cells", e);
+			throw new DatabaseException("Could not get users", e);
 		}
 		finally {
 			SQLDatabase.safeClose(rs);
-			SQLDatabase.safeClose(stmt);
+			db.release(connection);
 		}
 		return returnUsers;
 	}
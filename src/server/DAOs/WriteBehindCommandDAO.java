@@ -0,0 +1,359 @@
+package server.DAOs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import server.commands.ICatanCommand;
+import shared.exceptions.InvalidActionException;
+
+/**
+ * Stores commands in the background. Commands are queued per game, and a
+ * single writer thread stores everything that has queued up for a game in
+ * one addCommands call (group commit). The number of commands stored for
+ * each game is kept in memory, so nothing has to be read back to count them.
+ * @author Jordan
+ *
+ */
+public class WriteBehindCommandDAO implements ICommandDAO {
+
+	private static Logger logger = Logger.getLogger("Server");
+
+	private static final long RETRY_DELAY_MILLIS = 1000;
+
+	/**
+	 * When addCommand returns
+	 */
+	public enum Durability {
+		/**
+		 * As soon as the command is queued. Commands still queued when the
+		 * process dies are lost.
+		 */
+		QUEUED,
+		/**
+		 * Once the command has been stored
+		 */
+		SYNCED;
+
+		public static Durability fromString(String name) {
+			return valueOf(name.toUpperCase());
+		}
+	}
+
+	private static class Pending {
+		final ICatanCommand command;
+		final CountDownLatch stored = new CountDownLatch(1);
+		DatabaseException error = null;
+
+		Pending(ICatanCommand command) {
+			this.command = command;
+		}
+
+		void done(DatabaseException error) {
+			this.error = error;
+			stored.countDown();
+		}
+	}
+
+	private final ICommandDAO delegate;
+	private final Durability durability;
+
+	// Guarded by this
+	private Map<UUID, List<Pending>> queued = new HashMap<>();
+	private final Map<UUID, Integer> counts = new HashMap<>();
+
+	// Held while writing to the delegate, so a game's writes and clears
+	// reach it in order
+	private final Object writeLock = new Object();
+
+	/**
+	 * @param delegate where the commands are stored
+	 * @param durability when addCommand returns
+	 */
+	public WriteBehindCommandDAO(ICommandDAO delegate, Durability durability) {
+		this.delegate = delegate;
+		this.durability = durability;
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "command-writer");
+		writer.setDaemon(true);
+		writer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				flush();
+			}
+		}, "command-flush"));
+	}
+
+	@Override
+	public void addCommand(UUID gameid, ICatanCommand command) throws DatabaseException {
+		Pending pending = new Pending(command);
+		synchronized (this) {
+			List<Pending> game = queued.get(gameid);
+			if (game == null) {
+				game = new ArrayList<>();
+				queued.put(gameid, game);
+			}
+			game.add(pending);
+			Integer count = counts.get(gameid);
+			if (count != null) {
+				counts.put(gameid, count + 1);
+			}
+			notifyAll();
+		}
+		if (durability == Durability.SYNCED) {
+			try {
+				pending.stored.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DatabaseException("Interrupted while storing the command.", e);
+			}
+			if (pending.error != null) {
+				throw pending.error;
+			}
+		}
+	}
+
+	@Override
+	public void addCommands(UUID gameid, List<ICatanCommand> commands) throws DatabaseException {
+		for (ICatanCommand command : commands) {
+			addCommand(gameid, command);
+		}
+	}
+
+	/**
+	 * Drops the game's queued commands and clears the stored ones
+	 * @pre the game has been saved with every command queued so far
+	 */
+	@Override
+	public void clearCommands(UUID gameid) throws DatabaseException {
+		List<Pending> dropped;
+		synchronized (writeLock) {
+			synchronized (this) {
+				dropped = queued.remove(gameid);
+				counts.put(gameid, 0);
+			}
+			delegate.clearCommands(gameid);
+		}
+		if (dropped != null) {
+			// They are part of the saved game
+			for (Pending pending : dropped) {
+				pending.done(null);
+			}
+		}
+	}
+
+	/**
+	 * @return every command stored for the game, including those still queued
+	 */
+	@Override
+	public List<ICatanCommand> getAll(UUID gameid) throws DatabaseException {
+		synchronized (writeLock) {
+			writeQueued(gameid);
+			return delegate.getAll(gameid);
+		}
+	}
+
+	/**
+	 * Replays every command stored for the game, including those still queued
+	 */
+	@Override
+	public void replay(UUID gameid, ICommandReplayer replayer)
+			throws DatabaseException, InvalidActionException {
+		synchronized (writeLock) {
+			writeQueued(gameid);
+			delegate.replay(gameid, replayer);
+		}
+	}
+
+	/**
+	 * @return the stored commands numbered seq and up, including those
+	 * still queued
+	 */
+	@Override
+	public List<ICatanCommand> getSince(UUID gameid, long seq) throws DatabaseException {
+		synchronized (writeLock) {
+			writeQueued(gameid);
+			return delegate.getSince(gameid, seq);
+		}
+	}
+
+	@Override
+	public int count(UUID gameid) throws DatabaseException {
+		return getCount(gameid);
+	}
+
+	/**
+	 * Stores the game's queued commands, then drops those before seq
+	 */
+	@Override
+	public void truncateBefore(UUID gameid, long seq) throws DatabaseException {
+		synchronized (writeLock) {
+			writeQueued(gameid);
+			synchronized (this) {
+				counts.remove(gameid);
+			}
+			delegate.truncateBefore(gameid, seq);
+		}
+	}
+
+	/**
+	 * Stores the game's queued commands right away
+	 * @throws DatabaseException if they could not be stored, so the stored
+	 * commands would have a gap where they belong
+	 * @pre the caller holds writeLock
+	 */
+	private void writeQueued(UUID gameid) throws DatabaseException {
+		List<Pending> game;
+		synchronized (this) {
+			game = queued.remove(gameid);
+		}
+		if (game != null) {
+			DatabaseException error = write(gameid, game);
+			if (error != null) {
+				throw error;
+			}
+		}
+	}
+
+	/**
+	 * @param gameid the game
+	 * @return how many commands have been added for the game since it was
+	 * last cleared, whether or not they have been stored yet
+	 * @throws DatabaseException if the stored commands could not be counted
+	 */
+	public int getCount(UUID gameid) throws DatabaseException {
+		synchronized (this) {
+			Integer count = counts.get(gameid);
+			if (count != null) {
+				return count;
+			}
+		}
+		// Only asked of the delegate the first time the game is counted
+		synchronized (writeLock) {
+			writeQueued(gameid);
+			int count = delegate.count(gameid);
+			synchronized (this) {
+				Integer counted = counts.get(gameid);
+				if (counted != null) {
+					return counted;
+				}
+				// Queued since, and not counted by anyone yet
+				List<Pending> game = queued.get(gameid);
+				if (game != null) {
+					count += game.size();
+				}
+				counts.put(gameid, count);
+				return count;
+			}
+		}
+	}
+
+	/**
+	 * Stores everything that is queued and waits for it
+	 */
+	public void flush() {
+		synchronized (writeLock) {
+			Map<UUID, List<Pending>> batch;
+			synchronized (this) {
+				batch = queued;
+				queued = new HashMap<>();
+			}
+			writeAll(batch);
+		}
+	}
+
+	private void writeLoop() {
+		while (true) {
+			synchronized (this) {
+				while (queued.isEmpty()) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+			boolean failed;
+			synchronized (writeLock) {
+				Map<UUID, List<Pending>> batch;
+				synchronized (this) {
+					batch = queued;
+					queued = new HashMap<>();
+				}
+				failed = !writeAll(batch);
+			}
+			if (failed) {
+				try {
+					Thread.sleep(RETRY_DELAY_MILLIS);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return false if any game's commands could not be stored
+	 */
+	private boolean writeAll(Map<UUID, List<Pending>> batch) {
+		boolean ok = true;
+		for (Map.Entry<UUID, List<Pending>> game : batch.entrySet()) {
+			ok &= write(game.getKey(), game.getValue()) == null;
+		}
+		return ok;
+	}
+
+	/**
+	 * Stores one game's commands in a single call
+	 * @return null, or why they could not be stored. In QUEUED mode they are
+	 * then queued again, ahead of anything newer.
+	 * @pre the caller holds writeLock
+	 */
+	private DatabaseException write(UUID gameid, List<Pending> game) {
+		List<ICatanCommand> commands = new ArrayList<>(game.size());
+		for (Pending pending : game) {
+			commands.add(pending.command);
+		}
+		try {
+			delegate.addCommands(gameid, commands);
+		} catch (DatabaseException e) {
+			logger.warning("Could not store " + commands.size() +
+					" commands for game " + gameid + ": " + e.getMessage());
+			if (durability == Durability.SYNCED) {
+				for (Pending pending : game) {
+					pending.done(e);
+				}
+				synchronized (this) {
+					Integer count = counts.get(gameid);
+					if (count != null) {
+						counts.put(gameid, count - game.size());
+					}
+				}
+			}
+			else {
+				synchronized (this) {
+					List<Pending> newer = queued.get(gameid);
+					if (newer != null) {
+						game.addAll(newer);
+					}
+					queued.put(gameid, game);
+				}
+			}
+			return e;
+		}
+		for (Pending pending : game) {
+			pending.done(null);
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,145 @@
+package server.DAOs;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import server.commands.CatanCommand;
+import server.commands.ICatanCommand;
+import shared.exceptions.InvalidActionException;
+import shared.model.PlayerReference;
+
+public class WriteBehindCommandDAOTest {
+
+	private Path directory;
+	private Failing store;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("write-behind");
+		store = new Failing(new FileCommandDAO(directory.toString() + File.separator, false));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		delete(directory.toFile());
+	}
+
+	@Test
+	public void testReadsQueuedCommands() throws Exception {
+		ICommandDAO dao = new WriteBehindCommandDAO(store, WriteBehindCommandDAO.Durability.QUEUED);
+		UUID game = UUID.randomUUID();
+		for (int i = 0; i < 5; ++i) {
+			dao.addCommand(game, command(i));
+		}
+		assertEquals(5, dao.getAll(game).size());
+		assertEquals(2, dao.getSince(game, 3).size());
+		assertEquals(5, dao.count(game));
+	}
+
+	// Reading past commands that could not be stored would leave a gap
+	@Test
+	public void testFailedWriteFailsRead() throws Exception {
+		ICommandDAO dao = new WriteBehindCommandDAO(store, WriteBehindCommandDAO.Durability.QUEUED);
+		UUID game = UUID.randomUUID();
+		dao.addCommand(game, command(0));
+		dao.getAll(game);
+		store.failing = true;
+		dao.addCommand(game, command(1));
+		try {
+			dao.getSince(game, 0);
+			fail("Read the commands without the one that could not be stored");
+		} catch (DatabaseException e) {
+		}
+
+		// Still queued, and stored once the store is back
+		store.failing = false;
+		List<ICatanCommand> commands = dao.getSince(game, 0);
+		assertEquals(2, commands.size());
+	}
+
+	private static ICatanCommand command(int number) throws Exception {
+		return new CatanCommand("sendChat", new PlayerReference(UUID.randomUUID()), "m" + number);
+	}
+
+	/**
+	 * A store whose writes can be made to fail
+	 */
+	private static class Failing implements ICommandDAO {
+		private final ICommandDAO delegate;
+		volatile boolean failing = false;
+
+		Failing(ICommandDAO delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void addCommand(UUID gameid, ICatanCommand command) throws DatabaseException {
+			check();
+			delegate.addCommand(gameid, command);
+		}
+
+		@Override
+		public void addCommands(UUID gameid, List<ICatanCommand> commands) throws DatabaseException {
+			check();
+			delegate.addCommands(gameid, commands);
+		}
+
+		@Override
+		public void clearCommands(UUID gameid) throws DatabaseException {
+			delegate.clearCommands(gameid);
+		}
+
+		@Override
+		public List<ICatanCommand> getAll(UUID gameid) throws DatabaseException {
+			return delegate.getAll(gameid);
+		}
+
+		@Override
+		public void replay(UUID gameid, ICommandReplayer replayer)
+				throws DatabaseException, InvalidActionException {
+			delegate.replay(gameid, replayer);
+		}
+
+		@Override
+		public List<ICatanCommand> getSince(UUID gameid, long seq) throws DatabaseException {
+			return delegate.getSince(gameid, seq);
+		}
+
+		@Override
+		public int count(UUID gameid) throws DatabaseException {
+			return delegate.count(gameid);
+		}
+
+		@Override
+		public void truncateBefore(UUID gameid, long seq) throws DatabaseException {
+			delegate.truncateBefore(gameid, seq);
+		}
+
+		private void check() throws DatabaseException {
+			if (failing) {
+				throw new DatabaseException("The store is down");
+			}
+		}
+	}
+
+	private static void delete(File file) throws IOException {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(file.toPath());
+	}
+
+}
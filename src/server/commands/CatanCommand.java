@@ -1,17 +1,18 @@
 package server.commands;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.*;
 
 import org.json.simple.JSONObject;
 import shared.exceptions.InvalidActionException;
+import shared.model.CatanModel;
 import shared.model.ModelFacade;
+import shared.model.PlayerReference;
+import shared.model.TradeOffer;
 
 /**
  * A generic implementation of commands that uses reflection to do its business.
+ * The reflection is done once, up front, by CommandDispatch.
  * <div>This makes class makes certain assumptions:
  * <ul>
  * <li>all arguments are serializable to JSONObjects with one call to toJSONObject
@@ -39,7 +40,7 @@ public class CatanCommand implements ICatanCommand {
 		command.execute(model);
 	}
 
-	private Method method;
+	private CommandDispatch.Move method;
 	private Object[] arguments;
 
 	/**
@@ -59,18 +60,13 @@ public class CatanCommand implements ICatanCommand {
 	// Infers the correct method to use from argument types
 	private void setDispatch(String method, Object... args)
 			throws NoSuchMethodException, SecurityException {
-		List<Class<?>> argTypes = new ArrayList<>();
-		for (Object arg : args) {
-			argTypes.add(arg.getClass());
-		}
 		//
 		//I HAVE CHANGE FROM ClientModelFacade.class to ModelFacade.class
 		//Might need to change this back!!
 		// Nope. This should be fine. It just got caught by an automated
 		// Refactor that I did earlier.
 		//
-		this.method = ModelFacade.class.getMethod(method,
-				argTypes.toArray(new Class<?>[argTypes.size()]));
+		this.method = CommandDispatch.lookup(method, args);
 		arguments = args;
 	}
 
@@ -86,27 +82,15 @@ public class CatanCommand implements ICatanCommand {
 		List<Object> args = new ArrayList<>();
 		for (Object arg : jsonArgs) {
 			if (arg instanceof JSONObject) {
-				JSONObject jsonArg = (JSONObject) arg;
-				Class<?> type = Class.forName((String) jsonArg.get("<class>"));
-				jsonArg.remove("<class>");
 				try {
-					Method converter = type.getMethod("fromJSONObject", JSONObject.class);
-
-					if (Modifier.isStatic(converter.getModifiers())
-							&& converter.getReturnType().equals(type)) {
-						args.add(converter.invoke(null, jsonArg));
-					}
-					else throw new Exception(); // a bit hackish...
-				} catch (Exception e) {
-					try {
-						Constructor<?> ctor = type
-								.getConstructor(JSONObject.class);
-
-						args.add(ctor.newInstance(jsonArg));
-					} catch (Exception ex) {
-						ex.printStackTrace();
-						args.add(null);
-					}
+					args.add(CommandDispatch.fromJSONObject((JSONObject) arg));
+				} catch (Error ex) {
+					throw ex;
+				} catch (Exception ex) {
+					ex.printStackTrace();
+					args.add(null);
+				} catch (Throwable ex) {
+					throw new UndeclaredThrowableException(ex);
 				}
 			} else {
 				args.add(arg);
@@ -118,15 +102,30 @@ public class CatanCommand implements ICatanCommand {
 
 	@Override
 	public void execute(ModelFacade model) throws InvalidActionException {
+		model.getCatanModel().toString();
+		// Let the player arguments find their players without the UUID table
+		CatanModel game = model.getCatanModel();
+		for (Object argument : arguments) {
+			if (argument instanceof PlayerReference) {
+				game.bind((PlayerReference) argument);
+			}
+			else if (argument instanceof TradeOffer) {
+				game.bind((TradeOffer) argument);
+			}
+		}
+		// Only a move the model refuses is an invalid action. An Error,
+		// including a failed assert in the model, leaves the game in an
+		// unknown state and must not look like one.
 		try {
-			model.getCatanModel().toString();
 			method.invoke(model, arguments);
-		} catch (InvocationTargetException e) {
-			e.printStackTrace();
-			throw new InvalidActionException(e.getCause().getMessage());
-		} catch (IllegalAccessException e) {
+		} catch (Error e) {
+			throw e;
+		} catch (Exception e) {
 			e.printStackTrace();
-		} // Let through IllegalArgumentExceptions
+			throw new InvalidActionException(e.getMessage());
+		} catch (Throwable e) {
+			throw new UndeclaredThrowableException(e);
+		}
 	}
 
 	public CatanCommandInfo getInfo() {
@@ -0,0 +1,119 @@
+package server.commands;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import shared.exceptions.InvalidActionException;
+import shared.model.CatanModel;
+import shared.model.ModelFacade;
+
+/**
+ * Several commands run as one. Either every command is made and the
+ * game's version goes up by one, or the first one that is not allowed
+ * undoes the ones before it. A batch is stored as a single command, so
+ * replaying it has the same all-or-nothing effect.
+ * @author Justin Snyder
+ *
+ */
+public class CommandBatch implements ICatanCommand {
+
+	private final List<ICatanCommand> commands;
+
+	/**
+	 * @param commands the commands, in the order they are made
+	 */
+	public CommandBatch(List<ICatanCommand> commands) {
+		this.commands = Collections.unmodifiableList(new ArrayList<>(commands));
+	}
+
+	/**
+	 * @return the commands in the batch, in order
+	 */
+	public List<ICatanCommand> getCommands() {
+		return commands;
+	}
+
+	/**
+	 * @throws InvalidActionException if any of the commands is not allowed.
+	 * The model is then left as it was.
+	 */
+	@Override
+	public void execute(ModelFacade model) throws InvalidActionException {
+		int version = model.getVersion();
+		byte[] saved = save(model.getCatanModel());
+		try {
+			for (ICatanCommand command : commands) {
+				command.execute(model);
+			}
+		}
+		catch (InvalidActionException | RuntimeException e) {
+			model.restore(load(saved));
+			throw e;
+		}
+		model.getCatanModel().setVersion(version + 1);
+	}
+
+	// Loading the copy registers its players, so it is only done when the
+	// copy is about to replace the live model
+	private static byte[] save(CatanModel model) throws InvalidActionException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+			out.writeObject(model);
+		} catch (IOException e) {
+			throw new InvalidActionException("Could not save the game before the batch: " + e.getMessage());
+		}
+		return buffer.toByteArray();
+	}
+
+	private static CatanModel load(byte[] saved) {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(saved))) {
+			return (CatanModel) in.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			// It was written a moment ago by the same classes
+			throw new IllegalStateException("Could not undo the batch", e);
+		}
+	}
+
+	@Override
+	public SerializableCatanCommand getSerializable() {
+		List<SerializableCatanCommand> parts = new ArrayList<>(commands.size());
+		for (ICatanCommand command : commands) {
+			parts.add(command.getSerializable());
+		}
+		return new Info(parts);
+	}
+
+	@Override
+	public String toString() {
+		return "CommandBatch " + commands;
+	}
+
+	/**
+	 * The stored form of a batch
+	 */
+	public static class Info implements SerializableCatanCommand {
+		private static final long serialVersionUID = 3190567521642908764L;
+
+		private final List<SerializableCatanCommand> parts;
+
+		public Info(List<SerializableCatanCommand> parts) {
+			this.parts = parts;
+		}
+
+		@Override
+		public ICatanCommand getCommand() {
+			List<ICatanCommand> commands = new ArrayList<>(parts.size());
+			for (SerializableCatanCommand part : parts) {
+				commands.add(part.getCommand());
+			}
+			return new CommandBatch(commands);
+		}
+	}
+
+}
@@ -0,0 +1,430 @@
+package server.commands;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import shared.definitions.ResourceType;
+import shared.locations.EdgeDirection;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexDirection;
+import shared.locations.VertexLocation;
+import shared.model.PlayerReference;
+import shared.model.ResourceTradeList;
+import shared.model.TradeOffer;
+
+/**
+ * A compact binary encoding of CatanCommandInfo. A command is a format
+ * byte, the method's index in a fixed table, and its arguments. Each
+ * argument is a type tag followed by its value. Locations and counts are
+ * varints, enums are their ordinal, and player references are the raw 16
+ * bytes of the player's UUID. Arguments of any other type fall back to
+ * Java serialization.
+ * <br/>
+ * A typical move takes 20-40 bytes, where Java serialization plus GZIP
+ * takes several hundred.
+ * @author Justin Snyder
+ *
+ */
+public class CommandCodec {
+
+	/**
+	 * The first byte of every encoded command. Commands written by the old
+	 * serializer start with the GZIP magic number (0x1f) instead.
+	 */
+	public static final byte FORMAT = 1;
+
+	/**
+	 * Method names by id. Only ever append to this list: the ids are stored.
+	 */
+	private static final List<String> METHODS = Arrays.asList(
+			"sendChat", "rollDice", "rob", "buyDevelopmentCard", "yearOfPlenty",
+			"roadBuildingCard", "soldier", "monopoly", "monument", "buildRoad",
+			"buildSettlement", "buildStartingPieces", "buildCity", "offerTrade",
+			"acceptTrade", "declineTrade", "maritimeTrade", "discard", "finishTurn");
+	// Methods not in the table are stored by name
+	private static final int NAMED_METHOD = 0;
+
+	private static final int NULL = 0;
+	private static final int PLAYER = 1;
+	private static final int HEX = 2;
+	private static final int EDGE = 3;
+	private static final int VERTEX = 4;
+	private static final int RESOURCE = 5;
+	private static final int INTEGER = 6;
+	private static final int STRING = 7;
+	private static final int BOOLEAN = 8;
+	private static final int RESOURCE_COUNTS = 9;
+	private static final int TRADE_LIST = 10;
+	private static final int TRADE_OFFER = 11;
+	private static final int SERIALIZED = 127;
+
+	private static final ResourceType[] RESOURCES = ResourceType.values();
+	private static final EdgeDirection[] EDGE_DIRECTIONS = EdgeDirection.values();
+	private static final VertexDirection[] VERTEX_DIRECTIONS = VertexDirection.values();
+
+	/**
+	 * @param bytes a stored command
+	 * @return true if it was written by this codec rather than the old
+	 * Java serialization + GZIP format
+	 */
+	public static boolean isEncoded(byte[] bytes) {
+		return bytes.length > 0 && bytes[0] == FORMAT;
+	}
+
+	public static byte[] encode(CatanCommandInfo command) throws CommandSerializationException {
+		Output out = new Output();
+		out.write(FORMAT);
+		int id = METHODS.indexOf(command.getMethodName());
+		out.writeVarint(id + 1);
+		if (id < 0) {
+			out.writeString(command.getMethodName());
+		}
+		Object[] args = command.getArgs();
+		out.writeVarint(args.length);
+		for (Object arg : args) {
+			writeArg(out, arg);
+		}
+		return out.toByteArray();
+	}
+
+	public static CatanCommandInfo decode(byte[] bytes) throws CommandSerializationException {
+		Input in = new Input(bytes);
+		try {
+			if (in.read() != FORMAT) {
+				throw new CommandSerializationException("Unknown command format.");
+			}
+			int id = in.readVarint();
+			String method = id == NAMED_METHOD ? in.readString() : METHODS.get(id - 1);
+			Object[] args = new Object[in.readVarint()];
+			for (int i = 0; i < args.length; ++i) {
+				args[i] = readArg(in);
+			}
+			return new CatanCommandInfo(method, args);
+		} catch (IndexOutOfBoundsException e) {
+			throw new CommandSerializationException("The command is damaged.", e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void writeArg(Output out, Object arg) throws CommandSerializationException {
+		if (arg == null) {
+			out.writeVarint(NULL);
+		}
+		else if (arg instanceof PlayerReference) {
+			out.writeVarint(PLAYER);
+			writePlayer(out, (PlayerReference) arg);
+		}
+		else if (arg instanceof HexLocation) {
+			out.writeVarint(HEX);
+			writeHex(out, (HexLocation) arg);
+		}
+		else if (arg instanceof EdgeLocation) {
+			EdgeLocation edge = (EdgeLocation) arg;
+			out.writeVarint(EDGE);
+			writeHex(out, edge.getHexLoc());
+			out.writeVarint(edge.getDir().ordinal());
+		}
+		else if (arg instanceof VertexLocation) {
+			VertexLocation vertex = (VertexLocation) arg;
+			out.writeVarint(VERTEX);
+			writeHex(out, vertex.getHexLoc());
+			out.writeVarint(vertex.getDir().ordinal());
+		}
+		else if (arg instanceof ResourceType) {
+			out.writeVarint(RESOURCE);
+			out.writeVarint(((ResourceType) arg).ordinal());
+		}
+		else if (arg instanceof Integer) {
+			out.writeVarint(INTEGER);
+			out.writeSignedVarint((Integer) arg);
+		}
+		else if (arg instanceof String) {
+			out.writeVarint(STRING);
+			out.writeString((String) arg);
+		}
+		else if (arg instanceof Boolean) {
+			out.writeVarint(BOOLEAN);
+			out.write((Boolean) arg ? 1 : 0);
+		}
+		else if (arg instanceof Map && isResourceCounts((Map<?, ?>) arg)) {
+			out.writeVarint(RESOURCE_COUNTS);
+			writeCounts(out, (Map<ResourceType, Integer>) arg);
+		}
+		else if (arg instanceof ResourceTradeList) {
+			out.writeVarint(TRADE_LIST);
+			writeTradeList(out, (ResourceTradeList) arg);
+		}
+		else if (arg instanceof TradeOffer) {
+			TradeOffer offer = (TradeOffer) arg;
+			out.writeVarint(TRADE_OFFER);
+			writePlayer(out, offer.getSender());
+			writePlayer(out, offer.getReceiver());
+			writeTradeList(out, offer.getOffer());
+		}
+		else if (arg instanceof Serializable) {
+			out.writeVarint(SERIALIZED);
+			out.writeBytes(javaSerialize(arg));
+		}
+		else {
+			throw new CommandSerializationException("Cannot encode a " + arg.getClass().getName());
+		}
+	}
+
+	private static Object readArg(Input in) throws CommandSerializationException {
+		int tag = in.readVarint();
+		switch (tag) {
+		case NULL:
+			return null;
+		case PLAYER:
+			return readPlayer(in);
+		case HEX:
+			return readHex(in);
+		case EDGE:
+			return new EdgeLocation(readHex(in), EDGE_DIRECTIONS[in.readVarint()]);
+		case VERTEX:
+			return new VertexLocation(readHex(in), VERTEX_DIRECTIONS[in.readVarint()]);
+		case RESOURCE:
+			return RESOURCES[in.readVarint()];
+		case INTEGER:
+			return in.readSignedVarint();
+		case STRING:
+			return in.readString();
+		case BOOLEAN:
+			return in.read() != 0;
+		case RESOURCE_COUNTS:
+			return readCounts(in);
+		case TRADE_LIST:
+			return readTradeList(in);
+		case TRADE_OFFER:
+			PlayerReference sender = readPlayer(in);
+			PlayerReference receiver = readPlayer(in);
+			return new TradeOffer(sender, receiver, readTradeList(in));
+		case SERIALIZED:
+			return javaDeserialize(in.readBytes());
+		default:
+			throw new CommandSerializationException("Unknown argument type " + tag);
+		}
+	}
+
+	private static void writePlayer(Output out, PlayerReference player) {
+		UUID uuid = player == null ? null : player.getPlayerUUID();
+		if (uuid == null) {
+			out.write(player == null ? 0 : 1);
+			return;
+		}
+		out.write(2);
+		out.writeLong(uuid.getMostSignificantBits());
+		out.writeLong(uuid.getLeastSignificantBits());
+	}
+
+	private static PlayerReference readPlayer(Input in) {
+		switch (in.read()) {
+		case 0:
+			return null;
+		case 1:
+			return new PlayerReference((UUID) null);
+		default:
+			return new PlayerReference(new UUID(in.readLong(), in.readLong()));
+		}
+	}
+
+	private static void writeHex(Output out, HexLocation hex) {
+		out.writeSignedVarint(hex.getX());
+		out.writeSignedVarint(hex.getY());
+	}
+
+	private static HexLocation readHex(Input in) {
+		int x = in.readSignedVarint();
+		return new HexLocation(x, in.readSignedVarint());
+	}
+
+	private static boolean isResourceCounts(Map<?, ?> map) {
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			if (!(entry.getKey() instanceof ResourceType) || !(entry.getValue() instanceof Integer)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void writeCounts(Output out, Map<ResourceType, Integer> counts) {
+		if (counts == null) {
+			out.writeVarint(0);
+			return;
+		}
+		out.writeVarint(counts.size() + 1);
+		for (Map.Entry<ResourceType, Integer> count : counts.entrySet()) {
+			out.writeVarint(count.getKey().ordinal());
+			out.writeSignedVarint(count.getValue());
+		}
+	}
+
+	private static HashMap<ResourceType, Integer> readCounts(Input in) {
+		int size = in.readVarint() - 1;
+		if (size < 0) {
+			return null;
+		}
+		HashMap<ResourceType, Integer> counts = new HashMap<>();
+		for (int i = 0; i < size; ++i) {
+			ResourceType type = RESOURCES[in.readVarint()];
+			counts.put(type, in.readSignedVarint());
+		}
+		return counts;
+	}
+
+	private static void writeTradeList(Output out, ResourceTradeList trade) {
+		if (trade == null) {
+			out.write(0);
+			return;
+		}
+		out.write(1);
+		writeCounts(out, trade.getOffered());
+		writeCounts(out, trade.getWanted());
+	}
+
+	private static ResourceTradeList readTradeList(Input in) {
+		if (in.read() == 0) {
+			return null;
+		}
+		HashMap<ResourceType, Integer> offered = readCounts(in);
+		return new ResourceTradeList(offered, readCounts(in));
+	}
+
+	private static byte[] javaSerialize(Object arg) throws CommandSerializationException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+			out.writeObject(arg);
+		} catch (IOException e) {
+			throw new CommandSerializationException("Could not serialize the argument.", e);
+		}
+		return buffer.toByteArray();
+	}
+
+	private static Object javaDeserialize(byte[] bytes) throws CommandSerializationException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			throw new CommandSerializationException("Could not deserialize the argument.", e);
+		}
+	}
+
+	/**
+	 * A growable byte buffer with varint writers
+	 */
+	private static class Output {
+		private byte[] buffer = new byte[32];
+		private int size = 0;
+
+		void write(int b) {
+			if (size == buffer.length) {
+				buffer = Arrays.copyOf(buffer, size * 2);
+			}
+			buffer[size++] = (byte) b;
+		}
+
+		void writeVarint(int value) {
+			while ((value & ~0x7f) != 0) {
+				write((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+
+		void writeSignedVarint(int value) {
+			// Zigzag, so small negative numbers stay small
+			writeVarint((value << 1) ^ (value >> 31));
+		}
+
+		void writeLong(long value) {
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				write((int) (value >>> shift));
+			}
+		}
+
+		void writeBytes(byte[] bytes) {
+			writeVarint(bytes.length);
+			for (byte b : bytes) {
+				write(b);
+			}
+		}
+
+		void writeString(String value) {
+			writeBytes(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, size);
+		}
+	}
+
+	/**
+	 * Reads what Output wrote. Reading past the end throws an
+	 * IndexOutOfBoundsException.
+	 */
+	private static class Input {
+		private final byte[] buffer;
+		private int position = 0;
+
+		Input(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		int read() {
+			if (position >= buffer.length) {
+				throw new IndexOutOfBoundsException();
+			}
+			return buffer[position++] & 0xff;
+		}
+
+		int readVarint() {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = read();
+				value |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IndexOutOfBoundsException("Varint is too long");
+		}
+
+		int readSignedVarint() {
+			int value = readVarint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		long readLong() {
+			long value = 0;
+			for (int i = 0; i < 8; ++i) {
+				value = (value << 8) | read();
+			}
+			return value;
+		}
+
+		byte[] readBytes() {
+			int length = readVarint();
+			if (length < 0 || position + length > buffer.length) {
+				throw new IndexOutOfBoundsException();
+			}
+			byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+			position += length;
+			return bytes;
+		}
+
+		String readString() {
+			return new String(readBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+package server.commands;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import shared.definitions.ResourceType;
+import shared.locations.EdgeDirection;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexDirection;
+import shared.locations.VertexLocation;
+import shared.model.PlayerReference;
+import shared.model.ResourceTradeList;
+import shared.model.TradeOffer;
+
+public class CommandCodecTest {
+
+	private List<CatanCommandInfo> commands;
+
+	@Before
+	public void setUp() throws Exception {
+		PlayerReference sam = new PlayerReference(UUID.randomUUID());
+		PlayerReference pete = new PlayerReference(UUID.randomUUID());
+		HexLocation hex = new HexLocation(1, -2);
+		EdgeLocation edge = new EdgeLocation(hex, EdgeDirection.NorthWest);
+		VertexLocation vertex = new VertexLocation(new HexLocation(-2, 0), VertexDirection.East);
+		HashMap<ResourceType, Integer> cards = new HashMap<>();
+		cards.put(ResourceType.WOOD, 2);
+		cards.put(ResourceType.ORE, 1);
+		HashMap<ResourceType, Integer> wanted = new HashMap<>();
+		wanted.put(ResourceType.SHEEP, 1);
+
+		commands = new ArrayList<>();
+		commands.add(new CatanCommandInfo("sendChat", sam, "Anyone have wheat? \u00e9\u4e2d"));
+		commands.add(new CatanCommandInfo("rollDice", sam, 8));
+		commands.add(new CatanCommandInfo("rob", sam, hex, pete));
+		// No one to rob
+		commands.add(new CatanCommandInfo("rob", sam, hex, new PlayerReference((UUID) null)));
+		commands.add(new CatanCommandInfo("buyDevelopmentCard", sam));
+		commands.add(new CatanCommandInfo("yearOfPlenty", sam, ResourceType.BRICK, ResourceType.WHEAT));
+		commands.add(new CatanCommandInfo("roadBuildingCard", sam, edge, edge.flip()));
+		commands.add(new CatanCommandInfo("soldier", sam, hex, pete));
+		commands.add(new CatanCommandInfo("monopoly", sam, ResourceType.ORE));
+		commands.add(new CatanCommandInfo("monument", sam));
+		commands.add(new CatanCommandInfo("buildRoad", sam, edge));
+		commands.add(new CatanCommandInfo("buildSettlement", sam, vertex));
+		commands.add(new CatanCommandInfo("buildStartingPieces", sam, vertex, edge));
+		commands.add(new CatanCommandInfo("buildCity", sam, vertex));
+		commands.add(new CatanCommandInfo("offerTrade",
+				new TradeOffer(sam, pete, new ResourceTradeList(cards, wanted))));
+		commands.add(new CatanCommandInfo("acceptTrade"));
+		commands.add(new CatanCommandInfo("declineTrade"));
+		commands.add(new CatanCommandInfo("maritimeTrade", sam, ResourceType.WOOD, ResourceType.ORE));
+		commands.add(new CatanCommandInfo("discard", sam, cards));
+		// What ResourceList.getResources hands out
+		commands.add(new CatanCommandInfo("discard", sam, new EnumMap<>(cards)));
+		commands.add(new CatanCommandInfo("finishTurn", sam));
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		for (CatanCommandInfo command : commands) {
+			byte[] encoded = CommandCodec.encode(command);
+			assertTrue(CommandCodec.isEncoded(encoded));
+			CatanCommandInfo decoded = CommandCodec.decode(encoded);
+			assertEquals(command.getMethodName(), decoded.getMethodName());
+			assertSameArgs(command, decoded);
+		}
+	}
+
+	@Test
+	public void testMethodNotInTable() throws Exception {
+		CatanCommandInfo command = new CatanCommandInfo("someNewMove", true, -7, null);
+		CatanCommandInfo decoded = CommandCodec.decode(CommandCodec.encode(command));
+		assertEquals("someNewMove", decoded.getMethodName());
+		assertSameArgs(command, decoded);
+	}
+
+	@Test
+	public void testSmallerThanLegacy() throws Exception {
+		for (CatanCommandInfo command : commands) {
+			ICatanCommand move = command.getCommand();
+			assertTrue(command.toString(), CommandSerializer.serializeBytes(move).length <
+					CommandSerializer.serializeLegacyBytes(move).length);
+		}
+	}
+
+	@Test
+	public void testReadsLegacy() throws Exception {
+		for (CatanCommandInfo command : commands) {
+			ICatanCommand move = command.getCommand();
+			byte[] legacy = CommandSerializer.serializeLegacyBytes(move);
+			assertFalse(CommandCodec.isEncoded(legacy));
+			CatanCommandInfo decoded = (CatanCommandInfo)
+					CommandSerializer.deserializeBytes(legacy).getSerializable();
+			assertEquals(command.getMethodName(), decoded.getMethodName());
+			assertSameArgs(command, decoded);
+		}
+	}
+
+	@Test
+	public void testBatch() throws Exception {
+		List<ICatanCommand> parts = new ArrayList<>();
+		for (CatanCommandInfo command : commands.subList(0, 3)) {
+			parts.add(command.getCommand());
+		}
+		ICatanCommand batch = CommandSerializer.deserializeBytes(
+				CommandSerializer.serializeBytes(new CommandBatch(parts)));
+		assertTrue(batch instanceof CommandBatch);
+		List<ICatanCommand> decoded = ((CommandBatch) batch).getCommands();
+		assertEquals(parts.size(), decoded.size());
+		for (int i = 0; i < parts.size(); ++i) {
+			CatanCommandInfo part = (CatanCommandInfo) decoded.get(i).getSerializable();
+			assertEquals(commands.get(i).getMethodName(), part.getMethodName());
+			assertSameArgs(commands.get(i), part);
+		}
+	}
+
+	/**
+	 * PlayerReference.equals can't compare references to no one
+	 */
+	private static void assertSameArgs(CatanCommandInfo expected, CatanCommandInfo actual) {
+		Object[] args = actual.getArgs();
+		assertEquals(expected.toString(), expected.getArgs().length, args.length);
+		for (int i = 0; i < args.length; ++i) {
+			Object arg = expected.getArgs()[i];
+			if (arg instanceof PlayerReference) {
+				assertTrue(args[i] instanceof PlayerReference);
+				assertEquals(((PlayerReference) arg).getPlayerUUID(),
+						((PlayerReference) args[i]).getPlayerUUID());
+			}
+			else {
+				assertEquals(expected.toString(), arg, args[i]);
+			}
+		}
+	}
+
+	@Test(expected = CommandSerializationException.class)
+	public void testDamaged() throws Exception {
+		byte[] encoded = CommandCodec.encode(commands.get(0));
+		CommandCodec.decode(Arrays.copyOf(encoded, encoded.length / 2));
+	}
+
+}
@@ -0,0 +1,222 @@
+package server.commands;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.simple.JSONObject;
+
+import shared.model.ModelFacade;
+
+/**
+ * Every public ModelFacade method, looked up once and turned into a method
+ * handle, so building and running a command costs no reflective lookups.
+ * Also caches how to turn a JSON argument back into an object.
+ * @author Justin Snyder
+ *
+ */
+public class CommandDispatch {
+
+	/**
+	 * One ModelFacade method, ready to be called
+	 */
+	public static class Move {
+		private final String name;
+		private final MethodHandle invoker;
+
+		private Move(Method method) throws IllegalAccessException {
+			name = method.getName();
+			MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+			// (ModelFacade, Object[]) -> Object, so every move is called the same way
+			invoker = handle.asType(handle.type().generic())
+					.asSpreader(Object[].class, method.getParameterTypes().length);
+		}
+
+		/**
+		 * @return the name of the ModelFacade method
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Calls the method
+		 * @throws Throwable whatever the method throws, unwrapped
+		 */
+		public Object invoke(ModelFacade model, Object[] arguments) throws Throwable {
+			return invoker.invoke((Object) model, arguments);
+		}
+	}
+
+	private static class Signature {
+		private final String name;
+		private final Class<?>[] types;
+
+		Signature(String name, Class<?>[] types) {
+			this.name = name;
+			this.types = types;
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode() * 31 + Arrays.hashCode(types);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Signature)) {
+				return false;
+			}
+			Signature other = (Signature) obj;
+			return name.equals(other.name) && Arrays.equals(types, other.types);
+		}
+	}
+
+	private static final Map<String, List<Method>> methods = new HashMap<>();
+	private static final Map<Method, Move> moves = new HashMap<>();
+	// Argument classes seen so far, and the method they resolved to
+	private static final Map<Signature, Move> resolved = new ConcurrentHashMap<>();
+
+	static {
+		for (Method method : ModelFacade.class.getMethods()) {
+			try {
+				moves.put(method, new Move(method));
+			} catch (IllegalAccessException e) {
+				e.printStackTrace();
+				continue;
+			}
+			List<Method> overloads = methods.get(method.getName());
+			if (overloads == null) {
+				overloads = new ArrayList<>();
+				methods.put(method.getName(), overloads);
+			}
+			overloads.add(method);
+		}
+	}
+
+	/**
+	 * Finds the ModelFacade method these arguments can be passed to. When
+	 * more than one can take them, picks the most specific one, the way the
+	 * compiler would. A null argument can be passed to any parameter that
+	 * isn't primitive.
+	 * @param name the name of the method
+	 * @param args the arguments that will be passed to it
+	 * @return the method
+	 * @throws NoSuchMethodException if there is no such method, or no one
+	 * method is more specific than the rest
+	 */
+	public static Move lookup(String name, Object... args) throws NoSuchMethodException {
+		Class<?>[] types = new Class<?>[args.length];
+		for (int i = 0; i < args.length; ++i) {
+			types[i] = args[i] == null ? null : args[i].getClass();
+		}
+		Signature signature = new Signature(name, types);
+		Move move = resolved.get(signature);
+		if (move == null) {
+			Method method = resolve(name, types);
+			if (method == null) {
+				throw new NoSuchMethodException(ModelFacade.class.getName() + "." + name +
+						Arrays.toString(types));
+			}
+			move = moves.get(method);
+			resolved.put(signature, move);
+		}
+		return move;
+	}
+
+	private static Method resolve(String name, Class<?>[] types) {
+		List<Method> overloads = methods.get(name);
+		if (overloads == null) {
+			return null;
+		}
+		List<Method> applicable = new ArrayList<>();
+		for (Method method : overloads) {
+			if (accepts(method.getParameterTypes(), types)) {
+				applicable.add(method);
+			}
+		}
+		for (Method method : applicable) {
+			boolean mostSpecific = true;
+			for (Method other : applicable) {
+				if (other != method && !accepts(other.getParameterTypes(), method.getParameterTypes())) {
+					mostSpecific = false;
+					break;
+				}
+			}
+			if (mostSpecific) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	private static boolean accepts(Class<?>[] parameters, Class<?>[] types) {
+		if (parameters.length != types.length) {
+			return false;
+		}
+		for (int i = 0; i < parameters.length; ++i) {
+			Class<?> parameter = parameters[i];
+			if (types[i] == null) {
+				if (parameter.isPrimitive()) {
+					return false;
+				}
+			}
+			else if (!box(parameter).isAssignableFrom(box(types[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Class<?> box(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return type;
+		}
+		return MethodType.methodType(type).wrap().returnType();
+	}
+
+	private static final MethodType FROM_JSON = MethodType.methodType(Object.class, JSONObject.class);
+	private static final Map<String, MethodHandle> converters = new ConcurrentHashMap<>();
+
+	/**
+	 * Turns a JSON argument back into an object, using its class's static
+	 * fromJSONObject method or, failing that, its JSONObject constructor
+	 * @param json the argument. Its "&lt;class&gt;" entry names its class,
+	 * and is removed.
+	 * @return the object
+	 * @throws Throwable if the class can't be converted or the conversion fails
+	 */
+	public static Object fromJSONObject(JSONObject json) throws Throwable {
+		String className = (String) json.remove("<class>");
+		MethodHandle converter = converters.get(className);
+		if (converter == null) {
+			converter = findConverter(Class.forName(className));
+			converters.put(className, converter);
+		}
+		return converter.invoke(json);
+	}
+
+	private static MethodHandle findConverter(Class<?> type)
+			throws NoSuchMethodException, IllegalAccessException {
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		try {
+			Method converter = type.getMethod("fromJSONObject", JSONObject.class);
+			if (Modifier.isStatic(converter.getModifiers())
+					&& converter.getReturnType().equals(type)) {
+				return lookup.unreflect(converter).asType(FROM_JSON);
+			}
+		} catch (NoSuchMethodException e) {
+			// Fall back to the constructor
+		}
+		return lookup.unreflectConstructor(type.getConstructor(JSONObject.class)).asType(FROM_JSON);
+	}
+
+}
@@ -0,0 +1,54 @@
+package server.commands;
+
+import static org.junit.Assert.*;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import shared.definitions.ResourceType;
+import shared.locations.HexLocation;
+import shared.model.PlayerReference;
+
+public class CommandDispatchTest {
+
+	private static final PlayerReference sam = new PlayerReference(UUID.randomUUID());
+
+	@Test
+	public void testExactTypes() throws Exception {
+		CommandDispatch.Move move = CommandDispatch.lookup("rollDice", sam, 8);
+		assertEquals("rollDice", move.getName());
+		assertSame(move, CommandDispatch.lookup("rollDice", sam, 6));
+	}
+
+	// ResourceList hands out an EnumMap, which only discard(Map) takes
+	@Test
+	public void testSubclassArgument() throws Exception {
+		Map<ResourceType, Integer> cards = new EnumMap<>(ResourceType.class);
+		cards.put(ResourceType.WOOD, 1);
+		CommandDispatch.Move move = CommandDispatch.lookup("discard", sam, cards);
+		assertEquals("discard", move.getName());
+		assertNotSame(move, CommandDispatch.lookup("discard", sam, new HashMap<>(cards)));
+	}
+
+	@Test
+	public void testNullArgument() throws Exception {
+		// No one to rob
+		CommandDispatch.Move move = CommandDispatch.lookup("rob", sam, new HexLocation(0, 0), null);
+		assertSame(move, CommandDispatch.lookup("rob", sam, new HexLocation(0, 0), sam));
+	}
+
+	@Test(expected = NoSuchMethodException.class)
+	public void testWrongTypes() throws Exception {
+		CommandDispatch.lookup("rollDice", sam, "eight");
+	}
+
+	@Test(expected = NoSuchMethodException.class)
+	public void testNoSuchMethod() throws Exception {
+		CommandDispatch.lookup("someNewMove", sam);
+	}
+
+}
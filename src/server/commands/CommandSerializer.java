@@ -6,16 +6,33 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
-import javax.xml.bind.DatatypeConverter;
-
 public class CommandSerializer {
 	
+	/** Serializes a command into bytes so it can be stored. Commands made
+	 * by CatanCommand use the compact CommandCodec format.
+	 * @param command The command to serialize
+	 * @return the serialized command
+	 * @throws CommandSerializationException if something prevented the command from being serialized.
+	 */
 	public static byte[] serializeBytes(ICatanCommand command)
 			throws CommandSerializationException {
 		SerializableCatanCommand serCommand = command.getSerializable();
+		if (serCommand instanceof CatanCommandInfo) {
+			return CommandCodec.encode((CatanCommandInfo) serCommand);
+		}
+		return serializeLegacyBytes(command);
+	}
+	
+	/** Serializes a command with Java serialization and GZIP, the format
+	 * used before CommandCodec. Still readable by deserializeBytes.
+	 */
+	public static byte[] serializeLegacyBytes(ICatanCommand command)
+			throws CommandSerializationException {
+		SerializableCatanCommand serCommand = command.getSerializable();
 		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 		
 		try {
@@ -30,8 +47,17 @@ public class CommandSerializer {
 		return buffer.toByteArray();
 	}
 	
+	/** Deserializes a command stored by serializeBytes, in either the
+	 * CommandCodec format or the older Java serialization + GZIP format
+	 * @param input the stored bytes
+	 * @return the command
+	 * @throws CommandSerializationException if the bytes could not be read
+	 */
 	public static ICatanCommand deserializeBytes(byte[] input)
 			throws CommandSerializationException {
+		if (CommandCodec.isEncoded(input)) {
+			return CommandCodec.decode(input).getCommand();
+		}
 		ByteArrayInputStream buffer = new ByteArrayInputStream(input);
 		
 		try {
@@ -52,7 +78,7 @@ public class CommandSerializer {
 	 */
 	public static String serialize(ICatanCommand command)
 			throws CommandSerializationException {
-		return DatatypeConverter.printBase64Binary(serializeBytes(command));
+		return Base64.getEncoder().encodeToString(serializeBytes(command));
 		//return new String(serializeBytes(command), StandardCharsets.ISO_8859_1);
 	}
 	
@@ -64,7 +90,7 @@ public class CommandSerializer {
 	 */
 	public static ICatanCommand deserialize(String input)
 			throws CommandSerializationException {
-		return deserializeBytes(DatatypeConverter.parseBase64Binary(input));
+		return deserializeBytes(Base64.getDecoder().decode(input));
 		//return deserializeBytes(input.getBytes(StandardCharsets.ISO_8859_1));
 	}
 
@@ -0,0 +1,271 @@
+package server.commands;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import shared.definitions.ResourceType;
+import shared.exceptions.SchemaMismatchException;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexLocation;
+import shared.model.PlayerReference;
+import shared.model.ResourceList;
+import shared.model.ResourceTradeList;
+import shared.model.TradeOffer;
+
+/**
+ * Converts between commands and moves in the form the /moves routes take
+ * them: a JSON object whose "type" is the name of the route (e.g.
+ * "buildRoad" or "Year_of_Plenty") and whose other entries are that route's
+ * parameters. Locations and trade offers may be given as JSON objects or,
+ * as the client sends them, as strings holding JSON objects.
+ * @author Justin Snyder
+ *
+ */
+public class MoveCommands {
+
+	private MoveCommands() {
+
+	}
+
+	/**
+	 * @param move a move, as sent to its /moves route
+	 * @return the command that makes the move
+	 * @throws CommandSerializationException if the move is of an unknown type
+	 * or is missing something
+	 */
+	public static ICatanCommand fromJSON(JSONObject move) throws CommandSerializationException {
+		String type = (String) move.get("type");
+		if (type == null) {
+			throw new CommandSerializationException("The move has no type: " + move.toJSONString());
+		}
+		try {
+			switch (type) {
+			case "sendChat":
+				return new CatanCommand("sendChat", player(move, "playerIndex"), (String) move.get("content"));
+			case "rollNumber":
+				return new CatanCommand("rollDice", player(move, "playerIndex"),
+						(int) (long) move.get("number"));
+			case "robPlayer":
+				return new CatanCommand("rob", player(move, "playerIndex"),
+						new HexLocation(object(move, "location")), player(move, "victimIndex"));
+			case "buyDevCard":
+				return new CatanCommand("buyDevelopmentCard", player(move, "playerIndex"));
+			case "Year_of_Plenty":
+				return new CatanCommand("yearOfPlenty", player(move, "playerIndex"),
+						resource(move, "resource1"), resource(move, "resource2"));
+			case "Road_Building":
+				return new CatanCommand("roadBuildingCard", player(move, "playerIndex"),
+						new EdgeLocation(object(move, "spot1")), new EdgeLocation(object(move, "spot2")));
+			case "Soldier":
+				return new CatanCommand("soldier", player(move, "playerIndex"),
+						new HexLocation(object(move, "location")), player(move, "victimIndex"));
+			case "Monopoly":
+				return new CatanCommand("monopoly", player(move, "playerIndex"), resource(move, "resource"));
+			case "Monument":
+				return new CatanCommand("monument", player(move, "playerIndex"));
+			case "buildRoad":
+				return new CatanCommand("buildRoad", player(move, "playerIndex"),
+						new EdgeLocation(object(move, "roadLocation")));
+			case "buildSettlement":
+				return new CatanCommand("buildSettlement", player(move, "playerIndex"),
+						new VertexLocation(object(move, "vertexLocation")));
+			case "buildCity":
+				return new CatanCommand("buildCity", player(move, "playerIndex"),
+						new VertexLocation(object(move, "vertexLocation")));
+			case "buildStartingPieces":
+				return new CatanCommand("buildStartingPieces", player(move, "playerIndex"),
+						new VertexLocation(object(move, "settlementLocation")),
+						new EdgeLocation(object(move, "roadLocation")));
+			case "offerTrade":
+				return new CatanCommand("offerTrade", new TradeOffer(player(move, "playerIndex"),
+						player(move, "receiver"), new ResourceTradeList(object(move, "offer"))));
+			case "acceptTrade":
+				if ((boolean) move.get("willAccept")) {
+					return new CatanCommand("acceptTrade");
+				}
+				return new CatanCommand("declineTrade");
+			case "maritimeTrade":
+				return new CatanCommand("maritimeTrade", player(move, "playerIndex"),
+						resource(move, "inputResource"), resource(move, "outputResource"));
+			case "discardCards":
+				// The HashMap overload is the one commands can find
+				return new CatanCommand("discard", player(move, "playerIndex"), new HashMap<>(
+						ResourceList.fromJSONObject(object(move, "discardedCards")).getResources()));
+			case "finishTurn":
+				return new CatanCommand("finishTurn", player(move, "playerIndex"));
+			default:
+				throw new CommandSerializationException("Unknown move type: " + type);
+			}
+		} catch (NoSuchMethodException | SchemaMismatchException | ParseException |
+				ClassCastException | NullPointerException | IllegalArgumentException e) {
+			throw new CommandSerializationException("Bad " + type + " move: " + move.toJSONString(), e);
+		}
+	}
+
+	/**
+	 * @param command a command made by fromJSON, or by the server's move
+	 * methods
+	 * @return the move that the command makes, or null if it does not
+	 * make one of the moves in the /moves routes
+	 */
+	@SuppressWarnings("unchecked")
+	public static JSONObject toJSON(ICatanCommand command) {
+		if (!(command.getSerializable() instanceof CatanCommandInfo)) {
+			return null;
+		}
+		CatanCommandInfo info = (CatanCommandInfo) command.getSerializable();
+		Object[] args = info.getArgs();
+		JSONObject move = new JSONObject();
+		switch (info.getMethodName()) {
+		case "sendChat":
+			move.put("type", "sendChat");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("content", args[1]);
+			break;
+		case "rollDice":
+			move.put("type", "rollNumber");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("number", args[1]);
+			break;
+		case "rob":
+			move.put("type", "robPlayer");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("location", ((HexLocation) args[1]).toJSONObject());
+			putPlayer(move, "victimIndex", args[2]);
+			break;
+		case "buyDevelopmentCard":
+			move.put("type", "buyDevCard");
+			move.put("playerIndex", uuid(args[0]));
+			break;
+		case "yearOfPlenty":
+			move.put("type", "Year_of_Plenty");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("resource1", name(args[1]));
+			move.put("resource2", name(args[2]));
+			break;
+		case "roadBuildingCard":
+			move.put("type", "Road_Building");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("spot1", ((EdgeLocation) args[1]).toJSONObject());
+			move.put("spot2", ((EdgeLocation) args[2]).toJSONObject());
+			break;
+		case "soldier":
+			move.put("type", "Soldier");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("location", ((HexLocation) args[1]).toJSONObject());
+			putPlayer(move, "victimIndex", args[2]);
+			break;
+		case "monopoly":
+			move.put("type", "Monopoly");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("resource", name(args[1]));
+			break;
+		case "monument":
+			move.put("type", "Monument");
+			move.put("playerIndex", uuid(args[0]));
+			break;
+		case "buildRoad":
+			move.put("type", "buildRoad");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("roadLocation", ((EdgeLocation) args[1]).toJSONObject());
+			break;
+		case "buildSettlement":
+		case "buildCity":
+			move.put("type", info.getMethodName());
+			move.put("playerIndex", uuid(args[0]));
+			move.put("vertexLocation", ((VertexLocation) args[1]).toJSONObject());
+			break;
+		case "buildStartingPieces":
+			move.put("type", "buildStartingPieces");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("settlementLocation", ((VertexLocation) args[1]).toJSONObject());
+			move.put("roadLocation", ((EdgeLocation) args[2]).toJSONObject());
+			break;
+		case "offerTrade":
+			TradeOffer offer = (TradeOffer) args[0];
+			move.put("type", "offerTrade");
+			move.put("playerIndex", uuid(offer.getSender()));
+			move.put("receiver", uuid(offer.getReceiver()));
+			JSONObject trade = new JSONObject();
+			trade.put("offered", counts(offer.getOffer().getOffered()));
+			trade.put("wanted", counts(offer.getOffer().getWanted()));
+			move.put("offer", trade);
+			break;
+		case "acceptTrade":
+		case "declineTrade":
+			move.put("type", "acceptTrade");
+			move.put("willAccept", info.getMethodName().equals("acceptTrade"));
+			break;
+		case "maritimeTrade":
+			move.put("type", "maritimeTrade");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("inputResource", name(args[1]));
+			move.put("outputResource", name(args[2]));
+			break;
+		case "discard":
+			move.put("type", "discardCards");
+			move.put("playerIndex", uuid(args[0]));
+			move.put("discardedCards", new ResourceList(
+					(Map<ResourceType, Integer>) args[1]).toJSONObject());
+			break;
+		case "finishTurn":
+			move.put("type", "finishTurn");
+			move.put("playerIndex", uuid(args[0]));
+			break;
+		default:
+			return null;
+		}
+		return move;
+	}
+
+	private static PlayerReference player(JSONObject move, String key) {
+		Object uuid = move.get(key);
+		// A missing victim is passed on as a reference to no one
+		return new PlayerReference(uuid == null ? (UUID) null : UUID.fromString((String) uuid));
+	}
+
+	private static ResourceType resource(JSONObject move, String key) {
+		return ResourceType.fromString((String) move.get(key));
+	}
+
+	private static JSONObject object(JSONObject move, String key) throws ParseException {
+		Object value = move.get(key);
+		if (value instanceof String) {
+			return (JSONObject) new JSONParser().parse((String) value);
+		}
+		return (JSONObject) value;
+	}
+
+	private static String uuid(Object player) {
+		return ((PlayerReference) player).getPlayerUUID().toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void putPlayer(JSONObject move, String key, Object player) {
+		if (player != null && ((PlayerReference) player).getPlayerUUID() != null) {
+			move.put(key, uuid(player));
+		}
+	}
+
+	private static String name(Object resource) {
+		return resource.toString().toLowerCase();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONObject counts(Map<ResourceType, Integer> counts) {
+		JSONObject json = new JSONObject();
+		if (counts != null) {
+			for (Map.Entry<ResourceType, Integer> count : counts.entrySet()) {
+				json.put(count.getKey().toString(), count.getValue());
+			}
+		}
+		return json;
+	}
+
+}
@@ -0,0 +1,371 @@
+package server.communication;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import server.DAOs.Checkpoint;
+import server.DAOs.DatabaseException;
+import server.DAOs.ICommandDAO;
+import server.DAOs.IGameDAO;
+import server.commands.ICatanCommand;
+import shared.exceptions.InvalidActionException;
+import shared.model.ModelFacade;
+
+/**
+ * Keeps the stored games close behind the games in memory. Every so many
+ * commands a game is serialized into a checkpoint, in a task of its own
+ * that runs on the game's thread after the move that triggered it has been
+ * answered. A background thread then stores the checkpoint and drops the
+ * commands it covers from the command log. Loading a game reads its
+ * checkpoint and replays only the commands stored since.
+ * @author Jordan
+ *
+ */
+public class Checkpointer {
+
+	private static Logger logger = Logger.getLogger("Server");
+
+	private final IGameDAO games;
+	private final ICommandDAO commands;
+	private final int interval;
+
+	// The number of the next command of each game, and of the first command
+	// after its latest checkpoint. Only changed from the game's own thread.
+	private final Map<UUID, Long> nextCommand = new ConcurrentHashMap<>();
+	private final Map<UUID, Long> checkpointed = new ConcurrentHashMap<>();
+
+	// Checkpoints waiting to be stored, only the newest for each game.
+	// Guarded by this.
+	private final Map<UUID, Checkpoint> queued = new LinkedHashMap<>();
+
+	// Held while storing a checkpoint, which is taken off the queue under
+	// it. The newest checkpoint stored for each game in memory or with a
+	// checkpoint queued, so an older one that was still queued never
+	// replaces it.
+	private final Object writeLock = new Object();
+	private final Map<UUID, Long> written = new HashMap<>();
+
+	private final AtomicLong taken = new AtomicLong();
+	private final AtomicLong checkpoints = new AtomicLong();
+	private final AtomicLong checkpointBytes = new AtomicLong();
+	private final AtomicLong serializeNanos = new AtomicLong();
+	private final AtomicLong writeNanos = new AtomicLong();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong replayedCommands = new AtomicLong();
+	private final AtomicLong loadNanos = new AtomicLong();
+
+	/**
+	 * @param games where checkpoints are stored
+	 * @param commands the command log the checkpoints compact
+	 * @param interval how many commands a game runs between checkpoints
+	 */
+	public Checkpointer(IGameDAO games, ICommandDAO commands, int interval) {
+		this.games = games;
+		this.commands = commands;
+		this.interval = Math.max(1, interval);
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "checkpointer");
+		writer.setDaemon(true);
+		writer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				flush();
+			}
+		}, "checkpoint-flush"));
+	}
+
+	/**
+	 * Reads a game's checkpoint and replays the commands stored after it
+	 * @param gameID the game
+	 * @return the game, or null if it is not stored
+	 * @throws DatabaseException if the game could not be read
+	 * @throws InvalidActionException if a stored command no longer applies
+	 */
+	public ModelFacade load(UUID gameID) throws DatabaseException, InvalidActionException {
+		long start = System.nanoTime();
+		Checkpoint checkpoint = games.getCheckpoint(gameID);
+		if (checkpoint == null) {
+			return null;
+		}
+		ModelFacade game = checkpoint.getGame();
+		List<ICatanCommand> tail = commands.getSince(gameID, checkpoint.getSeq());
+		for (ICatanCommand command : tail) {
+			command.execute(game);
+		}
+		nextCommand.put(gameID, checkpoint.getSeq() + tail.size());
+		checkpointed.put(gameID, checkpoint.getSeq());
+		synchronized (writeLock) {
+			written.put(gameID, checkpoint.getSeq());
+		}
+
+		long nanos = System.nanoTime() - start;
+		loads.incrementAndGet();
+		replayedCommands.addAndGet(tail.size());
+		loadNanos.addAndGet(nanos);
+		logger.info("Loaded game " + gameID + " from a " + checkpoint.getBytes().length +
+				" byte checkpoint and " + tail.size() + " commands in " + nanos / 1000000 + " ms");
+		return game;
+	}
+
+	/**
+	 * Starts counting the commands of a game that was just created and stored
+	 * @param game the game
+	 */
+	public void created(ModelFacade game) {
+		nextCommand.put(game.getUUID(), 0L);
+		checkpointed.put(game.getUUID(), 0L);
+	}
+
+	/**
+	 * Counts a command that was run on the game and stored
+	 * @param game the game
+	 * @return whether the game is due a checkpoint
+	 * @pre called from a task running on the game
+	 */
+	public boolean added(ModelFacade game) {
+		UUID gameID = game.getUUID();
+		Long next = nextCommand.get(gameID);
+		long count = next == null ? 1 : next + 1;
+		nextCommand.put(gameID, count);
+		Long last = checkpointed.get(gameID);
+		return count - (last == null ? 0 : last) >= interval;
+	}
+
+	/**
+	 * Takes a checkpoint of the game on its own thread, once the tasks
+	 * already queued for it have run, and queues it to be stored
+	 * @param actor the game
+	 */
+	public void checkpoint(GameActor actor) {
+		checkpointed.put(actor.getUUID(), nextCommand(actor.getUUID()));
+		actor.submit(new GameActor.Task<Void>() {
+			@Override
+			public Void run(ModelFacade game) throws Exception {
+				try {
+					Checkpoint checkpoint = take(game);
+					synchronized (Checkpointer.this) {
+						queued.remove(game.getUUID());
+						queued.put(game.getUUID(), checkpoint);
+						Checkpointer.this.notifyAll();
+					}
+				} catch (RuntimeException e) {
+					logger.warning("Could not checkpoint game " + game.getUUID() + ": " + e);
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Stores a checkpoint of the game right away
+	 * @param game the game
+	 * @throws DatabaseException if it could not be stored
+	 * @pre nothing changes the game until this returns
+	 */
+	public void save(ModelFacade game) throws DatabaseException {
+		Checkpoint checkpoint = take(game);
+		checkpointed.put(game.getUUID(), checkpoint.getSeq());
+		write(game.getUUID(), checkpoint);
+	}
+
+	/**
+	 * Stops counting the commands of a game that left memory, and forgets
+	 * its checkpoints once none is queued
+	 */
+	public void forget(UUID gameID) {
+		nextCommand.remove(gameID);
+		checkpointed.remove(gameID);
+		synchronized (writeLock) {
+			synchronized (this) {
+				// Otherwise dropped once the queued checkpoint is stored
+				if (!queued.containsKey(gameID)) {
+					written.remove(gameID);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return whether anything is still kept about the game
+	 */
+	boolean isTracking(UUID gameID) {
+		synchronized (writeLock) {
+			return nextCommand.containsKey(gameID) || checkpointed.containsKey(gameID) ||
+					written.containsKey(gameID);
+		}
+	}
+
+	/**
+	 * Stores every queued checkpoint and waits for them
+	 */
+	public void flush() {
+		while (writeNext()) {
+		}
+	}
+
+	private long nextCommand(UUID gameID) {
+		Long next = nextCommand.get(gameID);
+		return next == null ? 0 : next;
+	}
+
+	private Checkpoint take(ModelFacade game) {
+		long start = System.nanoTime();
+		Checkpoint checkpoint = Checkpoint.of(game, nextCommand(game.getUUID()));
+		taken.incrementAndGet();
+		serializeNanos.addAndGet(System.nanoTime() - start);
+		return checkpoint;
+	}
+
+	private void writeLoop() {
+		while (true) {
+			synchronized (this) {
+				while (queued.isEmpty()) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+			flush();
+		}
+	}
+
+	/**
+	 * Stores the checkpoint that has been queued longest
+	 * @return false if none was queued
+	 */
+	private boolean writeNext() {
+		synchronized (writeLock) {
+			UUID gameID;
+			Checkpoint checkpoint;
+			synchronized (this) {
+				Iterator<Map.Entry<UUID, Checkpoint>> oldest = queued.entrySet().iterator();
+				if (!oldest.hasNext()) {
+					return false;
+				}
+				Map.Entry<UUID, Checkpoint> entry = oldest.next();
+				gameID = entry.getKey();
+				checkpoint = entry.getValue();
+				oldest.remove();
+			}
+			try {
+				write(gameID, checkpoint);
+			} catch (DatabaseException e) {
+				// The game's next checkpoint tries again
+				logger.warning("Could not store the checkpoint of game " + gameID +
+						": " + e.getMessage());
+			}
+			// The game left memory while its checkpoint was queued
+			if (!nextCommand.containsKey(gameID)) {
+				synchronized (this) {
+					if (!queued.containsKey(gameID)) {
+						written.remove(gameID);
+					}
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Stores the checkpoint, unless a newer one already has been, and drops
+	 * the commands it covers
+	 */
+	private void write(UUID gameID, Checkpoint checkpoint) throws DatabaseException {
+		synchronized (writeLock) {
+			Long newest = written.get(gameID);
+			if (newest != null && newest >= checkpoint.getSeq()) {
+				return;
+			}
+			long start = System.nanoTime();
+			games.saveCheckpoint(gameID, checkpoint);
+			written.put(gameID, checkpoint.getSeq());
+			commands.truncateBefore(gameID, checkpoint.getSeq());
+			long nanos = System.nanoTime() - start;
+
+			checkpoints.incrementAndGet();
+			checkpointBytes.addAndGet(checkpoint.getBytes().length);
+			writeNanos.addAndGet(nanos);
+			logger.fine("Checkpointed game " + gameID + " at command " + checkpoint.getSeq() +
+					": " + checkpoint.getBytes().length + " bytes in " + nanos / 1000 + " us");
+		}
+	}
+
+	/**
+	 * @return how many checkpoints have been stored
+	 */
+	public long getCheckpointCount() {
+		return checkpoints.get();
+	}
+
+	/**
+	 * @return the average size of a stored checkpoint, in bytes
+	 */
+	public long getAverageCheckpointBytes() {
+		long count = checkpoints.get();
+		return count == 0 ? 0 : checkpointBytes.get() / count;
+	}
+
+	/**
+	 * @return the average time a game's thread spent serializing a
+	 * checkpoint, in microseconds
+	 */
+	public long getAverageSerializeMicros() {
+		long count = taken.get();
+		return count == 0 ? 0 : serializeNanos.get() / count / 1000;
+	}
+
+	/**
+	 * @return the average time taken to store a checkpoint and compact the
+	 * command log behind it, in microseconds
+	 */
+	public long getAverageWriteMicros() {
+		long count = checkpoints.get();
+		return count == 0 ? 0 : writeNanos.get() / count / 1000;
+	}
+
+	/**
+	 * @return how many games have been loaded
+	 */
+	public long getLoadCount() {
+		return loads.get();
+	}
+
+	/**
+	 * @return the average number of commands replayed to load a game
+	 */
+	public double getAverageReplayLength() {
+		long count = loads.get();
+		return count == 0 ? 0 : (double) replayedCommands.get() / count;
+	}
+
+	/**
+	 * @return the average time taken to load a game, in microseconds
+	 */
+	public long getAverageLoadMicros() {
+		long count = loads.get();
+		return count == 0 ? 0 : loadNanos.get() / count / 1000;
+	}
+
+	@Override
+	public String toString() {
+		return checkpoints.get() + " checkpoints (avg " + getAverageCheckpointBytes() + " bytes, " +
+				getAverageSerializeMicros() + " us to serialize, " + getAverageWriteMicros() +
+				" us to store), " + loads.get() + " loads (avg " + getAverageReplayLength() +
+				" commands replayed, " + getAverageLoadMicros() + " us)";
+	}
+
+}
@@ -0,0 +1,211 @@
+package server.communication;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import server.DAOs.Checkpoint;
+import server.DAOs.FileCommandDAO;
+import server.DAOs.FileGameDAO;
+import server.DAOs.ICommandDAO;
+import server.DAOs.IGameDAO;
+import server.DAOs.SQLDatabase;
+import server.DAOs.SQLGameDAO;
+import server.commands.CatanCommand;
+import server.commands.ICatanCommand;
+import shared.definitions.CatanColor;
+import shared.model.ModelFacade;
+import shared.model.PlayerReference;
+
+public class CheckpointerTest {
+
+	private static final int INTERVAL = 10;
+
+	private Path directory;
+	private IGameDAO games;
+	private ICommandDAO commands;
+	private ExecutorService pool;
+	private ModelFacade game;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("checkpoints");
+		games = new FileGameDAO(directory.resolve("games") + File.separator);
+		commands = new FileCommandDAO(directory.resolve("commands") + File.separator, false);
+		pool = Executors.newSingleThreadExecutor();
+
+		game = new ModelFacade();
+		game.addPlayer("Sam", CatanColor.RED);
+		game.addPlayer("Brooke", CatanColor.ORANGE);
+		game.addPlayer("Pete", CatanColor.YELLOW);
+		game.addPlayer("Mark", CatanColor.GREEN);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.shutdownNow();
+		delete(directory.toFile());
+	}
+
+	@Test
+	public void testSeqRoundTrip() throws Exception {
+		Checkpoint checkpoint = Checkpoint.read(Checkpoint.of(game, 1234567890123L).getBytes());
+		assertEquals(1234567890123L, checkpoint.getSeq());
+		assertEquals(game.getUUID(), checkpoint.getHeader().getUUID());
+		assertEquals(game.getVersion(), checkpoint.getGame().getVersion());
+	}
+
+	// Games stored before checkpoints existed
+	@Test
+	public void testGameStoredAlone() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(game);
+		}
+		Checkpoint checkpoint = Checkpoint.read(bytes.toByteArray());
+		assertEquals(0, checkpoint.getSeq());
+		assertEquals(game.getUUID(), checkpoint.getGame().getUUID());
+	}
+
+	@Test
+	public void testSQLCheckpoints() throws Exception {
+		try {
+			Class.forName("org.sqlite.JDBC");
+		} catch (ClassNotFoundException e) {
+			assumeNoException(e);
+		}
+		String url = "jdbc:sqlite:" + directory.resolve("games.sqlite");
+		String schema = new String(Files.readAllBytes(Paths.get("db", "catan-schema.sql")),
+				StandardCharsets.UTF_8);
+		try (Connection connection = DriverManager.getConnection(url);
+				Statement statement = connection.createStatement()) {
+			for (String sql : schema.split(";")) {
+				if (!sql.trim().isEmpty()) {
+					statement.executeUpdate(sql);
+				}
+			}
+		}
+		SQLDatabase database = new SQLDatabase(url, 2);
+		try {
+			IGameDAO games = new SQLGameDAO(database);
+			assertNull(games.getCheckpoint(game.getUUID()));
+			games.addGame(game.getUUID(), game);
+			assertEquals(0, games.getCheckpoint(game.getUUID()).getSeq());
+			games.saveCheckpoint(game.getUUID(), Checkpoint.of(game, 40));
+			Checkpoint checkpoint = games.getCheckpoint(game.getUUID());
+			assertEquals(40, checkpoint.getSeq());
+			assertEquals(game.getVersion(), checkpoint.getGame().getVersion());
+			assertEquals(1, games.getGameList().size());
+		} finally {
+			database.close();
+		}
+	}
+
+	// Runs commands the way the server does, then loads the game again as
+	// if the server had restarted
+	@Test
+	public void testLoadIsCheckpointPlusTail() throws Exception {
+		final UUID gameID = game.getUUID();
+		games.addGame(gameID, game);
+		final Checkpointer checkpointer = new Checkpointer(games, commands, INTERVAL);
+		checkpointer.created(game);
+		final GameActor actor = new GameActor(game, pool, new ModelSubscriptions(pool));
+		PlayerReference sam = game.getCatanModel().getPlayers().get(0).getReference();
+		int chatBefore = game.getCatanModel().getChat().getMessage().size();
+
+		for (int i = 0; i < 95; ++i) {
+			final ICatanCommand command = new CatanCommand("sendChat", sam, "m" + i);
+			actor.submit(new GameActor.Task<Void>() {
+				@Override
+				public Void run(ModelFacade game) throws Exception {
+					command.execute(game);
+					commands.addCommand(gameID, command);
+					if (checkpointer.added(game)) {
+						checkpointer.checkpoint(actor);
+					}
+					return null;
+				}
+			}).get();
+		}
+		// Let the last checkpoint be taken, then stored and the log behind
+		// it dropped
+		actor.submit(new GameActor.Task<Void>() {
+			@Override
+			public Void run(ModelFacade game) {
+				return null;
+			}
+		}).get();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (games.getCheckpoint(gameID).getSeq() < 90 || commands.count(gameID) > 5) {
+			assertTrue("The checkpoint was never stored", System.currentTimeMillis() < deadline);
+			checkpointer.flush();
+			Thread.sleep(10);
+		}
+		assertEquals(90, games.getCheckpoint(gameID).getSeq());
+		assertEquals(5, commands.count(gameID));
+
+		ModelFacade loaded = new Checkpointer(games, commands, INTERVAL).load(gameID);
+		assertEquals(game.getVersion(), loaded.getVersion());
+		List<String> chat = game.getCatanModel().getChat().getMessage();
+		assertEquals(chatBefore + 95, chat.size());
+		assertEquals(chat, loaded.getCatanModel().getChat().getMessage());
+		assertEquals(game.getCatanModel().getChat().getSource(),
+				loaded.getCatanModel().getChat().getSource());
+	}
+
+	@Test
+	public void testForgetDropsGame() throws Exception {
+		UUID gameID = game.getUUID();
+		games.addGame(gameID, game);
+		Checkpointer checkpointer = new Checkpointer(games, commands, INTERVAL);
+		checkpointer.created(game);
+		checkpointer.save(game);
+		assertTrue(checkpointer.isTracking(gameID));
+		checkpointer.forget(gameID);
+		assertFalse(checkpointer.isTracking(gameID));
+
+		// Forgotten with a checkpoint still queued, which is stored first
+		checkpointer.load(gameID);
+		GameActor actor = new GameActor(game, pool, new ModelSubscriptions(pool));
+		checkpointer.checkpoint(actor);
+		actor.submit(new GameActor.Task<Void>() {
+			@Override
+			public Void run(ModelFacade game) {
+				return null;
+			}
+		}).get();
+		checkpointer.forget(gameID);
+		checkpointer.flush();
+		assertFalse(checkpointer.isTracking(gameID));
+	}
+
+	private static void delete(File file) throws IOException {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(file.toPath());
+	}
+
+}
@@ -0,0 +1,103 @@
+package server.communication;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Remembers the last few moves made in a single game, each with the version
+ * of the game it led to, so that a client can fetch the moves it missed
+ * instead of working them out from the models.
+ * @author Jordan
+ *
+ */
+public class CommandHistory {
+
+	/**
+	 * The default number of moves kept per game
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private static class Entry {
+		final int version;
+		final JSONObject move;
+
+		Entry(int version, JSONObject move) {
+			this.version = version;
+			this.move = move;
+		}
+	}
+
+	private final int capacity;
+	private final Deque<Entry> moves = new ArrayDeque<>();
+	// The version the oldest kept move was made on. Moves made on any version
+	// from this one on are all kept.
+	private int since;
+
+	/**
+	 * @param version the version of the game when it was loaded
+	 */
+	public CommandHistory(int version) {
+		this(version, DEFAULT_CAPACITY);
+	}
+
+	public CommandHistory(int version, int capacity) {
+		this.since = version;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Records moves that were made together
+	 * @param before the version of the game before the moves
+	 * @param after the version of the game after the moves
+	 * @param made the moves, in order
+	 * @pre the moves will not be modified afterwards
+	 */
+	public synchronized void record(int before, int after, List<JSONObject> made) {
+		if (before < since) {
+			// The game went back to an older version (e.g. it was reloaded)
+			moves.clear();
+			since = before;
+		}
+		for (JSONObject move : made) {
+			moves.addLast(new Entry(after, move));
+		}
+		while (moves.size() > capacity) {
+			since = moves.removeFirst().version;
+		}
+	}
+
+	/**
+	 * @return the oldest version that since() still has every move after
+	 */
+	public synchronized int getOldestVersion() {
+		return since;
+	}
+
+	/**
+	 * @param version a version of the game
+	 * @return every kept move made after that version, oldest first, each
+	 * with the version it led to in its "version" entry. Null if some of
+	 * those moves are no longer kept.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized List<JSONObject> since(int version) {
+		if (version < since) {
+			return null;
+		}
+		List<JSONObject> result = new ArrayList<>();
+		for (Entry entry : moves) {
+			if (entry.version > version) {
+				JSONObject move = new JSONObject();
+				move.putAll(entry.move);
+				move.put("version", entry.version);
+				result.add(move);
+			}
+		}
+		return result;
+	}
+
+}
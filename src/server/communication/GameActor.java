@@ -0,0 +1,236 @@
+package server.communication;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import shared.communication.GameHeader;
+import shared.model.ModelFacade;
+
+/**
+ * Owns one active game. Everything that changes the game is submitted to
+ * the game's mailbox and run one task at a time, in order, on a shared pool
+ * of threads, so moves in different games run in parallel without locking
+ * each other out. After every task the game is serialized into an immutable
+ * {@link ModelSnapshot}, which readers use without ever touching the live
+ * model. Each snapshot shares whatever did not change with the one before,
+ * so the history of recent versions is cheap to keep.
+ * @author Jordan
+ *
+ */
+public class GameActor {
+
+	/**
+	 * Something to run against the game on the game's own thread
+	 */
+	public interface Task<T> {
+		T run(ModelFacade game) throws Exception;
+	}
+
+	/**
+	 * Thrown by tasks that reach an actor after it has been retired. The
+	 * caller should look the game up again.
+	 */
+	@SuppressWarnings("serial")
+	public static class RetiredException extends Exception {
+	}
+
+	private final ModelFacade game;
+	private final Mailbox mailbox;
+	private final ModelSubscriptions subscriptions;
+	private final GameIndex index;
+	private final ModelHistory history = new ModelHistory();
+	private final CommandHistory commands;
+	private volatile ModelSnapshot snapshot;
+	private volatile GameHeader header;
+	// Only read and written by tasks, which the mailbox runs one at a time
+	private boolean retired = false;
+
+	/**
+	 * @param game the game to own. Nothing else may change it from now on.
+	 * @param pool the threads the game's tasks run on
+	 * @param subscriptions woken up after every task
+	 */
+	public GameActor(ModelFacade game, Executor pool, ModelSubscriptions subscriptions) {
+		this(game, pool, subscriptions, null);
+	}
+
+	/**
+	 * @param game the game to own. Nothing else may change it from now on.
+	 * @param pool the threads the game's tasks run on
+	 * @param subscriptions woken up after every task
+	 * @param index given the game's header after every task that changes
+	 * the game, or null
+	 */
+	public GameActor(ModelFacade game, Executor pool, ModelSubscriptions subscriptions,
+			GameIndex index) {
+		this.game = game;
+		this.mailbox = new Mailbox(pool);
+		this.subscriptions = subscriptions;
+		this.index = index;
+		this.commands = new CommandHistory(game.getVersion());
+		publish();
+	}
+
+	/**
+	 * @return the game's UUID
+	 */
+	public UUID getUUID() {
+		return game.getUUID();
+	}
+
+	/**
+	 * @return the live game. It may only be changed from inside a task
+	 * submitted to this actor.
+	 */
+	public ModelFacade getGame() {
+		return game;
+	}
+
+	/**
+	 * @return the snapshot taken after the last task finished
+	 */
+	public ModelSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return the game's header as of the last task
+	 */
+	public GameHeader getHeader() {
+		return header;
+	}
+
+	/**
+	 * @return the trees of the most recent versions of the game
+	 */
+	public ModelHistory getHistory() {
+		return history;
+	}
+
+	/**
+	 * @return the most recent moves made in the game. Only moves made while
+	 * this actor owned the game are in it.
+	 */
+	public CommandHistory getCommands() {
+		return commands;
+	}
+
+	/**
+	 * Queues a task to run against the game
+	 * @param task the task
+	 * @return the task's result. It fails with a RetiredException if the
+	 * actor was retired before the task ran.
+	 * @post once the task has run, a new snapshot is published and subscribers
+	 * of the game are woken up, even if the task failed
+	 */
+	public <T> Future<T> submit(final Task<T> task) {
+		FutureTask<T> future = new FutureTask<T>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				if (retired) {
+					throw new RetiredException();
+				}
+				try {
+					return task.run(game);
+				}
+				finally {
+					publish();
+				}
+			}
+		});
+		mailbox.execute(future);
+		return future;
+	}
+
+	/**
+	 * Queues the last task the actor will run. Once it has run successfully,
+	 * every later task fails with a RetiredException.
+	 * @param task the task, usually one that saves the game
+	 * @return the task's result
+	 * @post if the task throws, the actor is not retired
+	 */
+	public Future<Void> retire(final Task<Void> task) {
+		FutureTask<Void> future = new FutureTask<Void>(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				if (retired) {
+					throw new RetiredException();
+				}
+				task.run(game);
+				retired = true;
+				return null;
+			}
+		});
+		mailbox.execute(future);
+		return future;
+	}
+
+	private void publish() {
+		ModelSnapshot previous = snapshot;
+		ModelSnapshot next = ModelSnapshot.of(game, previous);
+		if (previous != null && next.getVersion() == previous.getVersion()) {
+			if (next.getTree() == previous.getTree()) {
+				// Nothing changed (e.g. the move was rejected)
+				return;
+			}
+			// Players joining change the model without changing the version,
+			// so older trees can no longer be diffed against
+			history.clear();
+		}
+		history.record(next.getVersion(), next.getTree());
+		header = game.getGameHeader();
+		if (index != null) {
+			index.put(header);
+		}
+		snapshot = next;
+		subscriptions.publish(getUUID());
+	}
+
+	/**
+	 * Runs tasks one at a time, in the order they were submitted, on
+	 * whichever pool thread is free.
+	 */
+	private static class Mailbox implements Executor {
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+		private final Executor pool;
+		private boolean running = false;
+
+		Mailbox(Executor pool) {
+			this.pool = pool;
+		}
+
+		@Override
+		public synchronized void execute(final Runnable task) {
+			tasks.add(task);
+			if (!running) {
+				running = true;
+				pool.execute(new Runnable() {
+					@Override
+					public void run() {
+						drain();
+					}
+				});
+			}
+		}
+
+		private void drain() {
+			while (true) {
+				Runnable task;
+				synchronized (this) {
+					task = tasks.poll();
+					if (task == null) {
+						running = false;
+						return;
+					}
+				}
+				task.run();
+			}
+		}
+	}
+
+}
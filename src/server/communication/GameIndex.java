@@ -0,0 +1,85 @@
+package server.communication;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import shared.communication.GameHeader;
+import shared.definitions.GameStatus;
+
+/**
+ * The header of every game the server knows about, in the order the games
+ * were created. The game list is served from here, so listing games never
+ * loads one. Games that are in memory update their header after every
+ * move; the rest keep the one stored with their last checkpoint.
+ * @author Jordan
+ *
+ */
+public class GameIndex {
+
+	// Guarded by this
+	private final Map<UUID, GameHeader> headers = new LinkedHashMap<>();
+	private final int[] counts = new int[GameStatus.values().length];
+
+	/**
+	 * Adds a game, or replaces its header where it is in the list
+	 * @param header the game's current header
+	 */
+	public synchronized void put(GameHeader header) {
+		GameHeader previous = headers.put(header.getUUID(), header);
+		if (previous != null && previous.getStatus() != null) {
+			--counts[previous.getStatus().ordinal()];
+		}
+		if (header.getStatus() != null) {
+			++counts[header.getStatus().ordinal()];
+		}
+	}
+
+	public synchronized boolean contains(UUID gameID) {
+		return headers.containsKey(gameID);
+	}
+
+	public synchronized boolean isEmpty() {
+		return headers.isEmpty();
+	}
+
+	/**
+	 * @param status the status to count, or null for every game
+	 * @return how many games have that status
+	 */
+	public synchronized int count(GameStatus status) {
+		return status == null ? headers.size() : counts[status.ordinal()];
+	}
+
+	/**
+	 * Lists a page of the games
+	 * @param offset how many of the matching games to skip
+	 * @param limit the most games to list
+	 * @param status only list games with this status, or null for every game
+	 * @return the headers, in the order the games were created
+	 * @pre offset and limit are not negative
+	 */
+	public synchronized List<GameHeader> list(int offset, int limit, GameStatus status) {
+		List<GameHeader> page = new ArrayList<>(Math.min(limit, count(status)));
+		if (offset >= count(status)) {
+			return page;
+		}
+		for (GameHeader header : headers.values()) {
+			if (page.size() >= limit) {
+				break;
+			}
+			if (status != null && header.getStatus() != status) {
+				continue;
+			}
+			if (offset > 0) {
+				--offset;
+				continue;
+			}
+			page.add(header);
+		}
+		return page;
+	}
+
+}
@@ -0,0 +1,290 @@
+package server.communication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import shared.model.ModelFacade;
+
+/**
+ * The games that are currently in memory. Games are loaded the first time
+ * they are asked for, and saved and dropped again when they have been idle
+ * too long or when too many games are in memory.
+ * @author Jordan
+ *
+ */
+public class GameRegistry {
+
+	private static Logger logger = Logger.getLogger("Server");
+
+	/**
+	 * Where games are loaded from and saved to when they leave memory
+	 */
+	public interface Store {
+		/**
+		 * @param gameID the game
+		 * @return the game, with every command since it was saved applied,
+		 * or null if it could not be loaded
+		 */
+		ModelFacade load(UUID gameID);
+
+		/**
+		 * Saves the whole game, so that it can be loaded again
+		 * @param game the game
+		 * @throws Exception if the game could not be saved. It then stays in
+		 * memory.
+		 */
+		void save(ModelFacade game) throws Exception;
+	}
+
+	/**
+	 * Makes the actor that owns a game once it is in memory
+	 */
+	public interface GameActorFactory {
+		GameActor create(ModelFacade game);
+	}
+
+	private class Entry {
+		final FutureTask<GameActor> actor;
+		final AtomicBoolean evicting = new AtomicBoolean(false);
+		volatile long lastUsed = System.currentTimeMillis();
+		// lastUsed as of the last budget check, so sorting sees stable values
+		long checkedAt;
+
+		Entry(FutureTask<GameActor> actor) {
+			this.actor = actor;
+		}
+
+		/**
+		 * @return the actor if it has finished loading, or null
+		 */
+		GameActor loaded() {
+			if (!actor.isDone()) {
+				return null;
+			}
+			try {
+				return actor.get();
+			} catch (InterruptedException | ExecutionException e) {
+				return null;
+			}
+		}
+	}
+
+	private final Map<UUID, Entry> games = new ConcurrentHashMap<>();
+	private final Store store;
+	private final GameActorFactory actors;
+	private final int maxGames;
+	private final long maxModelBytes;
+	private final long idleMillis;
+	private final Timer timer = new Timer("game-registry", true);
+
+	/**
+	 * @param store where games are loaded from and saved to
+	 * @param actors makes the actor for each game
+	 * @param maxGames the most games kept in memory, or 0 for no limit
+	 * @param maxModelBytes the most serialized model bytes kept in memory
+	 * across all games, or 0 for no limit
+	 * @param idleMillis how long a game may go unused before it is saved and
+	 * dropped, or 0 to keep idle games
+	 */
+	public GameRegistry(Store store, GameActorFactory actors,
+			int maxGames, long maxModelBytes, long idleMillis) {
+		this.store = store;
+		this.actors = actors;
+		this.maxGames = maxGames;
+		this.maxModelBytes = maxModelBytes;
+		this.idleMillis = idleMillis;
+		if (idleMillis > 0) {
+			long period = Math.max(1000, Math.min(idleMillis / 2, 60000));
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					evictIdle();
+				}
+			}, period, period);
+		}
+	}
+
+	/**
+	 * Gets a game, loading it if it is not in memory
+	 * @param gameID the game
+	 * @return the game's actor, or null if it could not be loaded
+	 * @post a game is only ever loaded by one caller at a time; the others
+	 * wait for it
+	 */
+	public GameActor get(final UUID gameID) {
+		Entry entry = games.get(gameID);
+		boolean loader = false;
+		if (entry == null) {
+			Entry created = new Entry(new FutureTask<GameActor>(new Callable<GameActor>() {
+				@Override
+				public GameActor call() {
+					ModelFacade game = store.load(gameID);
+					return game == null ? null : actors.create(game);
+				}
+			}));
+			entry = games.putIfAbsent(gameID, created);
+			if (entry == null) {
+				entry = created;
+				loader = true;
+			}
+		}
+		if (loader) {
+			logger.info("Loading game " + gameID);
+			entry.actor.run();
+		}
+		GameActor actor;
+		try {
+			actor = entry.actor.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+			actor = null;
+		}
+		if (actor == null) {
+			games.remove(gameID, entry);
+			return null;
+		}
+		entry.lastUsed = System.currentTimeMillis();
+		if (loader) {
+			evictOverBudget();
+		}
+		return actor;
+	}
+
+	/**
+	 * @param gameID the game
+	 * @return the game's actor if the game is in memory, or null. The game is
+	 * not loaded and does not count as used.
+	 */
+	public GameActor getIfResident(UUID gameID) {
+		Entry entry = games.get(gameID);
+		return entry == null ? null : entry.loaded();
+	}
+
+	/**
+	 * Puts a game that was just created into memory
+	 * @param game the game
+	 * @return the game's actor
+	 * @pre the game has already been saved to the store
+	 */
+	public GameActor add(ModelFacade game) {
+		GameActor actor = actors.create(game);
+		games.put(actor.getUUID(), new Entry(done(actor)));
+		evictOverBudget();
+		return actor;
+	}
+
+	private static FutureTask<GameActor> done(final GameActor actor) {
+		FutureTask<GameActor> task = new FutureTask<GameActor>(new Callable<GameActor>() {
+			@Override
+			public GameActor call() {
+				return actor;
+			}
+		});
+		task.run();
+		return task;
+	}
+
+	/**
+	 * @return the number of games in memory
+	 */
+	public int size() {
+		return games.size();
+	}
+
+	private void evictIdle() {
+		long cutoff = System.currentTimeMillis() - idleMillis;
+		for (Map.Entry<UUID, Entry> game : games.entrySet()) {
+			if (game.getValue().lastUsed < cutoff) {
+				evict(game.getKey(), game.getValue());
+			}
+		}
+		evictOverBudget();
+	}
+
+	/**
+	 * Drops the least recently used games until the limits are met
+	 */
+	private synchronized void evictOverBudget() {
+		if (maxGames <= 0 && maxModelBytes <= 0) {
+			return;
+		}
+		List<Map.Entry<UUID, Entry>> resident = new ArrayList<>();
+		long bytes = 0;
+		for (Map.Entry<UUID, Entry> game : games.entrySet()) {
+			GameActor actor = game.getValue().loaded();
+			if (actor == null || game.getValue().evicting.get()) {
+				continue;
+			}
+			game.getValue().checkedAt = game.getValue().lastUsed;
+			resident.add(game);
+			bytes += actor.getSnapshot().getBytes().length;
+		}
+		int count = resident.size();
+		if ((maxGames <= 0 || count <= maxGames) &&
+				(maxModelBytes <= 0 || bytes <= maxModelBytes)) {
+			return;
+		}
+		Collections.sort(resident, new Comparator<Map.Entry<UUID, Entry>>() {
+			@Override
+			public int compare(Map.Entry<UUID, Entry> a, Map.Entry<UUID, Entry> b) {
+				return Long.compare(a.getValue().checkedAt, b.getValue().checkedAt);
+			}
+		});
+		for (Map.Entry<UUID, Entry> game : resident) {
+			if ((maxGames <= 0 || count <= maxGames) &&
+					(maxModelBytes <= 0 || bytes <= maxModelBytes)) {
+				break;
+			}
+			GameActor actor = game.getValue().loaded();
+			if (evict(game.getKey(), game.getValue())) {
+				count--;
+				bytes -= actor.getSnapshot().getBytes().length;
+			}
+		}
+	}
+
+	/**
+	 * Saves a game and drops it from memory. The save runs on the game's own
+	 * thread after every move already queued, and the game is only dropped
+	 * once it has been saved.
+	 * @return true if the game is now being evicted
+	 */
+	private boolean evict(final UUID gameID, final Entry entry) {
+		final GameActor actor = entry.loaded();
+		if (actor == null || !entry.evicting.compareAndSet(false, true)) {
+			return false;
+		}
+		actor.retire(new GameActor.Task<Void>() {
+			@Override
+			public Void run(ModelFacade game) throws Exception {
+				try {
+					store.save(game);
+				} catch (Exception e) {
+					logger.warning("Could not save game " + gameID + ", keeping it in memory");
+					entry.evicting.set(false);
+					throw e;
+				}
+				games.remove(gameID, entry);
+				logger.info("Evicted game " + gameID);
+				return null;
+			}
+		});
+		return true;
+	}
+
+}
@@ -0,0 +1,69 @@
+package server.communication;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Remembers the JSON trees of the last few versions of a single game, so that
+ * a client which is only slightly behind can be sent a delta instead of the
+ * whole model.
+ * @author Jordan
+ *
+ */
+public class ModelHistory {
+
+	/**
+	 * The default number of versions kept per game. Consecutive snapshots
+	 * share everything that did not change, so each extra version is small.
+	 */
+	public static final int DEFAULT_CAPACITY = 32;
+
+	private final int capacity;
+	private final Map<Integer, JsonObject> versions;
+
+	public ModelHistory() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	@SuppressWarnings("serial")
+	public ModelHistory(int capacity) {
+		this.capacity = capacity;
+		versions = new LinkedHashMap<Integer, JsonObject>() {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, JsonObject> eldest) {
+				return size() > ModelHistory.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Records the tree for a version
+	 * @param version the model version
+	 * @param tree the serialized model at that version
+	 * @pre the tree will not be modified afterwards
+	 * @post the tree can be retrieved with get(version) until it is pushed out
+	 * by newer versions
+	 */
+	public synchronized void record(int version, JsonObject tree) {
+		versions.put(version, tree);
+	}
+
+	/**
+	 * @param version the model version
+	 * @return the tree recorded for that version, or null if it is not known
+	 */
+	public synchronized JsonObject get(int version) {
+		return versions.get(version);
+	}
+
+	/**
+	 * Forgets every recorded version. Needed when the model changes without
+	 * its version changing (e.g. players joining).
+	 */
+	public synchronized void clear() {
+		versions.clear();
+	}
+
+}
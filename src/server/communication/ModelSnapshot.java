@@ -0,0 +1,353 @@
+package server.communication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import shared.model.Board;
+import shared.model.CatanModel;
+import shared.model.MessageList;
+import shared.model.ModelFacade;
+
+/**
+ * The serialized form of one version of a game's model. Every poller of the
+ * game shares the same snapshot until the version changes, so the model is
+ * only serialized once per version.
+ * <p>
+ * Snapshots are never modified once taken. A snapshot taken after another
+ * reuses every part of the older tree that did not change (the hexes, the
+ * ports, the log up to the newest entries, ...), so keeping many versions
+ * around costs little more than what changed between them, and an unchanged
+ * model gives back the very same tree.
+ * <p>
+ * The big sections of the model are not even serialized again while the game
+ * is locked unless they changed: the map is taken from the previous snapshot
+ * while the board has no new changes, and only the new lines of the log and
+ * chat are serialized. The small sections (the bank, the players, the turn
+ * tracker, ...) are serialized every time, and shared afterwards.
+ * @author Jordan
+ *
+ */
+public class ModelSnapshot {
+
+	private static final Gson gson = new Gson();
+
+	// The sections of the model that can be taken from the previous snapshot
+	private static final String MAP = "map", LOG = "log", CHAT = "chat";
+	private static final int SKIP_MAP = 1, SKIP_LOG = 2, SKIP_CHAT = 4;
+	// Indexed by which sections to leave out
+	private static final Gson[] sectionGsons = new Gson[8];
+	// The model's sections in the order Gson writes them
+	private static final List<String> sections = new ArrayList<>();
+
+	static {
+		for (int skip = 0; skip < sectionGsons.length; ++skip) {
+			sectionGsons[skip] = new GsonBuilder().setExclusionStrategies(
+					new SectionExclusion(skip)).create();
+		}
+		for (Field field : CatanModel.class.getDeclaredFields()) {
+			int modifiers = field.getModifiers();
+			if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+				sections.add(field.getName());
+			}
+		}
+	}
+
+	private static class SectionExclusion implements ExclusionStrategy {
+		private final int skip;
+
+		SectionExclusion(int skip) {
+			this.skip = skip;
+		}
+
+		@Override
+		public boolean shouldSkipField(FieldAttributes field) {
+			if (field.getDeclaringClass() != CatanModel.class) {
+				return false;
+			}
+			switch (field.getName()) {
+			case MAP:
+				return (skip & SKIP_MAP) != 0;
+			case LOG:
+				return (skip & SKIP_LOG) != 0;
+			case CHAT:
+				return (skip & SKIP_CHAT) != 0;
+			default:
+				return false;
+			}
+		}
+
+		@Override
+		public boolean shouldSkipClass(Class<?> type) {
+			return false;
+		}
+	}
+
+	private final int version;
+	private final JsonObject tree;
+	private final String json;
+	private final byte[] bytes;
+	private byte[] gzipped = null;
+
+	// What the map, log and chat were when the snapshot was taken, to tell
+	// whether the next snapshot can reuse them
+	private Board board;
+	private int boardChanges;
+	private MessageList log;
+	private int logSize;
+	private MessageList chat;
+	private int chatSize;
+
+	private ModelSnapshot(int version, JsonObject tree) {
+		this.version = version;
+		this.tree = tree;
+		json = gson.toJson(tree);
+		bytes = json.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Serializes the current state of a game
+	 * @param game the game to serialize
+	 * @return a snapshot of the game at its current version
+	 */
+	public static ModelSnapshot of(ModelFacade game) {
+		return of(game, null);
+	}
+
+	/**
+	 * Serializes the current state of a game, sharing what has not changed
+	 * with an earlier snapshot
+	 * @param game the game to serialize
+	 * @param previous an earlier snapshot of the same game, or null
+	 * @return a snapshot of the game at its current version. If nothing
+	 * changed, its tree is the previous snapshot's tree.
+	 */
+	public static ModelSnapshot of(ModelFacade game, ModelSnapshot previous) {
+		int version;
+		JsonObject tree;
+		Board board;
+		MessageList log, chat;
+		int boardChanges, logSize, chatSize;
+		synchronized (game) {
+			CatanModel model = game.getCatanModel();
+			version = model.getVersion();
+			board = model.getMap();
+			log = model.getLog();
+			chat = model.getChat();
+			boardChanges = board == null ? 0 : board.getChanges();
+			logSize = size(log);
+			chatSize = size(chat);
+
+			JsonElement map = null, logTree = null, chatTree = null;
+			int skip = 0;
+			if (previous != null) {
+				if (board != null && board == previous.board && boardChanges == previous.boardChanges) {
+					map = previous.tree.get(MAP);
+				}
+				logTree = appended(previous.tree.get(LOG), previous.log, previous.logSize, log);
+				chatTree = appended(previous.tree.get(CHAT), previous.chat, previous.chatSize, chat);
+				skip = (map != null ? SKIP_MAP : 0) | (logTree != null ? SKIP_LOG : 0) |
+						(chatTree != null ? SKIP_CHAT : 0);
+			}
+			tree = sectionGsons[skip].toJsonTree(model).getAsJsonObject();
+			if (skip != 0) {
+				tree = merge(tree, map, logTree, chatTree);
+			}
+		}
+		if (previous != null) {
+			tree = share(previous.tree, tree).getAsJsonObject();
+		}
+		ModelSnapshot snapshot = new ModelSnapshot(version, tree);
+		snapshot.board = board;
+		snapshot.boardChanges = boardChanges;
+		snapshot.log = log;
+		snapshot.logSize = logSize;
+		snapshot.chat = chat;
+		snapshot.chatSize = chatSize;
+		return snapshot;
+	}
+
+	private static int size(MessageList messages) {
+		return messages == null ? 0 : messages.getMessage().size();
+	}
+
+	/**
+	 * Serializes the lines a message list has gained since an earlier
+	 * snapshot, onto the tree of the lines it had then. Lines are only ever
+	 * added to a message list.
+	 * @param oldTree the earlier snapshot's tree of the list, or null
+	 * @param oldList the list the earlier snapshot was taken of, or null
+	 * @param oldSize how many lines it had then
+	 * @param list the list now
+	 * @return the tree of the list now, or null if it has to be serialized
+	 * in full
+	 * @pre the caller holds the game's monitor
+	 */
+	private static JsonElement appended(JsonElement oldTree, MessageList oldList, int oldSize,
+			MessageList list) {
+		if (oldTree == null || !oldTree.isJsonObject() || list == null || list != oldList) {
+			return null;
+		}
+		int size = size(list);
+		if (size == oldSize) {
+			return oldTree;
+		}
+		if (size < oldSize || list.getSource().size() != size) {
+			return null;
+		}
+		JsonObject old = oldTree.getAsJsonObject();
+		JsonObject tree = new JsonObject();
+		for (Map.Entry<String, JsonElement> entry : old.entrySet()) {
+			List<String> lines;
+			if ("message".equals(entry.getKey())) {
+				lines = list.getMessage();
+			}
+			else if ("source".equals(entry.getKey())) {
+				lines = list.getSource();
+			}
+			else {
+				return null;
+			}
+			if (!entry.getValue().isJsonArray()) {
+				return null;
+			}
+			JsonArray oldLines = entry.getValue().getAsJsonArray();
+			JsonArray newLines = new JsonArray();
+			newLines.addAll(oldLines);
+			for (String line : lines.subList(oldSize, size)) {
+				newLines.add(gson.toJsonTree(line));
+			}
+			tree.add(entry.getKey(), newLines);
+		}
+		return tree;
+	}
+
+	/**
+	 * Puts the sections taken from an earlier snapshot back into a tree
+	 * serialized without them, where Gson would have put them
+	 * @return the whole tree
+	 */
+	private static JsonObject merge(JsonObject partial, JsonElement map, JsonElement log,
+			JsonElement chat) {
+		JsonObject tree = new JsonObject();
+		for (String section : sections) {
+			JsonElement value;
+			switch (section) {
+			case MAP:
+				value = map != null ? map : partial.get(section);
+				break;
+			case LOG:
+				value = log != null ? log : partial.get(section);
+				break;
+			case CHAT:
+				value = chat != null ? chat : partial.get(section);
+				break;
+			default:
+				value = partial.get(section);
+			}
+			if (value != null) {
+				tree.add(section, value);
+			}
+		}
+		return tree;
+	}
+
+	/**
+	 * Swaps every part of a new tree that is equal to the same part of an old
+	 * tree for the old one
+	 * @param oldValue part of a published tree, or null
+	 * @param newValue the same part of a tree that is not published yet. It
+	 * may be modified.
+	 * @return oldValue if the two are equal, otherwise newValue
+	 */
+	private static JsonElement share(JsonElement oldValue, JsonElement newValue) {
+		if (oldValue == null || oldValue == newValue) {
+			return newValue;
+		}
+		if (oldValue.isJsonObject() && newValue.isJsonObject()) {
+			JsonObject oldObject = oldValue.getAsJsonObject();
+			JsonObject newObject = newValue.getAsJsonObject();
+			boolean same = oldObject.entrySet().size() == newObject.entrySet().size();
+			for (Map.Entry<String, JsonElement> entry : newObject.entrySet()) {
+				JsonElement shared = share(oldObject.get(entry.getKey()), entry.getValue());
+				entry.setValue(shared);
+				same &= shared == oldObject.get(entry.getKey());
+			}
+			return same ? oldValue : newValue;
+		}
+		if (oldValue.isJsonArray() && newValue.isJsonArray()) {
+			JsonArray oldArray = oldValue.getAsJsonArray();
+			JsonArray newArray = newValue.getAsJsonArray();
+			boolean same = oldArray.size() == newArray.size();
+			int shown = Math.min(oldArray.size(), newArray.size());
+			for (int i = 0; i < shown; ++i) {
+				JsonElement shared = share(oldArray.get(i), newArray.get(i));
+				newArray.set(i, shared);
+				same &= shared == oldArray.get(i);
+			}
+			return same ? oldValue : newValue;
+		}
+		return oldValue.equals(newValue) ? oldValue : newValue;
+	}
+
+	/**
+	 * @return the model version this snapshot was taken at
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the JSON tree of the model. It must not be modified.
+	 */
+	public JsonObject getTree() {
+		return tree;
+	}
+
+	/**
+	 * @return the model JSON
+	 */
+	public String getJSON() {
+		return json;
+	}
+
+	/**
+	 * @return the model JSON encoded as UTF-8. The array must not be modified.
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the gzipped model JSON, compressed the first time it is asked for.
+	 * The array must not be modified.
+	 */
+	public synchronized byte[] getGzippedBytes() {
+		if (gzipped == null) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4);
+			try (GZIPOutputStream zip = new GZIPOutputStream(buffer)) {
+				zip.write(bytes);
+			} catch (IOException e) {
+				// Writing to memory does not fail
+				e.printStackTrace();
+			}
+			gzipped = buffer.toByteArray();
+		}
+		return gzipped;
+	}
+
+}
@@ -0,0 +1,96 @@
+package server.communication;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import server.simulation.BuilderPolicy;
+import server.simulation.GameSimulator;
+import server.simulation.PlayerPolicy;
+import server.simulation.SimulationContext;
+import shared.definitions.ResourceType;
+import shared.exceptions.InvalidActionException;
+import shared.model.ModelFacade;
+
+public class ModelSnapshotTest {
+
+	// Snapshots taken one after another, the way a game actor takes them,
+	// must read the same as the model serialized from scratch
+	@Test
+	public void testIncrementalMatchesFull() throws Exception {
+		Recorder recorder = new Recorder(new BuilderPolicy());
+		ModelFacade game = new GameSimulator(recorder).playTo(42, 60);
+		recorder.take(game);
+		assertTrue(recorder.taken > 100);
+	}
+
+	@Test
+	public void testUnchangedGameSharesTree() throws Exception {
+		ModelFacade game = new GameSimulator(new BuilderPolicy()).playTo(7, 20);
+		ModelSnapshot first = ModelSnapshot.of(game);
+		ModelSnapshot second = ModelSnapshot.of(game, first);
+		assertSame(first.getTree(), second.getTree());
+	}
+
+	@Test
+	public void testChatOnlySerializesNewLines() throws Exception {
+		ModelFacade game = new GameSimulator(new BuilderPolicy()).playTo(7, 20);
+		ModelSnapshot first = ModelSnapshot.of(game);
+		game.sendChat(game.getCurrentPlayer(), "hello");
+		ModelSnapshot second = ModelSnapshot.of(game, first);
+		assertEquals(ModelSnapshot.of(game).getJSON(), second.getJSON());
+		assertSame(first.getTree().get("map"), second.getTree().get("map"));
+		assertSame(first.getTree().get("log"), second.getTree().get("log"));
+		assertNotSame(first.getTree().get("chat"), second.getTree().get("chat"));
+	}
+
+	/**
+	 * Plays like another policy, and checks a snapshot after every move
+	 */
+	private static class Recorder implements PlayerPolicy {
+		private final PlayerPolicy policy;
+		private ModelSnapshot previous = null;
+		int taken = 0;
+
+		Recorder(PlayerPolicy policy) {
+			this.policy = policy;
+		}
+
+		void take(ModelFacade game) {
+			ModelSnapshot next = ModelSnapshot.of(game, previous);
+			assertEquals(ModelSnapshot.of(game).getJSON(), next.getJSON());
+			previous = next;
+			++taken;
+		}
+
+		@Override
+		public void placeStartingPieces(SimulationContext context) throws InvalidActionException {
+			take(context.getGame());
+			policy.placeStartingPieces(context);
+			take(context.getGame());
+		}
+
+		@Override
+		public Map<ResourceType, Integer> discard(SimulationContext context, int count) {
+			take(context.getGame());
+			return policy.discard(context, count);
+		}
+
+		@Override
+		public void moveRobber(SimulationContext context) throws InvalidActionException {
+			take(context.getGame());
+			policy.moveRobber(context);
+			take(context.getGame());
+		}
+
+		@Override
+		public void play(SimulationContext context) throws InvalidActionException {
+			take(context.getGame());
+			policy.play(context);
+			take(context.getGame());
+		}
+	}
+
+}
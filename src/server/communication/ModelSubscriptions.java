@@ -0,0 +1,186 @@
+package server.communication;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Keeps track of clients that are waiting for a game's model to change
+ * (long polling), and wakes them up when it does or when they time out.
+ * <br/>
+ * Waking a client up means writing it a response, which can take as long as
+ * the client takes to read it. So the game thread that publishes a change,
+ * and the timer thread that times clients out, only hand the callbacks to
+ * an executor of their own.
+ * @author Jordan
+ *
+ */
+public class ModelSubscriptions {
+
+	private static Logger logger = Logger.getLogger("Server");
+
+	/**
+	 * Something waiting for a game to change. Exactly one of the callbacks
+	 * runs, exactly once. Once subscribed, it runs on the responses executor,
+	 * before that on the thread that wakes the subscriber up.
+	 */
+	public static abstract class Subscriber {
+		private final AtomicBoolean done = new AtomicBoolean(false);
+		private TimerTask timeout;
+		// Where the subscriber is registered, set before it is
+		private ModelSubscriptions subscriptions;
+		private UUID gameID;
+
+		/**
+		 * Called when the game has changed
+		 */
+		protected abstract void modelChanged();
+
+		/**
+		 * Called when the game has not changed within the timeout
+		 */
+		protected abstract void timedOut();
+
+		private boolean finish() {
+			if (!done.compareAndSet(false, true)) {
+				return false;
+			}
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			// Woken up some other way than by publish, it would otherwise stay
+			// registered until the game next changes
+			if (subscriptions != null) {
+				subscriptions.unsubscribe(gameID, this);
+			}
+			return true;
+		}
+
+		/**
+		 * Wakes the subscriber up as if the game had changed
+		 */
+		public void fire() {
+			if (finish()) {
+				respond(new Runnable() {
+					@Override
+					public void run() {
+						modelChanged();
+					}
+				});
+			}
+		}
+
+		private void expire() {
+			if (finish()) {
+				respond(new Runnable() {
+					@Override
+					public void run() {
+						timedOut();
+					}
+				});
+			}
+		}
+
+		private void respond(final Runnable callback) {
+			Runnable guarded = new Runnable() {
+				@Override
+				public void run() {
+					try {
+						callback.run();
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			if (subscriptions == null) {
+				guarded.run();
+				return;
+			}
+			try {
+				subscriptions.responses.execute(guarded);
+			} catch (RejectedExecutionException e) {
+				// Shutting down, answer rather than leave the client hanging
+				logger.warning("Responding to a subscriber on the waking thread");
+				guarded.run();
+			}
+		}
+	}
+
+	private final Map<UUID, List<Subscriber>> subscribers = new HashMap<>();
+	private final Timer timer = new Timer("model-subscriptions", true);
+	private final Executor responses;
+
+	/**
+	 * @param responses the threads subscribers are woken up on
+	 */
+	public ModelSubscriptions(Executor responses) {
+		this.responses = responses;
+	}
+
+	/**
+	 * Registers a subscriber for the next change of a game
+	 * @param gameID the game
+	 * @param subscriber the subscriber to wake up
+	 * @param timeoutMillis how long to wait before giving up
+	 * @post the subscriber will be woken up by the next publish(gameID), or
+	 * time out after timeoutMillis
+	 */
+	public void subscribe(final UUID gameID, final Subscriber subscriber, long timeoutMillis) {
+		subscriber.subscriptions = this;
+		subscriber.gameID = gameID;
+		synchronized (subscribers) {
+			List<Subscriber> waiting = subscribers.get(gameID);
+			if (waiting == null) {
+				waiting = new ArrayList<>();
+				subscribers.put(gameID, waiting);
+			}
+			waiting.add(subscriber);
+		}
+		subscriber.timeout = new TimerTask() {
+			@Override
+			public void run() {
+				subscriber.expire();
+			}
+		};
+		timer.schedule(subscriber.timeout, timeoutMillis);
+	}
+
+	private void unsubscribe(UUID gameID, Subscriber subscriber) {
+		synchronized (subscribers) {
+			List<Subscriber> waiting = subscribers.get(gameID);
+			if (waiting != null) {
+				waiting.remove(subscriber);
+				if (waiting.isEmpty()) {
+					subscribers.remove(gameID);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wakes up everything waiting on a game
+	 * @param gameID the game that changed
+	 */
+	public void publish(UUID gameID) {
+		List<Subscriber> waiting;
+		synchronized (subscribers) {
+			waiting = subscribers.remove(gameID);
+		}
+		if (waiting == null) {
+			return;
+		}
+		logger.fine("Waking " + waiting.size() + " subscribers of game " + gameID);
+		for (Subscriber subscriber : waiting) {
+			subscriber.fire();
+		}
+	}
+
+}
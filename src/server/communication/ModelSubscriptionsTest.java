@@ -0,0 +1,109 @@
+package server.communication;
+
+import static org.junit.Assert.*;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModelSubscriptionsTest {
+
+	private ExecutorService responses;
+	private ModelSubscriptions subscriptions;
+
+	@Before
+	public void setUp() throws Exception {
+		responses = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				return new Thread(r, "responder");
+			}
+		});
+		subscriptions = new ModelSubscriptions(responses);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		responses.shutdownNow();
+	}
+
+	@Test
+	public void testPublishHandsOff() throws Exception {
+		UUID game = UUID.randomUUID();
+		Recorder recorder = new Recorder();
+		subscriptions.subscribe(game, recorder, 60000);
+		subscriptions.publish(game);
+		assertEquals("changed on responder", recorder.result());
+	}
+
+	@Test
+	public void testTimeoutHandsOff() throws Exception {
+		Recorder recorder = new Recorder();
+		subscriptions.subscribe(UUID.randomUUID(), recorder, 10);
+		assertEquals("timed out on responder", recorder.result());
+	}
+
+	// A slow response holds up neither the publisher nor the next subscriber
+	@Test(timeout = 10000)
+	public void testSlowSubscriberDoesNotBlockPublish() throws Exception {
+		UUID game = UUID.randomUUID();
+		final SynchronousQueue<String> release = new SynchronousQueue<>();
+		subscriptions.subscribe(game, new ModelSubscriptions.Subscriber() {
+			@Override
+			protected void modelChanged() {
+				try {
+					release.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			@Override
+			protected void timedOut() {
+			}
+		}, 60000);
+		long start = System.nanoTime();
+		subscriptions.publish(game);
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+		Recorder recorder = new Recorder();
+		subscriptions.subscribe(UUID.randomUUID(), recorder, 10);
+		assertTrue(release.offer("go", 5, TimeUnit.SECONDS));
+		assertEquals("timed out on responder", recorder.result());
+	}
+
+	private static class Recorder extends ModelSubscriptions.Subscriber {
+		private final SynchronousQueue<String> results = new SynchronousQueue<>();
+
+		@Override
+		protected void modelChanged() {
+			record("changed");
+		}
+
+		@Override
+		protected void timedOut() {
+			record("timed out");
+		}
+
+		private void record(String what) {
+			try {
+				results.put(what + " on " + Thread.currentThread().getName());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		String result() throws InterruptedException {
+			String result = results.poll(5, TimeUnit.SECONDS);
+			assertNotNull("The subscriber was never woken up", result);
+			return result;
+		}
+	}
+
+}
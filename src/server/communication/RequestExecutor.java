@@ -0,0 +1,174 @@
+package server.communication;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * The pool of worker threads that HTTP requests are handled on. It has a
+ * fixed number of threads and a bounded queue. When the queue is full the
+ * request is turned away: it is handed to a single overflow thread, where
+ * the {@link #shedding()} filter answers it with a 503 instead of running
+ * its handler. The thread that accepts connections never runs a request
+ * itself, so a saturated pool can't stop it from accepting. Every such
+ * rejection is counted.
+ * @author Jordan
+ *
+ */
+public class RequestExecutor extends ThreadPoolExecutor {
+
+	private static Logger logger = Logger.getLogger("Server");
+
+	/**
+	 * The default number of worker threads
+	 */
+	public static final int DEFAULT_THREADS = 8;
+	/**
+	 * The default number of requests that may wait for a worker
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 256;
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+	/**
+	 * The number of turned away requests that may wait to be answered. Past
+	 * that their connections are closed without an answer.
+	 */
+	private static final int OVERFLOW_QUEUE_SIZE = 64;
+
+	// Set while the overflow thread runs a request that was turned away
+	private static final ThreadLocal<Boolean> turnedAway = new ThreadLocal<Boolean>();
+
+	private final AtomicLong rejected = new AtomicLong();
+	private final ThreadPoolExecutor overflow;
+
+	/**
+	 * @param threads the number of worker threads
+	 * @param queueSize the number of requests that may wait for a worker. With
+	 * 0 a request that finds every worker busy is turned away.
+	 * @pre threads is positive and queueSize is not negative
+	 */
+	public RequestExecutor(int threads, int queueSize) {
+		super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				createQueue(queueSize), new WorkerFactory("http-worker-"), new TurnAway());
+		allowCoreThreadTimeOut(true);
+		overflow = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(OVERFLOW_QUEUE_SIZE),
+				new WorkerFactory("http-overflow-"), new ThreadPoolExecutor.AbortPolicy());
+		overflow.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return a filter that answers the requests this executor turned away
+	 * with 503 Service Unavailable, and passes every other request on. It
+	 * must be on every context the executor handles.
+	 */
+	public static Filter shedding() {
+		return new Filter() {
+			@Override
+			public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+				if (turnedAway.get() == null) {
+					chain.doFilter(exchange);
+					return;
+				}
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_UNAVAILABLE, -1);
+				exchange.close();
+			}
+
+			@Override
+			public String description() {
+				return "Answers requests the server is too busy for with 503";
+			}
+		};
+	}
+
+	private static BlockingQueue<Runnable> createQueue(int size) {
+		if (size == 0) {
+			return new SynchronousQueue<Runnable>();
+		}
+		return new ArrayBlockingQueue<Runnable>(size);
+	}
+
+	/**
+	 * @return how many requests found the queue full since the server started
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	@Override
+	protected void terminated() {
+		overflow.shutdown();
+		super.terminated();
+	}
+
+	@Override
+	public String toString() {
+		return "RequestExecutor [threads=" + getMaximumPoolSize() +
+				", active=" + getActiveCount() +
+				", queued=" + getQueue().size() +
+				", completed=" + getCompletedTaskCount() +
+				", rejected=" + rejected.get() + "]";
+	}
+
+	private static class WorkerFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+		private final String prefix;
+
+		WorkerFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * Hands a request that found the queue full to the overflow thread, or
+	 * throws if that is backed up too, in which case the server closes the
+	 * connection
+	 */
+	private static class TurnAway implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(final Runnable r, ThreadPoolExecutor executor) {
+			RequestExecutor pool = (RequestExecutor) executor;
+			long count = pool.rejected.incrementAndGet();
+			// Don't flood the log when the server is saturated
+			if (Long.bitCount(count) == 1) {
+				logger.warning("Request queue full, turning requests away. " + pool);
+			}
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("The server is shutting down");
+			}
+			pool.overflow.execute(new Runnable() {
+				@Override
+				public void run() {
+					turnedAway.set(Boolean.TRUE);
+					try {
+						r.run();
+					} finally {
+						turnedAway.remove();
+					}
+				}
+			});
+		}
+	}
+
+}
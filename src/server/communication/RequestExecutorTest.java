@@ -0,0 +1,93 @@
+package server.communication;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class RequestExecutorTest {
+
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private HttpServer server;
+	private RequestExecutor executor;
+	private ExecutorService clients;
+
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 10);
+		// One worker and no queue, so a second request finds it busy
+		executor = new RequestExecutor(1, 0);
+		server.setExecutor(executor);
+		server.createContext("/slow", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				started.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+				exchange.close();
+			}
+		}).getFilters().add(RequestExecutor.shedding());
+		server.start();
+		clients = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		release.countDown();
+		clients.shutdownNow();
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	@Test(timeout = 20000)
+	public void testBusyServerAnswers503() throws Exception {
+		Future<Integer> first = clients.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return get();
+			}
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		// Answered while the only worker is still busy
+		assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, get());
+		assertEquals(1, executor.getRejectedCount());
+
+		release.countDown();
+		assertEquals(HttpURLConnection.HTTP_OK, (int) first.get(10, TimeUnit.SECONDS));
+	}
+
+	private int get() throws IOException {
+		URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/slow");
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setReadTimeout(10000);
+		try {
+			return connection.getResponseCode();
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+}
@@ -1,32 +1,47 @@
 package server.communication;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import client.misc.ClientManager;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.json.simple.JSONObject;
 
 import server.DAOs.DatabaseException;
-import server.DAOs.ICommandDAO;
+import server.DAOs.WriteBehindCommandDAO;
 import server.DAOs.IGameDAO;
 import server.Factories.IDAOFactory;
 import server.Factories.MockDAOFactory;
 import server.ai.AIType;
 import server.commands.CatanCommand;
+import server.commands.CommandBatch;
+import server.commands.CommandSerializationException;
 import server.commands.ICatanCommand;
+import server.commands.MoveCommands;
 import server.logging.LogLevel;
 import server.model.User;
+import server.model.UserDirectory;
 import server.plugins.PluginRegistry;
 import shared.communication.Command;
 import shared.communication.GameHeader;
 import shared.communication.IServer;
+import shared.communication.JsonDelta;
 import shared.communication.Session;
 import shared.definitions.CatanColor;
+import shared.definitions.GameStatus;
 import shared.definitions.ResourceType;
 import shared.exceptions.GameInitializationException;
 import shared.exceptions.GamePersistenceException;
@@ -55,8 +70,17 @@ public class Server implements IServer {
 
 	private static int COMMAND_FLUSH_FREQUENCY = 10;
 	
-	private static IServer instance = null;
-	public static IServer getSingleton() {
+	/**
+	 * How long a long-polling client is held before being told nothing changed
+	 */
+	public static final long DEFAULT_WAIT_TIMEOUT = 30000;
+	/**
+	 * How many long-polling clients are written their responses at once
+	 */
+	private static final int RESPONSE_THREADS = 8;
+	
+	private static Server instance = null;
+	public static Server getSingleton() {
 		if (instance == null) {
 			synchronized (ClientManager.class) {
 				if (instance == null) {
@@ -81,30 +105,146 @@ public class Server implements IServer {
 		}
 	}
 	
+	/**
+	 * @param n how many commands a game runs between checkpoints
+	 */
 	public static void setFlushFrequency(int n) {
 		COMMAND_FLUSH_FREQUENCY = n;
 	}
 	
-	private Map<UUID, ModelFacade> activeGames = new HashMap<>();
-	private Map<UUID, GameHeader> knownGames = new HashMap<>();
+	private static WriteBehindCommandDAO.Durability COMMAND_DURABILITY =
+			WriteBehindCommandDAO.Durability.QUEUED;
+	
+	/**
+	 * @param durability whether a move is answered once its command is
+	 * queued for storage, or only once it has been stored
+	 */
+	public static void setCommandDurability(WriteBehindCommandDAO.Durability durability) {
+		COMMAND_DURABILITY = durability;
+	}
+	
+	private static int MAX_RESIDENT_GAMES = 64;
+	private static long MODEL_BUDGET_BYTES = 0;
+	private static long IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+	
+	/**
+	 * @param n the most games kept in memory, or 0 for no limit
+	 */
+	public static void setMaxResidentGames(int n) {
+		MAX_RESIDENT_GAMES = n;
+	}
+	
+	/**
+	 * @param kilobytes the most serialized model data kept in memory across
+	 * all games, or 0 for no limit
+	 */
+	public static void setModelBudget(long kilobytes) {
+		MODEL_BUDGET_BYTES = kilobytes * 1024;
+	}
+	
+	/**
+	 * @param seconds how long a game may sit unused before it is saved and
+	 * dropped from memory, or 0 to keep it
+	 */
+	public static void setIdleTimeout(long seconds) {
+		IDLE_TIMEOUT_MILLIS = seconds * 1000;
+	}
+	
+	private static int MAX_RESIDENT_USERS = 10000;
+	
+	/**
+	 * @param n the most users kept in memory, or 0 for no limit
+	 */
+	public static void setMaxResidentUsers(int n) {
+		MAX_RESIDENT_USERS = n;
+	}
+	
+	// Requests are handled on several threads
+	private GameIndex gameIndex = new GameIndex();
+	// The threads long polls are answered on, so a slow client holds up
+	// neither a game nor the other clients' timeouts
+	private ExecutorService responsePool = Executors.newFixedThreadPool(
+			RESPONSE_THREADS, daemonThreads("model-responder-"));
+	private ModelSubscriptions subscriptions = new ModelSubscriptions(responsePool);
+	private WriteBehindCommandDAO commandLog =
+			new WriteBehindCommandDAO(factory.getCommandDAO(), COMMAND_DURABILITY);
+	private Checkpointer checkpointer =
+			new Checkpointer(factory.getGameDAO(), commandLog, COMMAND_FLUSH_FREQUENCY);
+	// The threads that every game's moves run on, one move per game at a time
+	private ExecutorService gamePool = Executors.newFixedThreadPool(
+			Runtime.getRuntime().availableProcessors(), daemonThreads("game-worker-"));
+	private GameRegistry activeGames = createRegistry();
+	private UserDirectory users = createUserDirectory();
+	
+	private static ThreadFactory daemonThreads(final String prefix) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, prefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+	
+	private UserDirectory createUserDirectory() {
+		if (factory instanceof MockDAOFactory) {
+			return new UserDirectory(null, 0);
+		}
+		return new UserDirectory(new UserDirectory.Store() {
+			@Override
+			public User load(String username) throws DatabaseException {
+				return factory.getUserDAO().getUser(new User(username, null));
+			}
+		}, MAX_RESIDENT_USERS);
+	}
+	
+	private GameRegistry createRegistry() {
+		// Games can't be dropped if there is nowhere to load them back from
+		boolean persistent = !(factory instanceof MockDAOFactory);
+		if (!persistent) {
+			logger.info("No persistence, keeping every game in memory");
+		}
+		return new GameRegistry(new GameRegistry.Store() {
+			@Override
+			public ModelFacade load(UUID gameID) {
+				return restoreGame(gameID);
+			}
+			@Override
+			public void save(ModelFacade game) throws DatabaseException {
+				checkpointer.save(game);
+				checkpointer.forget(game.getUUID());
+				gameIndex.put(game.getGameHeader());
+			}
+		}, new GameRegistry.GameActorFactory() {
+			@Override
+			public GameActor create(ModelFacade game) {
+				return new GameActor(game, gamePool, subscriptions, gameIndex);
+			}
+		},
+		persistent ? MAX_RESIDENT_GAMES : 0,
+		persistent ? MODEL_BUDGET_BYTES : 0,
+		persistent ? IDLE_TIMEOUT_MILLIS : 0);
+	}
 	
 	private Server() {
 		
 		loadGames();
-		loadUsers();
 
 		User sam = new User("Sam", "sam");
 		User brooke = new User("Brooke", "brooke");
 		User pete = new User("Pete", "pete");
 		User mark = new User("Mark", "mark");
 		
-		try {
-			User.register(sam);
-			User.register(brooke);
-			User.register(pete);
-			User.register(mark);
-		} catch (NameAlreadyInUseException e1) {
-			e1.printStackTrace();
+		// The default users might not make it into the store, so they are
+		// kept in memory
+		for (User user : new User[] {sam, brooke, pete, mark}) {
+			try {
+				users.registerPinned(user);
+			} catch (NameAlreadyInUseException e1) {
+				// Already in the store
+			}
 		}
 		
 		try {
@@ -117,7 +257,7 @@ public class Server implements IServer {
 			
 		}
 		
-		if (knownGames.isEmpty()) {
+		if (gameIndex.isEmpty()) {
 			logger.info("There are no known games. Creating the default game.");
 			try {
 				ModelFacade model = new ModelFacade();
@@ -126,14 +266,15 @@ public class Server implements IServer {
 				model.addPlayer("Brooke", CatanColor.ORANGE);
 				model.addPlayer("Pete", CatanColor.YELLOW);
 				model.addPlayer("Mark", CatanColor.GREEN);
-				activeGames.put(gameUUID, model);
-				knownGames.put(gameUUID, model.getGameHeader());
+				gameIndex.put(model.getGameHeader());
 				
 				try {
 					factory.getGameDAO().addGame(gameUUID, model);
 				} catch (DatabaseException e) {
 					e.printStackTrace();
 				}
+				checkpointer.created(model);
+				activeGames.add(model);
 				
 			} catch (GameInitializationException e) {
 				e.printStackTrace();
@@ -149,7 +290,7 @@ public class Server implements IServer {
 				return;
 			}
 			for (GameHeader game : gameList) {
-				knownGames.put(game.getUUID(), game);
+				gameIndex.put(game);
 				logger.info(game.toString());
 			}
 		} catch (DatabaseException e) {
@@ -158,68 +299,155 @@ public class Server implements IServer {
 		}
 	}
 
-	private void loadUsers() {
+	private GameActor getGame(UUID gameid) {
+		if (!gameIndex.contains(gameid)) {
+			return null;
+		}
+		return activeGames.get(gameid);
+	}
+
+	/**
+	 * Loads a game's checkpoint and replays the commands saved since
+	 * @return the game, or null if it could not be loaded
+	 */
+	private ModelFacade restoreGame(UUID gameid) {
 		try {
-			for (User user : factory.getUserDAO().getAllUsers()) {
-				User.register(user);
+			ModelFacade game = checkpointer.load(gameid);
+			if (game != null) {
+				logger.info("Game version: " + game.getVersion());
 			}
-		} catch (DatabaseException | NameAlreadyInUseException e) {
-			logger.warning(e.getMessage());
+			return game;
+		} catch (DatabaseException | InvalidActionException e) {
+			e.printStackTrace();
+			return null;
 		}
 	}
-	
-	private ModelFacade getGame(UUID gameid) {
-		if (activeGames.containsKey(gameid)) {
-			return activeGames.get(gameid);
+
+	/**
+	 * Runs a command on the game's own thread, persists it, and waits for it
+	 * to finish
+	 * @param command the command
+	 * @param actor the game
+	 * @throws InvalidActionException if the command is not allowed
+	 * @throws ServerException if the command could not be run
+	 */
+	private void execCommand(final ICatanCommand command, GameActor actor)
+		throws InvalidActionException, ServerException {
+		runOnGame(actor, new GameActor.Task<Void>() {
+			@Override
+			public Void run(ModelFacade game) throws InvalidActionException {
+				int before = game.getVersion();
+				command.execute(game);
+				recordMoves(game, before, command);
+				try {
+					commandLog.addCommand(game.getUUID(), command);
+					if (checkpointer.added(game)) {
+						checkpointSoon(game);
+					}
+				} catch (DatabaseException e) {
+					logger.warning(e.getMessage());
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Queues a checkpoint of the game behind the task that is running
+	 * @pre called from a task running on the game
+	 */
+	private void checkpointSoon(ModelFacade game) {
+		GameActor actor = activeGames.getIfResident(game.getUUID());
+		if (actor != null && actor.getGame() == game) {
+			checkpointer.checkpoint(actor);
+		}
+	}
+
+	/**
+	 * Adds the moves a command made to the history of the game's actor
+	 * @pre called from a task running on the game
+	 */
+	private void recordMoves(ModelFacade game, int before, ICatanCommand command) {
+		GameActor actor = activeGames.getIfResident(game.getUUID());
+		if (actor == null || actor.getGame() != game) {
+			return;
+		}
+		List<ICatanCommand> made = command instanceof CommandBatch ?
+				((CommandBatch) command).getCommands() : Collections.singletonList(command);
+		List<JSONObject> moves = new ArrayList<>(made.size());
+		for (ICatanCommand part : made) {
+			JSONObject move = MoveCommands.toJSON(part);
+			if (move != null) {
+				moves.add(move);
+			}
 		}
-		else if (knownGames.containsKey(gameid)) {
+		actor.getCommands().record(before, game.getVersion(), moves);
+	}
+
+	/**
+	 * Runs a task on a game's own thread and waits for it. If the game was
+	 * dropped from memory before the task ran, the game is loaded again and
+	 * the task is retried.
+	 * @return the task's result
+	 * @throws InvalidActionException if the task threw one
+	 * @throws ServerException if the task failed in any other way
+	 */
+	private <T> T runOnGame(GameActor actor, GameActor.Task<T> task)
+		throws InvalidActionException, ServerException {
+		while (true) {
 			try {
-				ModelFacade game = factory.getGameDAO().getGame(gameid);
-				for (Player player : game.getCatanModel().getPlayers()) {
-					Player.registerPlayer(player);
-				}
-				game.getCatanModel().getTurnTracker().setPlayerList(game.getCatanModel().getPlayers());
-				logger.info("Game version: " + game.getVersion());
-				List<ICatanCommand> commands = factory.getCommandDAO().getAll(gameid);
-				for (ICatanCommand command : commands) {
-					command.execute(game);
+				return await(actor.submit(task));
+			} catch (GameActor.RetiredException e) {
+				actor = getGame(actor.getUUID());
+				if (actor == null) {
+					throw new ServerException();
 				}
-				activeGames.put(gameid, game);
-				return game;
-			} catch (DatabaseException | InvalidActionException e) {
-				e.printStackTrace();
-				return null;
 			}
 		}
-		else return null;
 	}
 
-	private void execCommand(ICatanCommand command, ModelFacade game)
-		throws InvalidActionException {
-		command.execute(game);
+	/**
+	 * Waits for a task submitted to a game to finish
+	 * @return the task's result
+	 * @throws InvalidActionException if the task threw one
+	 * @throws ServerException if the task failed in any other way
+	 */
+	private static <T> T await(Future<T> result)
+		throws InvalidActionException, ServerException, GameActor.RetiredException {
 		try {
-			ICommandDAO cmdDAO = factory.getCommandDAO();
-			cmdDAO.addCommand(game.getUUID(), command);
-			if (cmdDAO.getAll(game.getUUID()).size() >= COMMAND_FLUSH_FREQUENCY) {
-				logger.fine("Flushing commands to game " + game.getUUID());
-				factory.getGameDAO().updateGamebyUUID(game.getUUID(), game);
-				cmdDAO.clearCommands(game.getUUID());
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServerException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof InvalidActionException) {
+				throw (InvalidActionException) cause;
 			}
-		} catch (DatabaseException e) {
-			logger.warning(e.getMessage());
+			if (cause instanceof GameActor.RetiredException) {
+				throw (GameActor.RetiredException) cause;
+			}
+			if (cause instanceof ServerException) {
+				throw (ServerException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			cause.printStackTrace();
+			throw new ServerException();
 		}
 	}
 
 	@Override
 	public Session login(String username, String password) throws UserException, ServerException {
-		User user = User.login(username, password);
+		User user = users.login(username, password);
 		Session newSession = new Session(user.getUsername(), user.getPassword(), null);
 		return newSession;
 	}
 
 	@Override
 	public Session register(String username, String password) throws UserException, ServerException {
-		User user = User.register(username, password);
+		User user = users.register(username, password);
 		try {
 			factory.getUserDAO().addUser(user);
 		} catch (DatabaseException e) {
@@ -231,16 +459,20 @@ public class Server implements IServer {
 
 	@Override
 	public List<GameHeader> getGameList() throws ServerException, UserException {
-		List<GameHeader> gamesList = new ArrayList<GameHeader>();
-		for(GameHeader game : knownGames.values()){
-			if (activeGames.containsKey(game.getUUID())) {
-				gamesList.add(getGame(game.getUUID()).getGameHeader());
-			}
-			else {
-				gamesList.add(game);
-			}
-		}
-		return gamesList;
+		return gameIndex.list(0, Integer.MAX_VALUE, null);
+	}
+
+	/**
+	 * Lists a page of the games from the game index, without loading any
+	 * @param offset how many of the matching games to skip
+	 * @param limit the most games to list
+	 * @param status only list games with this status, or null for every game
+	 * @return the headers, in the order the games were created
+	 * @pre offset and limit are not negative
+	 */
+	@Override
+	public List<GameHeader> getGameList(int offset, int limit, GameStatus status) {
+		return gameIndex.list(offset, limit, status);
 	}
 
 	@Override
@@ -252,38 +484,52 @@ public class Server implements IServer {
 				new CatanModel(randomTiles, randomNumbers, randomPorts));
 		newGame.getCatanModel().setHeader(header);
 		newGame.getCatanModel().setVersion(0);
-		activeGames.put(gameUUID, newGame);
-		knownGames.put(gameUUID, header);
+		try {
+			factory.getGameDAO().addGame(gameUUID, newGame);
+		} catch (DatabaseException e) {
+			logger.warning(e.getMessage());
+		}
+		gameIndex.put(newGame.getGameHeader());
+		checkpointer.created(newGame);
+		activeGames.add(newGame);
 		return header;
 	}
 
 	@Override
-	public Session joinGame(Session player, UUID gameID, CatanColor color) throws JoinGameException, ServerException {
-		ModelFacade game = getGame(gameID);
-		if (game == null) {
+	public Session joinGame(final Session player, UUID gameID, final CatanColor color) throws JoinGameException, ServerException {
+		GameActor actor = getGame(gameID);
+		if (actor == null) {
 			throw new JoinGameException();
 		}
-		List<Player> players = game.getCatanModel().getPlayers();
-		for (Player currentPlayer : players) {
-			if (currentPlayer.getName().equals(player.getUsername())) {
-				return new Session(player.getUsername(),player.getPassword(),currentPlayer.getUUID());
-			}
-		}
-//		Player newPlayer = new Player(0, player, color);
-//		if(game.getPlayers().contains(newPlayer)){
-//			return true;
-//		}
-		Player addedPlayer;
 		try {
-			addedPlayer = game.addPlayer(player, color);
-		} catch (GameInitializationException e) {
-			e.printStackTrace();
-			return null;
-		}
-		if (game.getCatanModel().getPlayers().size() == NUMPLAYERS) {
-			this.beginGame(game.getCatanModel());
+			return runOnGame(actor, new GameActor.Task<Session>() {
+				@Override
+				public Session run(ModelFacade game) throws ServerException {
+					List<Player> players = game.getCatanModel().getPlayers();
+					for (Player currentPlayer : players) {
+						if (currentPlayer.getName().equals(player.getUsername())) {
+							return new Session(player.getUsername(),player.getPassword(),currentPlayer.getUUID());
+						}
+					}
+					Player addedPlayer;
+					try {
+						addedPlayer = game.addPlayer(player, color);
+					} catch (GameInitializationException e) {
+						e.printStackTrace();
+						return null;
+					}
+					if (game.getCatanModel().getPlayers().size() == NUMPLAYERS) {
+						beginGame(game.getCatanModel());
+					}
+					// Joining is not a command, so only a checkpoint keeps it
+					checkpointSoon(game);
+					return new Session(player.getUsername(),player.getPassword(),addedPlayer.getUUID());
+				}
+			});
+		} catch (InvalidActionException e) {
+			// Joining never throws this
+			throw new ServerException();
 		}
-		return new Session(player.getUsername(),player.getPassword(),addedPlayer.getUUID());
 	}
 	
 	private void beginGame(CatanModel game) throws ServerException {
@@ -315,16 +561,92 @@ public class Server implements IServer {
 
 	@Override
 	public String getModel(UUID gameID, int version) throws ServerException, UserException {
-		ModelFacade modelFacade = getGame(gameID);
-		if (modelFacade == null)
+		ModelSnapshot snapshot = getModelSnapshot(gameID, version);
+		return snapshot == null ? null : snapshot.getJSON();
+	}
+
+	/**
+	 * Gets the serialized model of a game, shared between every caller that
+	 * asks for the same version
+	 * @param gameID the game
+	 * @param version the version the caller already has, or -1
+	 * @return the current snapshot, or null if the caller's version is current
+	 * @throws ServerException if the game does not exist
+	 */
+	public ModelSnapshot getModelSnapshot(UUID gameID, int version) throws ServerException {
+		GameActor actor = getGame(gameID);
+		if (actor == null)
 			throw new ServerException();
-		CatanModel model = modelFacade.getCatanModel();
-		//This is currently causing the client to never update, we need to find
-		//a way to fix this.
-//		if (version == model.getVersion())
-//			return null;
-		Gson gson = new Gson();
-		return gson.toJson(model);
+		ModelSnapshot snapshot = actor.getSnapshot();
+		// The version does not change while players are joining, so a client
+		// that has not seen a real move yet always gets the full model
+		if (version > 0 && version == snapshot.getVersion())
+			return null;
+		return snapshot;
+	}
+
+	@Override
+	public String getModelDelta(UUID gameID, int version) throws ServerException, UserException {
+		ModelSnapshot snapshot = getModelSnapshot(gameID, version);
+		if (snapshot == null)
+			return null;
+		
+		JsonObject base = getGame(gameID).getHistory().get(version);
+		if (version <= 0 || base == null) {
+			return snapshot.getJSON();
+		}
+		JsonObject response = new JsonObject();
+		response.addProperty("baseVersion", version);
+		response.add("patch", JsonDelta.diff(base, snapshot.getTree()));
+		return new Gson().toJson(response);
+	}
+	
+	@Override
+	public String waitForModel(UUID gameID, int version) throws ServerException, UserException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		awaitModel(gameID, version, DEFAULT_WAIT_TIMEOUT, new ModelSubscriptions.Subscriber() {
+			@Override
+			protected void modelChanged() {
+				latch.countDown();
+			}
+			@Override
+			protected void timedOut() {
+				latch.countDown();
+			}
+		});
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServerException();
+		}
+		return getModelDelta(gameID, version);
+	}
+	
+	/**
+	 * Waits, without holding a thread, for a game to move past a version
+	 * @param gameID the game
+	 * @param version the version the caller already has, or -1
+	 * @param timeoutMillis how long to wait before giving up
+	 * @param subscriber called once the game has changed or the timeout has elapsed
+	 * @throws ServerException if the game does not exist
+	 * @post if the caller's version is out of date (or unknown) the subscriber
+	 * is called right away
+	 */
+	public void awaitModel(UUID gameID, int version, long timeoutMillis,
+			ModelSubscriptions.Subscriber subscriber) throws ServerException {
+		GameActor actor = getGame(gameID);
+		if (actor == null)
+			throw new ServerException();
+		if (version <= 0) {
+			subscriber.fire();
+			return;
+		}
+		// Subscribe before checking, so a change in between is not missed
+		subscriptions.subscribe(gameID, subscriber, timeoutMillis);
+		if (actor.getSnapshot().getVersion() != version) {
+			subscriber.fire();
+		}
 	}
 
 	@Override
@@ -333,16 +655,74 @@ public class Server implements IServer {
 		return null;
 	}
 
+	/**
+	 * @return every move the server still remembers for the game
+	 */
 	@Override
 	public List<Command> getCommands(UUID gameID) throws ServerException, UserException {
-		// NOT NEEDED IN PHASE 3
-		return null;
+		GameActor actor = getGame(gameID);
+		if (actor == null)
+			throw new ServerException();
+		return getCommands(gameID, actor.getCommands().getOldestVersion());
+	}
+
+	/**
+	 * @param gameID the game
+	 * @param version the version the caller already has
+	 * @return the moves made since that version, oldest first. Each one is a
+	 * JSONObject in the form its /moves route takes, plus the version of the
+	 * game it led to. Null if the server no longer remembers all of them, in
+	 * which case the caller should fetch the whole model instead.
+	 * @throws ServerException if the game does not exist
+	 */
+	@Override
+	public List<Command> getCommands(UUID gameID, int version) throws ServerException {
+		GameActor actor = getGame(gameID);
+		if (actor == null)
+			throw new ServerException();
+		List<JSONObject> moves = actor.getCommands().since(version);
+		if (moves == null) {
+			return null;
+		}
+		List<Command> commands = new ArrayList<>(moves.size());
+		for (JSONObject move : moves) {
+			commands.add(new Command(move));
+		}
+		return commands;
 	}
 
+	/**
+	 * Makes several moves at once, as if they were one. If any of them is
+	 * not allowed, none of them are made.
+	 * @param commands the moves, each one a JSONObject in the form its /moves
+	 * route takes
+	 * @return the model after the moves. Its version is one more than before
+	 * if the moves were made, and unchanged if they were not.
+	 * @throws ServerException if the game does not exist or a move could not
+	 * be read
+	 */
 	@Override
 	public String executeCommands(UUID gameID, List<Command> commands) throws ServerException, UserException {
-		// NOT NEEDED IN PHASE 3
-		return null;
+		GameActor actor = getGame(gameID);
+		if (actor == null)
+			throw new ServerException();
+		List<ICatanCommand> batch = new ArrayList<>(commands.size());
+		try {
+			for (Command command : commands) {
+				batch.add(MoveCommands.fromJSON((JSONObject) command.getData()));
+			}
+		} catch (CommandSerializationException | ClassCastException e) {
+			logger.warning(e.getMessage());
+			throw new ServerException();
+		}
+		if (!batch.isEmpty()) {
+			try {
+				execCommand(new CommandBatch(batch), actor);
+			} catch (InvalidActionException e) {
+				logger.info("Rejected a batch of " + batch.size() + " moves: " + e.getMessage());
+			}
+		}
+		return this.getModel(gameID, -1);
 	}
 
 	@Override
@@ -362,7 +742,7 @@ public class Server implements IServer {
 	public String sendChat(UUID user, UUID gameID, String message) throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("sendChat",new PlayerReference(user),message);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			tempModel = getGame(gameID);
 			if (tempModel == null)
 				throw new ServerException();
@@ -380,7 +760,7 @@ public class Server implements IServer {
 	public String rollDice(UUID user, UUID gameID, int num) throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("rollDice", new PlayerReference(user), num);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -416,7 +796,7 @@ public class Server implements IServer {
 			PlayerReference victimReference = null;
 			victimReference = new PlayerReference(victim);
 			ICatanCommand command = new CatanCommand("rob", new PlayerReference(user), newRobberLocation, victimReference);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -441,7 +821,7 @@ public class Server implements IServer {
 	public String buyDevCard(UUID user, UUID gameID) throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("buyDevelopmentCard", new PlayerReference(user));
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -466,7 +846,7 @@ public class Server implements IServer {
 			throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("yearOfPlenty", new PlayerReference(user), type1, type2);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -491,7 +871,7 @@ public class Server implements IServer {
 			throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("roadBuildingCard", new PlayerReference(user), road1, road2);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -517,7 +897,7 @@ public class Server implements IServer {
 			throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("soldier", new PlayerReference(user), newRobberLocation, new PlayerReference(victim));
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -542,7 +922,7 @@ public class Server implements IServer {
 	public String monopoly(UUID user, UUID gameID, ResourceType type) throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("monopoly", new PlayerReference(user), type);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -567,7 +947,7 @@ public class Server implements IServer {
 	public String monument(UUID user, UUID gameID) throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("monument", new PlayerReference(user));
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -592,7 +972,7 @@ public class Server implements IServer {
 			throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("buildRoad", new PlayerReference(user), location);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -617,10 +997,10 @@ public class Server implements IServer {
 			throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("buildSettlement", new PlayerReference(user), location);
-			ModelFacade game = getGame(gameID);
+			GameActor game = getGame(gameID);
 			if (game == null)
 				throw new ServerException();
-			command.execute(game);
+			execCommand(command, game);
 			return this.getModel(gameID, -1);
 		} catch (NoSuchMethodException e) {
 			// TODO Auto-generated catch block
@@ -642,7 +1022,7 @@ public class Server implements IServer {
 			UserException {
 		try {
 			ICatanCommand command = new CatanCommand("buildStartingPieces", new PlayerReference(user), settlementLoc, roadLoc);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -667,7 +1047,7 @@ public class Server implements IServer {
 			throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("buildCity", new PlayerReference(user), location);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -693,7 +1073,7 @@ public class Server implements IServer {
 		try {
 			TradeOffer tradeOffer = new TradeOffer(new PlayerReference(user), new PlayerReference(receiver), offer);
 			ICatanCommand command = new CatanCommand("offerTrade", tradeOffer);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -723,7 +1103,7 @@ public class Server implements IServer {
 			else{
 				command = new CatanCommand("declineTrade");
 			}
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -748,7 +1128,7 @@ public class Server implements IServer {
 			int ratio) throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("maritimeTrade", new PlayerReference(user), inResource, outResource);
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -773,7 +1153,7 @@ public class Server implements IServer {
 			throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("discard", new PlayerReference(user), cards.getResources());
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				
 				tempModel = getGame(gameID);
@@ -798,7 +1178,7 @@ public class Server implements IServer {
 	public String finishTurn(UUID user, UUID gameID) throws ServerException, UserException {
 		try {
 			ICatanCommand command = new CatanCommand("finishTurn", new PlayerReference(user));
-			ModelFacade tempModel;
+			GameActor tempModel;
 			try {
 				tempModel = getGame(gameID);
 				if (tempModel == null)
@@ -2,10 +2,13 @@ package server.communication;
 
 import java.io.*;
 import java.net.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.logging.*;
 
 import server.userhandlers.*;
+import server.DAOs.WriteBehindCommandDAO;
 import server.movehandlers.*;
 import server.plugins.PluginRegistry;
 import server.gamehandlers.*;
@@ -15,7 +18,9 @@ import com.sun.net.httpserver.*;
 public class ServerCommunicator {
 
 	private static int SERVER_PORT_NUMBER = 8081;
-	private static final int MAX_WAITING_CONNECTIONS = 10;
+	private static int MAX_WAITING_CONNECTIONS = 10;
+	private static int WORKER_THREADS = RequestExecutor.DEFAULT_THREADS;
+	private static int WORKER_QUEUE_SIZE = RequestExecutor.DEFAULT_QUEUE_SIZE;
 	
 	private static Logger logger;
 	
@@ -49,6 +54,7 @@ public class ServerCommunicator {
 
 	
 	private HttpServer server;
+	private RequestExecutor executor;
 	String persistenceType;
 	
 	public ServerCommunicator() {
@@ -68,48 +74,64 @@ public class ServerCommunicator {
 			return;
 		}
 
-		server.setExecutor(null); // use the default executor
+		if (WORKER_THREADS > 0) {
+			executor = new RequestExecutor(WORKER_THREADS, WORKER_QUEUE_SIZE);
+			server.setExecutor(executor);
+			logger.info("Handling requests with " + executor);
+		}
+		else {
+			server.setExecutor(null); // use the default executor
+		}
 
-		server.createContext("/user/login", loginHandler);
-		server.createContext("/user/register", registerHandler);
-		server.createContext("/games/list", listHandler);
-		server.createContext("/games/create", createHandler);
-		server.createContext("/games/join", joinHandler);
+		route("/user/login", loginHandler);
+		route("/user/register", registerHandler);
+		route("/games/list", listHandler);
+		route("/games/create", createHandler);
+		route("/games/join", joinHandler);
 		//Correct syntax is /games/model?version=
-		server.createContext("/game/model", modelHandler);
-		server.createContext("/game/listAI", getAITypeHandler);
-		server.createContext("/moves/sendChat", sendChatHandler);
-		server.createContext("/moves/rollNumber", rollNumberHandler);
-		server.createContext("/moves/robPlayer", robPlayerHandler);
-		server.createContext("/moves/buyDevCard", buyDevCardHandler);
-		server.createContext("/moves/Year_of_Plenty", yearOfPlentyHandler);
-		server.createContext("/moves/Road_Building", roadBuildingHandler);
-		server.createContext("/moves/Soldier", soldierHandler);
-		server.createContext("/moves/Monopoly", monopolyHandler);
-		server.createContext("/moves/buildRoad", buildRoadHandler);
-		server.createContext("/moves/buildSettlement", buildSettlementHandler);
-		server.createContext("/moves/buildCity", buildCityHandler);
-		server.createContext("/moves/offerTrade", offerTradeHandler);
-		server.createContext("/moves/acceptTrade", acceptTradeHandler);
-		server.createContext("/moves/maritimeTrade", maritimeTradeHandler);
-		server.createContext("/moves/discardCards", discardCardsHandler);
-		server.createContext("/moves/finishTurn", finishTurnHandler);
-		server.createContext("/moves/Monument", monumentHandler);
-		server.createContext("/moves/buildStartingPieces", buildStartingPiecesHandler);
+		route("/game/model", modelHandler);
+		route("/game/listAI", getAITypeHandler);
+		route("/game/commands", commandsHandler);
+		route("/moves/sendChat", sendChatHandler);
+		route("/moves/rollNumber", rollNumberHandler);
+		route("/moves/robPlayer", robPlayerHandler);
+		route("/moves/buyDevCard", buyDevCardHandler);
+		route("/moves/Year_of_Plenty", yearOfPlentyHandler);
+		route("/moves/Road_Building", roadBuildingHandler);
+		route("/moves/Soldier", soldierHandler);
+		route("/moves/Monopoly", monopolyHandler);
+		route("/moves/buildRoad", buildRoadHandler);
+		route("/moves/buildSettlement", buildSettlementHandler);
+		route("/moves/buildCity", buildCityHandler);
+		route("/moves/offerTrade", offerTradeHandler);
+		route("/moves/acceptTrade", acceptTradeHandler);
+		route("/moves/maritimeTrade", maritimeTradeHandler);
+		route("/moves/discardCards", discardCardsHandler);
+		route("/moves/finishTurn", finishTurnHandler);
+		route("/moves/Monument", monumentHandler);
+		route("/moves/buildStartingPieces", buildStartingPiecesHandler);
 		
-		server.createContext("/docs/api/data", new Handlers.JSONAppender(""));
-		server.createContext("/docs/api/view", new Handlers.BasicFile(""));
+		route("/docs/api/data", new Handlers.JSONAppender(""));
+		route("/docs/api/view", new Handlers.BasicFile(""));
 
 		logger.info("Starting HTTP Server");
 
 		server.start();
 	}
+	/**
+	 * Handles a path with the handler, unless the server is too busy
+	 */
+	private void route(String path, HttpHandler handler) {
+		server.createContext(path, handler).getFilters().add(RequestExecutor.shedding());
+	}
+
 	private HttpHandler loginHandler = new LoginHandler();
 	private HttpHandler registerHandler = new RegisterHandler();
 	private HttpHandler createHandler = new CreateHandler();
 	private HttpHandler joinHandler = new JoinHandler();
 	private HttpHandler listHandler = new ListHandler();
 	private HttpHandler modelHandler = new ModelHandler();
+	private HttpHandler commandsHandler = new CommandsHandler();
 	private HttpHandler getAITypeHandler = new GetAITypeHandler();
 	private HttpHandler acceptTradeHandler = new AcceptTradeHandler();
 	private HttpHandler buildCityHandler = new BuildCityHandler();
@@ -131,10 +153,90 @@ public class ServerCommunicator {
 	private HttpHandler yearOfPlentyHandler = new YearOfPlentyHandler();
 	
 	
-	public static void main(String[] args) {
-		System.out.println(Arrays.asList(args));
-		if (args.length == 3) {
-			Server.setFlushFrequency(Integer.parseInt(args[2]));
+	/**
+	 * Usage: [port] [persistence] [flushFrequency] [options]<br/>
+	 * Options:
+	 * <ul>
+	 * <li>--threads n: number of request worker threads, 0 to handle every
+	 * request on the accepting thread (default 8)</li>
+	 * <li>--queue n: number of requests that may wait for a worker, 0 to answer
+	 * a request with 503 whenever every worker is busy (default 256). Requests
+	 * that find the queue full are answered with 503.</li>
+	 * <li>--backlog n: number of connections the OS may queue before they are
+	 * accepted (default 10)</li>
+	 * <li>--max-games n: the most games kept in memory, 0 for no limit (default 64)</li>
+	 * <li>--model-budget n: the most serialized model data, in KB, kept in
+	 * memory across all games, 0 for no limit (default 0)</li>
+	 * <li>--idle-timeout n: seconds a game may go unused before it is saved
+	 * and dropped from memory, 0 to keep it (default 1800)</li>
+	 * <li>--max-users n: the most users kept in memory, 0 for no limit
+	 * (default 10000)</li>
+	 * <li>--durability queued|synced: answer a move once its command is queued
+	 * for storage, or only once it is stored (default queued)</li>
+	 * </ul>
+	 */
+	public static void main(String[] argv) {
+		System.out.println(Arrays.asList(argv));
+		List<String> positional = new ArrayList<>();
+		for (int i = 0; i < argv.length; ++i) {
+			if (!argv[i].startsWith("--")) {
+				positional.add(argv[i]);
+				continue;
+			}
+			if (i + 1 >= argv.length) {
+				System.out.println("Missing value for " + argv[i]);
+				return;
+			}
+			String value = argv[++i];
+			try {
+				switch (argv[i - 1]) {
+				case "--threads":
+					WORKER_THREADS = parseCount(value);
+					break;
+				case "--queue":
+					WORKER_QUEUE_SIZE = parseCount(value);
+					break;
+				case "--backlog":
+					MAX_WAITING_CONNECTIONS = parseCount(value);
+					break;
+				case "--max-games":
+					Server.setMaxResidentGames(parseCount(value));
+					break;
+				case "--model-budget":
+					Server.setModelBudget(parseCount(value));
+					break;
+				case "--idle-timeout":
+					Server.setIdleTimeout(parseCount(value));
+					break;
+				case "--max-users":
+					Server.setMaxResidentUsers(parseCount(value));
+					break;
+				case "--durability":
+					Server.setCommandDurability(WriteBehindCommandDAO.Durability.fromString(value));
+					break;
+				default:
+					System.out.println("Unknown option " + argv[i - 1]);
+					return;
+				}
+			} catch (IllegalArgumentException e) {
+				System.out.println("Bad value for " + argv[i - 1] + ": " + value);
+				System.out.println(USAGE);
+				return;
+			}
+		}
+		String[] args = positional.toArray(new String[positional.size()]);
+		int port = SERVER_PORT_NUMBER;
+		try {
+			if (args.length >= 1) {
+				port = parseCount(args[0]);
+			}
+			if (args.length == 3) {
+				Server.setFlushFrequency(parseCount(args[2]));
+			}
+		} catch (IllegalArgumentException e) {
+			System.out.println("Bad port or flush frequency: " + positional);
+			System.out.println(USAGE);
+			return;
 		}
 		if (args.length >= 2) {
 			Server.setPersistenceType(args[1]);
@@ -143,18 +245,26 @@ public class ServerCommunicator {
 			Server.setPersistenceType(null);
 		}
 		ServerCommunicator server = new ServerCommunicator();
-		if (args.length >= 2) {
-			server.initPortNum(Integer.parseInt(args[0]));
-		}
-		else if (args.length == 1) {
-			server.initPortNum(Integer.parseInt(args[0]));
-		}
-		else {
-			server.initPortNum(SERVER_PORT_NUMBER);
-		}
+		server.initPortNum(port);
 		server.run();
 	}
 
+	private static final String USAGE = "Usage: [port] [persistence] [flushFrequency] " +
+			"[--threads n] [--queue n] [--backlog n] [--max-games n] [--model-budget n] " +
+			"[--idle-timeout n] [--max-users n] [--durability queued|synced]";
+
+	/**
+	 * @return the number the option was given
+	 * @throws IllegalArgumentException if it is not a number or is negative
+	 */
+	private static int parseCount(String value) {
+		int count = Integer.parseInt(value);
+		if (count < 0) {
+			throw new IllegalArgumentException(value);
+		}
+		return count;
+	}
+
 	private void initPortNum(int port) {
 		SERVER_PORT_NUMBER = port;
 	}
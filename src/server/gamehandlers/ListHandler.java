@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.net.HttpURLConnection;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -12,8 +13,10 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import server.communication.Server;
+import server.interpreter.ExchangeConverter;
 import shared.communication.GameHeader;
 import shared.communication.IServer;
+import shared.definitions.GameStatus;
 import shared.exceptions.ServerException;
 import shared.exceptions.UserException;
 
@@ -40,7 +43,7 @@ public class ListHandler extends AbstractGameHandler implements HttpHandler {
 				throw new ServerException();
 			}
 			
-			List<GameHeader> headers = server.getGameList();
+			List<GameHeader> headers = list(ExchangeConverter.getQueryParameters(arg0));
 			
 			Gson gson = new Gson();
 			arg0.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
@@ -49,6 +52,9 @@ public class ListHandler extends AbstractGameHandler implements HttpHandler {
 			output.flush();
 			arg0.getResponseBody().close();
 			
+		} catch (IllegalArgumentException e) {
+			// A malformed offset, limit or status
+			arg0.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1);
 		} catch (UserException e) {
 			arg0.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
 		} catch (ServerException e) {
@@ -56,4 +62,27 @@ public class ListHandler extends AbstractGameHandler implements HttpHandler {
 		}
 	}
 
+	/**
+	 * Lists the page of games the query asks for. A parameter that is
+	 * missing or empty doesn't narrow the list.
+	 * @throws IllegalArgumentException if the query is malformed
+	 */
+	private List<GameHeader> list(Map<String, String> query)
+			throws ServerException, UserException {
+		String offset = query.get("offset");
+		String limit = query.get("limit");
+		String status = query.get("status");
+		int first = isEmpty(offset) ? 0 : Integer.parseInt(offset);
+		int count = isEmpty(limit) ? Integer.MAX_VALUE : Integer.parseInt(limit);
+		if (first < 0 || count < 0) {
+			throw new IllegalArgumentException();
+		}
+		return server.getGameList(first, count,
+				isEmpty(status) ? null : GameStatus.fromString(status));
+	}
+
+	private static boolean isEmpty(String parameter) {
+		return parameter == null || parameter.isEmpty();
+	}
+
 }
\ No newline at end of file
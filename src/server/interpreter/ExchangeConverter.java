@@ -2,6 +2,10 @@ package server.interpreter;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -27,4 +31,28 @@ public class ExchangeConverter {
 		
 		return json;
 	}
+
+	/**
+	 * Parses the query string of the request URI
+	 * @param e the exchange
+	 * @return a map from parameter name to value. Parameters without a value
+	 * map to the empty string.
+	 */
+	public static Map<String, String> getQueryParameters(HttpExchange e) {
+		Map<String, String> parameters = new HashMap<>();
+		String query = e.getRequestURI().getRawQuery();
+		if (query == null || query.isEmpty())
+			return parameters;
+		for (String pair : query.split("&")) {
+			int split = pair.indexOf('=');
+			String name = split < 0 ? pair : pair.substring(0, split);
+			String value = split < 0 ? "" : pair.substring(split + 1);
+			try {
+				parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+			} catch (UnsupportedEncodingException ex) {
+				ex.printStackTrace();
+			}
+		}
+		return parameters;
+	}
 }
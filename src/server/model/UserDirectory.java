@@ -0,0 +1,169 @@
+package server.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import shared.exceptions.NameAlreadyInUseException;
+import shared.exceptions.UserException;
+
+/** The users a server knows about, by username. Users are loaded from the
+ * store the first time they are needed, and the ones that have gone unused
+ * the longest are dropped again once there are too many. Pinned users are
+ * never dropped.
+ * @author Justin Snyder
+ *
+ */
+public class UserDirectory {
+
+	private static Logger logger = Logger.getLogger("Server");
+
+	/**
+	 * Where users that are not in memory are looked up
+	 */
+	public interface Store {
+		/**
+		 * @param username
+		 * @return the stored user with the name, or null if there is none
+		 * @throws Exception if the store could not be read
+		 */
+		User load(String username) throws Exception;
+	}
+
+	private static class Entry {
+		final User user;
+		final boolean pinned;
+		volatile long lastUsed = System.nanoTime();
+
+		Entry(User user, boolean pinned) {
+			this.user = user;
+			this.pinned = pinned;
+		}
+	}
+
+	private final Map<String, Entry> users = new ConcurrentHashMap<>();
+	private final Store store;
+	private final int maxUsers;
+
+	/**
+	 * @param store where users are loaded from, or null if every user is
+	 * registered with this directory
+	 * @param maxUsers the most users kept in memory, or 0 for no limit.
+	 * Users can only be dropped if there is a store to load them back from.
+	 */
+	public UserDirectory(Store store, int maxUsers) {
+		this.store = store;
+		this.maxUsers = store == null ? 0 : maxUsers;
+	}
+
+	/** Registers a user with the given username and password
+	 * @param username
+	 * @param password
+	 * @return the new user
+	 * @throws NameAlreadyInUseException
+	 */
+	public User register(String username, String password) throws NameAlreadyInUseException {
+		return register(new User(username, password));
+	}
+
+	/** Registers a user
+	 * @param user
+	 * @return the same user
+	 * @throws NameAlreadyInUseException if a user with the same name exists,
+	 * in memory or in the store
+	 */
+	public User register(User user) throws NameAlreadyInUseException {
+		return register(user, false);
+	}
+
+	/** Registers a user that stays in memory, for users that might not be
+	 * in the store to load them back from
+	 * @param user
+	 * @return the same user
+	 * @throws NameAlreadyInUseException if a user with the same name exists,
+	 * in memory or in the store
+	 */
+	public User registerPinned(User user) throws NameAlreadyInUseException {
+		return register(user, true);
+	}
+
+	private User register(User user, boolean pinned) throws NameAlreadyInUseException {
+		if (find(user.getUsername()) != null ||
+				users.putIfAbsent(user.getUsername(), new Entry(user, pinned)) != null) {
+			throw new NameAlreadyInUseException(user.getUsername());
+		}
+		trim();
+		return user;
+	}
+
+	/**
+	 * @param username
+	 * @param password
+	 * @return the user
+	 * @throws UserException if there is no such user or the password is wrong
+	 */
+	public User login(String username, String password) throws UserException {
+		User user = find(username);
+		if (user == null) {
+			throw new UserException("No such user: " + username);
+		}
+		if (!password.equals(user.getPassword())) {
+			throw new UserException("Incorrect Password.");
+		}
+		return user;
+	}
+
+	/**
+	 * @return the number of users in memory
+	 */
+	public int size() {
+		return users.size();
+	}
+
+	private User find(String username) {
+		Entry entry = users.get(username);
+		if (entry == null && store != null) {
+			User loaded;
+			try {
+				loaded = store.load(username);
+			} catch (Exception e) {
+				logger.warning("Could not load user " + username + ": " + e.getMessage());
+				loaded = null;
+			}
+			if (loaded == null) {
+				return null;
+			}
+			Entry fresh = new Entry(loaded, false);
+			entry = users.putIfAbsent(username, fresh);
+			if (entry == null) {
+				entry = fresh;
+				trim();
+			}
+		}
+		if (entry == null) {
+			return null;
+		}
+		entry.lastUsed = System.nanoTime();
+		return entry.user;
+	}
+
+	// Drops the users that have gone unused the longest
+	private void trim() {
+		while (maxUsers > 0 && users.size() > maxUsers) {
+			Map.Entry<String, Entry> oldest = null;
+			for (Map.Entry<String, Entry> entry : users.entrySet()) {
+				if (entry.getValue().pinned) {
+					continue;
+				}
+				if (oldest == null || entry.getValue().lastUsed - oldest.getValue().lastUsed < 0) {
+					oldest = entry;
+				}
+			}
+			if (oldest == null) {
+				return;
+			}
+			users.remove(oldest.getKey(), oldest.getValue());
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package server.model;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import shared.exceptions.UserException;
+
+public class UserDirectoryTest {
+
+	private Map<String, User> stored;
+	private UserDirectory users;
+
+	@Before
+	public void setUp() throws Exception {
+		stored = new HashMap<>();
+		for (int i = 0; i < 10; ++i) {
+			stored.put("user" + i, new User("user" + i, "pass" + i));
+		}
+		users = new UserDirectory(new UserDirectory.Store() {
+			@Override
+			public User load(String username) {
+				return stored.get(username);
+			}
+		}, 3);
+	}
+
+	@Test
+	public void testDropsLeastRecentlyUsed() throws Exception {
+		for (int i = 0; i < 10; ++i) {
+			users.login("user" + i, "pass" + i);
+			assertTrue(users.size() <= 3);
+		}
+		// Dropped users are loaded back
+		assertEquals("user0", users.login("user0", "pass0").getUsername());
+	}
+
+	@Test
+	public void testPinnedUsersStay() throws Exception {
+		// Not in the store, so it could never be loaded back
+		users.registerPinned(new User("Sam", "sam"));
+		for (int i = 0; i < 10; ++i) {
+			users.login("user" + i, "pass" + i);
+		}
+		assertEquals("Sam", users.login("Sam", "sam").getUsername());
+		assertEquals(3, users.size());
+	}
+
+	@Test(expected = UserException.class)
+	public void testUnpinnedUsersGo() throws Exception {
+		users.register(new User("Brooke", "brooke"));
+		for (int i = 0; i < 10; ++i) {
+			users.login("user" + i, "pass" + i);
+		}
+		users.login("Brooke", "brooke");
+	}
+
+}
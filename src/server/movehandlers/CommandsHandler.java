@@ -0,0 +1,110 @@
+package server.movehandlers;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import server.communication.Server;
+import server.interpreter.ExchangeConverter;
+import shared.communication.Command;
+import shared.exceptions.ServerException;
+
+/**
+ * Handles /game/commands. A GET returns the moves made in the game since
+ * the version in the "version" parameter (all the server remembers if there
+ * is none), as {"version": current version, "commands": [moves]}. If the
+ * server no longer remembers all of them, "commands" is null and the client
+ * should fetch the model instead.
+ * <br/>
+ * A POST of {"commands": [moves]} makes all of the moves at once, or none of
+ * them, and returns the model. Each move is the body its /moves route takes,
+ * plus its route name in "type".
+ * @author Jordan
+ *
+ */
+public class CommandsHandler extends AbstractMoveHandler implements HttpHandler {
+
+	Server server = Server.getSingleton();
+	Logger logger = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+	@Override
+	public void handle(HttpExchange arg0) throws IOException {
+		arg0.getResponseHeaders().set("Content-type:", "application/text");
+		String address = arg0.getRequestURI().toString();
+		logger.log(Level.INFO, "Connection to " + address + " established.");
+
+		try {
+			UUID gameUUID = super.checkCookies(arg0, server);
+			if (gameUUID == null) {
+				throw new ServerException();
+			}
+			String response;
+			if (arg0.getRequestMethod().equalsIgnoreCase("POST")) {
+				response = execute(gameUUID, ExchangeConverter.toJSON(arg0));
+			}
+			else {
+				response = list(gameUUID, ExchangeConverter.getQueryParameters(arg0));
+			}
+
+			arg0.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+			if (response != null) {
+				OutputStreamWriter output = new OutputStreamWriter(arg0.getResponseBody(), StandardCharsets.UTF_8);
+				output.write(response);
+				output.flush();
+			}
+			arg0.getResponseBody().close();
+		} catch (Exception e) {
+			arg0.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+			e.printStackTrace();
+		}
+	}
+
+	private String execute(UUID gameUUID, JSONObject json) throws Exception {
+		JSONArray moves = (JSONArray) json.get("commands");
+		if (moves == null) {
+			throw new ServerException();
+		}
+		List<Command> commands = new ArrayList<>(moves.size());
+		for (Object move : moves) {
+			commands.add(new Command(move));
+		}
+		return server.executeCommands(gameUUID, commands);
+	}
+
+	@SuppressWarnings("unchecked")
+	private String list(UUID gameUUID, Map<String, String> query) throws Exception {
+		JSONObject response = new JSONObject();
+		// Read first, so no move up to this version can be missing below
+		response.put("version", server.getModelSnapshot(gameUUID, -1).getVersion());
+		List<Command> commands;
+		if (query.containsKey("version")) {
+			commands = server.getCommands(gameUUID, Integer.parseInt(query.get("version")));
+		}
+		else {
+			commands = server.getCommands(gameUUID);
+		}
+		JSONArray moves = null;
+		if (commands != null) {
+			moves = new JSONArray();
+			for (Command command : commands) {
+				moves.add(command.getData());
+			}
+		}
+		response.put("commands", moves);
+		return response.toJSONString();
+	}
+
+}
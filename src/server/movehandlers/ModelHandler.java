@@ -1,8 +1,11 @@
 package server.movehandlers;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -10,8 +13,10 @@ import java.util.logging.Logger;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
+import server.communication.ModelSnapshot;
+import server.communication.ModelSubscriptions;
 import server.communication.Server;
-import shared.communication.IServer;
+import server.interpreter.ExchangeConverter;
 import shared.exceptions.ServerException;
 import shared.exceptions.UserException;
 
@@ -23,10 +28,15 @@ import shared.exceptions.UserException;
  */
 public class ModelHandler extends AbstractMoveHandler implements HttpHandler {
 
-	IServer server = Server.getSingleton();
-//	IServer server = new MockServer();
+	// Snapshots and subscriptions are only on the server itself
+	Server server = Server.getSingleton();
 	Logger logger = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 	
+	/**
+	 * The longest a client may ask to be held by a long poll
+	 */
+	private static final long MAX_WAIT_TIMEOUT = 60000;
+	
 	@Override
 	public void handle(HttpExchange arg0) throws IOException {
 		arg0.getResponseHeaders().set("Content-type:", "application/text");
@@ -34,26 +44,99 @@ public class ModelHandler extends AbstractMoveHandler implements HttpHandler {
 		logger.log(Level.INFO, "Connection to " + address + " established.");
 
 		try{
-			UUID gameUUID = super.checkCookies(arg0, server);
+			final UUID gameUUID = super.checkCookies(arg0, server);
 			if(gameUUID == null){
 				throw new ServerException();
 			}
-			int versionID = Integer.valueOf(address.substring(20));
-			
-			String header = server.getModel(gameUUID, versionID);
+			Map<String, String> query = ExchangeConverter.getQueryParameters(arg0);
+			int versionID = -1;
+			if (query.containsKey("version")) {
+				versionID = Integer.parseInt(query.get("version"));
+			}
+			final boolean delta = Boolean.parseBoolean(query.get("delta"));
 			
-			arg0.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
-			if (header != null) {
-				OutputStreamWriter output = new OutputStreamWriter(arg0.getResponseBody());
-				output.write(header);
-				output.flush();
-				arg0.getResponseBody().close();
+			if (Boolean.parseBoolean(query.get("wait"))) {
+				long timeout = Server.DEFAULT_WAIT_TIMEOUT;
+				if (query.containsKey("timeout")) {
+					timeout = Math.min(Long.parseLong(query.get("timeout")), MAX_WAIT_TIMEOUT);
+				}
+				// The exchange is answered later, on one of the server's response threads
+				final HttpExchange exchange = arg0;
+				final int version = versionID;
+				server.awaitModel(gameUUID, versionID, timeout,
+						new ModelSubscriptions.Subscriber() {
+					@Override
+					protected void modelChanged() {
+						respondLater(exchange, gameUUID, version, delta);
+					}
+					@Override
+					protected void timedOut() {
+						respondLater(exchange, gameUUID, version, delta);
+					}
+				});
+				return;
 			}
 			
+			respond(arg0, gameUUID, versionID, delta);
+			
 		} catch (Exception e) {
 			arg0.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
 			e.printStackTrace();
 		}
 	}
+	
+	private void respondLater(HttpExchange exchange, UUID gameUUID, int version, boolean delta) {
+		try {
+			try {
+				respond(exchange, gameUUID, version, delta);
+			} catch (ServerException | UserException e) {
+				e.printStackTrace();
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+				exchange.close();
+			}
+		} catch (IOException e) {
+			// The client gave up waiting
+			exchange.close();
+		}
+	}
+	
+	private void respond(HttpExchange exchange, UUID gameUUID, int version, boolean delta)
+			throws IOException, ServerException, UserException {
+		if (!delta) {
+			sendSnapshot(exchange, server.getModelSnapshot(gameUUID, version));
+			return;
+		}
+		
+		String header = server.getModelDelta(gameUUID, version);
+		
+		exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+		if (header != null) {
+			OutputStreamWriter output = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+			output.write(header);
+			output.flush();
+		}
+		exchange.getResponseBody().close();
+	}
+
+	/**
+	 * Writes the cached bytes of a snapshot, gzipped if the client accepts it
+	 */
+	private void sendSnapshot(HttpExchange exchange, ModelSnapshot snapshot) throws IOException {
+		if (snapshot == null) {
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+			exchange.close();
+			return;
+		}
+		byte[] body = snapshot.getBytes();
+		String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if (encoding != null && encoding.contains("gzip")) {
+			body = snapshot.getGzippedBytes();
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+		OutputStream output = exchange.getResponseBody();
+		output.write(body);
+		output.close();
+	}
 
 }
@@ -0,0 +1,199 @@
+package server.simulation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import shared.definitions.DevCardType;
+import shared.definitions.ResourceType;
+import shared.exceptions.InvalidActionException;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexLocation;
+import shared.model.Board;
+import shared.model.LegalMoves;
+import shared.model.ModelFacade;
+import shared.model.PlayerReference;
+import shared.model.ResourceList;
+
+/**
+ * Makes the choices every policy has to make but few care about at random:
+ * where to start, what to discard and whom to rob. Also has the moves that
+ * the policies' play methods are made of.
+ * @author Jordan
+ *
+ */
+public abstract class AbstractPolicy implements PlayerPolicy {
+
+	protected static final Map<ResourceType, Integer> ROAD = cost(1, 1, 0, 0, 0);
+	protected static final Map<ResourceType, Integer> SETTLEMENT = cost(1, 1, 1, 1, 0);
+	protected static final Map<ResourceType, Integer> CITY = cost(0, 0, 0, 2, 3);
+	protected static final Map<ResourceType, Integer> DEV_CARD = cost(0, 0, 1, 1, 1);
+
+	private static Map<ResourceType, Integer> cost(int wood, int brick, int sheep, int wheat, int ore) {
+		Map<ResourceType, Integer> cost = new EnumMap<>(ResourceType.class);
+		cost.put(ResourceType.WOOD, wood);
+		cost.put(ResourceType.BRICK, brick);
+		cost.put(ResourceType.SHEEP, sheep);
+		cost.put(ResourceType.WHEAT, wheat);
+		cost.put(ResourceType.ORE, ore);
+		return cost;
+	}
+
+	@Override
+	public void placeStartingPieces(SimulationContext context) throws InvalidActionException {
+		ModelFacade game = context.getGame();
+		List<VertexLocation> settlements = context.getLegalMoves().getStartingSettlementLocations();
+		while (!settlements.isEmpty()) {
+			VertexLocation settlement = settlements.remove(context.getRandom().nextInt(settlements.size()));
+			List<EdgeLocation> roads = new ArrayList<>();
+			for (EdgeLocation road : settlement.getEdges()) {
+				if (game.canBuildStartingPieces(settlement, road)) {
+					roads.add(road);
+				}
+			}
+			if (!roads.isEmpty()) {
+				game.buildStartingPieces(context.getPlayer(), settlement, context.pick(roads));
+				return;
+			}
+		}
+		throw new InvalidActionException("There is nowhere left to start");
+	}
+
+	@Override
+	public Map<ResourceType, Integer> discard(SimulationContext context, int count) {
+		int[] hand = new int[ResourceType.values().length];
+		int total = 0;
+		for (ResourceType type : ResourceType.values()) {
+			hand[type.ordinal()] = context.getHand().count(type);
+			total += hand[type.ordinal()];
+		}
+		// HashMap, so the move can also be sent as a command
+		Map<ResourceType, Integer> discarded = new HashMap<>();
+		for (int i = 0; i < count; ++i) {
+			int card = context.getRandom().nextInt(total);
+			int type = 0;
+			while (card >= hand[type]) {
+				card -= hand[type];
+				++type;
+			}
+			--hand[type];
+			--total;
+			ResourceType resource = ResourceType.values()[type];
+			Integer before = discarded.get(resource);
+			discarded.put(resource, before == null ? 1 : before + 1);
+		}
+		return discarded;
+	}
+
+	@Override
+	public void moveRobber(SimulationContext context) throws InvalidActionException {
+		HexLocation hex = context.pick(context.getLegalMoves().getRobberLocations());
+		context.getGame().rob(context.getPlayer(), hex, context.pick(context.getVictims(hex)));
+	}
+
+	/**
+	 * @return true if the player's hand covers the cost
+	 */
+	protected static boolean canAfford(SimulationContext context, Map<ResourceType, Integer> cost) {
+		ResourceList hand = context.getHand();
+		for (Map.Entry<ResourceType, Integer> resource : cost.entrySet()) {
+			if (hand.count(resource.getKey()) < resource.getValue()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Makes one maritime trade that brings the player closer to the cost,
+	 * giving up only resources the cost does not need
+	 * @return true if a trade was made
+	 */
+	protected static boolean tradeToward(SimulationContext context, Map<ResourceType, Integer> cost)
+			throws InvalidActionException {
+		ResourceList hand = context.getHand();
+		LegalMoves moves = context.getLegalMoves();
+		Map<ResourceType, Integer> ratios =
+				context.getGame().getCatanModel().getMaritimeRatios(context.getPlayer());
+		for (ResourceType wanted : ResourceType.values()) {
+			if (hand.count(wanted) >= cost.get(wanted)) continue;
+
+			for (ResourceType spare : ResourceType.values()) {
+				if (spare != wanted && moves.canMaritimeTrade(spare, wanted) &&
+						hand.count(spare) - cost.get(spare) >= ratios.get(spare)) {
+					context.getGame().maritimeTrade(context.getPlayer(), spare, wanted);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the player holds a development card of the type that
+	 * they may play this turn
+	 */
+	protected static boolean canPlay(SimulationContext context, DevCardType type) {
+		PlayerReference player = context.getPlayer();
+		return !player.getPlayer().hasPlayedDevCard() &&
+				player.getPlayer().getOldDevCards().count(type) > 0;
+	}
+
+	/**
+	 * Plays a soldier: moves the robber and robs someone
+	 */
+	protected static void playSoldier(SimulationContext context) throws InvalidActionException {
+		HexLocation hex = context.pick(context.getLegalMoves().getRobberLocations());
+		context.getGame().soldier(context.getPlayer(), hex, context.pick(context.getVictims(hex)));
+	}
+
+	/**
+	 * Plays a road building card on two roads that can be built together
+	 * @return true if the card was played
+	 */
+	protected static boolean playRoadBuilding(SimulationContext context) throws InvalidActionException {
+		ModelFacade game = context.getGame();
+		// The card pays for the roads, so the player's hand does not matter
+		Board map = game.getCatanModel().getMap();
+		BitSet legal = map.getLegalRoads(context.getPlayer());
+		List<EdgeLocation> firsts = new ArrayList<>();
+		for (int edge = legal.nextSetBit(0); edge >= 0; edge = legal.nextSetBit(edge + 1)) {
+			firsts.add(map.getTopology().getEdge(edge));
+		}
+		for (EdgeLocation first : firsts) {
+			// Either road could be built on its own, or the second one
+			// continues from the first
+			List<EdgeLocation> seconds = new ArrayList<>(firsts);
+			for (EdgeLocation next : first.getNeighbors()) {
+				if (map.getTopology().getEdgeId(next) != -1 && map.getRoadAt(next) == null) {
+					seconds.add(next);
+				}
+			}
+			for (EdgeLocation second : seconds) {
+				if (!second.equals(first) && game.canRoadBuildingCard(context.getPlayer(), first, second)) {
+					game.roadBuildingCard(context.getPlayer(), first, second);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the resource the player has the least of
+	 */
+	protected static ResourceType scarcest(SimulationContext context) {
+		ResourceType scarcest = ResourceType.WOOD;
+		for (ResourceType type : ResourceType.values()) {
+			if (context.getHand().count(type) < context.getHand().count(scarcest)) {
+				scarcest = type;
+			}
+		}
+		return scarcest;
+	}
+
+}
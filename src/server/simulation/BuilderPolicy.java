@@ -0,0 +1,102 @@
+package server.simulation;
+
+import java.util.Map;
+
+import shared.definitions.DevCardType;
+import shared.definitions.ResourceType;
+import shared.exceptions.InvalidActionException;
+import shared.model.Board;
+import shared.model.LegalMoves;
+import shared.model.ModelFacade;
+import shared.model.Player;
+import shared.model.PlayerReference;
+
+/**
+ * Builds the most valuable thing it can, in the order monument, city,
+ * settlement, road and development card, and trades with the bank toward
+ * the next of them when it can't. Plays the game to a finish far sooner
+ * than RandomPolicy, so it is the one to measure throughput with.
+ * @author Jordan
+ *
+ */
+public class BuilderPolicy extends AbstractPolicy {
+
+	@Override
+	public void play(SimulationContext context) throws InvalidActionException {
+		ModelFacade game = context.getGame();
+		PlayerReference player = context.getPlayer();
+		playCards(context);
+		while (true) {
+			LegalMoves legal = context.getLegalMoves();
+			if (canPlay(context, DevCardType.MONUMENT)) {
+				game.monument(player);
+			}
+			else if (!legal.getCities().isEmpty()) {
+				game.buildCity(player, context.pick(legal.getCityLocations()));
+			}
+			else if (!legal.getSettlements().isEmpty()) {
+				game.buildSettlement(player, context.pick(legal.getSettlementLocations()));
+			}
+			else if (!legal.getRoads().isEmpty() && !hasSettlementSpot(context)) {
+				// Only worth it while there is nowhere to settle
+				game.buildRoad(player, context.pick(legal.getRoadLocations()));
+			}
+			else if (game.canBuyDevelopmentCard(player)) {
+				game.buyDevelopmentCard(player);
+			}
+			else if (!tradeToward(context, goal(context))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Plays at most one of the development cards that help build
+	 */
+	private void playCards(SimulationContext context) throws InvalidActionException {
+		ModelFacade game = context.getGame();
+		PlayerReference player = context.getPlayer();
+		if (canPlay(context, DevCardType.YEAR_OF_PLENTY)) {
+			ResourceType wanted = scarcest(context);
+			if (game.canYearOfPlenty(player, wanted, wanted)) {
+				game.yearOfPlenty(player, wanted, wanted);
+				return;
+			}
+		}
+		if (canPlay(context, DevCardType.ROAD_BUILD) && playRoadBuilding(context)) {
+			return;
+		}
+		if (canPlay(context, DevCardType.SOLDIER)) {
+			playSoldier(context);
+		}
+	}
+
+	/**
+	 * @return the cost of the next thing the player wants to build
+	 */
+	private static Map<ResourceType, Integer> goal(SimulationContext context) {
+		Player player = context.getPlayer().getPlayer();
+		// Building a city puts a settlement back in the player's supply
+		boolean hasSettlementOnBoard = player.getSettlements() < 5;
+		if (player.getCities() > 0 && hasSettlementOnBoard) {
+			return CITY;
+		}
+		if (player.getSettlements() > 0 && hasSettlementSpot(context)) {
+			return SETTLEMENT;
+		}
+		if (player.getRoads() > 0) {
+			return ROAD;
+		}
+		return DEV_CARD;
+	}
+
+	/**
+	 * @return true if the player's roads reach somewhere they could settle,
+	 * whatever they hold
+	 */
+	private static boolean hasSettlementSpot(SimulationContext context) {
+		Board map = context.getGame().getCatanModel().getMap();
+		return !map.getLegalSettlements(context.getPlayer()).isEmpty();
+	}
+
+}
@@ -0,0 +1,178 @@
+package server.simulation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import shared.NormalDice;
+import shared.definitions.CatanColor;
+import shared.definitions.ResourceType;
+import shared.exceptions.GameInitializationException;
+import shared.exceptions.InvalidActionException;
+import shared.model.CardDraws;
+import shared.model.CatanModel;
+import shared.model.ModelFacade;
+import shared.model.Player;
+import shared.model.PlayerReference;
+
+/**
+ * Plays whole games in-process against ModelFacade, with no server, HTTP or
+ * GUI in the way. Everything random in a game (the dice, the development
+ * cards and the cards robbed, and the policies' choices) follows from the
+ * seed it is played with, so a game that goes wrong can be played again.
+ * <br/>
+ * A simulator holds no state between games, so one can play games on many
+ * threads at once.
+ * @author Jordan
+ *
+ */
+public class GameSimulator {
+
+	public static final int DEFAULT_MAX_TURNS = 1000;
+	private static final int POINTS_TO_WIN = 10;
+
+	private static final String[] NAMES = {"Sam", "Pete", "Brooke", "Mark"};
+	private static final CatanColor[] COLORS = {
+		CatanColor.RED, CatanColor.BLUE, CatanColor.GREEN, CatanColor.ORANGE
+	};
+
+	private final PlayerPolicy[] policies;
+	private final int maxTurns;
+
+	/**
+	 * @param policy plays every seat
+	 */
+	public GameSimulator(PlayerPolicy policy) {
+		this(new PlayerPolicy[] {policy, policy, policy, policy}, DEFAULT_MAX_TURNS);
+	}
+
+	/**
+	 * @param policies one for each seat, in seat order
+	 * @param maxTurns how many turns a game may take before it is given up
+	 * @pre policies has 4 entries
+	 */
+	public GameSimulator(PlayerPolicy[] policies, int maxTurns) {
+		assert policies.length == NAMES.length;
+		this.policies = policies.clone();
+		this.maxTurns = maxTurns;
+	}
+
+	/**
+	 * Plays a game on the standard board until someone has 10 points or
+	 * the turn limit is reached
+	 * @param seed decides everything random in the game
+	 * @return how the game went
+	 * @throws InvalidActionException if a policy makes an illegal move
+	 */
+	public SimulationResult play(long seed)
+			throws GameInitializationException, InvalidActionException {
+		long start = System.nanoTime();
+		CardDraws.setThreadSeed(seed);
+		try {
+			Playthrough game = new Playthrough(seed);
+			game.playUntil(maxTurns);
+
+			List<Player> players = game.facade.getCatanModel().getPlayers();
+			int[] points = new int[players.size()];
+			for (int seat = 0; seat < points.length; ++seat) {
+				points[seat] = players.get(seat).getVictoryPoints();
+			}
+			return new SimulationResult(seed, game.winner, game.turns, game.facade.getVersion(),
+					points, System.nanoTime() - start);
+		}
+		finally {
+			CardDraws.clearThreadSeed();
+		}
+	}
+
+	/**
+	 * Plays a game the same way play does, but stops at the start of the
+	 * given turn, so the game can be used as a fixture
+	 * @param seed decides everything random in the game
+	 * @param turns how many turns to play after the starting pieces are placed
+	 * @return the game, waiting for its next roll, or finished if someone won
+	 * before then
+	 * @throws InvalidActionException if a policy makes an illegal move
+	 */
+	public ModelFacade playTo(long seed, int turns)
+			throws GameInitializationException, InvalidActionException {
+		CardDraws.setThreadSeed(seed);
+		try {
+			Playthrough game = new Playthrough(seed);
+			game.playUntil(Math.min(turns, maxTurns));
+			return game.facade;
+		}
+		finally {
+			CardDraws.clearThreadSeed();
+		}
+	}
+
+	/**
+	 * One game being played
+	 */
+	private class Playthrough {
+
+		final ModelFacade facade;
+		final SimulationContext[] seats;
+		int turns = 0;
+		int winner = -1;
+
+		Playthrough(long seed) throws GameInitializationException {
+			facade = new ModelFacade(new CatanModel(false, false, false), new NormalDice(seed));
+			for (int seat = 0; seat < NAMES.length; ++seat) {
+				facade.addPlayer(NAMES[seat], COLORS[seat]);
+			}
+			List<Player> players = facade.getCatanModel().getPlayers();
+			seats = new SimulationContext[players.size()];
+			for (int seat = 0; seat < seats.length; ++seat) {
+				seats[seat] = new SimulationContext(facade, players.get(seat).getReference(),
+						new Random(seed * 31 + seat));
+			}
+		}
+
+		void playUntil(int maxTurns) throws InvalidActionException {
+			while (winner < 0 && turns < maxTurns) {
+				PlayerReference current = facade.getCurrentPlayer();
+				int seat = current.getIndex();
+				SimulationContext context = seats[seat];
+				switch (facade.getCatanModel().getTurnTracker().getStatus()) {
+				case FirstRound:
+				case SecondRound:
+					policies[seat].placeStartingPieces(context);
+					break;
+				case Rolling:
+					facade.rollDice(current);
+					break;
+				case Discarding:
+					discard(facade, seats);
+					break;
+				case Robbing:
+					policies[seat].moveRobber(context);
+					break;
+				case Playing:
+					policies[seat].play(context);
+					if (current.getPlayer().getVictoryPoints() >= POINTS_TO_WIN) {
+						winner = seat;
+					}
+					else {
+						facade.finishTurn(current);
+						++turns;
+					}
+					break;
+				}
+			}
+		}
+	}
+
+	private void discard(ModelFacade game, SimulationContext[] seats) throws InvalidActionException {
+		for (int seat = 0; seat < seats.length; ++seat) {
+			Player player = seats[seat].getPlayer().getPlayer();
+			if (player.hasDiscarded()) continue;
+
+			Map<ResourceType, Integer> cards =
+					policies[seat].discard(seats[seat], player.getResources().count() / 2);
+			game.discard(seats[seat].getPlayer(), cards);
+		}
+	}
+
+}
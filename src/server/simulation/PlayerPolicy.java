@@ -0,0 +1,45 @@
+package server.simulation;
+
+import java.util.Map;
+
+import shared.definitions.ResourceType;
+import shared.exceptions.InvalidActionException;
+
+/**
+ * Decides what one seat does in a simulated game. The simulator rolls the
+ * dice and ends turns; the policy makes every other choice by calling the
+ * game's ModelFacade through the context.
+ * <br/>
+ * A policy is shared by every game played in parallel, so it must keep its
+ * state in the context and draw its random numbers from the context's
+ * random source, or games stop being repeatable.
+ * @author Jordan
+ *
+ */
+public interface PlayerPolicy {
+
+	/**
+	 * Places a starting settlement and the road next to it
+	 * @post buildStartingPieces has been called once for the player
+	 */
+	void placeStartingPieces(SimulationContext context) throws InvalidActionException;
+
+	/**
+	 * @param count how many cards the player has to give up
+	 * @return the cards to discard, adding up to count
+	 */
+	Map<ResourceType, Integer> discard(SimulationContext context, int count);
+
+	/**
+	 * Moves the robber and robs someone after a 7
+	 * @post rob has been called for the player
+	 */
+	void moveRobber(SimulationContext context) throws InvalidActionException;
+
+	/**
+	 * Makes the player's moves for the rest of their turn, after the roll
+	 * has been dealt with. The simulator ends the turn once this returns.
+	 */
+	void play(SimulationContext context) throws InvalidActionException;
+
+}
@@ -0,0 +1,104 @@
+package server.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import shared.definitions.DevCardType;
+import shared.definitions.ResourceType;
+import shared.exceptions.InvalidActionException;
+import shared.model.LegalMoves;
+import shared.model.ModelFacade;
+import shared.model.PlayerReference;
+
+/**
+ * Makes any legal move at random, each as likely as the others and as
+ * ending the turn. Good for reaching odd corners of the rules; its games
+ * are long.
+ * @author Jordan
+ *
+ */
+public class RandomPolicy extends AbstractPolicy {
+
+	private enum Move {
+		END_TURN, ROAD, SETTLEMENT, CITY, BUY_CARD, SOLDIER, MONOPOLY,
+		YEAR_OF_PLENTY, ROAD_BUILDING, MONUMENT, MARITIME_TRADE
+	}
+
+	@Override
+	public void play(SimulationContext context) throws InvalidActionException {
+		ModelFacade game = context.getGame();
+		PlayerReference player = context.getPlayer();
+		while (true) {
+			LegalMoves legal = context.getLegalMoves();
+			List<Move> moves = new ArrayList<>();
+			moves.add(Move.END_TURN);
+			if (!legal.getRoads().isEmpty()) moves.add(Move.ROAD);
+			if (!legal.getSettlements().isEmpty()) moves.add(Move.SETTLEMENT);
+			if (!legal.getCities().isEmpty()) moves.add(Move.CITY);
+			if (game.canBuyDevelopmentCard(player)) moves.add(Move.BUY_CARD);
+			if (canPlay(context, DevCardType.SOLDIER)) moves.add(Move.SOLDIER);
+			if (canPlay(context, DevCardType.MONOPOLY)) moves.add(Move.MONOPOLY);
+			if (canPlay(context, DevCardType.YEAR_OF_PLENTY)) moves.add(Move.YEAR_OF_PLENTY);
+			if (canPlay(context, DevCardType.ROAD_BUILD)) moves.add(Move.ROAD_BUILDING);
+			if (canPlay(context, DevCardType.MONUMENT)) moves.add(Move.MONUMENT);
+			List<ResourceType[]> trades = trades(legal);
+			if (!trades.isEmpty()) moves.add(Move.MARITIME_TRADE);
+
+			switch (context.pick(moves)) {
+			case END_TURN:
+				return;
+			case ROAD:
+				game.buildRoad(player, context.pick(legal.getRoadLocations()));
+				break;
+			case SETTLEMENT:
+				game.buildSettlement(player, context.pick(legal.getSettlementLocations()));
+				break;
+			case CITY:
+				game.buildCity(player, context.pick(legal.getCityLocations()));
+				break;
+			case BUY_CARD:
+				game.buyDevelopmentCard(player);
+				break;
+			case SOLDIER:
+				playSoldier(context);
+				break;
+			case MONOPOLY:
+				game.monopoly(player, ResourceType.values()[context.getRandom().nextInt(5)]);
+				break;
+			case YEAR_OF_PLENTY:
+				ResourceType first = ResourceType.values()[context.getRandom().nextInt(5)];
+				ResourceType second = ResourceType.values()[context.getRandom().nextInt(5)];
+				if (game.canYearOfPlenty(player, first, second)) {
+					game.yearOfPlenty(player, first, second);
+				}
+				break;
+			case ROAD_BUILDING:
+				if (!playRoadBuilding(context)) {
+					// The card can't be played anywhere, so don't keep trying
+					return;
+				}
+				break;
+			case MONUMENT:
+				game.monument(player);
+				break;
+			case MARITIME_TRADE:
+				ResourceType[] trade = context.pick(trades);
+				game.maritimeTrade(player, trade[0], trade[1]);
+				break;
+			}
+		}
+	}
+
+	private static List<ResourceType[]> trades(LegalMoves legal) {
+		List<ResourceType[]> trades = new ArrayList<>();
+		for (ResourceType from : ResourceType.values()) {
+			for (ResourceType to : ResourceType.values()) {
+				if (from != to && legal.canMaritimeTrade(from, to)) {
+					trades.add(new ResourceType[] {from, to});
+				}
+			}
+		}
+		return trades;
+	}
+
+}
@@ -0,0 +1,92 @@
+package server.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import shared.locations.HexLocation;
+import shared.model.LegalMoveGenerator;
+import shared.model.LegalMoves;
+import shared.model.ModelFacade;
+import shared.model.Municipality;
+import shared.model.Player;
+import shared.model.PlayerReference;
+import shared.model.ResourceList;
+
+/**
+ * What a policy sees when it is asked to move: the game, the seat it is
+ * playing, and a random source that follows from the game's seed.
+ * @author Jordan
+ *
+ */
+public class SimulationContext {
+
+	private final ModelFacade game;
+	private final PlayerReference player;
+	private final Random random;
+	private final LegalMoveGenerator moves;
+
+	SimulationContext(ModelFacade game, PlayerReference player, Random random) {
+		this.game = game;
+		this.player = player;
+		this.random = random;
+		moves = new LegalMoveGenerator(game);
+	}
+
+	public ModelFacade getGame() {
+		return game;
+	}
+
+	public PlayerReference getPlayer() {
+		return player;
+	}
+
+	public Random getRandom() {
+		return random;
+	}
+
+	public ResourceList getHand() {
+		return player.getHand();
+	}
+
+	/**
+	 * @return everything the player could place or trade right now
+	 */
+	public LegalMoves getLegalMoves() {
+		return moves.getLegalMoves(player);
+	}
+
+	/**
+	 * @param hex where the robber is going
+	 * @return the other players with a municipality on the hex and at least
+	 * one card to steal, in seat order
+	 */
+	public List<PlayerReference> getVictims(HexLocation hex) {
+		List<PlayerReference> victims = new ArrayList<>();
+		for (Player other : game.getCatanModel().getPlayers()) {
+			PlayerReference reference = other.getReference();
+			if (reference.equals(player) || other.getResources().count() == 0) continue;
+
+			for (Municipality town : game.getMunicipalitiesAround(hex)) {
+				if (town.getOwner().equals(reference)) {
+					victims.add(reference);
+					break;
+				}
+			}
+		}
+		return victims;
+	}
+
+	/**
+	 * @param list the choices
+	 * @return one of them, picked with the context's random source, or null
+	 * if there are none
+	 */
+	public <T> T pick(List<T> list) {
+		if (list.isEmpty()) {
+			return null;
+		}
+		return list.get(random.nextInt(list.size()));
+	}
+
+}
@@ -0,0 +1,69 @@
+package server.simulation;
+
+import java.util.Arrays;
+
+/**
+ * How one simulated game went. Two games played from the same seed with the
+ * same policies have equal results, apart from how long they took.
+ * @author Jordan
+ *
+ */
+public class SimulationResult {
+
+	private final long seed;
+	private final int winner;
+	private final int turns;
+	private final int moves;
+	private final int[] points;
+	private final long nanos;
+
+	SimulationResult(long seed, int winner, int turns, int moves, int[] points, long nanos) {
+		this.seed = seed;
+		this.winner = winner;
+		this.turns = turns;
+		this.moves = moves;
+		this.points = points;
+		this.nanos = nanos;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the seat that reached 10 points, or -1 if the game hit the
+	 * turn limit first
+	 */
+	public int getWinner() {
+		return winner;
+	}
+
+	public int getTurns() {
+		return turns;
+	}
+
+	/**
+	 * @return the game's version at the end, which goes up once per move
+	 */
+	public int getMoves() {
+		return moves;
+	}
+
+	/**
+	 * @return each seat's victory points at the end
+	 */
+	public int[] getPoints() {
+		return points.clone();
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public String toString() {
+		return "seed=" + seed + ", winner=" + winner + ", turns=" + turns +
+				", moves=" + moves + ", points=" + Arrays.toString(points);
+	}
+
+}
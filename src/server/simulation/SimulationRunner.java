@@ -0,0 +1,202 @@
+package server.simulation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays a range of seeds across a fork/join pool and reports how fast the
+ * rules engine went. Game n of a run is played with seed + n, so a run gives
+ * the same totals whatever the number of threads.
+ * <br/>
+ * Usage: SimulationRunner [--games n] [--seed s] [--threads t]
+ * [--policy builder|random] [--max-turns m]
+ * @author Jordan
+ *
+ */
+public class SimulationRunner {
+
+	/** Games one task plays itself instead of splitting further */
+	private static final int GAMES_PER_TASK = 8;
+
+	/**
+	 * What a run of games added up to
+	 */
+	public static class Totals {
+		private int games;
+		private int finished;
+		private int failures;
+		private long moves;
+		private long turns;
+		private final int[] wins = new int[4];
+
+		void add(SimulationResult result) {
+			++games;
+			moves += result.getMoves();
+			turns += result.getTurns();
+			if (result.getWinner() >= 0) {
+				++finished;
+				++wins[result.getWinner()];
+			}
+		}
+
+		void fail() {
+			++games;
+			++failures;
+		}
+
+		void add(Totals other) {
+			games += other.games;
+			finished += other.finished;
+			failures += other.failures;
+			moves += other.moves;
+			turns += other.turns;
+			for (int seat = 0; seat < wins.length; ++seat) {
+				wins[seat] += other.wins[seat];
+			}
+		}
+
+		public int getGames() {
+			return games;
+		}
+
+		/**
+		 * @return the games that someone won before the turn limit
+		 */
+		public int getFinished() {
+			return finished;
+		}
+
+		/**
+		 * @return the games stopped by an illegal move or an error in the rules
+		 */
+		public int getFailures() {
+			return failures;
+		}
+
+		public long getMoves() {
+			return moves;
+		}
+
+		public long getTurns() {
+			return turns;
+		}
+
+		/**
+		 * @return how many games each seat won
+		 */
+		public int[] getWins() {
+			return wins.clone();
+		}
+	}
+
+	private static class Games extends RecursiveTask<Totals> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final GameSimulator simulator;
+		private final long first;
+		private final int count;
+
+		Games(GameSimulator simulator, long first, int count) {
+			this.simulator = simulator;
+			this.first = first;
+			this.count = count;
+		}
+
+		@Override
+		protected Totals compute() {
+			if (count > GAMES_PER_TASK) {
+				int half = count / 2;
+				Games left = new Games(simulator, first, half);
+				Games right = new Games(simulator, first + half, count - half);
+				left.fork();
+				Totals totals = right.compute();
+				totals.add(left.join());
+				return totals;
+			}
+
+			Totals totals = new Totals();
+			for (long seed = first; seed < first + count; ++seed) {
+				try {
+					totals.add(simulator.play(seed));
+				} catch (Exception | AssertionError e) {
+					System.err.println("Game " + seed + " failed: " + e);
+					totals.fail();
+				}
+			}
+			return totals;
+		}
+	}
+
+	private final GameSimulator simulator;
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param threads how many games to play at once
+	 */
+	public SimulationRunner(GameSimulator simulator, int threads) {
+		this.simulator = simulator;
+		pool = new ForkJoinPool(threads);
+	}
+
+	/**
+	 * Plays games with seeds seed, seed + 1, ... seed + games - 1
+	 */
+	public Totals run(long seed, int games) {
+		return pool.invoke(new Games(simulator, seed, games));
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	public static void main(String[] args) {
+		int games = 1000;
+		long seed = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String policyName = "builder";
+		int maxTurns = GameSimulator.DEFAULT_MAX_TURNS;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--games":
+				games = Integer.parseInt(args[i + 1]);
+				break;
+			case "--seed":
+				seed = Long.parseLong(args[i + 1]);
+				break;
+			case "--threads":
+				threads = Integer.parseInt(args[i + 1]);
+				break;
+			case "--policy":
+				policyName = args[i + 1];
+				break;
+			case "--max-turns":
+				maxTurns = Integer.parseInt(args[i + 1]);
+				break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				return;
+			}
+		}
+
+		PlayerPolicy policy = policyName.equals("random") ? new RandomPolicy() : new BuilderPolicy();
+		GameSimulator simulator = new GameSimulator(
+				new PlayerPolicy[] {policy, policy, policy, policy}, maxTurns);
+		SimulationRunner runner = new SimulationRunner(simulator, threads);
+
+		long start = System.nanoTime();
+		Totals totals = runner.run(seed, games);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		runner.shutdown();
+
+		System.out.printf("%d games (%d won, %d failed) on %d threads in %.2fs%n",
+				totals.getGames(), totals.getFinished(), totals.getFailures(), threads, seconds);
+		System.out.printf("%.1f games/sec, %.0f moves/sec, %.1f turns/game%n",
+				totals.getGames() / seconds, totals.getMoves() / seconds,
+				(double) totals.getTurns() / Math.max(1, totals.getGames()));
+		int[] wins = totals.getWins();
+		System.out.printf("wins by seat: %d %d %d %d, %d moves in total%n",
+				wins[0], wins[1], wins[2], wins[3], totals.getMoves());
+	}
+
+}
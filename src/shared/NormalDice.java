@@ -4,7 +4,21 @@ import java.util.Random;
 
 public class NormalDice implements IDice {
 	
-	private Random rand = new Random();
+	// The value it had before the seeded constructor, so saved games still load
+	private static final long serialVersionUID = -1182004287079955939L;
+	
+	private Random rand;
+	
+	public NormalDice() {
+		rand = new Random();
+	}
+	
+	/**
+	 * @param seed makes every roll follow from it, so a game can be replayed
+	 */
+	public NormalDice(long seed) {
+		rand = new Random(seed);
+	}
 
 	@Override
 	public int roll() {
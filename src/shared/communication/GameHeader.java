@@ -9,6 +9,7 @@ import org.json.simple.JSONObject;
 
 import client.data.GameInfo;
 import client.data.PlayerInfo;
+import shared.definitions.GameStatus;
 import shared.exceptions.SchemaMismatchException;
 
 public class GameHeader 
@@ -18,6 +19,8 @@ implements Serializable {
 	private String title;
 	private UUID uuid;
 	private List<PlayerHeader> players;
+	private GameStatus status;
+	private int version;
 	
 	@SuppressWarnings("unchecked")
 	public GameHeader(JSONObject json) throws SchemaMismatchException {
@@ -34,6 +37,12 @@ implements Serializable {
 				}
 				players.add(new PlayerHeader(obj));
 			}
+			if (json.containsKey("status")) {
+				status = GameStatus.fromString((String) json.get("status"));
+			}
+			if (json.containsKey("version")) {
+				version = (int) (long) json.get("version");
+			}
 		}
 		catch (ClassCastException | IllegalArgumentException e) {
 			//e.printStackTrace();
@@ -48,6 +57,13 @@ implements Serializable {
 		this.players = players;
 	}
 
+	public GameHeader(String title, UUID id, List<PlayerHeader> players,
+			GameStatus status, int version){
+		this(title, id, players);
+		this.status = status;
+		this.version = version;
+	}
+
 	public GameHeader(GameInfo info) {
 		title = info.getTitle();
 		uuid = info.getUUID();
@@ -81,13 +97,28 @@ implements Serializable {
 		return players;
 	}
 
+	/**
+	 * @return whether the game is waiting for players, being played or
+	 * over, or null if it is not known
+	 */
+	public GameStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the version of the game's model
+	 */
+	public int getVersion() {
+		return version;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
 	@Override
 	public String toString() {
 		return "GameHeader [title=" + title + ", uuid=" + uuid + ", players="
-				+ players + "]";
+				+ players + ", status=" + status + ", version=" + version + "]";
 	}
 	
 }
@@ -39,6 +39,13 @@ public interface IServer {
 	 */
 	public List<GameHeader> getGameList()
 			throws ServerException, UserException;
+	/**
+	 * @pre offset and limit are not negative
+	 * @post a page of the game headers is generated, skipping the first
+	 *   offset games that have the status, or every game if status is null
+	 */
+	public List<GameHeader> getGameList(int offset, int limit, GameStatus status)
+			throws ServerException, UserException;
 	/**
 	 * @pre user is valid.
 	 * game is given a name that is not an empty string
@@ -77,6 +84,24 @@ public interface IServer {
 	 */
 	public String getModel(UUID gameID, int version)
 			throws ServerException, UserException;
+	/**
+	 * @pre version is the version of the model the caller already has,
+	 * or -1 if it has none
+	 * @post returns null if the caller's version is current. Otherwise returns
+	 * either the full model, or an object holding "baseVersion" and "patch"
+	 * which {@link JsonDelta} can apply to the model at baseVersion.
+	 */
+	public String getModelDelta(UUID gameID, int version)
+			throws ServerException, UserException;
+	/**
+	 * Like getModelDelta, but if the caller's version is current, waits until
+	 * the game changes or a timeout elapses before answering
+	 * @pre version is the version of the model the caller already has,
+	 * or -1 if it has none
+	 * @post returns null if nothing changed before the timeout
+	 */
+	public String waitForModel(UUID gameID, int version)
+			throws ServerException, UserException;
 	/**
 	 * @pre
 	 * @post game is reset
@@ -91,6 +116,13 @@ public interface IServer {
 	 */
 	public List<Command> getCommands(UUID gameID)
 			throws ServerException, UserException;
+	/**
+	 * @pre version is the version of the game the caller already has
+	 * @post the moves made since that version are returned, oldest first,
+	 * or null if the server no longer remembers all of them
+	 */
+	public List<Command> getCommands(UUID gameID, int version)
+			throws ServerException, UserException;
 	/**
 	 * @pre list of commands must not be empty
 	 * @post commands will be executed
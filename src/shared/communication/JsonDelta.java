@@ -0,0 +1,191 @@
+package shared.communication;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Computes and applies structural differences between two JSON trees.
+ * <p>
+ * A delta is itself JSON. An object delta maps each changed key to the delta
+ * for that key's value. A primitive, array or null in a delta replaces the old
+ * value outright. An object whose single key starts with '$' is an operation:
+ * <ul>
+ * <li><code>{"$set": value}</code> replaces the old value with <i>value</i></li>
+ * <li><code>{"$remove": true}</code> removes the key from its parent</li>
+ * <li><code>{"$append": [...]}</code> appends items to the old array</li>
+ * <li><code>{"$items": {"3": delta}}</code> patches individual array items</li>
+ * </ul>
+ * The model JSON never uses keys starting with '$', so the forms cannot collide.
+ * @author Jordan
+ *
+ */
+public class JsonDelta {
+
+	private static final String SET = "$set";
+	private static final String REMOVE = "$remove";
+	private static final String APPEND = "$append";
+	private static final String ITEMS = "$items";
+
+	private JsonDelta() {
+
+	}
+
+	/**
+	 * Computes the delta that turns one JSON object into another
+	 * @param oldTree the tree the receiver already has
+	 * @param newTree the tree the receiver should end up with
+	 * @return the delta, or an empty object if the trees are equal
+	 * @pre neither tree is null
+	 * @post patch(oldTree, result) will be equal to newTree. Neither tree is modified.
+	 */
+	public static JsonObject diff(JsonObject oldTree, JsonObject newTree) {
+		JsonObject delta = diffObjects(oldTree, newTree);
+		return delta == null ? new JsonObject() : delta;
+	}
+
+	/**
+	 * Applies a delta produced by {@link #diff(JsonObject, JsonObject)}
+	 * @param tree the tree to modify in place
+	 * @param delta the delta to apply
+	 * @pre the delta was computed against a tree equal to <i>tree</i>
+	 * @post <i>tree</i> is equal to the tree the delta was computed towards.
+	 * Elements of the delta may become part of the tree, so the delta should
+	 * not be reused.
+	 */
+	public static void patch(JsonObject tree, JsonObject delta) {
+		for (Map.Entry<String, JsonElement> entry : delta.entrySet()) {
+			String key = entry.getKey();
+			JsonElement change = entry.getValue();
+			if (isOperation(change, REMOVE)) {
+				tree.remove(key);
+			}
+			else {
+				tree.add(key, apply(tree.get(key), change));
+			}
+		}
+	}
+
+	private static JsonElement diffElements(JsonElement oldValue, JsonElement newValue) {
+		if (oldValue == null) {
+			return set(newValue);
+		}
+		if (oldValue.equals(newValue)) {
+			return null;
+		}
+		if (oldValue.isJsonObject() && newValue.isJsonObject()) {
+			return diffObjects(oldValue.getAsJsonObject(), newValue.getAsJsonObject());
+		}
+		if (oldValue.isJsonArray() && newValue.isJsonArray()) {
+			return diffArrays(oldValue.getAsJsonArray(), newValue.getAsJsonArray());
+		}
+		return set(newValue);
+	}
+
+	private static JsonObject diffObjects(JsonObject oldObject, JsonObject newObject) {
+		JsonObject delta = new JsonObject();
+		Set<String> seen = new HashSet<>();
+		for (Map.Entry<String, JsonElement> entry : newObject.entrySet()) {
+			seen.add(entry.getKey());
+			JsonElement change = diffElements(oldObject.get(entry.getKey()), entry.getValue());
+			if (change != null) {
+				delta.add(entry.getKey(), change);
+			}
+		}
+		for (Map.Entry<String, JsonElement> entry : oldObject.entrySet()) {
+			if (!seen.contains(entry.getKey())) {
+				delta.add(entry.getKey(), operation(REMOVE, new JsonPrimitive(true)));
+			}
+		}
+		return delta.entrySet().isEmpty() ? null : delta;
+	}
+
+	private static JsonElement diffArrays(JsonArray oldArray, JsonArray newArray) {
+		int oldSize = oldArray.size();
+		int newSize = newArray.size();
+		if (newSize > oldSize && isPrefix(oldArray, newArray)) {
+			// Chat and log lists only ever grow, so this is the common case
+			JsonArray appended = new JsonArray();
+			for (int i = oldSize; i < newSize; ++i) {
+				appended.add(newArray.get(i));
+			}
+			return operation(APPEND, appended);
+		}
+		if (newSize == oldSize) {
+			JsonObject items = new JsonObject();
+			for (int i = 0; i < newSize; ++i) {
+				JsonElement change = diffElements(oldArray.get(i), newArray.get(i));
+				if (change != null) {
+					items.add(Integer.toString(i), change);
+				}
+			}
+			return operation(ITEMS, items);
+		}
+		return newArray;
+	}
+
+	private static boolean isPrefix(JsonArray prefix, JsonArray array) {
+		for (int i = 0; i < prefix.size(); ++i) {
+			if (!prefix.get(i).equals(array.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static JsonElement apply(JsonElement oldValue, JsonElement change) {
+		if (!change.isJsonObject()) {
+			return change;
+		}
+		JsonObject object = change.getAsJsonObject();
+		if (isOperation(change, SET)) {
+			return object.get(SET);
+		}
+		if (isOperation(change, APPEND)) {
+			JsonArray array = oldValue.getAsJsonArray();
+			for (JsonElement item : object.getAsJsonArray(APPEND)) {
+				array.add(item);
+			}
+			return array;
+		}
+		if (isOperation(change, ITEMS)) {
+			JsonArray array = oldValue.getAsJsonArray();
+			for (Map.Entry<String, JsonElement> item : object.getAsJsonObject(ITEMS).entrySet()) {
+				int index = Integer.parseInt(item.getKey());
+				array.set(index, apply(array.get(index), item.getValue()));
+			}
+			return array;
+		}
+		JsonObject target = oldValue.getAsJsonObject();
+		patch(target, object);
+		return target;
+	}
+
+	private static JsonElement set(JsonElement value) {
+		if (value.isJsonObject()) {
+			return operation(SET, value);
+		}
+		return value;
+	}
+
+	private static JsonObject operation(String name, JsonElement argument) {
+		JsonObject op = new JsonObject();
+		op.add(name, argument == null ? JsonNull.INSTANCE : argument);
+		return op;
+	}
+
+	private static boolean isOperation(JsonElement change, String name) {
+		if (!change.isJsonObject()) {
+			return false;
+		}
+		JsonObject object = change.getAsJsonObject();
+		return object.entrySet().size() == 1 && object.has(name);
+	}
+
+}
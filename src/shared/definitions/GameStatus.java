@@ -0,0 +1,18 @@
+package shared.definitions;
+
+/**
+ * Where a game is, as shown in the game list
+ */
+public enum GameStatus {
+	Waiting,
+	Playing,
+	Finished;
+
+	public static GameStatus fromString(String input) {
+		String lowerInput = input.toLowerCase();
+		if (lowerInput.equals("waiting")) return Waiting;
+		else if (lowerInput.equals("playing")) return Playing;
+		else if (lowerInput.equals("finished")) return Finished;
+		else throw new IllegalArgumentException();
+	}
+}
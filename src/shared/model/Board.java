@@ -1,17 +1,18 @@
 package shared.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 
 import org.json.simple.JSONObject;
 
@@ -49,6 +50,23 @@ implements Serializable {
 	private Map<VertexLocation, Municipality> municipalities;
 	
 	private HexLocation robber;
+	
+	// The maps above are what gets serialized and compared. These arrays hold
+	// the same objects by their ids in the topology, for lookups.
+	private transient BoardTopology topology;
+	private transient Hex[] hexesById;
+	private transient Port[] portsById;
+	private transient Road[] roadsById;
+	private transient Municipality[] townsById;
+	
+	// Built from roads and municipalities the first time they are needed
+	private transient RoadNetwork roadNetwork;
+	private transient BoardPlacements placements;
+	private transient ProductionIndex production;
+	
+	// How many times a piece has been placed, upgraded or moved since the
+	// board was made or loaded
+	private transient int changes;
 
 	public Board() throws GameInitializationException {
 		this(false, false, false);
@@ -77,6 +95,80 @@ implements Serializable {
 		}
 		roads = new HashMap<EdgeLocation, Road>();
 		municipalities = new HashMap<VertexLocation, Municipality>();
+		indexRoads();
+		indexMunicipalities();
+	}
+	
+	/** Restores a board from a stored game. The board keeps the maps.
+	 * @param radius the radius, not counting water hexes
+	 * @param hexes every hex on the board, by location
+	 * @param ports the ports, by location
+	 * @param roads the roads, by location
+	 * @param municipalities the settlements and cities, by location
+	 * @param robber where the robber is
+	 */
+	Board(int radius, Map<HexLocation, Hex> hexes, Map<EdgeLocation, Port> ports,
+			Map<EdgeLocation, Road> roads, Map<VertexLocation, Municipality> municipalities,
+			HexLocation robber) {
+		this.radius = radius;
+		this.hexes = hexes;
+		this.ports = ports;
+		this.roads = roads;
+		this.municipalities = municipalities;
+		this.robber = robber;
+		indexHexes();
+		indexPorts();
+		indexRoads();
+		indexMunicipalities();
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		indexHexes();
+		indexPorts();
+		indexRoads();
+		indexMunicipalities();
+	}
+	
+	private BoardTopology topology() {
+		if (topology == null || topology.getRadius() != radius) {
+			topology = BoardTopology.forRadius(radius);
+		}
+		return topology;
+	}
+	
+	private void indexHexes() {
+		hexesById = new Hex[topology().getHexCount()];
+		for (Map.Entry<HexLocation, Hex> hex : hexes.entrySet()) {
+			hexesById[topology.getHexId(hex.getKey())] = hex.getValue();
+		}
+		production = null;
+	}
+	
+	private void indexPorts() {
+		portsById = new Port[topology().getEdgeCount()];
+		for (Map.Entry<EdgeLocation, Port> port : ports.entrySet()) {
+			portsById[topology.getEdgeId(port.getKey())] = port.getValue();
+		}
+	}
+	
+	private void indexRoads() {
+		roadsById = new Road[topology().getEdgeCount()];
+		for (Map.Entry<EdgeLocation, Road> road : roads.entrySet()) {
+			roadsById[topology.getEdgeId(road.getKey())] = road.getValue();
+		}
+		roadNetwork = null;
+		placements = null;
+	}
+	
+	private void indexMunicipalities() {
+		townsById = new Municipality[topology().getVertexCount()];
+		for (Map.Entry<VertexLocation, Municipality> town : municipalities.entrySet()) {
+			townsById[topology.getVertexId(town.getKey())] = town.getValue();
+		}
+		roadNetwork = null;
+		placements = null;
+		production = null;
 	}
 
 	private static final List<ResourceType> defaultHexTypes = Arrays.asList(
@@ -313,6 +405,7 @@ implements Serializable {
 			}
 			ports.put(location, port);
 		}
+		indexPorts();
 	}
 
 	private void initializeRoadsFromList(List<Road> roadData) throws DuplicateKeyException {
@@ -328,6 +421,7 @@ implements Serializable {
 			}
 			roads.put(location, road);
 		}
+		indexRoads();
 	}
 
 	private void initializeMunicipalitiesFromList(List<Municipality> towns)
@@ -350,6 +444,7 @@ implements Serializable {
 			}
 			municipalities.put(location, town);
 		}
+		indexMunicipalities();
 	}
 
 	/**
@@ -378,6 +473,7 @@ implements Serializable {
 				throw new GameInitializationException("Some hexes are missing.");
 			}
 		}
+		indexHexes();
 	}
 	
 	/**
@@ -394,15 +490,11 @@ implements Serializable {
 	 * @throws IndexOutOfBoundsException if the location is outside the board
 	 */
 	public Hex getHexAt(HexLocation location) {
-		if (location.getDistanceFromCenter() > radius) {
-			throw new IndexOutOfBoundsException();
-		}
-		if (hexes.containsKey(location)) {
-			return hexes.get(location);
-		}
-		else {
+		int hex = topology.getHexId(location);
+		if (hex == -1 || hexesById[hex] == null) {
 			throw new IndexOutOfBoundsException();
 		}
+		return hexesById[hex];
 	}
 	
 	/** Gives a collection of all Hexes with the given number
@@ -447,13 +539,11 @@ implements Serializable {
 	 * @return null otherwise
 	 */
 	public Port getPortAt(EdgeLocation location) {
-		if (location.getDistanceFromCenter() > radius) {
+		int edge = topology.getEdgeId(location);
+		if (edge == -1) {
 			throw new IndexOutOfBoundsException();
 		}
-		if (ports.containsKey(location)) {
-			return ports.get(location);
-		}
-		else return null;
+		return portsById[edge];
 	}
 	
 
@@ -463,12 +553,16 @@ implements Serializable {
 	 * @return null otherwise
 	 */
 	public Port getPortAt(VertexLocation location) {
-		if (location.getDistanceFromCenter() > radius) {
+		int vertex = topology.getVertexId(location);
+		if (vertex == -1) {
 			throw new IndexOutOfBoundsException();
 		}
 		Port port = null;
-		for (EdgeLocation loc: location.getEdges()) {
-			Port p = getPortAt(loc);
+		for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+			int edge = topology.getVertexEdge(vertex, slot);
+			if (edge == -1) continue;
+			
+			Port p = portsById[edge];
 			if (p != null) {
 				if (port == null) {
 					port = p;
@@ -519,13 +613,11 @@ implements Serializable {
 	 * @throws IndexOutOfBoundsException if the road outside the boundaries of the board
 	 */
 	public Road getRoadAt(EdgeLocation location) {
-		if (location.getDistanceFromCenter() > radius) {
+		int edge = topology.getEdgeId(location);
+		if (edge == -1) {
 			throw new IndexOutOfBoundsException();
 		}
-		if (roads.containsKey(location)) {
-			return roads.get(location);
-		}
-		else return null;
+		return roadsById[edge];
 	}
 	
 	/** Tells you if the given location is a valid place for the given player to build a road.
@@ -538,29 +630,30 @@ implements Serializable {
 	 * @post none
 	 */
 	public boolean canBuildRoadAt(PlayerReference player, EdgeLocation location) {
-		if (location.getDistanceFromCenter() > radius) return false;
-		if (getRoadAt(location) == null) {
-			// Adjacent road
-			for (EdgeLocation neighbor : location.getNeighbors()) {
-				if (neighbor.getDistanceFromCenter() > radius) continue;
-				
-				Road road = getRoadAt(neighbor);
-				if (road != null && player.equals(road.getOwner())) {
-					// check if blocked by opponent's municipality
-					VertexLocation townLoc = neighbor.getVertexBetween(location);
-					Municipality town = getMunicipalityAt(townLoc);
-					if (town != null && !player.equals(town.getOwner())) {
-						continue;
-					}
-					return true;
-				}
-			}
-			// Adjacent municipality
-			for (VertexLocation vertex : location.getVertices()) {
-				if (vertex.getDistanceFromCenter() > radius) continue;
-				
-				Municipality town = getMunicipalityAt(vertex);
+		int edge = topology.getEdgeId(location);
+		if (edge == -1) return false;
+		return canBuildRoadAt(player, edge);
+	}
+	
+	/**
+	 * @param edge the id of the edge in the board's topology
+	 */
+	boolean canBuildRoadAt(PlayerReference player, int edge) {
+		if (roadsById[edge] == null) {
+			for (int end = 0; end < 2; ++end) {
+				int vertex = topology.getEdgeVertex(edge, end);
+				Municipality town = townsById[vertex];
+				// Adjacent municipality
 				if (town != null && player.equals(town.getOwner())) return true;
+				// Adjacent road, unless blocked by an opponent's municipality
+				if (town != null) continue;
+				for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+					int neighbor = topology.getVertexEdge(vertex, slot);
+					if (neighbor == -1 || neighbor == edge) continue;
+					
+					Road road = roadsById[neighbor];
+					if (road != null && player.equals(road.getOwner())) return true;
+				}
 			}
 		}
 		return false;
@@ -574,13 +667,11 @@ implements Serializable {
 	}
 	
 	public Municipality getMunicipalityAt(VertexLocation location) {
-		if (location.getDistanceFromCenter() > radius) {
+		int vertex = topology.getVertexId(location);
+		if (vertex == -1) {
 			throw new IndexOutOfBoundsException();
 		}
-		if (municipalities.containsKey(location)) {
-			return municipalities.get(location);
-		}
-		else return null;
+		return townsById[vertex];
 	}
 	
 	/** Tells you if the given location is a valid place for the given player to build a settlement.
@@ -590,28 +681,47 @@ implements Serializable {
 	 * @return true if the given location is a valid place for the player to build a settlement
 	 */
 	public boolean canBuildSettlement(PlayerReference player, VertexLocation location) {
-		if (location.getDistanceFromCenter() > radius) {
+		int vertex = topology.getVertexId(location);
+		if (vertex == -1) {
 			return false;
 		}
-		if (getMunicipalityAt(location) == null) { // spot is open
-			// Apply Distance Rule
-			for (VertexLocation neighbor : location.getNeighbors()) {
-				if (neighbor.getDistanceFromCenter() > radius) continue;
-				
-				Municipality town = getMunicipalityAt(neighbor);
-				if (town != null) return false;
-			}
-			// There must be one of your roads next to the vertex
-			for (EdgeLocation edge : location.getEdges()) {
-				if (edge.getDistanceFromCenter() > radius) continue;
-				
-				Road road = getRoadAt(edge);
-				if (road != null && player.equals(road.getOwner())) return true;
-			}
+		return canBuildSettlement(player, vertex);
+	}
+	
+	/**
+	 * @param vertex the id of the vertex in the board's topology
+	 */
+	boolean canBuildSettlement(PlayerReference player, int vertex) {
+		if (!isOpenForSettlement(vertex)) {
+			return false;
+		}
+		// There must be one of your roads next to the vertex
+		for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+			int edge = topology.getVertexEdge(vertex, slot);
+			if (edge == -1) continue;
+			
+			Road road = roadsById[edge];
+			if (road != null && player.equals(road.getOwner())) return true;
 		}
 		return false;
 	}
 	
+	/**
+	 * @return true if nothing is built on the vertex or next to it (Distance Rule)
+	 */
+	boolean isOpenForSettlement(int vertex) {
+		if (townsById[vertex] != null) {
+			return false;
+		}
+		for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+			int edge = topology.getVertexEdge(vertex, slot);
+			if (edge == -1) continue;
+			
+			if (townsById[topology.traverse(vertex, edge)] != null) return false;
+		}
+		return true;
+	}
+	
 	/** Tells you if the given location is a valid place for the given player to build a city.
 	 * This does NOT check resource requirements!
 	 * @param player
@@ -620,9 +730,17 @@ implements Serializable {
 	 * @return false otherwise.
 	 */
 	public boolean canBuildCity(PlayerReference player, VertexLocation location) {
-		if (location.getDistanceFromCenter() > radius) return false;
+		int vertex = topology.getVertexId(location);
+		if (vertex == -1) return false;
 		
-		Municipality town = getMunicipalityAt(location);
+		return canBuildCity(player, vertex);
+	}
+	
+	/**
+	 * @param vertex the id of the vertex in the board's topology
+	 */
+	boolean canBuildCity(PlayerReference player, int vertex) {
+		Municipality town = townsById[vertex];
 		if (town == null) return false; // no settlement at that location
 		return (town.getType() == MunicipalityType.SETTLEMENT
 				&& player.equals(town.getOwner()));
@@ -634,25 +752,17 @@ implements Serializable {
 	 * @return
 	 */
 	public boolean canPlaceStartingPieces(VertexLocation settlement, EdgeLocation road) {
-		// The road must be next to the settlement
-		if (!road.getVertices().contains(settlement)) return false;
 		// Needs to be on the board
-		if (road.getDistanceFromCenter() > radius) return false;
-		if (settlement.getDistanceFromCenter() > radius) return false;
+		int edge = topology.getEdgeId(road);
+		int vertex = topology.getVertexId(settlement);
+		if (edge == -1 || vertex == -1) return false;
+		// The road must be next to the settlement
+		if (topology.getEdgeVertex(edge, 0) != vertex
+				&& topology.getEdgeVertex(edge, 1) != vertex) return false;
 		// There must not be a road at the location
-		if (getRoadAt(road) != null) return false;
+		if (roadsById[edge] != null) return false;
 		
-		if (getMunicipalityAt(settlement) == null) { // spot is open
-			// Apply Distance Rule
-			for (VertexLocation neighbor : settlement.getNeighbors()) {
-				if (neighbor.getDistanceFromCenter() > radius) continue;
-				
-				Municipality town = getMunicipalityAt(neighbor);
-				if (town != null) return false;
-			}
-			return true;
-		}
-		return false;
+		return isOpenForSettlement(vertex);
 	}
 	
 	/** Tells if the location is a valid location for a starting settlement
@@ -661,18 +771,10 @@ implements Serializable {
 	 * @return
 	 */
 	public boolean canPlaceStartingSettlement(VertexLocation settlement) {
-		if (settlement.getDistanceFromCenter() > radius) return false;
+		int vertex = topology.getVertexId(settlement);
+		if (vertex == -1) return false;
 		
-		if (getMunicipalityAt(settlement) == null) { // spot is open
-			// Apply Distance Rule
-			for (VertexLocation neighbor : settlement.getNeighbors()) {
-				if (neighbor.getDistanceFromCenter() > radius) continue;
-				Municipality town = getMunicipalityAt(neighbor);
-				if (town != null) return false;
-			}
-			return true;
-		}
-		return false;
+		return isOpenForSettlement(vertex);
 	}
 
 	/** This gives the radius that is needed by the HexGrid constructor.
@@ -688,6 +790,14 @@ implements Serializable {
 	public HexLocation getRobberLocation() {
 		return robber;
 	}
+
+	/**
+	 * @return how many times a piece has been placed, upgraded or moved since
+	 * the board was made or loaded. While it stays the same, so does the board.
+	 */
+	public int getChanges() {
+		return changes;
+	}
 	
 	public boolean canMoveRobberTo(HexLocation location) {
 		if (location.equals(robber)) {
@@ -708,6 +818,10 @@ implements Serializable {
 			throw new InvalidActionException("The robber cannot be moved there.");
 		}
 		robber = location;
+		++changes;
+		if (production != null) {
+			production.robberMoved(topology.getHexId(location));
+		}
 	}
 	
 	public Map<EdgeLocation, Port> getPortMap() {
@@ -724,10 +838,14 @@ implements Serializable {
 	
 	void setRoads(Map<EdgeLocation, Road> roads) {
 		this.roads = roads;
+		indexRoads();
+		++changes;
 	}
 
 	void setMunicipalities(Map<VertexLocation, Municipality> municipalities) {
 		this.municipalities = municipalities;
+		indexMunicipalities();
+		++changes;
 	}
 
 	/** Asks if 2 roads can be built, one after the other.
@@ -755,9 +873,13 @@ implements Serializable {
 	}
 
 	public Collection<Municipality> getMunicipalitiesAround(HexLocation hex) {
+		int id = topology.getHexId(hex);
+		if (id == -1) {
+			throw new IndexOutOfBoundsException();
+		}
 		Collection<Municipality> result = new ArrayList<>();
-		for (VertexLocation loc : hex.getVertices()) {
-			Municipality town = getMunicipalityAt(loc);
+		for (int slot = 0; slot < BoardTopology.VERTICES_PER_HEX; ++slot) {
+			Municipality town = townsById[topology.getHexVertex(id, slot)];
 			if (town != null) {
 				result.add(town);
 			}
@@ -770,7 +892,17 @@ implements Serializable {
 			throw new InvalidActionException();
 		}
 
-		roads.put(loc, new Road(loc, player));
+		Road road = new Road(loc, player);
+		roads.put(loc, road);
+		int edge = topology.getEdgeId(loc);
+		roadsById[edge] = road;
+		++changes;
+		if (roadNetwork != null) {
+			roadNetwork.addRoad(loc, player);
+		}
+		if (placements != null) {
+			placements.roadBuilt(edge);
+		}
 	}
 
 	void placeStartingPieces(PlayerReference player,
@@ -779,10 +911,24 @@ implements Serializable {
 			throw new InvalidActionException();
 		}
 
-		municipalities.put(settlement, 
-				new Municipality(settlement, MunicipalityType.SETTLEMENT, player));
-		roads.put(road, new Road(road, player));
-		
+		Municipality town = new Municipality(settlement, MunicipalityType.SETTLEMENT, player);
+		municipalities.put(settlement, town);
+		townsById[topology.getVertexId(settlement)] = town;
+		Road newRoad = new Road(road, player);
+		roads.put(road, newRoad);
+		roadsById[topology.getEdgeId(road)] = newRoad;
+		++changes;
+		if (roadNetwork != null) {
+			roadNetwork.addTown(settlement, player);
+			roadNetwork.addRoad(road, player);
+		}
+		if (placements != null) {
+			placements.townBuilt(topology.getVertexId(settlement));
+			placements.roadBuilt(topology.getEdgeId(road));
+		}
+		if (production != null) {
+			production.townChanged(topology.getVertexId(settlement));
+		}
 	}
 
 	void buildSettlement(PlayerReference player, VertexLocation loc) throws InvalidActionException {
@@ -790,9 +936,20 @@ implements Serializable {
 			throw new InvalidActionException();
 		}
 
-		municipalities.put(loc, 
-				new Municipality(loc, MunicipalityType.SETTLEMENT, player));
-		
+		Municipality town = new Municipality(loc, MunicipalityType.SETTLEMENT, player);
+		municipalities.put(loc, town);
+		int vertex = topology.getVertexId(loc);
+		townsById[vertex] = town;
+		++changes;
+		if (roadNetwork != null) {
+			roadNetwork.addTown(loc, player);
+		}
+		if (placements != null) {
+			placements.townBuilt(vertex);
+		}
+		if (production != null) {
+			production.townChanged(vertex);
+		}
 	}
 
 	void upgradeSettlementAt(PlayerReference player, VertexLocation loc) throws InvalidActionException {
@@ -807,6 +964,14 @@ implements Serializable {
 		
 		if (town.getOwner().equals(player)) {
 			town.upgrade();
+			++changes;
+			int vertex = topology.getVertexId(loc);
+			if (placements != null) {
+				placements.townUpgraded(vertex);
+			}
+			if (production != null) {
+				production.townChanged(vertex);
+			}
 		}
 		else {
 			throw new InvalidActionException("The settlement at the given location is" +
@@ -814,96 +979,90 @@ implements Serializable {
 		}
 	}
 	
+	/** Gives the length of the player's longest road. Other players' municipalities
+	 * cut a road in two.
+	 * @param player
+	 * @return the number of roads in the player's longest continuous road
+	 */
 	public int lengthOfLongestRoute(PlayerReference player) {
-		int best = 0;
-		
-		// TODO Testing!
-		
-		// Reduce to a graph problem
-		Set<EdgeLocation> ownedRoads = getRoadsOwnedByPlayer(player);
-		
-		// Used to give priority to nodes that are likely to be endpoints of a path
-		//Set<VertexLocation> nodes = new HashSet<>(); // 0, 1, 2, 3
-		@SuppressWarnings("unchecked") // I can't figure out another way
-		// to initialize this without errors.
-		Set<VertexLocation>[] nodesByEdgeCounts = new Set[4]; // 0, 1, 2, 3
-		
-		for (int i=0; i<4; ++i) {
-			nodesByEdgeCounts[i] = new HashSet<>();
-		}
-		
-		// Get the nodes of the graph
-		for (EdgeLocation roadLoc : ownedRoads) {
-			for (VertexLocation node : roadLoc.getVertices()) {
-				int count = 0;
-				for (EdgeLocation edge : node.getEdges()) {
-					if (edge.getDistanceFromCenter() > radius) continue;
-					
-					Road road = getRoadAt(edge);
-					if (road == null) continue;
-					
-					if (road.getOwner().equals(player)) {
-						++count;
-					}
-				}
-				nodesByEdgeCounts[count].add(node);
-			}
+		if (roadNetwork == null) {
+			roadNetwork = new RoadNetwork(topology, roads, municipalities);
 		}
-		
-		
-		// This will be used later to significantly reduce combinatorial explosion.
-		Set<EdgeLocation> unvisited = new HashSet<>(ownedRoads);
-		
-		for (int i : new int[]{1, 3, 2}) {
-			Set<VertexLocation> nodes = nodesByEdgeCounts[i];
-			for (VertexLocation node : nodes) {
-				List<EdgeLocation> path = dfsPath(node, ownedRoads, new ArrayList<EdgeLocation>(), player);
-				
-				if (path.size() > best) {
-					best = path.size();
-				}
-				unvisited.removeAll(path);
-			}
-		}
-		
-		return best;
+		return roadNetwork.lengthOfLongestRoute(player);
 	}
 	
-	private List<EdgeLocation> dfsPath(VertexLocation node,
-			Set<EdgeLocation> edges, List<EdgeLocation> visitedEdges,
-			PlayerReference player) {
-		// enemies cut up roads
-		Municipality town = getMunicipalityAt(node);
-		if (town != null &&
-			!town.getOwner().equals(player)) {
-			return visitedEdges; // you can't go farther
+	/**
+	 * @return the ids used by the getLegal methods
+	 */
+	public BoardTopology getTopology() {
+		return topology;
+	}
+	
+	private BoardPlacements placements() {
+		if (placements == null) {
+			placements = new BoardPlacements(this, topology);
 		}
-		
-		List<EdgeLocation> best = visitedEdges;
-		for (EdgeLocation edge : node.getEdges()) {
-			if (edges.contains(edge) && !visitedEdges.contains(edge)) {
-				List<EdgeLocation> visited = new ArrayList<>(visitedEdges);
-				visited.add(edge);
-				List<EdgeLocation> path = dfsPath(node.traverse(edge), edges, visited, player);
-				if (path.size() > best.size()) {
-					best = path;
-				}
-			}
+		return placements;
+	}
+	
+	/** Gives every edge where canBuildRoadAt is true for the player.
+	 * This does NOT check resource requirements!
+	 * @param player
+	 * @return the ids of the edges in the board's topology
+	 */
+	public BitSet getLegalRoads(PlayerReference player) {
+		return placements().getRoads(player);
+	}
+	
+	/** Gives every vertex where canBuildSettlement is true for the player.
+	 * This does NOT check resource requirements!
+	 * @param player
+	 * @return the ids of the vertices in the board's topology
+	 */
+	public BitSet getLegalSettlements(PlayerReference player) {
+		return placements().getSettlements(player);
+	}
+	
+	/** Gives every vertex where canBuildCity is true for the player.
+	 * This does NOT check resource requirements!
+	 * @param player
+	 * @return the ids of the vertices in the board's topology
+	 */
+	public BitSet getLegalCities(PlayerReference player) {
+		return placements().getCities(player);
+	}
+	
+	/** Gives every vertex where canPlaceStartingSettlement is true
+	 * @return the ids of the vertices in the board's topology
+	 */
+	public BitSet getLegalStartingSettlements() {
+		return placements().getStartingSettlements();
+	}
+	
+	/** Gives what a roll pays out from the hexes with that number, leaving
+	 * out the hex the robber is on
+	 * @param roll
+	 * @return the payouts, valid until the board next changes
+	 */
+	ProductionIndex.Payouts getPayouts(int roll) {
+		if (production == null) {
+			production = new ProductionIndex(topology, hexesById, townsById,
+					topology.getHexId(robber));
 		}
-		
-		return best;
+		return production.getPayouts(roll);
 	}
-
-	private Set<EdgeLocation> getRoadsOwnedByPlayer(
-			PlayerReference player) {
-		Set<EdgeLocation> result = new HashSet<>();
-		
-		for (Map.Entry<EdgeLocation, Road> roadEntry : roads.entrySet()) {
-			if (roadEntry.getValue().getOwner().equals(player)) {
-				result.add(roadEntry.getKey());
+	
+	/** Gives every hex where canMoveRobberTo is true
+	 * @return the ids of the hexes in the board's topology
+	 */
+	public BitSet getLegalRobberHexes() {
+		BitSet result = new BitSet(hexesById.length);
+		int current = topology.getHexId(robber);
+		for (int hex = 0; hex < hexesById.length; ++hex) {
+			if (hex != current && hexesById[hex].getResource() != null) {
+				result.set(hex);
 			}
 		}
-		
 		return result;
 	}
 
@@ -0,0 +1,229 @@
+package shared.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import shared.definitions.MunicipalityType;
+import shared.locations.EdgeDirection;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexDirection;
+import shared.locations.VertexLocation;
+
+public class BoardIndexTest {
+
+	private static final int GAMES = 20;
+	private static final int MOVES = 60;
+	private static final int RADIUS = 2;
+
+	private PlayerReference[] players;
+	private List<HexLocation> hexes;
+	private List<EdgeLocation> edges;
+	private List<VertexLocation> vertices;
+
+	// Every name of every edge and vertex on the board, and a ring of
+	// hexes, edges and vertices off it.
+	@Before
+	public void setUp() throws Exception {
+		players = new PlayerReference[4];
+		for (int i = 0; i < players.length; ++i) {
+			players[i] = PlayerReference.getDummyPlayerReference(i);
+		}
+		hexes = new ArrayList<>();
+		edges = new ArrayList<>();
+		vertices = new ArrayList<>();
+		for (HexLocation hex : HexLocation.locationsWithinRadius(RADIUS + 1)) {
+			hexes.add(hex);
+			for (EdgeDirection direction : EdgeDirection.values()) {
+				edges.add(new EdgeLocation(hex, direction));
+			}
+			for (VertexDirection direction : VertexDirection.values()) {
+				vertices.add(new VertexLocation(hex, direction));
+			}
+		}
+	}
+
+	// Plays random legal placements and checks Board's id-indexed lookups
+	// and predicates against the map-based versions they replaced.
+	@Test
+	public void testMatchesMaps() throws Exception {
+		RandomPlacements placements = new RandomPlacements(2024);
+		for (int game = 0; game < GAMES; ++game) {
+			Board board = new Board(true, true, true);
+			for (int move = 0; move < MOVES; ++move) {
+				PlayerReference player = players[placements.nextInt(players.length)];
+				int choice = placements.nextInt(8);
+				if (choice == 0) {
+					placements.upgradeSettlement(board, player);
+				}
+				else if (choice < 3) {
+					placements.placeSettlement(board, player);
+				}
+				else {
+					placements.placeRoad(board, player);
+				}
+				assertMatchesMaps(board);
+			}
+		}
+	}
+
+	private void assertMatchesMaps(Board board) {
+		Map<EdgeLocation, Road> roads = board.getRoadMap();
+		Map<VertexLocation, Municipality> towns = board.getMunicipalityMap();
+		Map<EdgeLocation, Port> ports = board.getPortMap();
+
+		for (HexLocation hex : hexes) {
+			if (hex.getDistanceFromCenter() > RADIUS) {
+				assertOffBoard(board, hex);
+				continue;
+			}
+			assertEquals(hex, board.getHexAt(hex).getLocation());
+			Set<VertexLocation> around = new HashSet<>();
+			for (Municipality town : board.getMunicipalitiesAround(hex)) {
+				around.add(town.getLocation());
+			}
+			Set<VertexLocation> expected = new HashSet<>();
+			for (VertexLocation vertex : hex.getVertices()) {
+				if (towns.containsKey(vertex)) {
+					expected.add(vertex);
+				}
+			}
+			assertEquals(expected, around);
+		}
+
+		for (EdgeLocation edge : edges) {
+			boolean onBoard = edge.getDistanceFromCenter() <= RADIUS;
+			if (onBoard) {
+				assertSame(roads.get(edge), board.getRoadAt(edge));
+				assertSame(ports.get(edge), board.getPortAt(edge));
+			}
+			for (PlayerReference player : players) {
+				assertEquals(edge.toString(), canBuildRoadAt(roads, towns, player, edge),
+						board.canBuildRoadAt(player, edge));
+			}
+			for (VertexLocation vertex : edge.getVertices()) {
+				assertEquals(canPlaceStartingPieces(roads, towns, vertex, edge),
+						board.canPlaceStartingPieces(vertex, edge));
+			}
+		}
+
+		for (VertexLocation vertex : vertices) {
+			if (vertex.getDistanceFromCenter() <= RADIUS) {
+				assertSame(towns.get(vertex), board.getMunicipalityAt(vertex));
+				assertSame(portAt(ports, vertex), board.getPortAt(vertex));
+			}
+			assertEquals(canPlaceStartingSettlement(towns, vertex),
+					board.canPlaceStartingSettlement(vertex));
+			for (PlayerReference player : players) {
+				assertEquals(vertex.toString(), canBuildSettlement(roads, towns, player, vertex),
+						board.canBuildSettlement(player, vertex));
+				assertEquals(canBuildCity(towns, player, vertex),
+						board.canBuildCity(player, vertex));
+			}
+		}
+	}
+
+	private static void assertOffBoard(Board board, HexLocation hex) {
+		try {
+			board.getHexAt(hex);
+			fail("Found a hex off the board at " + hex);
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+		try {
+			board.getMunicipalitiesAround(hex);
+			fail("Found towns off the board at " + hex);
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	// What follows is how Board answered these before it kept its pieces
+	// in arrays indexed by BoardTopology.
+
+	private static Port portAt(Map<EdgeLocation, Port> ports, VertexLocation vertex) {
+		for (EdgeLocation edge : vertex.getEdges()) {
+			if (ports.containsKey(edge)) {
+				return ports.get(edge);
+			}
+		}
+		return null;
+	}
+
+	private static boolean canBuildRoadAt(Map<EdgeLocation, Road> roads,
+			Map<VertexLocation, Municipality> towns,
+			PlayerReference player, EdgeLocation location) {
+		if (location.getDistanceFromCenter() > RADIUS) return false;
+		if (roads.containsKey(location)) return false;
+		for (EdgeLocation neighbor : location.getNeighbors()) {
+			if (neighbor.getDistanceFromCenter() > RADIUS) continue;
+
+			Road road = roads.get(neighbor);
+			if (road != null && player.equals(road.getOwner())) {
+				Municipality town = towns.get(neighbor.getVertexBetween(location));
+				if (town != null && !player.equals(town.getOwner())) {
+					continue;
+				}
+				return true;
+			}
+		}
+		for (VertexLocation vertex : location.getVertices()) {
+			if (vertex.getDistanceFromCenter() > RADIUS) continue;
+
+			Municipality town = towns.get(vertex);
+			if (town != null && player.equals(town.getOwner())) return true;
+		}
+		return false;
+	}
+
+	private static boolean canBuildSettlement(Map<EdgeLocation, Road> roads,
+			Map<VertexLocation, Municipality> towns,
+			PlayerReference player, VertexLocation location) {
+		if (!canPlaceStartingSettlement(towns, location)) return false;
+		for (EdgeLocation edge : location.getEdges()) {
+			if (edge.getDistanceFromCenter() > RADIUS) continue;
+
+			Road road = roads.get(edge);
+			if (road != null && player.equals(road.getOwner())) return true;
+		}
+		return false;
+	}
+
+	private static boolean canBuildCity(Map<VertexLocation, Municipality> towns,
+			PlayerReference player, VertexLocation location) {
+		if (location.getDistanceFromCenter() > RADIUS) return false;
+
+		Municipality town = towns.get(location);
+		return town != null && town.getType() == MunicipalityType.SETTLEMENT
+				&& player.equals(town.getOwner());
+	}
+
+	private static boolean canPlaceStartingPieces(Map<EdgeLocation, Road> roads,
+			Map<VertexLocation, Municipality> towns,
+			VertexLocation settlement, EdgeLocation road) {
+		if (!road.getVertices().contains(settlement)) return false;
+		if (road.getDistanceFromCenter() > RADIUS) return false;
+		if (roads.containsKey(road)) return false;
+		return canPlaceStartingSettlement(towns, settlement);
+	}
+
+	private static boolean canPlaceStartingSettlement(Map<VertexLocation, Municipality> towns,
+			VertexLocation settlement) {
+		if (settlement.getDistanceFromCenter() > RADIUS) return false;
+		if (towns.containsKey(settlement)) return false;
+		for (VertexLocation neighbor : settlement.getNeighbors()) {
+			if (neighbor.getDistanceFromCenter() > RADIUS) continue;
+			if (towns.containsKey(neighbor)) return false;
+		}
+		return true;
+	}
+
+}
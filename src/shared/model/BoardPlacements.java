@@ -0,0 +1,130 @@
+package shared.model;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the set of legal road, settlement and city locations of each
+ * player, by their ids in the board's topology. A player's sets are found
+ * by checking the whole board the first time they are asked for. After
+ * that, each new piece only rechecks the edges and vertices next to it.
+ * @author Jordan
+ *
+ */
+class BoardPlacements {
+
+	private static class Legal {
+		final BitSet roads;
+		final BitSet settlements;
+		final BitSet cities;
+
+		Legal(BoardTopology topology) {
+			roads = new BitSet(topology.getEdgeCount());
+			settlements = new BitSet(topology.getVertexCount());
+			cities = new BitSet(topology.getVertexCount());
+		}
+	}
+
+	private final Board board;
+	private final BoardTopology topology;
+
+	// Vertices no municipality is on or next to
+	private final BitSet open;
+	private final Map<PlayerReference, Legal> players = new HashMap<>();
+
+	BoardPlacements(Board board, BoardTopology topology) {
+		this.board = board;
+		this.topology = topology;
+		open = new BitSet(topology.getVertexCount());
+		for (int vertex = 0; vertex < topology.getVertexCount(); ++vertex) {
+			open.set(vertex, board.isOpenForSettlement(vertex));
+		}
+	}
+
+	private Legal legal(PlayerReference player) {
+		Legal legal = players.get(player);
+		if (legal == null) {
+			legal = new Legal(topology);
+			for (int edge = 0; edge < topology.getEdgeCount(); ++edge) {
+				legal.roads.set(edge, board.canBuildRoadAt(player, edge));
+			}
+			for (int vertex = 0; vertex < topology.getVertexCount(); ++vertex) {
+				legal.settlements.set(vertex, board.canBuildSettlement(player, vertex));
+				legal.cities.set(vertex, board.canBuildCity(player, vertex));
+			}
+			players.put(player, legal);
+		}
+		return legal;
+	}
+
+	BitSet getRoads(PlayerReference player) {
+		return (BitSet) legal(player).roads.clone();
+	}
+
+	BitSet getSettlements(PlayerReference player) {
+		return (BitSet) legal(player).settlements.clone();
+	}
+
+	BitSet getCities(PlayerReference player) {
+		return (BitSet) legal(player).cities.clone();
+	}
+
+	BitSet getStartingSettlements() {
+		return (BitSet) open.clone();
+	}
+
+	/**
+	 * A road takes its edge, and may open up the edges and the vertices at
+	 * either end of it
+	 */
+	void roadBuilt(int edge) {
+		for (int end = 0; end < 2; ++end) {
+			int vertex = topology.getEdgeVertex(edge, end);
+			checkVertex(vertex);
+			checkEdgesAt(vertex);
+		}
+	}
+
+	/**
+	 * A municipality closes its vertex and the ones next to it, and blocks
+	 * or opens up the edges at it
+	 */
+	void townBuilt(int vertex) {
+		open.clear(vertex);
+		checkVertex(vertex);
+		checkEdgesAt(vertex);
+		for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+			int edge = topology.getVertexEdge(vertex, slot);
+			if (edge == -1) continue;
+
+			int neighbor = topology.traverse(vertex, edge);
+			open.clear(neighbor);
+			checkVertex(neighbor);
+		}
+	}
+
+	void townUpgraded(int vertex) {
+		checkVertex(vertex);
+	}
+
+	private void checkVertex(int vertex) {
+		for (Map.Entry<PlayerReference, Legal> player : players.entrySet()) {
+			Legal legal = player.getValue();
+			legal.settlements.set(vertex, board.canBuildSettlement(player.getKey(), vertex));
+			legal.cities.set(vertex, board.canBuildCity(player.getKey(), vertex));
+		}
+	}
+
+	private void checkEdgesAt(int vertex) {
+		for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+			int edge = topology.getVertexEdge(vertex, slot);
+			if (edge == -1) continue;
+
+			for (Map.Entry<PlayerReference, Legal> player : players.entrySet()) {
+				player.getValue().roads.set(edge, board.canBuildRoadAt(player.getKey(), edge));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,326 @@
+package shared.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import shared.locations.EdgeDirection;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexDirection;
+import shared.locations.VertexLocation;
+
+/**
+ * The shape of a board of a given radius: every hex, edge and vertex on it
+ * gets a dense int id, and how they connect is kept in int arrays. Ids are
+ * looked up from locations by their coordinates, without building any
+ * normalized locations. Topologies never change, so there is one per
+ * radius, shared by every board.
+ * @author Jordan
+ *
+ */
+public class BoardTopology {
+
+	/**
+	 * The most edges that can meet at a vertex
+	 */
+	public static final int EDGES_PER_VERTEX = 3;
+
+	/**
+	 * The most hexes that can touch a vertex
+	 */
+	public static final int HEXES_PER_VERTEX = 3;
+
+	public static final int VERTICES_PER_HEX = 6;
+
+	private static final Map<Integer, BoardTopology> topologies = new ConcurrentHashMap<>();
+
+	/**
+	 * @param radius the radius of the board, not counting water hexes
+	 * @return the topology of a board of that radius
+	 */
+	public static BoardTopology forRadius(int radius) {
+		BoardTopology topology = topologies.get(radius);
+		if (topology == null) {
+			topology = new BoardTopology(radius);
+			topologies.put(radius, topology);
+		}
+		return topology;
+	}
+
+	private final int radius;
+
+	private final HexLocation[] hexes;
+	private final EdgeLocation[] edges;
+	private final VertexLocation[] vertices;
+
+	// Ids by coordinates. Normalized edges and vertices of the board sit
+	// on hexes at most span away from the center along either axis.
+	private final int span;
+	private final int width;
+	private final int[] hexCells;
+	// 3 per cell, for NorthWest, North and NorthEast
+	private final int[] edgeCells;
+	// 2 per cell, for NorthWest and NorthEast
+	private final int[] vertexCells;
+
+	// The two vertices of edge e are at 2e and 2e+1
+	private final int[] edgeVertices;
+	// The edges of vertex v are at 3v..3v+2, padded with -1
+	private final int[] vertexEdges;
+	// The hexes of vertex v are at 3v..3v+2, padded with -1
+	private final int[] vertexHexes;
+	// The vertices of hex h are at 6h..6h+5, in VertexDirection order
+	private final int[] hexVertices;
+
+	private BoardTopology(int radius) {
+		this.radius = radius;
+		span = radius + 2;
+		width = span * 2 + 1;
+
+		List<HexLocation> hexList = new ArrayList<>();
+		for (HexLocation hex : HexLocation.locationsWithinRadius(radius)) {
+			hexList.add(hex);
+		}
+		hexes = hexList.toArray(new HexLocation[hexList.size()]);
+
+		Map<EdgeLocation, Integer> edgeIds = new HashMap<>();
+		List<EdgeLocation> edgeList = new ArrayList<>();
+		for (HexLocation hex : hexes) {
+			for (EdgeDirection dir : EdgeDirection.values()) {
+				EdgeLocation edge = new EdgeLocation(hex, dir).getNormalizedLocation();
+				if (!edgeIds.containsKey(edge)) {
+					edgeIds.put(edge, edgeList.size());
+					edgeList.add(edge);
+				}
+			}
+		}
+		edges = edgeList.toArray(new EdgeLocation[edgeList.size()]);
+
+		Map<VertexLocation, Integer> vertexIds = new HashMap<>();
+		List<VertexLocation> vertexList = new ArrayList<>();
+		edgeVertices = new int[edges.length * 2];
+		for (int e = 0; e < edges.length; ++e) {
+			int end = 0;
+			for (VertexLocation vertex : edges[e].getVertices()) {
+				vertex = vertex.getNormalizedLocation();
+				Integer id = vertexIds.get(vertex);
+				if (id == null) {
+					id = vertexList.size();
+					vertexIds.put(vertex, id);
+					vertexList.add(vertex);
+				}
+				edgeVertices[e * 2 + end++] = id;
+			}
+		}
+		vertices = vertexList.toArray(new VertexLocation[vertexList.size()]);
+
+		vertexEdges = new int[vertices.length * EDGES_PER_VERTEX];
+		Arrays.fill(vertexEdges, -1);
+		for (int e = 0; e < edges.length; ++e) {
+			for (int end = 0; end < 2; ++end) {
+				append(vertexEdges, edgeVertices[e * 2 + end] * EDGES_PER_VERTEX, e);
+			}
+		}
+
+		hexVertices = new int[hexes.length * VERTICES_PER_HEX];
+		vertexHexes = new int[vertices.length * HEXES_PER_VERTEX];
+		Arrays.fill(vertexHexes, -1);
+		for (int h = 0; h < hexes.length; ++h) {
+			for (VertexDirection dir : VertexDirection.values()) {
+				int v = vertexIds.get(new VertexLocation(hexes[h], dir).getNormalizedLocation());
+				hexVertices[h * VERTICES_PER_HEX + dir.ordinal()] = v;
+				append(vertexHexes, v * HEXES_PER_VERTEX, h);
+			}
+		}
+
+		hexCells = new int[width * width];
+		edgeCells = new int[width * width * 3];
+		vertexCells = new int[width * width * 2];
+		Arrays.fill(hexCells, -1);
+		Arrays.fill(edgeCells, -1);
+		Arrays.fill(vertexCells, -1);
+		for (int h = 0; h < hexes.length; ++h) {
+			hexCells[cell(hexes[h].getX(), hexes[h].getY())] = h;
+		}
+		for (int e = 0; e < edges.length; ++e) {
+			HexLocation hex = edges[e].getHexLoc();
+			edgeCells[cell(hex.getX(), hex.getY()) * 3 + edges[e].getDir().ordinal()] = e;
+		}
+		for (int v = 0; v < vertices.length; ++v) {
+			HexLocation hex = vertices[v].getHexLoc();
+			int corner = vertices[v].getDir() == VertexDirection.NorthWest ? 0 : 1;
+			vertexCells[cell(hex.getX(), hex.getY()) * 2 + corner] = v;
+		}
+	}
+
+	private static void append(int[] slots, int first, int value) {
+		int slot = first;
+		while (slots[slot] != -1) {
+			++slot;
+		}
+		slots[slot] = value;
+	}
+
+	/**
+	 * @return the index of the coordinates in the cell tables, or -1 if
+	 * nothing on the board is that far out
+	 */
+	private int cell(int x, int y) {
+		if (x < -span || x > span || y < -span || y > span) {
+			return -1;
+		}
+		return (x + span) * width + (y + span);
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	public int getHexCount() {
+		return hexes.length;
+	}
+
+	public int getEdgeCount() {
+		return edges.length;
+	}
+
+	public int getVertexCount() {
+		return vertices.length;
+	}
+
+	/**
+	 * @return the id of the hex, or -1 if it is not on the board
+	 */
+	public int getHexId(HexLocation hex) {
+		int cell = cell(hex.getX(), hex.getY());
+		return cell == -1 ? -1 : hexCells[cell];
+	}
+
+	/**
+	 * @return the id of the edge, or -1 if it is not on the board
+	 */
+	public int getEdgeId(EdgeLocation edge) {
+		int x = edge.getHexLoc().getX();
+		int y = edge.getHexLoc().getY();
+		int dir;
+		// Same as EdgeLocation.getNormalizedLocation
+		switch (edge.getDir()) {
+		case NorthWest: dir = 0; break;
+		case North:     dir = 1; break;
+		case NorthEast: dir = 2; break;
+		case SouthEast: x += 1;         dir = 0; break;
+		case South:             y += 1; dir = 1; break;
+		case SouthWest: x -= 1; y += 1; dir = 2; break;
+		default:
+			assert false;
+			return -1;
+		}
+		int cell = cell(x, y);
+		return cell == -1 ? -1 : edgeCells[cell * 3 + dir];
+	}
+
+	/**
+	 * @return the id of the vertex, or -1 if it is not on the board
+	 */
+	public int getVertexId(VertexLocation vertex) {
+		int x = vertex.getHexLoc().getX();
+		int y = vertex.getHexLoc().getY();
+		int corner;
+		// Same as VertexLocation.getNormalizedLocation
+		switch (vertex.getDir()) {
+		case NorthWest: corner = 0; break;
+		case NorthEast: corner = 1; break;
+		case West:      x -= 1; y += 1; corner = 1; break;
+		case SouthWest:         y += 1; corner = 0; break;
+		case SouthEast:         y += 1; corner = 1; break;
+		case East:      x += 1;         corner = 0; break;
+		default:
+			assert false;
+			return -1;
+		}
+		int cell = cell(x, y);
+		return cell == -1 ? -1 : vertexCells[cell * 2 + corner];
+	}
+
+	public HexLocation getHex(int hex) {
+		return hexes[hex];
+	}
+
+	/**
+	 * @return the normalized location of the edge
+	 */
+	public EdgeLocation getEdge(int edge) {
+		return edges[edge];
+	}
+
+	/**
+	 * @return the normalized location of the vertex
+	 */
+	public VertexLocation getVertex(int vertex) {
+		return vertices[vertex];
+	}
+
+	/**
+	 * @param edge the id of an edge
+	 * @param end 0 or 1
+	 * @return the id of one end of the edge
+	 */
+	public int getEdgeVertex(int edge, int end) {
+		return edgeVertices[edge * 2 + end];
+	}
+
+	/**
+	 * @param vertex the id of a vertex
+	 * @param slot 0 to EDGES_PER_VERTEX - 1
+	 * @return the id of one of the edges of the vertex, or -1 if the
+	 * vertex is on the edge of the board and has fewer edges on it
+	 */
+	public int getVertexEdge(int vertex, int slot) {
+		return vertexEdges[vertex * EDGES_PER_VERTEX + slot];
+	}
+
+	/**
+	 * @param vertex the id of a vertex
+	 * @param slot 0 to HEXES_PER_VERTEX - 1
+	 * @return the id of one of the hexes touching the vertex, or -1 if the
+	 * vertex is on the edge of the board and touches fewer land hexes
+	 */
+	public int getVertexHex(int vertex, int slot) {
+		return vertexHexes[vertex * HEXES_PER_VERTEX + slot];
+	}
+
+	/**
+	 * @param hex the id of a hex
+	 * @param slot 0 to VERTICES_PER_HEX - 1
+	 * @return the id of one of the corners of the hex
+	 */
+	public int getHexVertex(int hex, int slot) {
+		return hexVertices[hex * VERTICES_PER_HEX + slot];
+	}
+
+	/**
+	 * @return the id of the other end of the edge
+	 */
+	public int traverse(int vertex, int edge) {
+		int end = edgeVertices[edge * 2];
+		return end == vertex ? edgeVertices[edge * 2 + 1] : end;
+	}
+
+	/**
+	 * @return the vertex both edges share, or -1 if they don't touch
+	 */
+	public int getVertexBetween(int edge, int other) {
+		for (int end = 0; end < 2; ++end) {
+			int vertex = edgeVertices[edge * 2 + end];
+			if (vertex == edgeVertices[other * 2] || vertex == edgeVertices[other * 2 + 1]) {
+				return vertex;
+			}
+		}
+		return -1;
+	}
+
+}
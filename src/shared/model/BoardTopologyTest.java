@@ -0,0 +1,64 @@
+package shared.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import shared.locations.EdgeDirection;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexDirection;
+import shared.locations.VertexLocation;
+
+public class BoardTopologyTest {
+
+	private BoardTopology topology;
+
+	@Before
+	public void setUp() throws Exception {
+		topology = BoardTopology.forRadius(2);
+	}
+
+	@Test
+	public void testTopology() {
+		assertEquals(72, topology.getEdgeCount());
+		assertEquals(54, topology.getVertexCount());
+		for (int e = 0; e < topology.getEdgeCount(); ++e) {
+			assertEquals(e, topology.getEdgeId(topology.getEdge(e)));
+			assertEquals(e, topology.getEdgeId(topology.getEdge(e).flip()));
+			for (int end = 0; end < 2; ++end) {
+				int v = topology.getEdgeVertex(e, end);
+				assertTrue(topology.getEdge(e).getVertices().contains(topology.getVertex(v)));
+				assertEquals(topology.getEdgeVertex(e, 1 - end), topology.traverse(v, e));
+			}
+		}
+		for (int v = 0; v < topology.getVertexCount(); ++v) {
+			assertEquals(v, topology.getVertexId(topology.getVertex(v)));
+		}
+		assertEquals(19, topology.getHexCount());
+		for (int h = 0; h < topology.getHexCount(); ++h) {
+			HexLocation hex = topology.getHex(h);
+			assertEquals(h, topology.getHexId(hex));
+			// Every way of naming an edge or vertex finds the same id
+			for (EdgeDirection dir : EdgeDirection.values()) {
+				EdgeLocation edge = new EdgeLocation(hex, dir);
+				assertEquals(topology.getEdgeId(edge.getNormalizedLocation()), topology.getEdgeId(edge));
+			}
+			for (VertexDirection dir : VertexDirection.values()) {
+				int v = topology.getHexVertex(h, dir.ordinal());
+				assertEquals(v, topology.getVertexId(new VertexLocation(hex, dir)));
+				boolean found = false;
+				for (int slot = 0; slot < BoardTopology.HEXES_PER_VERTEX; ++slot) {
+					found |= topology.getVertexHex(v, slot) == h;
+				}
+				assertTrue(found);
+			}
+		}
+		assertEquals(-1, topology.getHexId(new HexLocation(3, 0)));
+		assertEquals(-1, topology.getEdgeId(new EdgeLocation(3, 0, EdgeDirection.SouthEast)));
+		assertEquals(-1, topology.getVertexId(new VertexLocation(3, 0, VertexDirection.East)));
+		assertEquals(-1, topology.getVertexId(new VertexLocation(20, 20, VertexDirection.East)));
+	}
+
+}
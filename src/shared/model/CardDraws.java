@@ -0,0 +1,64 @@
+package shared.model;
+
+import java.util.Random;
+
+/**
+ * The random source behind every random card draw (robbing, buying
+ * development cards). It is shared so that a whole run of games can be
+ * replayed by seeding it once. A thread may also be given its own seed, so
+ * that games played side by side on different threads can each be replayed.
+ * @author Jordan
+ *
+ */
+public class CardDraws {
+
+	private static volatile Random random = new Random();
+	private static final ThreadLocal<Random> threadRandom = new ThreadLocal<>();
+
+	private CardDraws() {
+
+	}
+
+	/**
+	 * Makes every draw from now on follow from the seed
+	 * @param seed
+	 */
+	public static void setSeed(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Makes every draw on the calling thread follow from the seed, until
+	 * clearThreadSeed is called
+	 * @param seed
+	 */
+	public static void setThreadSeed(long seed) {
+		threadRandom.set(new Random(seed));
+	}
+
+	/**
+	 * Makes draws on the calling thread use the shared random source again
+	 */
+	public static void clearThreadSeed() {
+		threadRandom.remove();
+	}
+
+	/** Picks a card at random, each card being as likely as any other
+	 * @param counts the number of cards of each type
+	 * @param total the sum of the counts
+	 * @return the index of the type picked
+	 * @pre total > 0
+	 */
+	static int draw(int[] counts, int total) {
+		assert total > 0;
+		Random source = threadRandom.get();
+		int card = (source != null ? source : random).nextInt(total);
+		int type = 0;
+		while (card >= counts[type]) {
+			card -= counts[type];
+			++type;
+		}
+		return type;
+	}
+
+}
@@ -1,5 +1,7 @@
 package shared.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 
@@ -7,6 +9,7 @@ import client.data.GameInfo;
 import shared.communication.GameHeader;
 import shared.communication.PlayerHeader;
 import shared.definitions.DevCardType;
+import shared.definitions.GameStatus;
 import shared.definitions.ResourceType;
 import shared.definitions.TurnStatus;
 import shared.exceptions.GameInitializationException;
@@ -78,6 +81,65 @@ public class CatanModel
 		largestArmy = null; //new PlayerReference(UUID.randomUUID(),-1);
 	}
 	
+	/** Makes an empty model for a stored game to be read into
+	 * @param id the game's UUID
+	 * @param title the game's title
+	 */
+	CatanModel(UUID id, String title) {
+		this.id = id;
+		this.title = title;
+		players = new ArrayList<Player>();
+		chat = new MessageList();
+		log = new MessageList();
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (turnTracker != null) {
+			turnTracker.setPlayerList(players);
+		}
+		bindPlayers();
+	}
+	
+	/** Binds a reference to this game's players, so that it finds its player
+	 * without looking it up by UUID
+	 * @param player a reference to one of this game's players, or null
+	 * @return the same reference
+	 */
+	public PlayerReference bind(PlayerReference player) {
+		if (player != null) {
+			player.bindTo(players);
+		}
+		return player;
+	}
+	
+	/** Binds both sides of a trade offer to this game's players
+	 * @param offer the offer, or null
+	 */
+	public void bind(TradeOffer offer) {
+		if (offer != null) {
+			bind(offer.getSender());
+			bind(offer.getReceiver());
+		}
+	}
+	
+	// Every reference the game holds
+	private void bindPlayers() {
+		bind(longestRoad);
+		bind(largestArmy);
+		bind(winner);
+		bind(tradeOffer);
+		if (turnTracker != null) {
+			bind(turnTracker.getCurrentPlayer());
+		}
+		for (Road road : map.getRoads()) {
+			bind(road.getOwner());
+		}
+		for (Municipality town : map.getMunicipalities()) {
+			bind(town.getOwner());
+		}
+	}
+	
 	public UUID getID() {
 		return id;
 	}
@@ -237,7 +299,18 @@ public class CatanModel
 		for (Player player : getPlayers()) {
 			players.add(player.getHeader());
 		}
-		return new GameHeader(title, id, players);
+		return new GameHeader(title, id, players, getStatus(), version);
+	}
+
+	/**
+	 * @return Finished once someone has won, Playing once every player has
+	 * joined, and Waiting before that
+	 */
+	public GameStatus getStatus() {
+		if (winner != null) {
+			return GameStatus.Finished;
+		}
+		return ready() ? GameStatus.Playing : GameStatus.Waiting;
 	}
 
 	public void setHeader(GameInfo info) {
@@ -463,16 +536,14 @@ public class CatanModel
 		assert roll >= 2 && roll <= 12;
 		
 		// Give resources to the appropriate players
+		// The robber's hex is already left out of the payouts
 		ResourceList resBank = bank.getResources();
-		for (Hex hex : map.getHexesByNumber(roll)) {
-			if (!map.getRobberLocation().equals(hex.getLocation())) { // Check for the robber
-				for (Municipality town : map.getMunicipalitiesAround(hex.getLocation())) {
-					resBank.transferAtMost(town.getOwner().getPlayer().getResources(),
-							hex.getResource(), town.getIncome());
-				}
-				// Note that you may not get your full amount, which is expected behavior
-				// Who gets resources first is currently undefined.
-			}
+		ProductionIndex.Payouts payouts = map.getPayouts(roll);
+		for (int entry = 0; entry < payouts.size(); ++entry) {
+			resBank.transferAtMost(payouts.getOwner(entry).getHand(),
+					payouts.getResource(entry), payouts.getAmount(entry));
+			// Note that you may not get your full amount, which is expected behavior
+			// Who gets resources first is currently undefined.
 		}
 		
 		// Change the status of the game
@@ -492,7 +563,8 @@ public class CatanModel
 		assert isTurn(player);
 		assert map.canMoveRobberTo(loc);
 		assert !player.equals(victim);
-		assert turnTracker.getStatus() == TurnStatus.Robbing;
+		// A soldier moves the robber in the middle of a turn
+		assert isSoldierCard || turnTracker.getStatus() == TurnStatus.Robbing;
 		
 		if (victim != null && victim.getPlayerUUID() != null) {
 			boolean valid = false;
@@ -1,17 +1,24 @@
 package shared.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 import org.json.simple.JSONObject;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
 import shared.definitions.DevCardType;
-import shared.definitions.ResourceType;
 import shared.exceptions.InsufficientResourcesException;
 import shared.exceptions.InvalidActionException;
 import shared.exceptions.SchemaMismatchException;
@@ -19,21 +26,30 @@ import shared.exceptions.SchemaMismatchException;
 /**
  * Manages the development cards that a player or the bank has.
  * Amounts must be non-negative
+ * <p>
+ * Counts are kept in an int array indexed by DevCardType ordinal. Java
+ * serialization and the model JSON still see the map of counts this class
+ * used to keep.
  */
+@JsonAdapter(DevCardList.GsonAdapter.class)
 public class DevCardList 
 implements Serializable {
 	private static final long serialVersionUID = -4295620160911054300L;
 	
-	private Map<DevCardType, Integer> cards;
+	private static final DevCardType[] TYPES = DevCardType.values();
+	
+	// Stored games hold a Map<DevCardType, Integer> named cards
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("cards", Map.class)
+	};
+	
+	private transient int[] cards = new int[TYPES.length];
 
 	/** Creates an empty DevCardList
 	 * 
 	 */
 	public DevCardList() {
-		cards = new HashMap<DevCardType, Integer>();
-		for (DevCardType type : DevCardType.values()) {
-			cards.put(type, 0);
-		}
+		
 	}
 	
 	public static DevCardList fromJSONObject(JSONObject json) throws SchemaMismatchException {
@@ -41,12 +57,11 @@ implements Serializable {
 			json = (JSONObject) json.get("cards");
 		}
 		DevCardList self = new DevCardList();
-		self.cards = new HashMap<>();
 		try {
-			for (DevCardType type : DevCardType.values()) {
+			for (DevCardType type : TYPES) {
 				String key = type.toString();
 				if (json.containsKey(key)) {
-					self.cards.put(type, (int) (long) json.get(key));
+					self.cards[type.ordinal()] = (int) (long) json.get(key);
 				}
 				else {
 					throw new SchemaMismatchException("A card count is missing from the " +
@@ -68,7 +83,9 @@ implements Serializable {
 	 * @throws IllegalArgumentException if any of the amounts are negative
 	 */
 	public DevCardList(Map<DevCardType, Integer> cards) throws IllegalArgumentException {
-		this.cards = new HashMap<>(cards);
+		for (Map.Entry<DevCardType, Integer> count : cards.entrySet()) {
+			this.cards[count.getKey().ordinal()] = count.getValue();
+		}
 	}
 	
 	/** Creates a DevCardList with specified amounts of things
@@ -80,15 +97,34 @@ implements Serializable {
 	 * @throws IllegalArgumentException if any of parameters are negative
 	 */
 	public DevCardList(int soldiers, int special, int monuments) throws IllegalArgumentException {
-		cards = new HashMap<DevCardType, Integer>();
-		for (DevCardType type : DevCardType.values()) {
-			String cardName = type.toString().toLowerCase();
-			if (cardName == "soldier")
-				cards.put(DevCardType.SOLDIER, soldiers);
-			else if (cardName == "monuments")
-				cards.put(type, monuments);
-			else
-				cards.put(type, special);
+		Arrays.fill(cards, special);
+		cards[DevCardType.SOLDIER.ordinal()] = soldiers;
+		cards[DevCardType.MONUMENT.ordinal()] = monuments;
+	}
+
+	/** Creates a DevCardList from counts indexed by DevCardType ordinal
+	 * @param counts the counts, which the list keeps
+	 */
+	DevCardList(int[] counts) {
+		assert counts.length == TYPES.length;
+		cards = counts;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("cards", new HashMap<>(getCards()));
+		out.writeFields();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		Map<DevCardType, Integer> counts = (Map<DevCardType, Integer>) fields.get("cards", null);
+		cards = new int[TYPES.length];
+		if (counts != null) {
+			for (Map.Entry<DevCardType, Integer> count : counts.entrySet()) {
+				cards[count.getKey().ordinal()] = count.getValue();
+			}
 		}
 	}
 	
@@ -99,7 +135,7 @@ implements Serializable {
 	 */
 	public int count() {
 		int total = 0;
-		for (int count : cards.values()) {
+		for (int count : cards) {
 			total += count;
 		}
 		return total;
@@ -112,12 +148,18 @@ implements Serializable {
 	 * @post none
 	 */
 	public int count(DevCardType type) {
-		if (cards.containsKey(type)) {
-			return cards.get(type);
-		}
-		else {
-			return 0;
+		return cards[type.ordinal()];
+	}
+	
+	/**
+	 * @return a copy of the counts, with every type in it
+	 */
+	public Map<DevCardType, Integer> getCards() {
+		Map<DevCardType, Integer> counts = new EnumMap<>(DevCardType.class);
+		for (DevCardType type : TYPES) {
+			counts.put(type, cards[type.ordinal()]);
 		}
+		return counts;
 	}
 	
 	/** Transfers a card from this DevCardList to another
@@ -129,9 +171,10 @@ implements Serializable {
 	 * @throws InvalidActionException if there isn't a card of the type to transfer
 	 */
 	private void transferCardTo(DevCardList destination, DevCardType type, int amount) throws InvalidActionException {
-		if (count(type) < amount) throw new InsufficientResourcesException();
-		this.cards.put(type, this.cards.get(type) - amount);
-		destination.cards.put(type, destination.count(type) + amount);
+		int index = type.ordinal();
+		if (cards[index] < amount) throw new InsufficientResourcesException();
+		cards[index] -= amount;
+		destination.cards[index] += amount;
 	}
 	
 	/** Transfers a card from this DevCardList to another
@@ -156,32 +199,24 @@ implements Serializable {
 	 * @throws InvalidActionException if there are no cards in this DevCardList
 	 */
 	public void transferRandomCardTo(DevCardList destination) throws InvalidActionException {
-		List<DevCardType> choices = new ArrayList<>();
-		for (Map.Entry<DevCardType, Integer> cards : this.cards.entrySet()) {
-			for (int i=0; i<cards.getValue(); ++i) {
-				choices.add(cards.getKey());
-			}
-		}
-		DevCardType card = choices.get(new Random().nextInt(choices.size()));
-		try {
-			transferCardTo(destination, card);
-		} catch (InvalidActionException e) {
-			assert false;
-			// This should NEVER happen.
+		int total = count();
+		if (total == 0) {
+			throw new InsufficientResourcesException();
 		}
+		int index = CardDraws.draw(cards, total);
+		--cards[index];
+		++destination.cards[index];
 	}
 	
-	/** Transfers a random card from this DevCardList to another, with a uniform
-	 * distribution based on counts
+	/** Transfers every card from this DevCardList to another
 	 * @param destination the DevCardList to transfer to
-	 * @pre count() >= 1
-	 * @post the count of the randomly determined type will be decreased on this 
-	 * DevCardList and increased on the destination DevCardList
-	 * @throws InvalidActionException if there are no cards in this DevCardList
+	 * @post this DevCardList is empty, and the destination has all of its cards
+	 * added to its own
 	 */
 	public void transferAll(DevCardList destination) throws InvalidActionException {
-		for (Map.Entry<DevCardType, Integer> cards : this.cards.entrySet()) {
-			transferCardTo(destination, cards.getKey(), cards.getValue());
+		for (int index = 0; index < cards.length; ++index) {
+			destination.cards[index] += cards[index];
+			cards[index] = 0;
 		}
 	}
 	
@@ -196,14 +231,14 @@ implements Serializable {
 			throw new InvalidActionException();
 		}
 		
-		this.cards.put(type, this.cards.get(type) - 1);
+		--cards[type.ordinal()];
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((cards == null) ? 0 : cards.hashCode());
+		result = prime * result + Arrays.hashCode(cards);
 		return result;
 	}
 
@@ -216,12 +251,7 @@ implements Serializable {
 		if (getClass() != obj.getClass())
 			return false;
 		DevCardList other = (DevCardList) obj;
-		if (cards == null) {
-			if (other.cards != null)
-				return false;
-		} else if (!cards.equals(other.cards))
-			return false;
-		return true;
+		return Arrays.equals(cards, other.cards);
 	}
 
 	/* (non-Javadoc)
@@ -229,8 +259,51 @@ implements Serializable {
 	 */
 	@Override
 	public String toString() {
-		return "DevCardList [cards=" + cards + "]";
+		return "DevCardList [cards=" + getCards() + "]";
 	}
 	
+	/**
+	 * Writes the same JSON Gson wrote for the old map of counts
+	 */
+	public static class GsonAdapter extends TypeAdapter<DevCardList> {
+		@Override
+		public void write(JsonWriter out, DevCardList list) throws IOException {
+			if (list == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("cards");
+			out.beginObject();
+			for (DevCardType type : TYPES) {
+				out.name(type.toString()).value(list.cards[type.ordinal()]);
+			}
+			out.endObject();
+			out.endObject();
+		}
+
+		@Override
+		public DevCardList read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			DevCardList list = new DevCardList();
+			in.beginObject();
+			while (in.hasNext()) {
+				if (!in.nextName().equals("cards")) {
+					in.skipValue();
+					continue;
+				}
+				in.beginObject();
+				while (in.hasNext()) {
+					list.cards[DevCardType.fromString(in.nextName()).ordinal()] = in.nextInt();
+				}
+				in.endObject();
+			}
+			in.endObject();
+			return list;
+		}
+	}
 	
-}
\ No newline at end of file
+}
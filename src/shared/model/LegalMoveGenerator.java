@@ -0,0 +1,71 @@
+package shared.model;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import shared.definitions.ResourceType;
+
+/**
+ * Finds every legal placement, robber move and maritime trade of a player
+ * in one pass, instead of asking ModelFacade about one location at a time.
+ * Each set agrees with the matching ModelFacade check. The placements come
+ * from sets the Board keeps up to date as pieces are built.
+ * @author Jordan
+ *
+ */
+public class LegalMoveGenerator {
+
+	private final ModelFacade facade;
+
+	public LegalMoveGenerator(ModelFacade facade) {
+		this.facade = facade;
+	}
+
+	/**
+	 * @param player
+	 * @return
+	 * <ul>
+	 * <li>roads: where canBuildRoad(player, edge) is true</li>
+	 * <li>settlements: where the board allows the player a settlement,
+	 * if they can pay for one</li>
+	 * <li>cities: where canBuildCity(player, vertex) is true</li>
+	 * <li>starting settlements: where canBuildStartingSettlement(vertex) is true</li>
+	 * <li>robber hexes: where canMoveRobberTo(hex) is true</li>
+	 * <li>maritime trades: where canMaritimeTrade(player, from, to) is true</li>
+	 * </ul>
+	 */
+	public LegalMoves getLegalMoves(PlayerReference player) {
+		synchronized (facade) {
+			CatanModel model = facade.getCatanModel();
+			Board map = model.getMap();
+			Player owner = player.getPlayer();
+			boolean isTurn = model.isTurn(player);
+
+			BitSet roads = owner.canBuildRoad() ? map.getLegalRoads(player) : new BitSet();
+			BitSet settlements = owner.canBuildSettlement() ?
+					map.getLegalSettlements(player) : new BitSet();
+			BitSet cities = isTurn && owner.canBuildCity() ?
+					map.getLegalCities(player) : new BitSet();
+
+			BitSet trades = new BitSet();
+			if (isTurn) {
+				Map<ResourceType, Integer> ratios = model.getMaritimeRatios(player);
+				ResourceList hand = owner.getResources();
+				ResourceList bank = model.getBank().getResources();
+				for (ResourceType from : ResourceType.values()) {
+					if (hand.count(from) < ratios.get(from)) continue;
+
+					for (ResourceType to : ResourceType.values()) {
+						if (bank.count(to) >= 1) {
+							trades.set(LegalMoves.tradeIndex(from, to));
+						}
+					}
+				}
+			}
+
+			return new LegalMoves(map.getTopology(), roads, settlements, cities,
+					map.getLegalStartingSettlements(), map.getLegalRobberHexes(), trades);
+		}
+	}
+
+}
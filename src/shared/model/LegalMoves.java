@@ -0,0 +1,151 @@
+package shared.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import shared.definitions.ResourceType;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexLocation;
+
+/**
+ * Everything a player could legally do with the board and the bank at one
+ * moment, as made by LegalMoveGenerator. Locations are kept as bitsets over
+ * their ids in the board's topology.
+ * @author Jordan
+ *
+ */
+public class LegalMoves {
+
+	private static final int RESOURCES = ResourceType.values().length;
+
+	private final BoardTopology topology;
+	private final BitSet roads;
+	private final BitSet settlements;
+	private final BitSet cities;
+	private final BitSet startingSettlements;
+	private final BitSet robberHexes;
+	// Bit from * RESOURCES + to
+	private final BitSet maritimeTrades;
+
+	LegalMoves(BoardTopology topology, BitSet roads, BitSet settlements, BitSet cities,
+			BitSet startingSettlements, BitSet robberHexes, BitSet maritimeTrades) {
+		this.topology = topology;
+		this.roads = roads;
+		this.settlements = settlements;
+		this.cities = cities;
+		this.startingSettlements = startingSettlements;
+		this.robberHexes = robberHexes;
+		this.maritimeTrades = maritimeTrades;
+	}
+
+	static int tradeIndex(ResourceType from, ResourceType to) {
+		return from.ordinal() * RESOURCES + to.ordinal();
+	}
+
+	public BoardTopology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * @return the ids of the edges the player can build a road on
+	 */
+	public BitSet getRoads() {
+		return (BitSet) roads.clone();
+	}
+
+	/**
+	 * @return the ids of the vertices the player can build a settlement on
+	 */
+	public BitSet getSettlements() {
+		return (BitSet) settlements.clone();
+	}
+
+	/**
+	 * @return the ids of the vertices the player can build a city on
+	 */
+	public BitSet getCities() {
+		return (BitSet) cities.clone();
+	}
+
+	/**
+	 * @return the ids of the vertices a starting settlement can be placed on
+	 */
+	public BitSet getStartingSettlements() {
+		return (BitSet) startingSettlements.clone();
+	}
+
+	/**
+	 * @return the ids of the hexes the robber can be moved to
+	 */
+	public BitSet getRobberHexes() {
+		return (BitSet) robberHexes.clone();
+	}
+
+	public boolean canBuildRoad(EdgeLocation location) {
+		int edge = topology.getEdgeId(location);
+		return edge != -1 && roads.get(edge);
+	}
+
+	public boolean canBuildSettlement(VertexLocation location) {
+		int vertex = topology.getVertexId(location);
+		return vertex != -1 && settlements.get(vertex);
+	}
+
+	public boolean canBuildCity(VertexLocation location) {
+		int vertex = topology.getVertexId(location);
+		return vertex != -1 && cities.get(vertex);
+	}
+
+	public boolean canPlaceStartingSettlement(VertexLocation location) {
+		int vertex = topology.getVertexId(location);
+		return vertex != -1 && startingSettlements.get(vertex);
+	}
+
+	public boolean canMoveRobberTo(HexLocation location) {
+		int hex = topology.getHexId(location);
+		return hex != -1 && robberHexes.get(hex);
+	}
+
+	public boolean canMaritimeTrade(ResourceType from, ResourceType to) {
+		return maritimeTrades.get(tradeIndex(from, to));
+	}
+
+	public List<EdgeLocation> getRoadLocations() {
+		List<EdgeLocation> result = new ArrayList<>();
+		for (int e = roads.nextSetBit(0); e >= 0; e = roads.nextSetBit(e + 1)) {
+			result.add(topology.getEdge(e));
+		}
+		return result;
+	}
+
+	public List<VertexLocation> getSettlementLocations() {
+		return vertices(settlements);
+	}
+
+	public List<VertexLocation> getCityLocations() {
+		return vertices(cities);
+	}
+
+	public List<VertexLocation> getStartingSettlementLocations() {
+		return vertices(startingSettlements);
+	}
+
+	public List<HexLocation> getRobberLocations() {
+		List<HexLocation> result = new ArrayList<>();
+		for (int h = robberHexes.nextSetBit(0); h >= 0; h = robberHexes.nextSetBit(h + 1)) {
+			result.add(topology.getHex(h));
+		}
+		return result;
+	}
+
+	private List<VertexLocation> vertices(BitSet ids) {
+		List<VertexLocation> result = new ArrayList<>();
+		for (int v = ids.nextSetBit(0); v >= 0; v = ids.nextSetBit(v + 1)) {
+			result.add(topology.getVertex(v));
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,73 @@
+package shared.model;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LegalMovesTest {
+
+	private static final int GAMES = 100;
+	private static final int MOVES = 80;
+
+	private BoardTopology topology;
+	private PlayerReference[] players;
+
+	@Before
+	public void setUp() throws Exception {
+		topology = BoardTopology.forRadius(2);
+		players = new PlayerReference[4];
+		for (int i = 0; i < players.length; ++i) {
+			players[i] = PlayerReference.getDummyPlayerReference(i);
+		}
+	}
+
+	// The legal placement sets are kept up to date as pieces go down, so
+	// they are checked against Board's one-location checks after every
+	// random legal placement.
+	@Test
+	public void testLegalPlacementsMatchChecks() throws Exception {
+		RandomPlacements random = new RandomPlacements(4242);
+		for (int game = 0; game < GAMES; ++game) {
+			Board board = new Board();
+			int firstCheck = random.nextInt(MOVES);
+			for (int move = 0; move < MOVES; ++move) {
+				PlayerReference player = players[random.nextInt(players.length)];
+				int choice = random.nextInt(8);
+				if (choice == 0) {
+					random.upgradeSettlement(board, player);
+				}
+				else if (choice < 3) {
+					random.placeSettlement(board, player);
+				}
+				else {
+					random.placeRoad(board, player);
+				}
+				if (move < firstCheck) {
+					continue;
+				}
+				BitSet starting = board.getLegalStartingSettlements();
+				for (int v = 0; v < topology.getVertexCount(); ++v) {
+					assertEquals(board.canPlaceStartingSettlement(topology.getVertex(v)),
+							starting.get(v));
+				}
+				for (PlayerReference p : players) {
+					BitSet roads = board.getLegalRoads(p);
+					for (int e = 0; e < topology.getEdgeCount(); ++e) {
+						assertEquals(board.canBuildRoadAt(p, topology.getEdge(e)), roads.get(e));
+					}
+					BitSet settlements = board.getLegalSettlements(p);
+					BitSet cities = board.getLegalCities(p);
+					for (int v = 0; v < topology.getVertexCount(); ++v) {
+						assertEquals(board.canBuildSettlement(p, topology.getVertex(v)),
+								settlements.get(v));
+						assertEquals(board.canBuildCity(p, topology.getVertex(v)), cities.get(v));
+					}
+				}
+			}
+		}
+	}
+
+}
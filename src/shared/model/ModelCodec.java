@@ -0,0 +1,754 @@
+package shared.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import shared.communication.GameHeader;
+import shared.communication.PlayerHeader;
+import shared.definitions.CatanColor;
+import shared.definitions.DevCardType;
+import shared.definitions.GameStatus;
+import shared.definitions.MunicipalityType;
+import shared.definitions.ResourceType;
+import shared.definitions.TurnStatus;
+import shared.exceptions.SchemaMismatchException;
+import shared.locations.EdgeDirection;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexDirection;
+import shared.locations.VertexLocation;
+
+/**
+ * A compact binary encoding of a game, for storing it. An encoded game is
+ * the magic number "CTNM", the version of the format, the game's header
+ * and then the rest of the game:
+ * <ul>
+ * <li>header: id, title, model version, turn status, players (UUID, name,
+ * color, index) and winner, prefixed with its length so it can be read
+ * on its own</li>
+ * <li>the players' hands, cards, pieces and points</li>
+ * <li>the board: hexes, ports, roads, settlements and cities, robber</li>
+ * <li>the bank, the current player, the trade offer, longest road and
+ * largest army</li>
+ * <li>the chat and the log</li>
+ * </ul>
+ * Counts are varints, enums are their ordinal, hexes are their id in the
+ * board's topology and players are their index in the game. Edges and
+ * vertices are stored the way they were built, not normalized, so the
+ * game reads back exactly as it was. Each line of the chat and log that
+ * repeats an earlier one is stored as the earlier one's index. 40 turns
+ * into a game it takes about 2 KB, where Java serialization takes 10 KB.
+ * <br/>
+ * Games are read from a ByteBuffer, so a mapped file can be read in place,
+ * and the header can be read without building the rest of the game.
+ * <br/>
+ * The dice are not stored: a game read back rolls NormalDice.
+ * @author Jordan
+ *
+ */
+public class ModelCodec {
+
+	private static final byte[] MAGIC = {'C', 'T', 'N', 'M'};
+
+	/**
+	 * The version of the format this writes. Only ever add to the format:
+	 * bump the version, write new fields after the ones they follow, and
+	 * only read them from games whose version has them, using a default for
+	 * older games. Games written by a newer version are refused.
+	 */
+	public static final int VERSION = 1;
+
+	private static final ResourceType[] RESOURCES = ResourceType.values();
+	private static final DevCardType[] DEV_CARDS = DevCardType.values();
+	private static final CatanColor[] COLORS = CatanColor.values();
+	private static final TurnStatus[] STATUSES = TurnStatus.values();
+	private static final MunicipalityType[] TOWN_TYPES = MunicipalityType.values();
+	private static final EdgeDirection[] EDGE_DIRECTIONS = EdgeDirection.values();
+	private static final VertexDirection[] VERTEX_DIRECTIONS = VertexDirection.values();
+
+	// Player.flags
+	private static final int PLAYED_DEV_CARD = 1;
+	private static final int DISCARDED = 2;
+	private static final int ROLLED = 4;
+
+	private ModelCodec() {}
+
+	/**
+	 * @param bytes a stored game
+	 * @return true if it was written by this codec rather than Java
+	 * serialization
+	 */
+	public static boolean isEncoded(byte[] bytes) {
+		return isEncoded(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * @param buffer a stored game, from its position on
+	 * @return true if it was written by this codec rather than Java
+	 * serialization
+	 */
+	public static boolean isEncoded(ByteBuffer buffer) {
+		if (buffer.remaining() < MAGIC.length) {
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; ++i) {
+			if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param game the game
+	 * @return the encoded game
+	 * @pre nothing changes the game while it is encoded
+	 */
+	public static byte[] encode(ModelFacade game) {
+		return encode(game.getCatanModel());
+	}
+
+	/**
+	 * @param model the game
+	 * @return the encoded game
+	 * @pre nothing changes the game while it is encoded
+	 */
+	public static byte[] encode(CatanModel model) {
+		Map<UUID, Integer> players = new HashMap<>();
+		for (Player player : model.getPlayers()) {
+			players.put(player.getUUID(), players.size());
+		}
+		Output header = new Output(players);
+		writeHeader(header, model);
+
+		Output out = new Output(players);
+		for (byte b : MAGIC) {
+			out.write(b);
+		}
+		out.write(VERSION);
+		out.writeVarint(header.size());
+		out.write(header);
+		for (Player player : model.getPlayers()) {
+			writePlayer(out, player);
+		}
+		writeBoard(out, model.getMap());
+		writeResources(out, model.getBank().getResources());
+		writeDevCards(out, model.getBank().getDevCards());
+		if (model.getTurnTracker() != null) {
+			out.writePlayer(model.getTurnTracker().getCurrentPlayer());
+		}
+		writeTradeOffer(out, model.getTradeOffer());
+		out.writePlayer(model.getLongestRoad());
+		out.writePlayer(model.getLargestArmy());
+		writeMessages(out, model.getChat());
+		writeMessages(out, model.getLog());
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param bytes an encoded game
+	 * @return the game
+	 * @throws SchemaMismatchException if the bytes are not an encoded game
+	 */
+	public static ModelFacade decode(byte[] bytes) throws SchemaMismatchException {
+		return decode(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * @param buffer an encoded game, from its position on. The position of
+	 * the buffer is not changed.
+	 * @return the game
+	 * @throws SchemaMismatchException if the buffer does not hold an
+	 * encoded game
+	 */
+	public static ModelFacade decode(ByteBuffer buffer) throws SchemaMismatchException {
+		Input in = open(buffer);
+		try {
+			in.readVarint();
+			Header header = readHeader(in);
+			CatanModel model = new CatanModel(header.id, header.title);
+			List<Player> players = new ArrayList<>();
+			for (PlayerHeader player : header.players) {
+				players.add(readPlayer(in, player));
+			}
+			in.players = players;
+			model.setPlayers(players);
+			model.setMap(readBoard(in));
+			model.setBank(new Bank(readResources(in), readDevCards(in)));
+			if (header.status != null) {
+				TurnTracker turnTracker = new TurnTracker();
+				turnTracker.setPlayerList(players);
+				turnTracker.setCurrentPlayer(in.readPlayer());
+				turnTracker.setStatus(header.status);
+				model.setTurnTracker(turnTracker);
+			}
+			model.setTradeOffer(readTradeOffer(in));
+			model.setLongestRoad(in.readPlayer());
+			model.setLargestArmy(in.readPlayer());
+			model.setWinner(model.bind(header.winner));
+			model.setChat(readMessages(in));
+			model.setLog(readMessages(in));
+			model.setVersion(header.version);
+			return new ModelFacade(model);
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw damaged(e);
+		}
+	}
+
+	/**
+	 * Reads only the header of a game, skipping the rest
+	 * @param buffer an encoded game, from its position on. The position of
+	 * the buffer is not changed.
+	 * @return the game's header
+	 * @throws SchemaMismatchException if the buffer does not hold an
+	 * encoded game
+	 */
+	public static GameHeader decodeHeader(ByteBuffer buffer) throws SchemaMismatchException {
+		Input in = open(buffer);
+		try {
+			in.readVarint();
+			Header header = readHeader(in);
+			// Same as CatanModel.getStatus
+			GameStatus status;
+			if (header.winner != null) {
+				status = GameStatus.Finished;
+			}
+			else if (header.status != null && header.players.size() == 4) {
+				status = GameStatus.Playing;
+			}
+			else {
+				status = GameStatus.Waiting;
+			}
+			return new GameHeader(header.title, header.id, header.players, status, header.version);
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw damaged(e);
+		}
+	}
+
+	private static Input open(ByteBuffer buffer) throws SchemaMismatchException {
+		if (!isEncoded(buffer)) {
+			throw new SchemaMismatchException("The bytes are not an encoded game.");
+		}
+		Input in = new Input(buffer.duplicate());
+		in.buffer.position(in.buffer.position() + MAGIC.length);
+		try {
+			in.version = in.read();
+		}
+		catch (BufferUnderflowException e) {
+			throw damaged(e);
+		}
+		if (in.version < 1 || in.version > VERSION) {
+			throw new SchemaMismatchException("The game was encoded with version " + in.version +
+					" of the format; this reads versions up to " + VERSION + ".");
+		}
+		return in;
+	}
+
+	private static SchemaMismatchException damaged(RuntimeException cause) {
+		SchemaMismatchException e = new SchemaMismatchException("The encoded game is damaged.");
+		e.initCause(cause);
+		return e;
+	}
+
+	/**
+	 * What is stored in front of the rest of the game
+	 */
+	private static class Header {
+		UUID id;
+		String title;
+		int version;
+		TurnStatus status;
+		List<PlayerHeader> players;
+		PlayerReference winner;
+	}
+
+	private static void writeHeader(Output out, CatanModel model) {
+		out.writeUUID(model.getID());
+		out.writeString(model.getTitle());
+		out.writeVarint(model.getVersion());
+		TurnTracker turnTracker = model.getTurnTracker();
+		out.writeVarint(turnTracker == null ? 0 : turnTracker.getStatus().ordinal() + 1);
+		out.writeVarint(model.getPlayers().size());
+		for (Player player : model.getPlayers()) {
+			out.writeUUID(player.getUUID());
+			out.writeString(player.getName());
+			out.writeVarint(player.getColor() == null ? 0 : player.getColor().ordinal() + 1);
+			out.writeVarint(player.getPlayerIndex());
+		}
+		out.writePlayer(model.getWinner());
+	}
+
+	private static Header readHeader(Input in) {
+		Header header = new Header();
+		header.id = in.readUUID();
+		header.title = in.readString();
+		header.version = in.readVarint();
+		int status = in.readVarint();
+		header.status = status == 0 ? null : STATUSES[status - 1];
+		int count = in.readVarint();
+		header.players = new ArrayList<>();
+		for (int i = 0; i < count; ++i) {
+			UUID uuid = in.readUUID();
+			String name = in.readString();
+			int color = in.readVarint();
+			header.players.add(new PlayerHeader(color == 0 ? null : COLORS[color - 1],
+					name, uuid, in.readVarint()));
+		}
+		in.headers = header.players;
+		header.winner = in.readPlayer();
+		return header;
+	}
+
+	private static void writePlayer(Output out, Player player) {
+		writeResources(out, player.getResources());
+		writeDevCards(out, player.getNewDevCards());
+		writeDevCards(out, player.getOldDevCards());
+		int flags = 0;
+		if (player.hasPlayedDevCard()) {
+			flags |= PLAYED_DEV_CARD;
+		}
+		if (player.hasDiscarded()) {
+			flags |= DISCARDED;
+		}
+		if (player.hasRolled()) {
+			flags |= ROLLED;
+		}
+		out.write(flags);
+		out.writeVarint(player.getCities());
+		out.writeVarint(player.getSettlements());
+		out.writeVarint(player.getRoads());
+		out.writeVarint(player.getSoldiers());
+		out.writeVarint(player.getMonuments());
+		out.writeVarint(player.getVictoryPoints());
+	}
+
+	private static Player readPlayer(Input in, PlayerHeader header) {
+		ResourceList resources = readResources(in);
+		DevCardList newDevCards = readDevCards(in);
+		Player player = new Player(header, resources, newDevCards, readDevCards(in));
+		int flags = in.read();
+		player.setPlayedDevCard((flags & PLAYED_DEV_CARD) != 0);
+		player.setHasDiscarded((flags & DISCARDED) != 0);
+		player.setHasRolled((flags & ROLLED) != 0);
+		player.setCities(in.readVarint());
+		player.setSettlements(in.readVarint());
+		player.setRoads(in.readVarint());
+		player.setSoldiers(in.readVarint());
+		player.setMonuments(in.readVarint());
+		player.setVictoryPoints(in.readVarint());
+		return player;
+	}
+
+	private static void writeBoard(Output out, Board board) {
+		BoardTopology topology = board.getTopology();
+		out.writeVarint(topology.getRadius());
+
+		out.writeVarint(board.getHexes().size());
+		for (Hex hex : board.getHexes()) {
+			out.writeVarint(topology.getHexId(hex.getLocation()));
+			writeResourceType(out, hex.getResource());
+			out.writeSignedVarint(hex.getNumber());
+		}
+		// Ports are kept by the side of the edge they were placed on and face
+		// the other side, which the client draws
+		Map<EdgeLocation, Port> ports = board.getPortMap();
+		out.writeVarint(ports.size());
+		for (Map.Entry<EdgeLocation, Port> port : ports.entrySet()) {
+			writeEdge(out, port.getKey());
+			writeEdge(out, port.getValue().getLocation());
+			writeResourceType(out, port.getValue().getResource());
+			out.writeVarint(port.getValue().getRatio());
+		}
+		out.writeVarint(board.getRoads().size());
+		for (Road road : board.getRoads()) {
+			writeEdge(out, road.getLocation());
+			out.writePlayer(road.getOwner());
+		}
+		out.writeVarint(board.getMunicipalities().size());
+		for (Municipality town : board.getMunicipalities()) {
+			writeVertex(out, town.getLocation());
+			out.writeVarint(town.getType().ordinal());
+			out.writePlayer(town.getOwner());
+		}
+		HexLocation robber = board.getRobberLocation();
+		out.writeVarint(robber == null ? 0 : topology.getHexId(robber) + 1);
+	}
+
+	private static Board readBoard(Input in) {
+		int radius = in.readVarint();
+		BoardTopology topology = BoardTopology.forRadius(radius);
+
+		int count = in.readVarint();
+		Map<HexLocation, Hex> hexes = new HashMap<>();
+		for (int i = 0; i < count; ++i) {
+			HexLocation location = topology.getHex(in.readVarint());
+			ResourceType resource = readResourceType(in);
+			hexes.put(location, new Hex(location, resource, in.readSignedVarint()));
+		}
+		count = in.readVarint();
+		Map<EdgeLocation, Port> ports = new HashMap<>();
+		for (int i = 0; i < count; ++i) {
+			EdgeLocation key = readEdge(in);
+			EdgeLocation location = readEdge(in);
+			ResourceType resource = readResourceType(in);
+			ports.put(key, new Port(location, resource, in.readVarint()));
+		}
+		count = in.readVarint();
+		Map<EdgeLocation, Road> roads = new HashMap<>();
+		for (int i = 0; i < count; ++i) {
+			EdgeLocation location = readEdge(in);
+			roads.put(location, new Road(location, in.readPlayer()));
+		}
+		count = in.readVarint();
+		Map<VertexLocation, Municipality> towns = new HashMap<>();
+		for (int i = 0; i < count; ++i) {
+			VertexLocation location = readVertex(in);
+			MunicipalityType type = TOWN_TYPES[in.readVarint()];
+			towns.put(location, new Municipality(location, type, in.readPlayer()));
+		}
+		int robber = in.readVarint();
+		return new Board(radius, hexes, ports, roads, towns,
+				robber == 0 ? null : topology.getHex(robber - 1));
+	}
+
+	private static void writeEdge(Output out, EdgeLocation edge) {
+		out.writeSignedVarint(edge.getHexLoc().getX());
+		out.writeSignedVarint(edge.getHexLoc().getY());
+		out.writeVarint(edge.getDir().ordinal());
+	}
+
+	private static EdgeLocation readEdge(Input in) {
+		int x = in.readSignedVarint();
+		HexLocation hex = new HexLocation(x, in.readSignedVarint());
+		return new EdgeLocation(hex, EDGE_DIRECTIONS[in.readVarint()]);
+	}
+
+	private static void writeVertex(Output out, VertexLocation vertex) {
+		out.writeSignedVarint(vertex.getHexLoc().getX());
+		out.writeSignedVarint(vertex.getHexLoc().getY());
+		out.writeVarint(vertex.getDir().ordinal());
+	}
+
+	private static VertexLocation readVertex(Input in) {
+		int x = in.readSignedVarint();
+		HexLocation hex = new HexLocation(x, in.readSignedVarint());
+		return new VertexLocation(hex, VERTEX_DIRECTIONS[in.readVarint()]);
+	}
+
+	private static void writeResourceType(Output out, ResourceType type) {
+		out.writeVarint(type == null ? 0 : type.ordinal() + 1);
+	}
+
+	private static ResourceType readResourceType(Input in) {
+		int type = in.readVarint();
+		return type == 0 ? null : RESOURCES[type - 1];
+	}
+
+	private static void writeResources(Output out, ResourceList resources) {
+		for (ResourceType type : RESOURCES) {
+			out.writeVarint(resources.count(type));
+		}
+	}
+
+	private static ResourceList readResources(Input in) {
+		int[] counts = new int[RESOURCES.length];
+		for (int i = 0; i < counts.length; ++i) {
+			counts[i] = in.readVarint();
+		}
+		return new ResourceList(counts);
+	}
+
+	private static void writeDevCards(Output out, DevCardList cards) {
+		for (DevCardType type : DEV_CARDS) {
+			out.writeVarint(cards.count(type));
+		}
+	}
+
+	private static DevCardList readDevCards(Input in) {
+		int[] counts = new int[DEV_CARDS.length];
+		for (int i = 0; i < counts.length; ++i) {
+			counts[i] = in.readVarint();
+		}
+		return new DevCardList(counts);
+	}
+
+	private static void writeTradeOffer(Output out, TradeOffer offer) {
+		if (offer == null) {
+			out.write(0);
+			return;
+		}
+		out.write(1);
+		out.writePlayer(offer.getSender());
+		out.writePlayer(offer.getReceiver());
+		ResourceTradeList trade = offer.getOffer();
+		if (trade == null) {
+			out.write(0);
+			return;
+		}
+		out.write(1);
+		writeCounts(out, trade.offered);
+		writeCounts(out, trade.wanted);
+	}
+
+	private static TradeOffer readTradeOffer(Input in) {
+		if (in.read() == 0) {
+			return null;
+		}
+		PlayerReference sender = in.readPlayer();
+		PlayerReference receiver = in.readPlayer();
+		ResourceTradeList trade = null;
+		if (in.read() != 0) {
+			Map<ResourceType, Integer> offered = readCounts(in);
+			trade = new ResourceTradeList(offered, readCounts(in));
+		}
+		return new TradeOffer(sender, receiver, trade);
+	}
+
+	private static void writeCounts(Output out, Map<ResourceType, Integer> counts) {
+		if (counts == null) {
+			out.writeVarint(0);
+			return;
+		}
+		out.writeVarint(counts.size() + 1);
+		for (Map.Entry<ResourceType, Integer> count : counts.entrySet()) {
+			out.writeVarint(count.getKey().ordinal());
+			out.writeSignedVarint(count.getValue());
+		}
+	}
+
+	private static Map<ResourceType, Integer> readCounts(Input in) {
+		int size = in.readVarint() - 1;
+		if (size < 0) {
+			return null;
+		}
+		Map<ResourceType, Integer> counts = new HashMap<>();
+		for (int i = 0; i < size; ++i) {
+			ResourceType type = RESOURCES[in.readVarint()];
+			counts.put(type, in.readSignedVarint());
+		}
+		return counts;
+	}
+
+	private static void writeMessages(Output out, MessageList messages) {
+		List<String> sources = messages.getSource();
+		List<String> lines = messages.getMessage();
+		out.writeVarint(lines.size());
+		for (int i = 0; i < lines.size(); ++i) {
+			out.writeRepeatedString(sources.get(i));
+			out.writeRepeatedString(lines.get(i));
+		}
+	}
+
+	private static MessageList readMessages(Input in) {
+		MessageList messages = new MessageList();
+		int count = in.readVarint();
+		for (int i = 0; i < count; ++i) {
+			String source = in.readRepeatedString();
+			messages.add(source, in.readRepeatedString());
+		}
+		return messages;
+	}
+
+	/**
+	 * A growable byte buffer with varint writers. Players of the game are
+	 * written as their index plus one, 0 for none; a reference to anyone
+	 * else is written as one past the last index followed by the UUID.
+	 */
+	private static class Output {
+		private final Map<UUID, Integer> players;
+		private final Map<String, Integer> strings = new HashMap<>();
+		private byte[] buffer = new byte[1024];
+		private int size = 0;
+
+		Output(Map<UUID, Integer> players) {
+			this.players = players;
+		}
+
+		int size() {
+			return size;
+		}
+
+		void write(int b) {
+			if (size == buffer.length) {
+				buffer = Arrays.copyOf(buffer, size * 2);
+			}
+			buffer[size++] = (byte) b;
+		}
+
+		void write(Output other) {
+			for (int i = 0; i < other.size; ++i) {
+				write(other.buffer[i]);
+			}
+		}
+
+		void writeVarint(int value) {
+			while ((value & ~0x7f) != 0) {
+				write((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+
+		void writeSignedVarint(int value) {
+			// Zigzag, so small negative numbers stay small
+			writeVarint((value << 1) ^ (value >> 31));
+		}
+
+		void writeLong(long value) {
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				write((int) (value >>> shift));
+			}
+		}
+
+		void writeUUID(UUID uuid) {
+			writeLong(uuid.getMostSignificantBits());
+			writeLong(uuid.getLeastSignificantBits());
+		}
+
+		void writeString(String value) {
+			if (value == null) {
+				writeVarint(0);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length + 1);
+			for (byte b : bytes) {
+				write(b);
+			}
+		}
+
+		/**
+		 * Writes a string that is likely to have been written before, like
+		 * the lines of the log: 0 for null, 1 followed by the string the
+		 * first time, then its index among those strings plus 2
+		 */
+		void writeRepeatedString(String value) {
+			if (value == null) {
+				writeVarint(0);
+				return;
+			}
+			Integer index = strings.get(value);
+			if (index != null) {
+				writeVarint(index + 2);
+				return;
+			}
+			strings.put(value, strings.size());
+			writeVarint(1);
+			writeString(value);
+		}
+
+		void writePlayer(PlayerReference player) {
+			if (player == null) {
+				writeVarint(0);
+				return;
+			}
+			Integer index = players.get(player.getPlayerUUID());
+			if (index != null) {
+				writeVarint(index + 1);
+				return;
+			}
+			writeVarint(players.size() + 1);
+			writeUUID(player.getPlayerUUID());
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, size);
+		}
+	}
+
+	/**
+	 * Reads what Output wrote. Reading past the end throws a
+	 * BufferUnderflowException.
+	 */
+	private static class Input {
+		final ByteBuffer buffer;
+		int version;
+		// Who player references point to: the headers while the header is
+		// read, then the players
+		List<PlayerHeader> headers;
+		List<Player> players;
+		private final List<String> strings = new ArrayList<>();
+
+		Input(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		int read() {
+			return buffer.get() & 0xff;
+		}
+
+		int readVarint() {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = read();
+				value |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Varint is too long");
+		}
+
+		int readSignedVarint() {
+			int value = readVarint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		UUID readUUID() {
+			long most = buffer.getLong();
+			return new UUID(most, buffer.getLong());
+		}
+
+		String readString() {
+			int length = readVarint() - 1;
+			if (length < 0) {
+				return null;
+			}
+			if (length > buffer.remaining()) {
+				throw new BufferUnderflowException();
+			}
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		String readRepeatedString() {
+			int index = readVarint() - 2;
+			if (index == -2) {
+				return null;
+			}
+			if (index >= 0) {
+				return strings.get(index);
+			}
+			String value = readString();
+			strings.add(value);
+			return value;
+		}
+
+		PlayerReference readPlayer() {
+			int index = readVarint() - 1;
+			if (index < 0) {
+				return null;
+			}
+			if (players != null) {
+				if (index < players.size()) {
+					return new PlayerReference(players.get(index));
+				}
+			}
+			else if (index < headers.size()) {
+				return new PlayerReference(headers.get(index).getUUID(), index);
+			}
+			return new PlayerReference(readUUID());
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+package shared.model;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import server.DAOs.Checkpoint;
+import server.DAOs.DatabaseException;
+import server.simulation.BuilderPolicy;
+import server.simulation.GameSimulator;
+import shared.communication.GameHeader;
+import shared.exceptions.SchemaMismatchException;
+
+public class ModelCodecTest {
+
+	/** The seed and stages of the benchmark fixture games */
+	private static final long SEED = 42;
+	private static final int[] TURNS = {4, 40, 100};
+
+	private static final Gson gson = new Gson();
+
+	private List<ModelFacade> games;
+
+	@Before
+	public void setUp() throws Exception {
+		games = new ArrayList<>();
+		games.add(new ModelFacade());
+		GameSimulator simulator = new GameSimulator(new BuilderPolicy());
+		for (int turns : TURNS) {
+			games.add(simulator.playTo(SEED, turns));
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		for (ModelFacade game : games) {
+			byte[] encoded = ModelCodec.encode(game);
+			assertTrue(ModelCodec.isEncoded(encoded));
+			ModelFacade decoded = ModelCodec.decode(encoded);
+			assertEquals(json(game), json(decoded));
+			assertArrayEquals(encoded, ModelCodec.encode(decoded));
+		}
+	}
+
+	// Games are read straight out of a larger buffer, such as a mapped file
+	@Test
+	public void testDecodeFromBuffer() throws Exception {
+		ModelFacade game = games.get(games.size() - 1);
+		byte[] encoded = ModelCodec.encode(game);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length + 20);
+		buffer.position(7);
+		buffer.put(encoded);
+		buffer.position(7);
+		assertEquals(json(game), json(ModelCodec.decode(buffer)));
+	}
+
+	@Test
+	public void testDecodeHeader() throws Exception {
+		for (ModelFacade game : games) {
+			GameHeader expected = game.getGameHeader();
+			ByteBuffer buffer = ByteBuffer.wrap(ModelCodec.encode(game));
+			GameHeader header = ModelCodec.decodeHeader(buffer);
+			assertEquals(0, buffer.position());
+			assertEquals(expected.getUUID(), header.getUUID());
+			assertEquals(expected.getTitle(), header.getTitle());
+			assertEquals(expected.getVersion(), header.getVersion());
+			assertEquals(expected.getStatus(), header.getStatus());
+			assertEquals(gson.toJsonTree(expected.getPlayers()), gson.toJsonTree(header.getPlayers()));
+		}
+	}
+
+	// Checkpoints stored before the format: the Java-serialized game and
+	// the number of its next command
+	@Test
+	public void testReadsLegacyCheckpoint() throws Exception {
+		ModelFacade game = games.get(2);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(game);
+			out.writeLong(77);
+		}
+		assertFalse(ModelCodec.isEncoded(bytes.toByteArray()));
+		Checkpoint checkpoint = Checkpoint.read(bytes.toByteArray());
+		assertEquals(77, checkpoint.getSeq());
+		assertEquals(game.getUUID(), checkpoint.getHeader().getUUID());
+		assertEquals(json(game), json(checkpoint.getGame()));
+	}
+
+	@Test
+	public void testRefusesNewerVersion() throws Exception {
+		byte[] encoded = newerVersion(ModelCodec.encode(games.get(1)));
+		try {
+			ModelCodec.decode(encoded);
+			fail("Read a game from a newer version of the format");
+		} catch (SchemaMismatchException e) {
+		}
+		try {
+			ModelCodec.decodeHeader(ByteBuffer.wrap(encoded));
+			fail("Read a header from a newer version of the format");
+		} catch (SchemaMismatchException e) {
+		}
+	}
+
+	@Test(expected = DatabaseException.class)
+	public void testCheckpointRefusesNewerVersion() throws Exception {
+		Checkpoint.read(newerVersion(Checkpoint.of(games.get(1), 5).getBytes()));
+	}
+
+	@Test(expected = SchemaMismatchException.class)
+	public void testDamaged() throws Exception {
+		byte[] encoded = ModelCodec.encode(games.get(1));
+		ModelCodec.decode(Arrays.copyOf(encoded, encoded.length / 2));
+	}
+
+	private static byte[] newerVersion(byte[] encoded) {
+		byte[] newer = encoded.clone();
+		// The version follows the 4 byte magic number
+		assertEquals(ModelCodec.VERSION, newer[4]);
+		newer[4] = (byte) (ModelCodec.VERSION + 1);
+		return newer;
+	}
+
+	private static JsonElement json(ModelFacade game) {
+		return gson.toJsonTree(game.getCatanModel());
+	}
+
+}
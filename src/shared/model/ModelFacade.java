@@ -582,6 +582,14 @@ implements Serializable {
 		return model.getVersion();
 	}
 
+	/** Puts back a model saved earlier, e.g. to undo a group of moves that
+	 * could not all be made
+	 * @param saved a copy of this game's model
+	 */
+	public synchronized void restore(CatanModel saved) {
+		model = saved;
+	}
+
 	public synchronized boolean canBuild2Roads(EdgeLocation first, EdgeLocation second) {
 		Board map = model.getMap();
 		PlayerReference currentPlayer = getCurrentPlayer();
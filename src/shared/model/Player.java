@@ -1,9 +1,13 @@
 package shared.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.json.simple.JSONObject;
 
@@ -25,8 +29,20 @@ public class Player
 implements Serializable {
 	private static final long serialVersionUID = 6674063652886019203L;
 
-	// Table for retrieving players by UUID
-	private static Map<UUID, Player> playerTable = new HashMap<>();
+	// Players by UUID, for PlayerReferences that are not bound to a game.
+	// Players are only weakly held, so a game's players are dropped from
+	// the table once nothing uses the game anymore.
+	private static final Map<UUID, TableEntry> playerTable = new ConcurrentHashMap<>();
+	private static final ReferenceQueue<Player> droppedPlayers = new ReferenceQueue<>();
+	
+	private static class TableEntry extends WeakReference<Player> {
+		final UUID uuid;
+		
+		TableEntry(Player player) {
+			super(player, droppedPlayers);
+			uuid = player.uuid;
+		}
+	}
 	
 	// Meta-information
 	private UUID uuid; // For PlayerReferences
@@ -66,8 +82,20 @@ implements Serializable {
 		return UUID.nameUUIDFromBytes(data);
 	}
 	
-	public static void registerPlayer(Player player) {
-		playerTable.put(player.getUUID(), player);
+	private static void register(Player player) {
+		TableEntry dropped;
+		while ((dropped = (TableEntry) droppedPlayers.poll()) != null) {
+			playerTable.remove(dropped.uuid, dropped);
+		}
+		playerTable.put(player.uuid, new TableEntry(player));
+	}
+	
+	private static Player lookUp(UUID uuid) {
+		if (uuid == null) {
+			return null;
+		}
+		TableEntry entry = playerTable.get(uuid);
+		return entry == null ? null : entry.get();
 	}
 	
 	private void setUUID(UUID uuid) {
@@ -75,7 +103,12 @@ implements Serializable {
 			uuid = UUID.randomUUID();
 		}
 		this.uuid = uuid;
-		playerTable.put(uuid, this);
+		register(this);
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		register(this);
 	}
 	
 	public Player(int index, String name, CatanColor color) {
@@ -96,8 +129,9 @@ implements Serializable {
 	
 	public Player(Session player, CatanColor color, int index) {
 		this(index);
-		if (playerTable.containsKey(player.getPlayerUUID())) {
-			this.playerIndex = playerTable.get(player.getPlayerUUID()).getPlayerIndex();
+		Player existing = lookUp(player.getPlayerUUID());
+		if (existing != null) {
+			this.playerIndex = existing.getPlayerIndex();
 		} else
 			playerIndex = index;
 		name = player.getUsername();
@@ -109,6 +143,23 @@ implements Serializable {
 		this(player, color, index);
 	}
 
+	/** Restores a player from a stored game
+	 * @param header who the player is
+	 * @param resources the player's hand, which the player keeps
+	 * @param newDevCards the cards bought this turn, which the player keeps
+	 * @param oldDevCards the playable cards, which the player keeps
+	 */
+	Player(PlayerHeader header, ResourceList resources, DevCardList newDevCards,
+			DevCardList oldDevCards) {
+		playerIndex = header.getIndex();
+		setUUID(header.getUUID());
+		name = header.getName();
+		color = header.getColor();
+		this.resources = resources;
+		this.newDevCards = newDevCards;
+		this.oldDevCards = oldDevCards;
+	}
+
 	public Player(JSONObject json) throws SchemaMismatchException {
 		
 		try {
@@ -158,13 +209,18 @@ implements Serializable {
 		return new PlayerReference(uuid,playerIndex);
 	}
 	
+	/** Finds a player in any game by UUID. PlayerReferences bound to their
+	 * game never need this.
+	 * @param uuid
+	 * @return the player
+	 * @throws IllegalArgumentException if no player in memory has the UUID
+	 */
 	public static Player getPlayerByUUID(UUID uuid) {
-		if (playerTable.containsKey(uuid)) {
-			return playerTable.get(uuid);
-		}
-		else {
-			throw new IllegalArgumentException("Unrecognized UUID: " + uuid.toString());
+		Player player = lookUp(uuid);
+		if (player == null) {
+			throw new IllegalArgumentException("Unrecognized UUID: " + uuid);
 		}
+		return player;
 	}
 	
 	public int getPlayerID() {
@@ -335,6 +391,14 @@ implements Serializable {
 		this.oldDevCards = devCards;
 	}
 
+	void setPlayedDevCard(boolean playedDevCard) {
+		this.playedDevCard = playedDevCard;
+	}
+
+	void setMonuments(int monuments) {
+		this.monuments = monuments;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
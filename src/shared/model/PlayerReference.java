@@ -7,6 +7,8 @@ import shared.definitions.CatanColor;
 
 /** Represents an immutable reference to a player in a game.
  * This class's purpose is to make JSON serialization easier.
+ * <p>A reference bound to its game (see CatanModel.bind) resolves straight to
+ * the game's own Player. Unbound references look the player up by UUID.</p>
  * @author Justin
  *
  */
@@ -19,11 +21,22 @@ implements Serializable {
 	private transient int playerIndex; // Cached
 	private UUID playerUUID;
 	private transient String playerUUIDString;
+	// Set once bound to the game the player is in
+	private transient Player player;
 	
 	public PlayerReference() {
 		
 	}
 	
+	/** Creates a reference already bound to the player
+	 * @param player
+	 */
+	PlayerReference(Player player) {
+		this.player = player;
+		playerUUID = player.getUUID();
+		playerIndex = player.getPlayerIndex();
+	}
+	
 	/** Old server compatible constructor
 	 * @param game
 	 * @param playerIndex
@@ -74,11 +87,29 @@ implements Serializable {
 	 * @return the player 'pointed' to by this PlayerReference
 	 */
 	public Player getPlayer() {
+		if (player != null) {
+			return player;
+		}
 		Player returnPlayer = Player.getPlayerByUUID(playerUUID);
 		playerIndex = returnPlayer.getPlayerIndex();
 		return returnPlayer;
 	}
 	
+	/** Makes this reference resolve to one of the given players from now on
+	 * @param players the players of the game this reference belongs to
+	 * @return false if none of the players is the one referred to
+	 */
+	boolean bindTo(List<Player> players) {
+		for (Player candidate : players) {
+			if (candidate.getUUID().equals(playerUUID)) {
+				player = candidate;
+				playerIndex = candidate.getPlayerIndex();
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/** Gets the turn index of the player this reference is pointing to
 	 * @return the turn index of the player
 	 */
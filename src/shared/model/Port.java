@@ -43,6 +43,12 @@ implements Serializable {
 		this.resource = resource;
 		ratio = (resource == null) ? 3 : 2;
 	}
+
+	Port(EdgeLocation location, ResourceType resource, int ratio) {
+		this.location = location;
+		this.resource = resource;
+		this.ratio = ratio;
+	}
 	
 	public Port(JSONObject json) throws SchemaMismatchException {
 		try {
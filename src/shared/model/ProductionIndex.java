@@ -0,0 +1,170 @@
+package shared.model;
+
+import shared.definitions.ResourceType;
+
+/**
+ * Keeps what every dice roll pays out, as a table of (player, resource,
+ * amount) per roll number. Each player gets one entry per resource, the
+ * total of every municipality they have on a producing hex. A roll's table
+ * is only rebuilt when a municipality or the robber on one of its hexes
+ * changes, so a roll is paid out by walking its arrays.
+ * @author Jordan
+ *
+ */
+class ProductionIndex {
+
+	private static final int MAX_ROLL = 12;
+
+	/**
+	 * What one roll number pays out. Entries 0 to size() - 1 are valid.
+	 */
+	static class Payouts {
+		private final PlayerReference[] owners;
+		private final ResourceType[] resources;
+		private final int[] amounts;
+		private int size;
+
+		private Payouts(int capacity) {
+			owners = new PlayerReference[capacity];
+			resources = new ResourceType[capacity];
+			amounts = new int[capacity];
+		}
+
+		int size() {
+			return size;
+		}
+
+		PlayerReference getOwner(int entry) {
+			return owners[entry];
+		}
+
+		ResourceType getResource(int entry) {
+			return resources[entry];
+		}
+
+		int getAmount(int entry) {
+			return amounts[entry];
+		}
+
+		private void add(PlayerReference owner, ResourceType resource, int amount) {
+			for (int entry = 0; entry < size; ++entry) {
+				if (resources[entry] == resource && owners[entry].equals(owner)) {
+					amounts[entry] += amount;
+					return;
+				}
+			}
+			owners[size] = owner;
+			resources[size] = resource;
+			amounts[size] = amount;
+			++size;
+		}
+	}
+
+	private static final Payouts NOTHING = new Payouts(0);
+
+	private final BoardTopology topology;
+	private final Hex[] hexes;
+	private final Municipality[] towns;
+
+	// The ids of the hexes with each number
+	private final int[][] hexesByRoll;
+	private final Payouts[] payouts;
+	private int robber;
+
+	/**
+	 * @param hexes the board's hexes by id
+	 * @param towns the board's municipalities by id. These are read again
+	 * whenever a table is rebuilt, so the board must keep them up to date.
+	 * @param robber the id of the hex the robber is on
+	 */
+	ProductionIndex(BoardTopology topology, Hex[] hexes, Municipality[] towns, int robber) {
+		this.topology = topology;
+		this.hexes = hexes;
+		this.towns = towns;
+		this.robber = robber;
+
+		int[] counts = new int[MAX_ROLL + 1];
+		for (Hex hex : hexes) {
+			if (producesOn(hex)) {
+				++counts[hex.getNumber()];
+			}
+		}
+		hexesByRoll = new int[MAX_ROLL + 1][];
+		payouts = new Payouts[MAX_ROLL + 1];
+		for (int roll = 0; roll <= MAX_ROLL; ++roll) {
+			hexesByRoll[roll] = new int[counts[roll]];
+			payouts[roll] = new Payouts(counts[roll] * BoardTopology.VERTICES_PER_HEX);
+			counts[roll] = 0;
+		}
+		for (int hex = 0; hex < hexes.length; ++hex) {
+			if (producesOn(hexes[hex])) {
+				int roll = hexes[hex].getNumber();
+				hexesByRoll[roll][counts[roll]++] = hex;
+			}
+		}
+		for (int roll = 0; roll <= MAX_ROLL; ++roll) {
+			rebuild(roll);
+		}
+	}
+
+	private static boolean producesOn(Hex hex) {
+		return hex.getResource() != null && hex.getNumber() >= 0 && hex.getNumber() <= MAX_ROLL;
+	}
+
+	/**
+	 * @return what the roll pays out. Do not keep it past the next change
+	 * to the board.
+	 */
+	Payouts getPayouts(int roll) {
+		if (roll < 0 || roll > MAX_ROLL) {
+			return NOTHING;
+		}
+		return payouts[roll];
+	}
+
+	/**
+	 * A municipality was built or upgraded at the vertex
+	 */
+	void townChanged(int vertex) {
+		for (int slot = 0; slot < BoardTopology.HEXES_PER_VERTEX; ++slot) {
+			int hex = topology.getVertexHex(vertex, slot);
+			if (hex != -1) {
+				rebuildHex(hex);
+			}
+		}
+	}
+
+	void robberMoved(int hex) {
+		int old = robber;
+		robber = hex;
+		rebuildHex(old);
+		rebuildHex(hex);
+	}
+
+	private void rebuildHex(int hex) {
+		if (hex != -1 && producesOn(hexes[hex])) {
+			rebuild(hexes[hex].getNumber());
+		}
+	}
+
+	private void rebuild(int roll) {
+		Payouts table = payouts[roll];
+		table.size = 0;
+		for (int hex : hexesByRoll[roll]) {
+			if (hex == robber) continue;
+
+			ResourceType resource = hexes[hex].getResource();
+			for (int slot = 0; slot < BoardTopology.VERTICES_PER_HEX; ++slot) {
+				Municipality town = towns[topology.getHexVertex(hex, slot)];
+				if (town != null) {
+					table.add(town.getOwner(), resource, town.getIncome());
+				}
+			}
+		}
+		// Clear out entries left over from a bigger table
+		for (int entry = table.size; entry < table.owners.length; ++entry) {
+			table.owners[entry] = null;
+		}
+	}
+
+}
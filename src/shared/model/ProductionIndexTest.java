@@ -0,0 +1,86 @@
+package shared.model;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProductionIndexTest {
+
+	private static final int GAMES = 100;
+	private static final int MOVES = 80;
+
+	private PlayerReference[] players;
+
+	@Before
+	public void setUp() throws Exception {
+		players = new PlayerReference[4];
+		for (int i = 0; i < players.length; ++i) {
+			players[i] = PlayerReference.getDummyPlayerReference(i);
+		}
+	}
+
+	// The payout tables are rebuilt as towns go up and the robber moves, so
+	// they are checked against the hexes and towns around them after every
+	// random legal move.
+	@Test
+	public void testPayoutsMatchTowns() throws Exception {
+		RandomPlacements random = new RandomPlacements(99);
+		for (int game = 0; game < GAMES; ++game) {
+			Board board = new Board(true, true, false);
+			int firstCheck = random.nextInt(MOVES);
+			for (int move = 0; move < MOVES; ++move) {
+				PlayerReference player = players[random.nextInt(players.length)];
+				int choice = random.nextInt(8);
+				if (choice == 0) {
+					random.upgradeSettlement(board, player);
+				}
+				else if (choice == 1) {
+					random.moveRobber(board);
+				}
+				else if (choice < 4) {
+					random.placeSettlement(board, player);
+				}
+				else {
+					random.placeRoad(board, player);
+				}
+				if (move < firstCheck) {
+					continue;
+				}
+				for (int roll = 2; roll <= 12; ++roll) {
+					assertEquals(payoutsByTowns(board, roll), payoutsByIndex(board, roll));
+				}
+			}
+		}
+	}
+
+	private Map<String, Integer> payoutsByIndex(Board board, int roll) {
+		Map<String, Integer> result = new HashMap<>();
+		ProductionIndex.Payouts payouts = board.getPayouts(roll);
+		for (int entry = 0; entry < payouts.size(); ++entry) {
+			String key = payouts.getOwner(entry).getIndex() + " " + payouts.getResource(entry);
+			assertFalse(result.containsKey(key));
+			result.put(key, payouts.getAmount(entry));
+		}
+		return result;
+	}
+
+	// How CatanModel.roll found the payouts before ProductionIndex
+	private Map<String, Integer> payoutsByTowns(Board board, int roll) {
+		Map<String, Integer> result = new HashMap<>();
+		for (Hex hex : board.getHexesByNumber(roll)) {
+			if (board.getRobberLocation().equals(hex.getLocation())) continue;
+
+			for (Municipality town : board.getMunicipalitiesAround(hex.getLocation())) {
+				String key = town.getOwner().getIndex() + " " + hex.getResource();
+				Integer amount = result.get(key);
+				result.put(key, (amount == null ? 0 : amount) + town.getIncome());
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,105 @@
+package shared.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import shared.exceptions.InvalidActionException;
+import shared.locations.EdgeLocation;
+import shared.locations.HexLocation;
+import shared.locations.VertexLocation;
+
+/**
+ * Makes random legal placements on a board, for the tests that play
+ * seeded random games and check a cached structure after every move
+ */
+class RandomPlacements {
+
+	private final Random random;
+
+	RandomPlacements(long seed) {
+		random = new Random(seed);
+	}
+
+	int nextInt(int bound) {
+		return random.nextInt(bound);
+	}
+
+	/**
+	 * Builds a settlement for the player, or places its starting pieces if
+	 * it has nowhere to build one
+	 */
+	void placeSettlement(Board board, PlayerReference player) throws InvalidActionException {
+		BoardTopology topology = board.getTopology();
+		List<VertexLocation> options = new ArrayList<>();
+		for (int v = 0; v < topology.getVertexCount(); ++v) {
+			if (board.canBuildSettlement(player, topology.getVertex(v))) {
+				options.add(topology.getVertex(v));
+			}
+		}
+		if (!options.isEmpty()) {
+			board.buildSettlement(player, options.get(random.nextInt(options.size())));
+			return;
+		}
+		// The player has no roads yet
+		List<VertexLocation> starts = new ArrayList<>();
+		for (int v = 0; v < topology.getVertexCount(); ++v) {
+			if (board.canPlaceStartingSettlement(topology.getVertex(v))) {
+				starts.add(topology.getVertex(v));
+			}
+		}
+		if (starts.isEmpty()) {
+			return;
+		}
+		VertexLocation settlement = starts.get(random.nextInt(starts.size()));
+		for (EdgeLocation road : settlement.getEdges()) {
+			if (board.canPlaceStartingPieces(settlement, road)) {
+				board.placeStartingPieces(player, settlement, road);
+				return;
+			}
+		}
+	}
+
+	void upgradeSettlement(Board board, PlayerReference player) throws InvalidActionException {
+		BoardTopology topology = board.getTopology();
+		List<VertexLocation> options = new ArrayList<>();
+		for (int v = 0; v < topology.getVertexCount(); ++v) {
+			if (board.canBuildCity(player, topology.getVertex(v))) {
+				options.add(topology.getVertex(v));
+			}
+		}
+		if (!options.isEmpty()) {
+			board.upgradeSettlementAt(player, options.get(random.nextInt(options.size())));
+		}
+	}
+
+	/**
+	 * Builds a road for the player, or a settlement if it can't build one
+	 */
+	void placeRoad(Board board, PlayerReference player) throws InvalidActionException {
+		BoardTopology topology = board.getTopology();
+		List<EdgeLocation> options = new ArrayList<>();
+		for (int e = 0; e < topology.getEdgeCount(); ++e) {
+			if (board.canBuildRoadAt(player, topology.getEdge(e))) {
+				options.add(topology.getEdge(e));
+			}
+		}
+		if (options.isEmpty()) {
+			placeSettlement(board, player);
+		}
+		else {
+			board.buildRoad(player, options.get(random.nextInt(options.size())));
+		}
+	}
+
+	void moveRobber(Board board) throws InvalidActionException {
+		List<HexLocation> hexes = new ArrayList<>();
+		for (Hex hex : board.getHexes()) {
+			if (board.canMoveRobberTo(hex.getLocation())) {
+				hexes.add(hex.getLocation());
+			}
+		}
+		board.moveRobber(hexes.get(random.nextInt(hexes.size())));
+	}
+
+}
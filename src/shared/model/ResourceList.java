@@ -1,29 +1,52 @@
 package shared.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Map;
 
+import org.json.simple.JSONObject;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
 import shared.definitions.ResourceType;
 import shared.exceptions.InsufficientResourcesException;
 import shared.exceptions.SchemaMismatchException;
 
-import java.util.*;
-
-import org.json.simple.JSONObject;
-
 /** A ResourceList where all counts must be non-negative
  * and all mutations are <i>zero-sum</i> between two instances.
  * (i.e. cards should never spontaneously appear or disappear.
  * Rather, they can only be transfered from one ResourceList
  * to another, not created nor destroyed.)
+ * <p>
+ * Counts are kept in an int array indexed by ResourceType ordinal. Java
+ * serialization and the model JSON still see the map of counts this class
+ * used to keep.
  * @author beefster
  *
  */
+@JsonAdapter(ResourceList.GsonAdapter.class)
 public class ResourceList 
 implements Serializable {
 	private static final long serialVersionUID = 327842772934319600L;
 	
-	private Map<ResourceType, Integer> resources;
+	private static final ResourceType[] TYPES = ResourceType.values();
+	
+	// Stored games hold a Map<ResourceType, Integer> named resources
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("resources", Map.class)
+	};
+	
+	private transient int[] resources = new int[TYPES.length];
 	
 	/** Creates an empty ResourceList- e.g. for a player
 	 * 
@@ -38,13 +61,10 @@ implements Serializable {
 	 * @throws IllegalArgumentException if count is negative.
 	 */
 	public ResourceList(int count) throws IllegalArgumentException {
-		resources = new HashMap<>();
 		if (count < 0) {
 			throw new IllegalArgumentException("ResourceLists may not have negative counts.");
 		}
-		for (ResourceType type : ResourceType.values()) {
-			resources.put(type, count);
-		}
+		Arrays.fill(resources, count);
 	}
 	
 	public static ResourceList fromJSONObject(JSONObject json) throws SchemaMismatchException {
@@ -52,15 +72,14 @@ implements Serializable {
 			json = (JSONObject) json.get("resources");
 		}
 		ResourceList self = new ResourceList();
-		self.resources = new HashMap<>();
 		try {
-			for (ResourceType type : ResourceType.values()) {
+			for (ResourceType type : TYPES) {
 				String key = type.toString();
 				if (json.containsKey(key)) {
-					self.resources.put(type, (int) (long) json.get(key));
+					self.resources[type.ordinal()] = (int) (long) json.get(key);
 				}
 				else if (json.containsKey(key.toLowerCase())) {
-					self.resources.put(type, (int) (long) json.get(key.toLowerCase()));
+					self.resources[type.ordinal()] = (int) (long) json.get(key.toLowerCase());
 				}
 				else {
 					throw new SchemaMismatchException("A resource count is missing from the " +
@@ -80,11 +99,37 @@ implements Serializable {
 	 * @throws IllegalArgumentException if any of the counts are negative.
 	 */
 	public ResourceList(Map<ResourceType, Integer> counts) throws IllegalArgumentException {
-		for (int count : counts.values()) {
-			if (count < 0) throw new IllegalArgumentException("ResourceLists may not have " +
+		for (Map.Entry<ResourceType, Integer> count : counts.entrySet()) {
+			if (count.getValue() < 0) throw new IllegalArgumentException("ResourceLists may not have " +
 					"negative counts.");
+			resources[count.getKey().ordinal()] = count.getValue();
+		}
+	}
+
+	/** Creates a ResourceList from counts indexed by ResourceType ordinal
+	 * @param counts the counts, which the list keeps
+	 */
+	ResourceList(int[] counts) {
+		assert counts.length == TYPES.length;
+		resources = counts;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("resources", new HashMap<>(getResources()));
+		out.writeFields();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		Map<ResourceType, Integer> counts = (Map<ResourceType, Integer>) fields.get("resources", null);
+		resources = new int[TYPES.length];
+		if (counts != null) {
+			for (Map.Entry<ResourceType, Integer> count : counts.entrySet()) {
+				resources[count.getKey().ordinal()] = count.getValue();
+			}
 		}
-		resources = new HashMap<>(counts);
 	}
 
 	/** Counts the total number of cards in this ResourceList
@@ -94,7 +139,7 @@ implements Serializable {
 	 */
 	public int count() {
 		int total = 0;
-		for (int count : resources.values()) {
+		for (int count : resources) {
 			total += count;
 		}
 		return total;
@@ -107,12 +152,7 @@ implements Serializable {
 	 * @post none
 	 */
 	public int count(ResourceType type) {
-		if (resources.containsKey(type)) {
-			return resources.get(type);
-		}
-		else {
-			return 0;
-		}
+		return resources[type.ordinal()];
 	}
 
 	/** Transfers cards from one ResourceList to another
@@ -126,9 +166,10 @@ implements Serializable {
 	 */
 	public void transfer(ResourceList destination, ResourceType type, int amount)
 			throws InsufficientResourcesException {
-		if (count(type) < amount) throw new InsufficientResourcesException();
-		this.resources.put(type, count(type) - amount);
-		destination.resources.put(type, destination.count(type) + amount);
+		int index = type.ordinal();
+		if (resources[index] < amount) throw new InsufficientResourcesException();
+		resources[index] -= amount;
+		destination.resources[index] += amount;
 	}
 
 	/** Transfers cards from one ResourceList to another, but not more than is possible.
@@ -139,11 +180,12 @@ implements Serializable {
 	 * list will increase by amount
 	 */
 	public void transferAtMost(ResourceList destination, ResourceType type, int amount) {
-		if (count(type) < amount) {
-			amount = count(type);
+		int index = type.ordinal();
+		if (resources[index] < amount) {
+			amount = resources[index];
 		}
-		this.resources.put(type, count(type) - amount);
-		destination.resources.put(type, destination.count(type) + amount);
+		resources[index] -= amount;
+		destination.resources[index] += amount;
 	}
 
 	/* (non-Javadoc)
@@ -151,51 +193,34 @@ implements Serializable {
 	 */
 	@Override
 	public String toString() {
-		return "ResourceList [resources=" + resources + "]";
+		return "ResourceList [resources=" + getResources() + "]";
 	}
 	
 	@SuppressWarnings("unchecked")
 	public JSONObject toJSONObject() {
 		JSONObject o = new JSONObject();
-		int brick = 0;
-		int ore = 0;
-		int wood = 0;
-		int wheat = 0;
-		int sheep = 0;
-		
-		if(resources.containsKey(ResourceType.BRICK.toString().toLowerCase())){
-			brick = resources.get(ResourceType.BRICK.toString().toLowerCase());
-		}
-		if(resources.containsKey(ResourceType.ORE.toString().toLowerCase())){
-			ore = resources.get(ResourceType.ORE.toString().toLowerCase());
-		}
-		if(resources.containsKey(ResourceType.WOOD.toString().toLowerCase())){
-			wood = resources.get(ResourceType.WOOD.toString().toLowerCase());
+		for (ResourceType type : TYPES) {
+			o.put(type.toString().toLowerCase(), resources[type.ordinal()]);
 		}
-		if(resources.containsKey(ResourceType.WHEAT.toString().toLowerCase())){
-			wheat = resources.get(ResourceType.WHEAT.toString().toLowerCase());
-		}
-		if(resources.containsKey(ResourceType.SHEEP.toString().toLowerCase())){
-			sheep = resources.get(ResourceType.SHEEP.toString().toLowerCase());
-		}
-
-		o.put("brick", brick);
-		o.put("ore", ore);
-		o.put("wood", wood);
-		o.put("wheat", wheat);
-		o.put("sheep", sheep);
 		return o;
 	}
 
+	/**
+	 * @return a copy of the counts, with every type in it
+	 */
 	public Map<ResourceType, Integer> getResources() {
-		return resources;
+		Map<ResourceType, Integer> counts = new EnumMap<>(ResourceType.class);
+		for (ResourceType type : TYPES) {
+			counts.put(type, resources[type.ordinal()]);
+		}
+		return counts;
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((resources == null) ? 0 : resources.hashCode());
+		result = prime * result + Arrays.hashCode(resources);
 		return result;
 	}
 
@@ -208,28 +233,63 @@ implements Serializable {
 		if (getClass() != obj.getClass())
 			return false;
 		ResourceList other = (ResourceList) obj;
-		if (resources == null) {
-			if (other.resources != null)
-				return false;
-		} else if (!resources.equals(other.resources))
-			return false;
-		return true;
+		return Arrays.equals(resources, other.resources);
 	}
 
+	/** Transfers a random card from this ResourceList to another, with each card
+	 * as likely as any other
+	 * @param destination the ResourceList to transfer to
+	 * @post if this list has any cards, one of them is moved to the destination
+	 */
 	public void transferRandomCard(ResourceList destination) {
-		if (destination.count() == 0) return; // Nothing to steal.
-		List<ResourceType> choices = new ArrayList<>();
-		for (Map.Entry<ResourceType, Integer> cards : resources.entrySet()) {
-			for (int i=0; i<cards.getValue(); ++i) {
-				choices.add(cards.getKey());
+		int total = count();
+		if (total == 0) return; // Nothing to steal.
+		int index = CardDraws.draw(resources, total);
+		--resources[index];
+		++destination.resources[index];
+	}
+
+	/**
+	 * Writes the same JSON Gson wrote for the old map of counts
+	 */
+	public static class GsonAdapter extends TypeAdapter<ResourceList> {
+		@Override
+		public void write(JsonWriter out, ResourceList list) throws IOException {
+			if (list == null) {
+				out.nullValue();
+				return;
 			}
+			out.beginObject();
+			out.name("resources");
+			out.beginObject();
+			for (ResourceType type : TYPES) {
+				out.name(type.toString()).value(list.resources[type.ordinal()]);
+			}
+			out.endObject();
+			out.endObject();
 		}
-		ResourceType card = choices.get(new Random().nextInt(choices.size()));
-		try {
-			transfer(destination, card, 1);
-		} catch (InsufficientResourcesException e) {
-			assert false;
-			// This should NEVER happen.
+
+		@Override
+		public ResourceList read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			ResourceList list = new ResourceList();
+			in.beginObject();
+			while (in.hasNext()) {
+				if (!in.nextName().equals("resources")) {
+					in.skipValue();
+					continue;
+				}
+				in.beginObject();
+				while (in.hasNext()) {
+					list.resources[ResourceType.valueOf(in.nextName()).ordinal()] = in.nextInt();
+				}
+				in.endObject();
+			}
+			in.endObject();
+			return list;
 		}
 	}
 }
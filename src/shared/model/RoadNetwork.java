@@ -0,0 +1,178 @@
+package shared.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import shared.locations.EdgeLocation;
+import shared.locations.VertexLocation;
+
+/**
+ * Keeps track of each player's roads as connected groups (routes), and
+ * caches the length of the longest path through each one. Adding a road
+ * merges the routes it touches, and placing a town only affects the other
+ * players' routes that run through it, so only those are measured again.
+ * @author Jordan
+ *
+ */
+class RoadNetwork {
+
+	private static class Route {
+		final BitSet edges = new BitSet();
+		// -1 until measured
+		int longest = -1;
+	}
+
+	private final BoardTopology topology;
+
+	private final PlayerReference[] roadOwners;
+	private final PlayerReference[] townOwners;
+	private final Route[] routes;
+	private final Map<PlayerReference, List<Route>> playerRoutes = new HashMap<>();
+
+	/**
+	 * @param topology the shape of the board
+	 * @param roads the roads already on the board
+	 * @param towns the municipalities already on the board
+	 */
+	RoadNetwork(BoardTopology topology, Map<EdgeLocation, Road> roads,
+			Map<VertexLocation, Municipality> towns) {
+		this.topology = topology;
+		roadOwners = new PlayerReference[topology.getEdgeCount()];
+		townOwners = new PlayerReference[topology.getVertexCount()];
+		routes = new Route[topology.getEdgeCount()];
+		for (Municipality town : towns.values()) {
+			addTown(town.getLocation(), town.getOwner());
+		}
+		for (Road road : roads.values()) {
+			addRoad(road.getLocation(), road.getOwner());
+		}
+	}
+
+	/**
+	 * Joins the road to the player's routes at either end of it
+	 */
+	void addRoad(EdgeLocation location, PlayerReference player) {
+		int edge = topology.getEdgeId(location);
+		roadOwners[edge] = player;
+
+		List<Route> owned = playerRoutes.get(player);
+		if (owned == null) {
+			owned = new ArrayList<>();
+			playerRoutes.put(player, owned);
+		}
+
+		Route route = null;
+		for (int end = 0; end < 2; ++end) {
+			int vertex = topology.getEdgeVertex(edge, end);
+			for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+				int other = topology.getVertexEdge(vertex, slot);
+				if (other == -1 || other == edge || !player.equals(roadOwners[other])) {
+					continue;
+				}
+				Route touching = routes[other];
+				if (route == null) {
+					route = touching;
+				}
+				else if (touching != route) {
+					route = merge(owned, route, touching);
+				}
+			}
+		}
+		if (route == null) {
+			route = new Route();
+			owned.add(route);
+		}
+		route.edges.set(edge);
+		route.longest = -1;
+		routes[edge] = route;
+	}
+
+	private Route merge(List<Route> owned, Route a, Route b) {
+		Route into = a.edges.cardinality() >= b.edges.cardinality() ? a : b;
+		Route from = into == a ? b : a;
+		for (int e = from.edges.nextSetBit(0); e >= 0; e = from.edges.nextSetBit(e + 1)) {
+			routes[e] = into;
+		}
+		into.edges.or(from.edges);
+		owned.remove(from);
+		return into;
+	}
+
+	/**
+	 * Splits any other player's route that runs through the town
+	 */
+	void addTown(VertexLocation location, PlayerReference player) {
+		int vertex = topology.getVertexId(location);
+		townOwners[vertex] = player;
+		for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+			int edge = topology.getVertexEdge(vertex, slot);
+			if (edge != -1 && roadOwners[edge] != null && !player.equals(roadOwners[edge])) {
+				routes[edge].longest = -1;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of roads in the longest path of the player's
+	 * roads that no other player's town cuts through
+	 */
+	int lengthOfLongestRoute(PlayerReference player) {
+		List<Route> owned = playerRoutes.get(player);
+		if (owned == null) {
+			return 0;
+		}
+		int best = 0;
+		for (Route route : owned) {
+			if (route.longest < 0) {
+				route.longest = measure(route, player);
+			}
+			best = Math.max(best, route.longest);
+		}
+		return best;
+	}
+
+	private int measure(Route route, PlayerReference player) {
+		int size = route.edges.cardinality();
+		BitSet visited = new BitSet(topology.getEdgeCount());
+		BitSet started = new BitSet(topology.getVertexCount());
+		int best = 0;
+		for (int e = route.edges.nextSetBit(0); e >= 0; e = route.edges.nextSetBit(e + 1)) {
+			for (int end = 0; end < 2; ++end) {
+				int vertex = topology.getEdgeVertex(e, end);
+				if (started.get(vertex)) {
+					continue;
+				}
+				started.set(vertex);
+				best = Math.max(best, longestFrom(vertex, player, visited, 0));
+				if (best == size) {
+					return best;
+				}
+			}
+		}
+		return best;
+	}
+
+	private int longestFrom(int vertex, PlayerReference player, BitSet visited, int length) {
+		// Other players' towns cut the road
+		PlayerReference town = townOwners[vertex];
+		if (town != null && !town.equals(player)) {
+			return length;
+		}
+		int best = length;
+		for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+			int edge = topology.getVertexEdge(vertex, slot);
+			if (edge == -1 || visited.get(edge) || !player.equals(roadOwners[edge])) {
+				continue;
+			}
+			visited.set(edge);
+			best = Math.max(best, longestFrom(topology.traverse(vertex, edge),
+					player, visited, length + 1));
+			visited.clear(edge);
+		}
+		return best;
+	}
+
+}
@@ -0,0 +1,160 @@
+package shared.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import shared.definitions.MunicipalityType;
+import shared.locations.EdgeLocation;
+import shared.locations.VertexLocation;
+
+public class RoadNetworkTest {
+
+	private static final int GAMES = 100;
+	private static final int MOVES = 80;
+
+	private BoardTopology topology;
+	private PlayerReference[] players;
+
+	@Before
+	public void setUp() throws Exception {
+		topology = BoardTopology.forRadius(2);
+		players = new PlayerReference[4];
+		for (int i = 0; i < players.length; ++i) {
+			players[i] = PlayerReference.getDummyPlayerReference(i);
+		}
+	}
+
+	// Plays random legal placements and checks the cached lengths against
+	// an exhaustive search after every one.
+	@Test
+	public void testMatchesExhaustiveSearch() throws Exception {
+		RandomPlacements random = new RandomPlacements(1337);
+		for (int game = 0; game < GAMES; ++game) {
+			Board board = new Board();
+			// Start measuring at different points in the game so the
+			// network is sometimes built from a board that already has roads
+			int firstCheck = random.nextInt(MOVES);
+			for (int move = 0; move < MOVES; ++move) {
+				PlayerReference player = players[random.nextInt(players.length)];
+				if (random.nextInt(4) == 0) {
+					random.placeSettlement(board, player);
+				}
+				else {
+					random.placeRoad(board, player);
+				}
+				if (move < firstCheck) {
+					continue;
+				}
+				for (PlayerReference p : players) {
+					assertEquals(lengthByExhaustiveSearch(board, p),
+							board.lengthOfLongestRoute(p));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTownCutsRoad() throws Exception {
+		Board board = new Board();
+		PlayerReference red = players[0], blue = players[1];
+
+		VertexLocation start = topology.getVertex(0);
+		int edge = topology.getVertexEdge(0, 0);
+		board.placeStartingPieces(red, start, topology.getEdge(edge));
+		int vertex = topology.traverse(0, edge);
+		for (int i = 0; i < 4; ++i) {
+			edge = nextEdge(board, vertex);
+			board.buildRoad(red, topology.getEdge(edge));
+			vertex = topology.traverse(vertex, edge);
+		}
+		assertEquals(5, board.lengthOfLongestRoute(red));
+
+		// Cut the road in two
+		Map<VertexLocation, Municipality> towns = board.getMunicipalityMap();
+		VertexLocation cut = cutPoint(board, red);
+		towns.put(cut, new Municipality(cut, MunicipalityType.SETTLEMENT, blue));
+		board.setMunicipalities(towns);
+		assertEquals(lengthByExhaustiveSearch(board, red), board.lengthOfLongestRoute(red));
+		assertTrue(board.lengthOfLongestRoute(red) < 5);
+	}
+
+	private int nextEdge(Board board, int vertex) {
+		for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+			int e = topology.getVertexEdge(vertex, slot);
+			if (e != -1 && board.getRoadAt(topology.getEdge(e)) == null) {
+				return e;
+			}
+		}
+		fail("No free edge");
+		return -1;
+	}
+
+	// A vertex with two of the player's roads on it
+	private VertexLocation cutPoint(Board board, PlayerReference player) {
+		for (int v = 0; v < topology.getVertexCount(); ++v) {
+			int count = 0;
+			for (int slot = 0; slot < BoardTopology.EDGES_PER_VERTEX; ++slot) {
+				int e = topology.getVertexEdge(v, slot);
+				if (e == -1) continue;
+				Road road = board.getRoadAt(topology.getEdge(e));
+				if (road != null && player.equals(road.getOwner())) ++count;
+			}
+			if (count == 2 && board.getMunicipalityAt(topology.getVertex(v)) == null) {
+				return topology.getVertex(v);
+			}
+		}
+		fail("No place to cut the road");
+		return null;
+	}
+
+	// The search Board used before RoadNetwork: a depth first search from
+	// every end of every one of the player's roads.
+	private int lengthByExhaustiveSearch(Board board, PlayerReference player) {
+		Set<EdgeLocation> owned = new HashSet<>();
+		for (Road road : board.getRoads()) {
+			if (player.equals(road.getOwner())) {
+				owned.add(road.getLocation());
+			}
+		}
+		int best = 0;
+		for (EdgeLocation road : owned) {
+			for (VertexLocation node : road.getVertices()) {
+				List<EdgeLocation> path = dfsPath(board, node, owned,
+						new ArrayList<EdgeLocation>(), player);
+				best = Math.max(best, path.size());
+			}
+		}
+		return best;
+	}
+
+	private List<EdgeLocation> dfsPath(Board board, VertexLocation node,
+			Set<EdgeLocation> edges, List<EdgeLocation> visitedEdges,
+			PlayerReference player) {
+		Municipality town = board.getMunicipalityAt(node);
+		if (town != null && !town.getOwner().equals(player)) {
+			return visitedEdges;
+		}
+
+		List<EdgeLocation> best = visitedEdges;
+		for (EdgeLocation edge : node.getEdges()) {
+			if (edges.contains(edge) && !visitedEdges.contains(edge)) {
+				List<EdgeLocation> visited = new ArrayList<>(visitedEdges);
+				visited.add(edge);
+				List<EdgeLocation> path = dfsPath(board, node.traverse(edge), edges, visited, player);
+				if (path.size() > best.size()) {
+					best = path;
+				}
+			}
+		}
+		return best;
+	}
+
+}
@@ -33,7 +33,7 @@ public class TurnTracker
 	public TurnTracker(List<Player> players) {
 		this.players = new ArrayList<>(players);
 		
-		currentPlayer = players.get(0).getReference();
+		currentPlayer = new PlayerReference(players.get(0));
 		status = TurnStatus.FirstRound;
 	}
 	
@@ -125,7 +125,7 @@ public class TurnTracker
 				status = TurnStatus.SecondRound;
 			}
 			else {
-				currentPlayer = players.get((currentPlayerIndex + 1) % 4).getReference();
+				currentPlayer = new PlayerReference(players.get((currentPlayerIndex + 1) % 4));
 			}
 			break;
 		case SecondRound:
@@ -134,13 +134,13 @@ public class TurnTracker
 				currentPlayer.getPlayer().setHasRolled(false);
 			}
 			else {
-				currentPlayer = players.get((currentPlayerIndex + 3) % 4).getReference();
+				currentPlayer = new PlayerReference(players.get((currentPlayerIndex + 3) % 4));
 			}
 			break;
 		case Playing:
 			assert currentPlayer.getPlayer().hasRolled();
 			currentPlayer.getPlayer().ageDevCards();
-			currentPlayer = players.get((currentPlayerIndex + 1) % 4).getReference();
+			currentPlayer = new PlayerReference(players.get((currentPlayerIndex + 1) % 4));
 			status = TurnStatus.Rolling;
 			currentPlayer.getPlayer().setHasRolled(false);
 			break;